@@ -0,0 +1,75 @@
+package es.menasoft.juniemvc.benchmarks;
+
+import es.menasoft.juniemvc.models.BeerDto;
+import es.menasoft.juniemvc.models.BeerImportReport;
+import es.menasoft.juniemvc.models.BeerImportRow;
+import es.menasoft.juniemvc.services.BeerService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link BeerService#importBeers} of {@code rowCount} valid rows against the seeded H2 database, the
+ * target being 100k beers in under 10 seconds. Each invocation is one full import timed once; the rows
+ * are generated while they are consumed, as the request body reader would hand them over.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class BeerImportBenchmark {
+
+    @Param("100000")
+    int rowCount;
+
+    private BeerService beerService;
+
+    @Setup
+    public void setUp(SeededApplication application) {
+        beerService = application.getBean(BeerService.class);
+    }
+
+    @Benchmark
+    public BeerImportReport importBeers() {
+        return beerService.importBeers(new Iterator<>() {
+
+            private int row;
+
+            @Override
+            public boolean hasNext() {
+                return row < rowCount;
+            }
+
+            @Override
+            public BeerImportRow next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                row++;
+                return BeerImportRow.read(row, new BeerDto(null, null,
+                        "Imported Batch " + row,
+                        "LAGER",
+                        "Imported for benchmarks",
+                        String.format("%013d", row),
+                        100,
+                        new BigDecimal("9.99"),
+                        null, null));
+            }
+        });
+    }
+}
@@ -0,0 +1,51 @@
+package es.menasoft.juniemvc.benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import es.menasoft.juniemvc.models.BeerDto;
+import es.menasoft.juniemvc.services.BeerService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialization of the {@code Page<BeerDto>} returned by {@code GET /api/v1/beers}, using the
+ * {@link ObjectMapper} configured by the application for its controllers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BeerPageSerializationBenchmark {
+
+    @Param({"25", "100"})
+    int pageSize;
+
+    private ObjectMapper objectMapper;
+    private Page<BeerDto> page;
+
+    @Setup
+    public void setUp(SeededApplication application) {
+        objectMapper = application.getBean(ObjectMapper.class);
+        page = application.getBean(BeerService.class).getBeers(null, null, PageRequest.of(0, pageSize));
+    }
+
+    @Benchmark
+    public byte[] writeBeerPage() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(page);
+    }
+}
@@ -0,0 +1,57 @@
+package es.menasoft.juniemvc.benchmarks;
+
+import es.menasoft.juniemvc.models.BeerDto;
+import es.menasoft.juniemvc.services.BeerService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link BeerService#getBeers} through the transactional service proxy against the seeded H2 database.
+ * The name filter is long enough to be answered by the search index, the short one falls back to a
+ * {@code LIKE} scan of the beer table.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BeerServiceBenchmark {
+
+    private static final Pageable FIRST_PAGE = PageRequest.of(0, 25);
+
+    private BeerService beerService;
+
+    @Setup
+    public void setUp(SeededApplication application) {
+        beerService = application.getBean(BeerService.class);
+    }
+
+    @Benchmark
+    public Page<BeerDto> getBeers() {
+        return beerService.getBeers(null, null, FIRST_PAGE);
+    }
+
+    @Benchmark
+    public Page<BeerDto> getBeersByIndexedName() {
+        return beerService.getBeers(SeededApplication.NAME_WORD, null, FIRST_PAGE);
+    }
+
+    @Benchmark
+    public Page<BeerDto> getBeersByShortName() {
+        return beerService.getBeers(SeededApplication.NAME_WORD.substring(0, 2), null, FIRST_PAGE);
+    }
+}
@@ -0,0 +1,129 @@
+package es.menasoft.juniemvc.benchmarks;
+
+import es.menasoft.juniemvc.entities.Beer;
+import es.menasoft.juniemvc.entities.BeerOrder;
+import es.menasoft.juniemvc.entities.Customer;
+import es.menasoft.juniemvc.entities.OrderLine;
+import es.menasoft.juniemvc.mappers.BeerMapper;
+import es.menasoft.juniemvc.mappers.BeerMapperImpl;
+import es.menasoft.juniemvc.mappers.BeerOrderMapper;
+import es.menasoft.juniemvc.mappers.BeerOrderMapperImpl;
+import es.menasoft.juniemvc.mappers.OrderLineMapperImpl;
+import es.menasoft.juniemvc.models.BeerDto;
+import es.menasoft.juniemvc.models.BeerOrderDto;
+import es.menasoft.juniemvc.models.BeerOrderStatus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Entity to DTO mapping throughput of the MapStruct generated mappers.
+ * The mappers are wired by a minimal Spring context, the same way the application injects them.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MapperBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Mappers {
+
+        AnnotationConfigApplicationContext context;
+        BeerMapper beerMapper;
+        BeerOrderMapper beerOrderMapper;
+
+        @Setup
+        public void setUp() {
+            context = new AnnotationConfigApplicationContext(
+                    BeerMapperImpl.class, BeerOrderMapperImpl.class, OrderLineMapperImpl.class);
+            beerMapper = context.getBean(BeerMapper.class);
+            beerOrderMapper = context.getBean(BeerOrderMapper.class);
+        }
+
+        @TearDown
+        public void tearDown() {
+            context.close();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class BeerState {
+
+        Beer beer;
+
+        @Setup
+        public void setUp() {
+            beer = beer(1);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class BeerOrderState {
+
+        @Param({"10", "100", "1000"})
+        int orderLines;
+
+        BeerOrder beerOrder;
+
+        @Setup
+        public void setUp() {
+            beerOrder = BeerOrder.builder()
+                    .id(1)
+                    .version(0)
+                    .orderStatus(BeerOrderStatus.NEW)
+                    .customer(Customer.builder().id(1).name("Benchmark Customer").build())
+                    .createdDate(LocalDateTime.now())
+                    .updateDate(LocalDateTime.now())
+                    .build();
+            for (int i = 1; i <= orderLines; i++) {
+                beerOrder.getOrderLines().add(OrderLine.builder()
+                        .id(i)
+                        .orderQuantity(i % 12 + 1)
+                        .beer(beer(i))
+                        .beerOrder(beerOrder)
+                        .build());
+            }
+        }
+    }
+
+    @Benchmark
+    public BeerDto beerToBeerDto(Mappers mappers, BeerState state) {
+        return mappers.beerMapper.beerToBeerDto(state.beer);
+    }
+
+    @Benchmark
+    public BeerOrderDto beerOrderToBeerOrderDto(Mappers mappers, BeerOrderState state) {
+        return mappers.beerOrderMapper.beerOrderToBeerOrderDto(state.beerOrder);
+    }
+
+    private static Beer beer(int id) {
+        return Beer.builder()
+                .id(id)
+                .version(0)
+                .beerName("Benchmark Beer " + id)
+                .beerStyle("IPA")
+                .description("A hoppy beer brewed for benchmarks")
+                .upc(String.format("%013d", id))
+                .quantityOnHand(100)
+                .price(new BigDecimal("12.95"))
+                .createdDate(LocalDateTime.now())
+                .updateDate(LocalDateTime.now())
+                .build();
+    }
+}
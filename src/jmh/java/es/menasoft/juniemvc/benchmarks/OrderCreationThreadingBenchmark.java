@@ -0,0 +1,122 @@
+package es.menasoft.juniemvc.benchmarks;
+
+import es.menasoft.juniemvc.JuniemvcApplication;
+import es.menasoft.juniemvc.models.BeerDto;
+import es.menasoft.juniemvc.models.CustomerDto;
+import es.menasoft.juniemvc.services.BeerService;
+import es.menasoft.juniemvc.services.CustomerService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code POST /api/v1/orders} over HTTP from {@value #CLIENTS} concurrent clients, with the requests handled
+ * by the Tomcat worker pool ({@code virtualThreads=false}) or by a virtual thread each, admitted up to the
+ * connection pool size ({@code virtualThreads=true}). Every operation is one wave of {@value #CLIENTS} orders;
+ * a wave with a failed order fails the benchmark rather than reporting the time of the rejections.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class OrderCreationThreadingBenchmark {
+
+    static final int CLIENTS = 2000;
+
+    private static final int BEERS = 100;
+
+    @Param({"false", "true"})
+    boolean virtualThreads;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient client;
+    private List<HttpRequest> requests;
+
+    @Setup
+    public void start() {
+        context = new SpringApplicationBuilder(JuniemvcApplication.class)
+                .properties(
+                        "server.port=0",
+                        "spring.datasource.url=jdbc:h2:mem:order-benchmarks;DB_CLOSE_DELAY=-1",
+                        "spring.h2.console.enabled=false",
+                        "spring.main.banner-mode=off",
+                        "logging.level.root=WARN",
+                        "spring.threads.virtual.enabled=" + virtualThreads,
+                        // Both modes accept every client, only the handling of the accepted requests differs
+                        "server.tomcat.accept-count=" + CLIENTS,
+                        "juniemvc.virtual-threads.admission-timeout=1m")
+                .run();
+
+        CustomerDto customer = context.getBean(CustomerService.class).saveCustomer(new CustomerDto(null, null,
+                "Benchmark Customer", "benchmark@example.com", "555-0100", "1 Benchmark Way", null,
+                "Springfield", "OR", "97477", null, null));
+        BeerService beerService = context.getBean(BeerService.class);
+        List<Integer> beerIds = new ArrayList<>(BEERS);
+        for (int i = 0; i < BEERS; i++) {
+            beerIds.add(beerService.saveBeer(new BeerDto(null, null, "Flash Sale " + i, "IPA",
+                    "Seeded for benchmarks", String.format("%013d", i), 1_000_000_000,
+                    new BigDecimal("9.99"), null, null)).id());
+        }
+
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        URI orders = URI.create("http://localhost:" + port + "/api/v1/orders");
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        requests = new ArrayList<>(CLIENTS);
+        for (int i = 0; i < CLIENTS; i++) {
+            String body = """
+                    {"customerId": %d, "orderLines": [{"beerId": %d, "orderQuantity": 1}]}"""
+                    .formatted(customer.id(), beerIds.get(i % BEERS));
+            requests.add(HttpRequest.newBuilder(orders)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body))
+                    .build());
+        }
+    }
+
+    @TearDown
+    public void stop() {
+        client.close();
+        context.close();
+    }
+
+    @Benchmark
+    public int createOrders() {
+        List<CompletableFuture<Integer>> responses = requests.stream()
+                .map(request -> client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                        .thenApply(HttpResponse::statusCode))
+                .toList();
+        int created = 0;
+        for (CompletableFuture<Integer> response : responses) {
+            int status = response.join();
+            if (status != 201) {
+                throw new IllegalStateException("Order creation failed with status " + status);
+            }
+            created++;
+        }
+        return created;
+    }
+}
@@ -0,0 +1,72 @@
+package es.menasoft.juniemvc.benchmarks;
+
+import es.menasoft.juniemvc.JuniemvcApplication;
+import es.menasoft.juniemvc.models.BeerDto;
+import es.menasoft.juniemvc.services.BeerService;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+
+/**
+ * The full application running against its own in-memory H2 database, migrated by Flyway and seeded
+ * with {@code beerCount} beers through {@link BeerService#saveBeer} so the caches and the search index
+ * see the same writes they would in production.
+ */
+@State(Scope.Benchmark)
+public class SeededApplication {
+
+    /**
+     * Word present in the name of one in {@code NAME_WORDS.length} seeded beers
+     */
+    static final String NAME_WORD = "galaxy";
+
+    private static final String[] NAME_WORDS = {
+            "Galaxy", "Citra", "Mosaic", "Simcoe", "Amarillo", "Cascade", "Centennial", "Chinook",
+            "Nelson", "Sabro", "Strata", "Idaho", "Ekuanot", "Azacca", "Motueka", "Riwaka"
+    };
+    private static final String[] STYLES = {"IPA", "PALE ALE", "STOUT", "LAGER", "PORTER", "WHEAT", "SOUR", "PILSNER"};
+
+    @Param("5000")
+    int beerCount;
+
+    private ConfigurableApplicationContext context;
+
+    @Setup
+    public void start() {
+        context = new SpringApplicationBuilder(JuniemvcApplication.class)
+                .properties(
+                        "server.port=0",
+                        "spring.datasource.url=jdbc:h2:mem:benchmarks;DB_CLOSE_DELAY=-1",
+                        "spring.h2.console.enabled=false",
+                        "spring.main.banner-mode=off",
+                        "logging.level.root=WARN")
+                .run();
+
+        BeerService beerService = getBean(BeerService.class);
+        for (int i = 0; i < beerCount; i++) {
+            beerService.saveBeer(new BeerDto(null, null,
+                    NAME_WORDS[i % NAME_WORDS.length] + " Batch " + i,
+                    STYLES[i % STYLES.length],
+                    "Seeded for benchmarks",
+                    String.format("%013d", i),
+                    100,
+                    new BigDecimal("9.99"),
+                    null, null));
+        }
+    }
+
+    @TearDown
+    public void stop() {
+        context.close();
+    }
+
+    <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+}
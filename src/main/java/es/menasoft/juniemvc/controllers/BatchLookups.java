@@ -0,0 +1,55 @@
+package es.menasoft.juniemvc.controllers;
+
+import es.menasoft.juniemvc.exceptions.BadRequestException;
+import es.menasoft.juniemvc.models.BatchDto;
+import org.springframework.http.ResponseEntity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Multi-get support for the {@code ?ids=} endpoints, which replace one request per entity with a single
+ * lookup. The services resolve the IDs in bulk; the response lists the entities in request order and
+ * reports the IDs that do not exist.
+ */
+final class BatchLookups {
+
+    // Bounds the IN list and the response size of a single request
+    private static final int MAX_IDS = 100;
+
+    private BatchLookups() {
+    }
+
+    /**
+     * Look up entities by ID
+     * @param ids the requested IDs, duplicates are looked up once
+     * @param lookup finds the entities with the given IDs, keyed by ID
+     * @return the entities found in request order and the missing IDs, with status 200 (OK)
+     * @throws BadRequestException if an ID is empty or more than {@link #MAX_IDS} IDs are requested
+     */
+    static <T> ResponseEntity<BatchDto<T>> lookup(List<Integer> ids, Function<List<Integer>, Map<Integer, T>> lookup) {
+        if (ids.stream().anyMatch(Objects::isNull)) {
+            throw new BadRequestException("IDs must not be empty");
+        }
+        List<Integer> distinctIds = ids.stream().distinct().toList();
+        if (distinctIds.size() > MAX_IDS) {
+            throw new BadRequestException("At most " + MAX_IDS + " IDs can be requested at once");
+        }
+
+        Map<Integer, T> found = distinctIds.isEmpty() ? Map.of() : lookup.apply(distinctIds);
+        List<T> content = new ArrayList<>(found.size());
+        List<Integer> missingIds = new ArrayList<>();
+        for (Integer id : distinctIds) {
+            T entity = found.get(id);
+            if (entity != null) {
+                content.add(entity);
+            } else {
+                missingIds.add(id);
+            }
+        }
+        return ResponseEntity.ok(new BatchDto<>(content, missingIds));
+    }
+}
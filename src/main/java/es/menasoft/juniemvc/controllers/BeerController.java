@@ -1,20 +1,37 @@
 package es.menasoft.juniemvc.controllers;
 
+import es.menasoft.juniemvc.exceptions.BadRequestException;
 import es.menasoft.juniemvc.exceptions.EntityNotFoundException;
+import es.menasoft.juniemvc.exceptions.PreconditionFailedException;
+import es.menasoft.juniemvc.models.BatchDto;
 import es.menasoft.juniemvc.models.BeerDto;
+import es.menasoft.juniemvc.models.BeerImportReport;
 import es.menasoft.juniemvc.models.BeerPatchDto;
+import es.menasoft.juniemvc.models.TotalCountMode;
+import es.menasoft.juniemvc.models.WindowDto;
 import es.menasoft.juniemvc.services.BeerService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 
 /**
  * REST controller for managing beers.
@@ -25,7 +42,12 @@ import java.util.List;
 @RequiredArgsConstructor
 class BeerController {
 
+    // Only fields backed by an index can be scrolled without scanning
+    private static final Set<String> SCROLL_SORT_FIELDS = Set.of("id", "beerName", "beerStyle");
+
     private final BeerService beerService;
+    private final NdjsonExporter ndjsonExporter;
+    private final BeerImportReader beerImportReader;
 
     /**
      * Creates a new beer.
@@ -39,25 +61,69 @@ class BeerController {
         return new ResponseEntity<>(savedBeer, HttpStatus.CREATED);
     }
 
+    /**
+     * Creates beers in bulk from a JSON array or a CSV document with a header line naming the beer fields.
+     * The body is read and validated row by row and valid beers are written in chunks, so imports of any size
+     * run in constant memory. Invalid rows are skipped and counted, the first of them are listed with their errors.
+     *
+     * @param contentType the content type of the body, application/json or text/csv
+     * @param body the beers to import
+     * @return the number of beers created and rejected with the first rejected rows and status 200 (OK)
+     * @throws BadRequestException if the body cannot be read at all
+     * @throws IOException if reading the body fails
+     */
+    @PostMapping(path = "/import", consumes = {MediaType.APPLICATION_JSON_VALUE, BeerImportReader.TEXT_CSV_VALUE})
+    public ResponseEntity<BeerImportReport> importBeers(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType, InputStream body) throws IOException {
+        try (BeerImportReader.Rows rows = beerImportReader.read(body, MediaType.parseMediaType(contentType))) {
+            return new ResponseEntity<>(beerService.importBeers(rows), HttpStatus.OK);
+        }
+    }
+
     /**
      * Retrieves a beer by its ID.
+     * Carries a strong ETag derived from the beer version; a request whose {@code If-None-Match} holds
+     * the current tag is answered with 304 (Not Modified) from a version lookup, without loading the beer.
      *
      * @param beerId the ID of the beer to retrieve
-     * @return the beer with status 200 (OK)
+     * @param ifNoneMatch optional entity tags of the copies held by the client
+     * @return the beer with status 200 (OK), or status 304 (Not Modified) if the client's copy is current
      * @throws EntityNotFoundException if the beer is not found
      */
     @GetMapping("/{beerId}")
-    public ResponseEntity<BeerDto> getBeerById(@PathVariable("beerId") Integer beerId) {
+    public ResponseEntity<BeerDto> getBeerById(
+            @PathVariable("beerId") Integer beerId,
+            @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        if (ifNoneMatch != null) {
+            String currentTag = EntityTags.of(beerId, beerService.getBeerVersion(beerId)
+                    .orElseThrow(() -> new EntityNotFoundException("Beer", beerId)));
+            if (EntityTags.matches(ifNoneMatch, currentTag)) {
+                return EntityTags.notModified(currentTag);
+            }
+        }
         BeerDto beer = beerService.getBeerById(beerId)
                 .orElseThrow(() -> new EntityNotFoundException("Beer", beerId));
-        return new ResponseEntity<>(beer, HttpStatus.OK);
+        return EntityTags.ok(beer, EntityTags.of(beer.id(), beer.version()), ifNoneMatch);
+    }
+
+    /**
+     * Retrieves several beers by ID in one request.
+     * Cached beers are served from the cache, the others are loaded with a single query.
+     *
+     * @param ids the beer IDs, at most 100
+     * @return the beers found in request order and the IDs that do not exist, with status 200 (OK)
+     * @throws BadRequestException if an ID is empty or too many IDs are requested
+     */
+    @GetMapping(params = "ids")
+    public ResponseEntity<BatchDto<BeerDto>> getBeersByIds(@RequestParam List<Integer> ids) {
+        return BatchLookups.lookup(ids, beerService::getBeersByIds);
     }
 
     /**
      * Retrieves all beers.
      *
      * @return a list of all beers with status 200 (OK)
-     * @deprecated Use {@link #getBeers(String, String, Integer, Integer, String, String)} instead
+     * @deprecated Use {@link #getBeers(String, String, Integer, Integer, String, String, TotalCountMode, String)} instead
      */
     @GetMapping(path = "/all")
     @Deprecated
@@ -65,9 +131,22 @@ class BeerController {
         List<BeerDto> beers = beerService.getAllBeers();
         return new ResponseEntity<>(beers, HttpStatus.OK);
     }
+
+    /**
+     * Exports all beers as newline-delimited JSON, streamed from the database in constant memory.
+     *
+     * @return the beers in ID order, one JSON object per line, with status 200 (OK)
+     */
+    @GetMapping(path = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportBeers() {
+        return ndjsonExporter.export(BeerDto.class, beerService::exportBeers);
+    }
     
     /**
      * Retrieves beers with optional filtering by name, style and pagination.
+     * Clients that never display the total can skip the COUNT query with {@code totalCount=NONE},
+     * which returns a slice telling only whether the page is the last one, or use
+     * {@code totalCount=APPROXIMATE} to get a total that is cached per filter for a short time.
      *
      * @param beerName optional name filter (can be null or empty)
      * @param beerStyle optional style filter (can be null or empty)
@@ -75,37 +154,115 @@ class BeerController {
      * @param size page size (defaults to 20)
      * @param sortField field to sort by (defaults to "id")
      * @param sortDirection sort direction (ASC or DESC, defaults to ASC)
-     * @return a page of beers matching the criteria with status 200 (OK)
+     * @param totalCount how the total is computed (EXACT, NONE or APPROXIMATE, defaults to EXACT)
+     * @param ifNoneMatch optional entity tags of the copies held by the client
+     * @return a page or slice of beers matching the criteria with a weak ETag and status 200 (OK),
+     *         or status 304 (Not Modified) if the client's copy is current
      */
     @GetMapping
-    public ResponseEntity<Page<BeerDto>> getBeers(
+    public ResponseEntity<Slice<BeerDto>> getBeers(
             @RequestParam(required = false) String beerName,
             @RequestParam(required = false) String beerStyle,
             @RequestParam(defaultValue = "0") Integer page,
             @RequestParam(defaultValue = "20") Integer size,
             @RequestParam(defaultValue = "id") String sortField,
-            @RequestParam(defaultValue = "ASC") String sortDirection) {
+            @RequestParam(defaultValue = "ASC") String sortDirection,
+            @RequestParam(defaultValue = "EXACT") TotalCountMode totalCount,
+            @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         
         Sort sort = Sort.by(Sort.Direction.fromString(sortDirection), sortField);
         Pageable pageable = PageRequest.of(page, size, sort);
-        
-        Page<BeerDto> beers = beerService.getBeers(beerName, beerStyle, pageable);
-        return new ResponseEntity<>(beers, HttpStatus.OK);
+
+        Slice<BeerDto> beers = switch (totalCount) {
+            case EXACT -> beerService.getBeers(beerName, beerStyle, pageable);
+            case NONE -> beerService.getBeerSlice(beerName, beerStyle, pageable);
+            case APPROXIMATE -> withApproximateTotal(beerService.getBeerSlice(beerName, beerStyle, pageable),
+                    beerService.getApproximateBeerCount(beerName, beerStyle));
+        };
+        long total = beers instanceof Page<BeerDto> pageOfBeers ? pageOfBeers.getTotalElements() : -1;
+        return EntityTags.ok(beers,
+                EntityTags.weakOf(beers.getContent(), BeerDto::id, BeerDto::version, pageable, beers.hasNext(), total),
+                ifNoneMatch);
+    }
+
+    /**
+     * Scrolls through beers with optional filtering by name and style using keyset pagination.
+     * The first window is requested without a continuation token; every following window is requested
+     * with the token returned by the previous one, which also fixes the sort order.
+     *
+     * @param beerName optional name filter (can be null or empty)
+     * @param beerStyle optional style filter (can be null or empty)
+     * @param continuationToken optional token returned by the previous window
+     * @param size window size (defaults to 20)
+     * @param sortField field to sort by, one of id, beerName or beerStyle (defaults to "id")
+     * @param sortDirection sort direction (ASC or DESC, defaults to ASC)
+     * @param ifNoneMatch optional entity tags of the copies held by the client
+     * @return a window of beers matching the criteria with a weak ETag and status 200 (OK),
+     *         or status 304 (Not Modified) if the client's copy is current
+     * @throws BadRequestException if the sort field, size or continuation token is invalid
+     */
+    @GetMapping("/scroll")
+    public ResponseEntity<WindowDto<BeerDto>> scrollBeers(
+            @RequestParam(required = false) String beerName,
+            @RequestParam(required = false) String beerStyle,
+            @RequestParam(required = false) String continuationToken,
+            @RequestParam(defaultValue = "20") Integer size,
+            @RequestParam(defaultValue = "id") String sortField,
+            @RequestParam(defaultValue = "ASC") String sortDirection,
+            @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+
+        if (size < 1) {
+            throw new BadRequestException("Size must be positive");
+        }
+
+        Sort sort;
+        ScrollPosition position;
+        if (continuationToken != null) {
+            ContinuationTokens.Token token = ContinuationTokens.decode(continuationToken);
+            sort = token.sort();
+            position = token.position();
+        } else {
+            sort = Sort.by(parseDirection(sortDirection), sortField);
+            position = ScrollPosition.keyset();
+        }
+
+        Sort.Order order = sort.iterator().next();
+        if (!SCROLL_SORT_FIELDS.contains(order.getProperty())) {
+            throw new BadRequestException("Cannot scroll beers by " + order.getProperty());
+        }
+
+        Window<BeerDto> window = beerService.scrollBeers(beerName, beerStyle, position, sort, size);
+        String nextToken = ContinuationTokens.next(window, order.getProperty(), order.getDirection());
+        return EntityTags.ok(new WindowDto<>(window.getContent(), window.size(), window.hasNext(), nextToken),
+                EntityTags.weakOf(window.getContent(), BeerDto::id, BeerDto::version, window.hasNext(), nextToken),
+                ifNoneMatch);
     }
 
     /**
      * Updates a beer.
+     * The update only applies to the version named by {@code If-Match}, or else by the version in the body;
+     * it is unconditional when neither is given or {@code If-Match} is {@code *}.
      *
      * @param beerId the ID of the beer to update
+     * @param ifMatch optional entity tag of the version the client last read
      * @param beerDto the updated beer data
-     * @return the updated beer with status 200 (OK)
+     * @return the updated beer with its new ETag and status 200 (OK)
      * @throws EntityNotFoundException if the beer is not found
+     * @throws PreconditionFailedException if the beer is no longer at the expected version
      */
     @PutMapping("/{beerId}")
-    public ResponseEntity<BeerDto> updateBeer(@PathVariable("beerId") Integer beerId, @Valid @RequestBody BeerDto beerDto) {
-        BeerDto updatedBeer = beerService.updateBeer(beerId, beerDto)
+    public ResponseEntity<BeerDto> updateBeer(
+            @PathVariable("beerId") Integer beerId,
+            @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @Valid @RequestBody BeerDto beerDto) {
+        Optional<Integer> expectedVersion = ifMatch != null
+                ? EntityTags.expectedVersion(ifMatch, "Beer", beerId)
+                : Optional.ofNullable(beerDto.version());
+        BeerDto updatedBeer = expectedVersion
+                .map(version -> beerService.updateBeer(beerId, beerDto, version))
+                .orElseGet(() -> beerService.updateBeer(beerId, beerDto))
                 .orElseThrow(() -> new EntityNotFoundException("Beer", beerId));
-        return new ResponseEntity<>(updatedBeer, HttpStatus.OK);
+        return ResponseEntity.ok().eTag(EntityTags.of(updatedBeer.id(), updatedBeer.version())).body(updatedBeer);
     }
 
     /**
@@ -126,16 +283,42 @@ class BeerController {
     /**
      * Partially updates a beer.
      * Only the non-null fields in the request body will be updated.
+     * The update only applies to the version named by {@code If-Match}; it is unconditional when the header
+     * is missing or {@code *}.
      *
      * @param beerId the ID of the beer to update
+     * @param ifMatch optional entity tag of the version the client last read
      * @param patchDto the partial update data (only non-null fields will be updated)
-     * @return the updated beer with status 200 (OK)
+     * @return the updated beer with its new ETag and status 200 (OK)
      * @throws EntityNotFoundException if the beer is not found
+     * @throws PreconditionFailedException if the beer is no longer at the expected version
      */
     @PatchMapping("/{beerId}")
-    public ResponseEntity<BeerDto> patchBeer(@PathVariable("beerId") Integer beerId, @RequestBody BeerPatchDto patchDto) {
-        BeerDto updatedBeer = beerService.patchBeer(beerId, patchDto)
+    public ResponseEntity<BeerDto> patchBeer(
+            @PathVariable("beerId") Integer beerId,
+            @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @RequestBody BeerPatchDto patchDto) {
+        Optional<Integer> expectedVersion = ifMatch != null
+                ? EntityTags.expectedVersion(ifMatch, "Beer", beerId)
+                : Optional.empty();
+        BeerDto updatedBeer = expectedVersion
+                .map(version -> beerService.patchBeer(beerId, patchDto, version))
+                .orElseGet(() -> beerService.patchBeer(beerId, patchDto))
                 .orElseThrow(() -> new EntityNotFoundException("Beer", beerId));
-        return new ResponseEntity<>(updatedBeer, HttpStatus.OK);
+        return ResponseEntity.ok().eTag(EntityTags.of(updatedBeer.id(), updatedBeer.version())).body(updatedBeer);
+    }
+
+    // The cached count may lag behind, never report fewer beers than the slice itself proves to exist
+    private static Page<BeerDto> withApproximateTotal(Slice<BeerDto> slice, long approximateTotal) {
+        long lowerBound = slice.getPageable().getOffset() + slice.getNumberOfElements() + (slice.hasNext() ? 1 : 0);
+        return new PageImpl<>(slice.getContent(), slice.getPageable(), Math.max(approximateTotal, lowerBound));
+    }
+
+    private static Sort.Direction parseDirection(String sortDirection) {
+        try {
+            return Sort.Direction.fromString(sortDirection);
+        } catch (IllegalArgumentException ex) {
+            throw new BadRequestException("Invalid sort direction: " + sortDirection, ex);
+        }
     }
 }
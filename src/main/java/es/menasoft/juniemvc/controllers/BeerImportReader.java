@@ -0,0 +1,119 @@
+package es.menasoft.juniemvc.controllers;
+
+import com.fasterxml.jackson.databind.DatabindException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvParser;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import es.menasoft.juniemvc.exceptions.BadRequestException;
+import es.menasoft.juniemvc.models.BeerDto;
+import es.menasoft.juniemvc.models.BeerImportRow;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads bulk beer imports from a JSON array or a CSV document with a header line, one beer at a time.
+ * A row whose values cannot be bound to a beer is reported and skipped; a document that cannot be parsed any
+ * further ends the import with a final unreadable row.
+ */
+@Component
+class BeerImportReader {
+
+    static final String TEXT_CSV_VALUE = "text/csv";
+
+    private static final MediaType TEXT_CSV = MediaType.valueOf(TEXT_CSV_VALUE);
+
+    private final ObjectReader jsonReader;
+    private final ObjectReader csvReader;
+
+    BeerImportReader(ObjectMapper objectMapper) {
+        this.jsonReader = objectMapper.readerFor(BeerDto.class);
+        this.csvReader = CsvMapper.builder()
+                .enable(CsvParser.Feature.TRIM_SPACES)
+                .enable(CsvParser.Feature.EMPTY_STRING_AS_NULL)
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                .findAndAddModules()
+                .build()
+                .readerFor(BeerDto.class)
+                .with(CsvSchema.emptySchema().withHeader());
+    }
+
+    /**
+     * Start reading an import
+     * @param body the request body, read as the rows are consumed
+     * @param contentType the content type of the body, JSON or CSV
+     * @return the rows of the import, to be closed once consumed
+     * @throws BadRequestException if the body cannot be read at all
+     */
+    Rows read(InputStream body, MediaType contentType) {
+        ObjectReader reader = TEXT_CSV.includes(contentType) ? csvReader : jsonReader;
+        try {
+            return new Rows(reader.readValues(body));
+        } catch (IOException ex) {
+            throw new BadRequestException("Unreadable import: " + ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * The rows of an import, in document order.
+     */
+    static final class Rows implements Iterator<BeerImportRow>, Closeable {
+
+        private final MappingIterator<BeerDto> values;
+        private long row;
+        private String failure;
+        private boolean done;
+
+        private Rows(MappingIterator<BeerDto> values) {
+            this.values = values;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (done || failure != null) {
+                return !done;
+            }
+            try {
+                done = !values.hasNextValue();
+            } catch (IOException ex) {
+                failure = "Unreadable import, stopped: " + ex.getMessage();
+            }
+            return !done;
+        }
+
+        @Override
+        public BeerImportRow next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            long number = ++row;
+            if (failure != null) {
+                done = true;
+                return BeerImportRow.unreadable(number, failure);
+            }
+            try {
+                return BeerImportRow.read(number, values.nextValue());
+            } catch (DatabindException ex) {
+                // The iterator skips the rest of the value, the next row can still be read
+                return BeerImportRow.unreadable(number, ex.getOriginalMessage());
+            } catch (IOException ex) {
+                done = true;
+                return BeerImportRow.unreadable(number, "Unreadable import, stopped: " + ex.getMessage());
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            values.close();
+        }
+    }
+}
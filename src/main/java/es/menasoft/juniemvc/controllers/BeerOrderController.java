@@ -1,16 +1,41 @@
 package es.menasoft.juniemvc.controllers;
 
+import es.menasoft.juniemvc.exceptions.BadRequestException;
 import es.menasoft.juniemvc.exceptions.EntityNotFoundException;
+import es.menasoft.juniemvc.exceptions.IdempotencyKeyMismatchException;
+import es.menasoft.juniemvc.exceptions.InvalidStatusTransitionException;
+import es.menasoft.juniemvc.exceptions.TooManyRequestsException;
+import es.menasoft.juniemvc.models.BatchDto;
 import es.menasoft.juniemvc.models.BeerOrderDto;
+import es.menasoft.juniemvc.models.BeerOrderIntakeDto;
+import es.menasoft.juniemvc.models.BeerOrderSearchCriteria;
+import es.menasoft.juniemvc.models.BeerOrderStatus;
+import es.menasoft.juniemvc.models.BeerOrderStatusTransitionCommand;
+import es.menasoft.juniemvc.models.BeerOrderStatusTransitionReport;
+import es.menasoft.juniemvc.models.BeerOrderSummaryDto;
 import es.menasoft.juniemvc.models.CreateBeerOrderCommand;
+import es.menasoft.juniemvc.models.WindowDto;
+import es.menasoft.juniemvc.services.BeerOrderIntakeService;
 import es.menasoft.juniemvc.services.BeerOrderService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
 
 /**
  * REST controller for managing beer orders.
@@ -21,56 +46,189 @@ import java.util.List;
 @RequiredArgsConstructor
 class BeerOrderController {
 
+    // Orders are searched newest first, the order ID is the only keyset column
+    private static final Sort SEARCH_SORT = Sort.by(Sort.Direction.DESC, "id");
+
     private final BeerOrderService beerOrderService;
+    private final BeerOrderIntakeService beerOrderIntakeService;
+    private final IdempotentRequests idempotentRequests;
+    private final NdjsonExporter ndjsonExporter;
 
     /**
      * Creates a new beer order.
+     * With the asynchronous intake enabled the order is only queued: the response is 202 (Accepted), with the
+     * URL to follow the order at in its Location header.
+     *
+     * A retry sending the same {@code Idempotency-Key} and body gets the response of the first request, the
+     * order is created once.
      *
      * @param command the command containing the order details
-     * @return the created beer order with status 201 (Created)
+     * @param idempotencyKey optional client-chosen key identifying the order across retries
+     * @return the created beer order with status 201 (Created), or its intake with status 202 (Accepted)
      * @throws EntityNotFoundException if the customer or beer is not found
+     * @throws TooManyRequestsException if the asynchronous intake queue is full
+     * @throws IdempotencyKeyMismatchException if the idempotency key was used with another order
      */
     @PostMapping
-    public ResponseEntity<BeerOrderDto> createBeerOrder(@Valid @RequestBody CreateBeerOrderCommand command) {
-        BeerOrderDto savedOrder = beerOrderService.createBeerOrder(command);
-        return new ResponseEntity<>(savedOrder, HttpStatus.CREATED);
+    public ResponseEntity<?> createBeerOrder(
+            @Valid @RequestBody CreateBeerOrderCommand command,
+            @RequestHeader(name = IdempotentRequests.IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
+        return idempotentRequests.handle(idempotencyKey, "POST /api/v1/orders", command, () -> {
+            if (beerOrderIntakeService.isEnabled()) {
+                BeerOrderIntakeDto intake = beerOrderIntakeService.submit(command);
+                return ResponseEntity.accepted()
+                        .location(ServletUriComponentsBuilder.fromCurrentRequestUri()
+                                .path("/intake/{intakeId}")
+                                .buildAndExpand(intake.id())
+                                .toUri())
+                        .body(intake);
+            }
+            BeerOrderDto savedOrder = beerOrderService.createBeerOrder(command);
+            return new ResponseEntity<>(savedOrder, HttpStatus.CREATED);
+        });
+    }
+
+    /**
+     * Retrieves the state of a beer order accepted by the asynchronous intake.
+     *
+     * @param intakeId the intake ID returned when the order was accepted
+     * @return the intake with status 200 (OK), holding the order ID once the order is created
+     * @throws EntityNotFoundException if the intake is unknown or has expired
+     */
+    @GetMapping("/intake/{intakeId}")
+    public ResponseEntity<BeerOrderIntakeDto> getBeerOrderIntake(@PathVariable("intakeId") UUID intakeId) {
+        return beerOrderIntakeService.getIntake(intakeId)
+                .map(ResponseEntity::ok)
+                .orElseThrow(() -> new EntityNotFoundException("BeerOrderIntake", intakeId));
     }
 
     /**
      * Retrieves a beer order by its ID.
+     * Carries a strong ETag derived from the beer order version; a request whose {@code If-None-Match} holds
+     * the current tag is answered with 304 (Not Modified) from a version lookup, without loading the beer order.
      *
      * @param orderId the ID of the beer order to retrieve
-     * @return the beer order with status 200 (OK)
+     * @param ifNoneMatch optional entity tags of the copies held by the client
+     * @return the beer order with status 200 (OK), or status 304 (Not Modified) if the client's copy is current
      * @throws EntityNotFoundException if the beer order is not found
      */
     @GetMapping("/{orderId}")
-    public ResponseEntity<BeerOrderDto> getBeerOrderById(@PathVariable("orderId") Integer orderId) {
+    public ResponseEntity<BeerOrderDto> getBeerOrderById(
+            @PathVariable("orderId") Integer orderId,
+            @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        if (ifNoneMatch != null) {
+            String currentTag = EntityTags.of(orderId, beerOrderService.getBeerOrderVersion(orderId)
+                    .orElseThrow(() -> new EntityNotFoundException("BeerOrder", orderId)));
+            if (EntityTags.matches(ifNoneMatch, currentTag)) {
+                return EntityTags.notModified(currentTag);
+            }
+        }
         BeerOrderDto order = beerOrderService.getBeerOrderById(orderId)
                 .orElseThrow(() -> new EntityNotFoundException("BeerOrder", orderId));
-        return new ResponseEntity<>(order, HttpStatus.OK);
+        return EntityTags.ok(order, EntityTags.of(order.id(), order.version()), ifNoneMatch);
+    }
+
+    /**
+     * Retrieves several beer orders by ID in one request.
+     * The orders are loaded with their order lines in a single query.
+     *
+     * @param ids the beer order IDs, at most 100
+     * @return the beer orders found in request order and the IDs that do not exist, with status 200 (OK)
+     * @throws BadRequestException if an ID is empty or too many IDs are requested
+     */
+    @GetMapping(params = "ids")
+    public ResponseEntity<BatchDto<BeerOrderDto>> getBeerOrdersByIds(@RequestParam List<Integer> ids) {
+        return BatchLookups.lookup(ids, beerOrderService::getBeerOrdersByIds);
     }
 
     /**
      * Retrieves all beer orders.
      *
      * @return a list of all beer orders with status 200 (OK)
+     * @deprecated Use {@link #searchBeerOrders(String, Integer, LocalDateTime, LocalDateTime, String, Integer, String)} instead
      */
-    @GetMapping
+    @GetMapping(path = "/all")
+    @Deprecated
     public ResponseEntity<List<BeerOrderDto>> getAllBeerOrders() {
         List<BeerOrderDto> orders = beerOrderService.getAllBeerOrders();
         return new ResponseEntity<>(orders, HttpStatus.OK);
     }
 
+    /**
+     * Exports all beer orders as newline-delimited JSON, streamed from the database in constant memory.
+     *
+     * @return the beer orders in ID order, one JSON object per line, with status 200 (OK)
+     */
+    @GetMapping(path = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportBeerOrders() {
+        return ndjsonExporter.export(BeerOrderDto.class, beerOrderService::exportBeerOrders);
+    }
+
+    /**
+     * Searches beer orders, newest first, using keyset pagination.
+     * The first window is requested without a continuation token; every following window is requested
+     * with the same filters and the token returned by the previous one.
+     *
+     * @param orderStatus optional exact order status filter
+     * @param customerId optional customer ID filter
+     * @param createdFrom optional inclusive lower bound of the creation date (ISO date-time)
+     * @param createdTo optional exclusive upper bound of the creation date (ISO date-time)
+     * @param continuationToken optional token returned by the previous window
+     * @param size window size (defaults to 20)
+     * @param ifNoneMatch optional entity tags of the copies held by the client
+     * @return a window of order summaries matching the criteria with a weak ETag and status 200 (OK),
+     *         or status 304 (Not Modified) if the client's copy is current
+     * @throws BadRequestException if the size, date range or continuation token is invalid
+     */
+    @GetMapping
+    public ResponseEntity<WindowDto<BeerOrderSummaryDto>> searchBeerOrders(
+            @RequestParam(required = false) BeerOrderStatus orderStatus,
+            @RequestParam(required = false) Integer customerId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime createdFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime createdTo,
+            @RequestParam(required = false) String continuationToken,
+            @RequestParam(defaultValue = "20") Integer size,
+            @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+
+        if (size < 1) {
+            throw new BadRequestException("Size must be positive");
+        }
+        if (createdFrom != null && createdTo != null && !createdFrom.isBefore(createdTo)) {
+            throw new BadRequestException("createdFrom must be before createdTo");
+        }
+
+        ScrollPosition position = ScrollPosition.keyset();
+        if (continuationToken != null) {
+            ContinuationTokens.Token token = ContinuationTokens.decode(continuationToken);
+            if (!SEARCH_SORT.equals(token.sort())) {
+                throw new BadRequestException("Invalid continuation token");
+            }
+            position = token.position();
+        }
+
+        BeerOrderSearchCriteria criteria = new BeerOrderSearchCriteria(orderStatus, customerId, createdFrom, createdTo);
+        Window<BeerOrderSummaryDto> window = beerOrderService.searchBeerOrders(criteria, position, size);
+        String nextToken = ContinuationTokens.next(window, "id", Sort.Direction.DESC);
+        return EntityTags.ok(new WindowDto<>(window.getContent(), window.size(), window.hasNext(), nextToken),
+                EntityTags.weakOf(window.getContent(), BeerOrderSummaryDto::id, BeerOrderSummaryDto::version,
+                        window.hasNext(), nextToken),
+                ifNoneMatch);
+    }
+
     /**
      * Retrieves all beer orders for a specific customer.
      *
      * @param customerId the ID of the customer
-     * @return a list of beer orders for the customer with status 200 (OK)
+     * @param ifNoneMatch optional entity tags of the copies held by the client
+     * @return a list of beer orders for the customer with a weak ETag and status 200 (OK),
+     *         or status 304 (Not Modified) if the client's copy is current
      */
     @GetMapping("/customer/{customerId}")
-    public ResponseEntity<List<BeerOrderDto>> getBeerOrdersByCustomerId(@PathVariable("customerId") Integer customerId) {
+    public ResponseEntity<List<BeerOrderDto>> getBeerOrdersByCustomerId(
+            @PathVariable("customerId") Integer customerId,
+            @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         List<BeerOrderDto> orders = beerOrderService.getBeerOrdersByCustomerId(customerId);
-        return new ResponseEntity<>(orders, HttpStatus.OK);
+        return EntityTags.ok(orders, EntityTags.weakOf(orders, BeerOrderDto::id, BeerOrderDto::version), ifNoneMatch);
     }
 
     /**
@@ -93,18 +251,69 @@ class BeerOrderController {
      * Updates the status of a beer order.
      *
      * @param orderId the ID of the beer order to update
-     * @param status the new status
+     * @param status the new status, one of the {@link BeerOrderStatus} names
      * @return the updated beer order with status 200 (OK)
      * @throws EntityNotFoundException if the beer order is not found
+     * @throws BadRequestException if the status is unknown
+     * @throws InvalidStatusTransitionException if the order cannot move to the status
      */
     @PatchMapping("/{orderId}/status")
     public ResponseEntity<BeerOrderDto> updateBeerOrderStatus(@PathVariable("orderId") Integer orderId, 
                                                              @RequestBody String status) {
-        BeerOrderDto updatedOrder = beerOrderService.updateBeerOrderStatus(orderId, status)
+        BeerOrderDto updatedOrder = beerOrderService.updateBeerOrderStatus(orderId, parseStatus(status))
                 .orElseThrow(() -> new EntityNotFoundException("BeerOrder", orderId));
         return new ResponseEntity<>(updatedOrder, HttpStatus.OK);
     }
 
+    /**
+     * Moves many beer orders from one status to another.
+     * The orders are either listed by ID or selected by their current status and an optional creation date
+     * range; orders that are not in the expected status are skipped. Orders are transitioned in chunks, each
+     * committed on its own.
+     *
+     * @param command the orders to transition and their expected and new status
+     * @return the number of orders per outcome with the outcome of every listed order, or of every selected order
+     *         that was not updated, and status 200 (OK)
+     * @throws BadRequestException if IDs are combined with a date range or the date range is invalid
+     * @throws InvalidStatusTransitionException if the expected status cannot lead to the new one
+     */
+    @PatchMapping("/status")
+    public ResponseEntity<BeerOrderStatusTransitionReport> transitionBeerOrderStatus(
+            @Valid @RequestBody BeerOrderStatusTransitionCommand command) {
+        if (command.ids() != null && (command.createdFrom() != null || command.createdTo() != null)) {
+            throw new BadRequestException("Orders are selected either by ID or by creation date, not both");
+        }
+        if (command.createdFrom() != null && command.createdTo() != null
+                && !command.createdFrom().isBefore(command.createdTo())) {
+            throw new BadRequestException("createdFrom must be before createdTo");
+        }
+        return ResponseEntity.ok(beerOrderService.transitionBeerOrderStatus(command));
+    }
+
+    /**
+     * Counts the beer orders in every status.
+     * The counts are maintained as orders are written, reading them does not scan the orders.
+     *
+     * @return the number of orders of every status, with status 200 (OK)
+     */
+    @GetMapping("/status-counts")
+    public ResponseEntity<Map<BeerOrderStatus, Long>> getBeerOrderStatusCounts() {
+        return ResponseEntity.ok(beerOrderService.getBeerOrderStatusCounts());
+    }
+
+    // The status is sent as plain text, a JSON string is accepted as well
+    private static BeerOrderStatus parseStatus(String status) {
+        String name = status.strip();
+        if (name.length() > 1 && name.startsWith("\"") && name.endsWith("\"")) {
+            name = name.substring(1, name.length() - 1);
+        }
+        try {
+            return BeerOrderStatus.valueOf(name.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            throw new BadRequestException("Unknown order status: " + name);
+        }
+    }
+
     /**
      * Deletes a beer order.
      *
@@ -1,14 +1,18 @@
 package es.menasoft.juniemvc.controllers;
 
 import es.menasoft.juniemvc.exceptions.EntityNotFoundException;
+import es.menasoft.juniemvc.exceptions.IdempotencyKeyMismatchException;
 import es.menasoft.juniemvc.models.BeerOrderShipmentDto;
 import es.menasoft.juniemvc.models.CreateBeerOrderShipmentCommand;
 import es.menasoft.juniemvc.services.BeerOrderShipmentService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -22,43 +26,80 @@ import java.util.List;
 class BeerOrderShipmentController {
 
     private final BeerOrderShipmentService beerOrderShipmentService;
+    private final NdjsonExporter ndjsonExporter;
+    private final IdempotentRequests idempotentRequests;
 
     /**
      * Creates a new beer order shipment.
      *
+     * A retry sending the same {@code Idempotency-Key} and body gets the response of the first request, the
+     * shipment is created once.
+     *
      * @param command the command containing the shipment details
+     * @param idempotencyKey optional client-chosen key identifying the shipment across retries
      * @return the created beer order shipment with status 201 (Created)
      * @throws EntityNotFoundException if the beer order is not found
+     * @throws IdempotencyKeyMismatchException if the idempotency key was used with another shipment
      */
     @PostMapping
-    public ResponseEntity<BeerOrderShipmentDto> createShipment(@Valid @RequestBody CreateBeerOrderShipmentCommand command) {
-        BeerOrderShipmentDto savedShipment = beerOrderShipmentService.createShipment(command);
-        return new ResponseEntity<>(savedShipment, HttpStatus.CREATED);
+    public ResponseEntity<?> createShipment(
+            @Valid @RequestBody CreateBeerOrderShipmentCommand command,
+            @RequestHeader(name = IdempotentRequests.IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
+        return idempotentRequests.handle(idempotencyKey, "POST /api/v1/shipments", command, () -> {
+            BeerOrderShipmentDto savedShipment = beerOrderShipmentService.createShipment(command);
+            return new ResponseEntity<>(savedShipment, HttpStatus.CREATED);
+        });
     }
 
     /**
      * Retrieves a beer order shipment by its ID.
+     * Carries a strong ETag derived from the beer order shipment version; a request whose {@code If-None-Match} holds
+     * the current tag is answered with 304 (Not Modified) from a version lookup, without loading the beer order shipment.
      *
      * @param shipmentId the ID of the beer order shipment to retrieve
-     * @return the beer order shipment with status 200 (OK)
+     * @param ifNoneMatch optional entity tags of the copies held by the client
+     * @return the beer order shipment with status 200 (OK), or status 304 (Not Modified) if the client's copy is current
      * @throws EntityNotFoundException if the beer order shipment is not found
      */
     @GetMapping("/{shipmentId}")
-    public ResponseEntity<BeerOrderShipmentDto> getShipmentById(@PathVariable("shipmentId") Integer shipmentId) {
+    public ResponseEntity<BeerOrderShipmentDto> getShipmentById(
+            @PathVariable("shipmentId") Integer shipmentId,
+            @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        if (ifNoneMatch != null) {
+            String currentTag = EntityTags.of(shipmentId, beerOrderShipmentService.getShipmentVersion(shipmentId)
+                    .orElseThrow(() -> new EntityNotFoundException("BeerOrderShipment", shipmentId)));
+            if (EntityTags.matches(ifNoneMatch, currentTag)) {
+                return EntityTags.notModified(currentTag);
+            }
+        }
         BeerOrderShipmentDto shipment = beerOrderShipmentService.getShipmentById(shipmentId)
                 .orElseThrow(() -> new EntityNotFoundException("BeerOrderShipment", shipmentId));
-        return new ResponseEntity<>(shipment, HttpStatus.OK);
+        return EntityTags.ok(shipment, EntityTags.of(shipment.id(), shipment.version()), ifNoneMatch);
     }
 
     /**
      * Retrieves all beer order shipments.
      *
-     * @return a list of all beer order shipments with status 200 (OK)
+     * @param ifNoneMatch optional entity tags of the copies held by the client
+     * @return a list of all beer order shipments with a weak ETag and status 200 (OK),
+     *         or status 304 (Not Modified) if the client's copy is current
      */
     @GetMapping
-    public ResponseEntity<List<BeerOrderShipmentDto>> getAllShipments() {
+    public ResponseEntity<List<BeerOrderShipmentDto>> getAllShipments(
+            @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         List<BeerOrderShipmentDto> shipments = beerOrderShipmentService.getAllShipments();
-        return new ResponseEntity<>(shipments, HttpStatus.OK);
+        return EntityTags.ok(shipments,
+                EntityTags.weakOf(shipments, BeerOrderShipmentDto::id, BeerOrderShipmentDto::version), ifNoneMatch);
+    }
+
+    /**
+     * Exports all shipments as newline-delimited JSON, streamed from the database in constant memory.
+     *
+     * @return the shipments in ID order, one JSON object per line, with status 200 (OK)
+     */
+    @GetMapping(path = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportShipments() {
+        return ndjsonExporter.export(BeerOrderShipmentDto.class, beerOrderShipmentService::exportShipments);
     }
 
     /**
@@ -3,10 +3,11 @@ package es.menasoft.juniemvc.controllers;
 import es.menasoft.juniemvc.models.BeerOrderShipmentDto;
 import es.menasoft.juniemvc.services.BeerOrderShipmentService;
 import lombok.RequiredArgsConstructor;
-import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
@@ -27,11 +28,16 @@ class BeerOrderShipmentsController {
      * Retrieves all shipments for a specific beer order.
      *
      * @param orderId the ID of the beer order
-     * @return a list of beer order shipments for the beer order with status 200 (OK)
+     * @param ifNoneMatch optional entity tags of the copies held by the client
+     * @return a list of beer order shipments for the beer order with a weak ETag and status 200 (OK),
+     *         or status 304 (Not Modified) if the client's copy is current
      */
     @GetMapping("/{orderId}/shipments")
-    public ResponseEntity<List<BeerOrderShipmentDto>> getShipmentsByBeerOrderId(@PathVariable("orderId") Integer orderId) {
+    public ResponseEntity<List<BeerOrderShipmentDto>> getShipmentsByBeerOrderId(
+            @PathVariable("orderId") Integer orderId,
+            @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         List<BeerOrderShipmentDto> shipments = beerOrderShipmentService.getShipmentsByBeerOrderId(orderId);
-        return new ResponseEntity<>(shipments, HttpStatus.OK);
+        return EntityTags.ok(shipments,
+                EntityTags.weakOf(shipments, BeerOrderShipmentDto::id, BeerOrderShipmentDto::version), ifNoneMatch);
     }
 }
\ No newline at end of file
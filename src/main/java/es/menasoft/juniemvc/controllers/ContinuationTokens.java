@@ -0,0 +1,107 @@
+package es.menasoft.juniemvc.controllers;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import es.menasoft.juniemvc.exceptions.BadRequestException;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+
+import java.io.IOException;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Encodes and decodes the opaque continuation tokens used by keyset-paginated endpoints.
+ * A token carries the sort order and the keyset (sort field and ID) of the last row of a window,
+ * so clients only need to echo it back to continue where the previous window ended.
+ */
+final class ContinuationTokens {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<>() {};
+
+    private static final String SORT_FIELD = "s";
+    private static final String SORT_DIRECTION = "d";
+    private static final String KEYS = "k";
+    private static final String ID = "id";
+
+    private ContinuationTokens() {
+    }
+
+    /**
+     * A decoded continuation token.
+     *
+     * @param sort the sort order the token was issued for
+     * @param position the keyset position after which to continue
+     */
+    record Token(Sort sort, ScrollPosition position) {}
+
+    /**
+     * Creates the token pointing after the last element of a window.
+     *
+     * @param window the window that was returned to the client
+     * @param sortField the field the window is sorted by
+     * @param direction the sort direction
+     * @return the continuation token, or null if the window is the last one
+     */
+    static String next(Window<?> window, String sortField, Sort.Direction direction) {
+        if (!window.hasNext() || window.isEmpty()) {
+            return null;
+        }
+        KeysetScrollPosition position = (KeysetScrollPosition) window.positionAt(window.size() - 1);
+
+        Map<String, Object> token = new LinkedHashMap<>();
+        token.put(SORT_FIELD, sortField);
+        token.put(SORT_DIRECTION, direction.name());
+        token.put(KEYS, position.getKeys());
+        try {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(OBJECT_MAPPER.writeValueAsBytes(token));
+        } catch (IOException ex) {
+            throw new IllegalStateException("Unable to encode continuation token", ex);
+        }
+    }
+
+    /**
+     * Decodes a token previously returned by {@link #next(Window, String, Sort.Direction)}.
+     * Tokens come from clients, so every field is checked for presence and type before use.
+     *
+     * @param continuationToken the token sent by the client
+     * @return the sort order and position encoded in the token
+     * @throws BadRequestException if the token is malformed, incomplete or tampered with
+     */
+    static Token decode(String continuationToken) {
+        Map<String, Object> token;
+        try {
+            token = OBJECT_MAPPER.readValue(Base64.getUrlDecoder().decode(continuationToken), MAP_TYPE);
+        } catch (IOException | IllegalArgumentException ex) {
+            throw new BadRequestException("Invalid continuation token", ex);
+        }
+        if (token == null
+                || !(token.get(SORT_FIELD) instanceof String sortField) || sortField.isBlank()
+                || !(token.get(SORT_DIRECTION) instanceof String directionName)
+                || !(token.get(KEYS) instanceof Map<?, ?> keys)) {
+            throw new BadRequestException("Invalid continuation token");
+        }
+        Sort.Direction direction = Sort.Direction.fromOptionalString(directionName)
+                .orElseThrow(() -> new BadRequestException("Invalid continuation token"));
+        return new Token(Sort.by(direction, sortField), ScrollPosition.forward(keyset(keys, sortField)));
+    }
+
+    // The keyset holds the sort field and the ID, both with a scalar (or, for the sort field, null) value
+    private static Map<String, Object> keyset(Map<?, ?> keys, String sortField) {
+        if (!(keys.get(ID) instanceof Number) || !keys.containsKey(sortField) || keys.size() > 2) {
+            throw new BadRequestException("Invalid continuation token");
+        }
+        Map<String, Object> keyset = new LinkedHashMap<>();
+        keys.forEach((key, value) -> {
+            if (value != null && !(value instanceof String || value instanceof Number || value instanceof Boolean)) {
+                throw new BadRequestException("Invalid continuation token");
+            }
+            keyset.put((String) key, value);
+        });
+        return keyset;
+    }
+}
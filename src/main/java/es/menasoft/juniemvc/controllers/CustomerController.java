@@ -1,13 +1,18 @@
 package es.menasoft.juniemvc.controllers;
 
+import es.menasoft.juniemvc.exceptions.BadRequestException;
 import es.menasoft.juniemvc.exceptions.EntityNotFoundException;
+import es.menasoft.juniemvc.models.BatchDto;
 import es.menasoft.juniemvc.models.CustomerDto;
 import es.menasoft.juniemvc.services.CustomerService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -21,6 +26,7 @@ import java.util.List;
 class CustomerController {
 
     private final CustomerService customerService;
+    private final NdjsonExporter ndjsonExporter;
 
     /**
      * Creates a new customer.
@@ -36,27 +42,66 @@ class CustomerController {
 
     /**
      * Retrieves a customer by its ID.
+     * Carries a strong ETag derived from the customer version; a request whose {@code If-None-Match} holds
+     * the current tag is answered with 304 (Not Modified) from a version lookup, without loading the customer.
      *
      * @param customerId the ID of the customer to retrieve
-     * @return the customer with status 200 (OK)
+     * @param ifNoneMatch optional entity tags of the copies held by the client
+     * @return the customer with status 200 (OK), or status 304 (Not Modified) if the client's copy is current
      * @throws EntityNotFoundException if the customer is not found
      */
     @GetMapping("/{customerId}")
-    public ResponseEntity<CustomerDto> getCustomerById(@PathVariable("customerId") Integer customerId) {
+    public ResponseEntity<CustomerDto> getCustomerById(
+            @PathVariable("customerId") Integer customerId,
+            @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        if (ifNoneMatch != null) {
+            String currentTag = EntityTags.of(customerId, customerService.getCustomerVersion(customerId)
+                    .orElseThrow(() -> new EntityNotFoundException("Customer", customerId)));
+            if (EntityTags.matches(ifNoneMatch, currentTag)) {
+                return EntityTags.notModified(currentTag);
+            }
+        }
         CustomerDto customer = customerService.getCustomerById(customerId)
                 .orElseThrow(() -> new EntityNotFoundException("Customer", customerId));
-        return new ResponseEntity<>(customer, HttpStatus.OK);
+        return EntityTags.ok(customer, EntityTags.of(customer.id(), customer.version()), ifNoneMatch);
+    }
+
+    /**
+     * Retrieves several customers by ID in one request.
+     * Customers in the second-level cache are served from there, the others are loaded with a single query.
+     *
+     * @param ids the customer IDs, at most 100
+     * @return the customers found in request order and the IDs that do not exist, with status 200 (OK)
+     * @throws BadRequestException if an ID is empty or too many IDs are requested
+     */
+    @GetMapping(params = "ids")
+    public ResponseEntity<BatchDto<CustomerDto>> getCustomersByIds(@RequestParam List<Integer> ids) {
+        return BatchLookups.lookup(ids, customerService::getCustomersByIds);
     }
 
     /**
      * Retrieves all customers.
      *
-     * @return a list of all customers with status 200 (OK)
+     * @param ifNoneMatch optional entity tags of the copies held by the client
+     * @return a list of all customers with a weak ETag and status 200 (OK),
+     *         or status 304 (Not Modified) if the client's copy is current
      */
     @GetMapping
-    public ResponseEntity<List<CustomerDto>> getAllCustomers() {
+    public ResponseEntity<List<CustomerDto>> getAllCustomers(
+            @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         List<CustomerDto> customers = customerService.getAllCustomers();
-        return new ResponseEntity<>(customers, HttpStatus.OK);
+        return EntityTags.ok(customers,
+                EntityTags.weakOf(customers, CustomerDto::id, CustomerDto::version), ifNoneMatch);
+    }
+
+    /**
+     * Exports all customers as newline-delimited JSON, streamed from the database in constant memory.
+     *
+     * @return the customers in ID order, one JSON object per line, with status 200 (OK)
+     */
+    @GetMapping(path = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportCustomers() {
+        return ndjsonExporter.export(CustomerDto.class, customerService::exportCustomers);
     }
 
     /**
@@ -0,0 +1,122 @@
+package es.menasoft.juniemvc.controllers;
+
+import es.menasoft.juniemvc.exceptions.PreconditionFailedException;
+import org.springframework.http.ETag;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Strong entity tags for single-entity representations, derived from the entity ID and {@code @Version}.
+ * Every write increments the version, so a client holding the tag of the current version already has the
+ * current representation and a conditional GET can be answered from a version lookup alone, without
+ * loading, mapping or serializing the entity.
+ * <p>
+ * Collections get weak entity tags, hashed from the ID and version of every element plus whatever else
+ * shapes the response (paging metadata, continuation token), so an unchanged listing is answered without
+ * serializing it.
+ */
+final class EntityTags {
+
+    private EntityTags() {
+    }
+
+    /**
+     * Build the entity tag of a version of an entity
+     * @param id the entity ID
+     * @param version the entity version, null for an entity that was never versioned
+     * @return the quoted strong entity tag
+     */
+    static String of(Integer id, Integer version) {
+        return "\"" + id + "-" + (version != null ? version : 0) + "\"";
+    }
+
+    /**
+     * Build the weak entity tag of a collection of entities
+     * @param items the entities in the response, in response order
+     * @param id extracts the ID of an entity
+     * @param version extracts the version of an entity
+     * @param metadata anything else rendered in the response that does not come from the entities
+     * @return the weak entity tag
+     */
+    static <T> String weakOf(Collection<T> items, Function<T, Integer> id, Function<T, Integer> version,
+                             Object... metadata) {
+        StringBuilder key = new StringBuilder();
+        for (Object value : metadata) {
+            key.append(value).append(';');
+        }
+        for (T item : items) {
+            key.append(of(id.apply(item), version.apply(item))).append(',');
+        }
+        return "W/\"" + DigestUtils.md5DigestAsHex(key.toString().getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+
+    /**
+     * Check an {@code If-None-Match} header against the current entity tag, using the weak comparison
+     * required for GET requests
+     * @param ifNoneMatch the header value, may be null
+     * @param currentTag the entity tag of the current version
+     * @return true if the client's copy is current
+     */
+    static boolean matches(String ifNoneMatch, String currentTag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        ETag current = ETag.create(currentTag);
+        return ETag.parse(ifNoneMatch).stream()
+                .anyMatch(tag -> tag.isWildcard() || tag.compare(current, false));
+    }
+
+    /**
+     * Find the version an {@code If-Match} header expects an entity to have, using the strong comparison
+     * required for writes
+     * @param ifMatch the header value, not null
+     * @param entityType the entity type, reported if no tag can match
+     * @param id the entity ID
+     * @return the expected version, or empty for {@code *}, which matches any current version
+     * @throws PreconditionFailedException if none of the tags is a strong tag of this entity
+     */
+    static Optional<Integer> expectedVersion(String ifMatch, String entityType, Integer id) {
+        String prefix = id + "-";
+        for (ETag tag : ETag.parse(ifMatch)) {
+            if (tag.isWildcard()) {
+                return Optional.empty();
+            }
+            if (!tag.weak() && tag.tag().startsWith(prefix)) {
+                try {
+                    return Optional.of(Integer.parseInt(tag.tag().substring(prefix.length())));
+                } catch (NumberFormatException ex) {
+                    // Not one of our tags, it cannot match
+                }
+            }
+        }
+        throw new PreconditionFailedException(entityType, id, null);
+    }
+
+    /**
+     * Answer a GET request with the representation, or with 304 (Not Modified) if the client's copy is current
+     * @param body the representation
+     * @param currentTag the entity tag of the representation
+     * @param ifNoneMatch the {@code If-None-Match} header value, may be null
+     * @return the response
+     */
+    static <T> ResponseEntity<T> ok(T body, String currentTag, String ifNoneMatch) {
+        if (matches(ifNoneMatch, currentTag)) {
+            return notModified(currentTag);
+        }
+        return ResponseEntity.ok().eTag(currentTag).body(body);
+    }
+
+    /**
+     * @param currentTag the entity tag of the current version
+     * @return a 304 (Not Modified) response carrying the current entity tag
+     */
+    static <T> ResponseEntity<T> notModified(String currentTag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(currentTag).build();
+    }
+}
@@ -0,0 +1,90 @@
+package es.menasoft.juniemvc.controllers;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import es.menasoft.juniemvc.exceptions.BadRequestException;
+import es.menasoft.juniemvc.models.IdempotentResponseDto;
+import es.menasoft.juniemvc.services.IdempotencyService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import java.net.URI;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * {@code Idempotency-Key} support for the creation endpoints, so a client retrying after a timeout does not
+ * create the same order or shipment twice. The first request with a key is handled normally; its retries,
+ * with the same body, get its recorded response marked with {@code Idempotent-Replayed: true}.
+ */
+@Component
+@RequiredArgsConstructor
+class IdempotentRequests {
+
+    static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    static final String IDEMPOTENT_REPLAYED = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final IdempotencyService idempotencyService;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Handle a request at most once per idempotency key
+     * @param idempotencyKey the key sent by the client, null to handle the request unconditionally
+     * @param scope the endpoint the key belongs to
+     * @param body the request body, a retry must send an equal one
+     * @param handler handles the request
+     * @return the response of the request, or the recorded response of the first request with the key
+     * @throws BadRequestException if the key is empty or too long
+     */
+    ResponseEntity<?> handle(String idempotencyKey, String scope, Object body, Supplier<ResponseEntity<?>> handler) {
+        if (idempotencyKey == null) {
+            return handler.get();
+        }
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new BadRequestException(IDEMPOTENCY_KEY + " must have between 1 and " + MAX_KEY_LENGTH + " characters");
+        }
+
+        String requestHash = hash(body);
+        AtomicReference<ResponseEntity<?>> handled = new AtomicReference<>();
+        IdempotentResponseDto response = idempotencyService.execute(scope, idempotencyKey, requestHash, () -> {
+            ResponseEntity<?> entity = handler.get();
+            handled.set(entity);
+            URI location = entity.getHeaders().getLocation();
+            return new IdempotentResponseDto(requestHash, entity.getStatusCode().value(),
+                    location != null ? location.toString() : null, json(entity.getBody()));
+        });
+        return handled.get() != null ? handled.get() : replay(response);
+    }
+
+    // The recorded body is already JSON, it is written as is
+    private static ResponseEntity<String> replay(IdempotentResponseDto response) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(response.status())
+                .header(IDEMPOTENT_REPLAYED, "true")
+                .contentType(MediaType.APPLICATION_JSON);
+        if (response.location() != null) {
+            builder.location(URI.create(response.location()));
+        }
+        return builder.body(response.body());
+    }
+
+    private String hash(Object body) {
+        try {
+            return DigestUtils.md5DigestAsHex(objectMapper.writeValueAsBytes(body));
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Request body cannot be hashed", ex);
+        }
+    }
+
+    private String json(Object body) {
+        try {
+            return objectMapper.writeValueAsString(body);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Response body cannot be recorded", ex);
+        }
+    }
+}
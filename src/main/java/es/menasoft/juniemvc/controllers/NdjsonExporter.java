@@ -0,0 +1,55 @@
+package es.menasoft.juniemvc.controllers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+/**
+ * Writes exports as newline-delimited JSON, one object per line.
+ * Rows are serialized as the service produces them, so neither the entities nor the response body are
+ * ever held in memory as a whole.
+ */
+@Component
+class NdjsonExporter {
+
+    private final ObjectMapper objectMapper;
+
+    NdjsonExporter(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Creates a streaming response running the export once the response body is written.
+     *
+     * @param type the exported DTO type
+     * @param export the service export, called with the consumer writing each DTO to the response
+     * @return the streaming NDJSON response with status 200 (OK)
+     */
+    <T> ResponseEntity<StreamingResponseBody> export(Class<T> type, Consumer<Consumer<T>> export) {
+        ObjectWriter writer = objectMapper.writerFor(type);
+        StreamingResponseBody body = outputStream -> {
+            try {
+                export.accept(value -> {
+                    try {
+                        outputStream.write(writer.writeValueAsBytes(value));
+                        outputStream.write('\n');
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                });
+            } catch (UncheckedIOException ex) {
+                throw ex.getCause();
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+}
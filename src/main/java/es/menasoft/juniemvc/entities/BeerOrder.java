@@ -1,7 +1,10 @@
 package es.menasoft.juniemvc.entities;
 
+import es.menasoft.juniemvc.models.BeerOrderStatus;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
@@ -15,16 +18,32 @@ import java.util.Set;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
+@NamedEntityGraph(name = BeerOrder.WITH_ORDER_LINES,
+        attributeNodes = {
+                @NamedAttributeNode("customer"),
+                @NamedAttributeNode(value = "orderLines", subgraph = "orderLines")
+        },
+        subgraphs = @NamedSubgraph(name = "orderLines", attributeNodes = @NamedAttributeNode("beer")))
 public class BeerOrder {
 
+    /**
+     * Fetch plan loading the customer, order lines and their beers together with the order,
+     * everything {@code BeerOrderMapper} needs to build a {@code BeerOrderDto}
+     */
+    public static final String WITH_ORDER_LINES = "BeerOrder.withOrderLines";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "beer_order_seq")
+    @SequenceGenerator(name = "beer_order_seq", sequenceName = "beer_order_seq", allocationSize = 50)
     private Integer id;
 
     @Version
     private Integer version;
 
-    private String orderStatus;
+    @Convert(converter = BeerOrderStatusConverter.class)
+    @Column(name = "status_code", nullable = false)
+    @Builder.Default
+    private BeerOrderStatus orderStatus = BeerOrderStatus.NEW;
 
     @CreationTimestamp
     @Column(updatable = false)
@@ -37,6 +56,7 @@ public class BeerOrder {
     private Customer customer;
 
     @OneToMany(mappedBy = "beerOrder", fetch = FetchType.LAZY, cascade = CascadeType.ALL)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "beer-order-lines")
     @Builder.Default
     private Set<OrderLine> orderLines = new HashSet<>();
     
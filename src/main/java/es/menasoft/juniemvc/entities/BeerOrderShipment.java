@@ -17,7 +17,8 @@ import java.time.LocalDateTime;
 public class BeerOrderShipment {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "beer_order_shipment_seq")
+    @SequenceGenerator(name = "beer_order_shipment_seq", sequenceName = "beer_order_shipment_seq", allocationSize = 50)
     private Integer id;
 
     @Version
@@ -0,0 +1,22 @@
+package es.menasoft.juniemvc.entities;
+
+import es.menasoft.juniemvc.models.BeerOrderStatus;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/**
+ * Stores a {@link BeerOrderStatus} as its two-byte code instead of its name.
+ */
+@Converter
+class BeerOrderStatusConverter implements AttributeConverter<BeerOrderStatus, Short> {
+
+    @Override
+    public Short convertToDatabaseColumn(BeerOrderStatus status) {
+        return status != null ? status.getCode() : null;
+    }
+
+    @Override
+    public BeerOrderStatus convertToEntityAttribute(Short code) {
+        return code != null ? BeerOrderStatus.fromCode(code) : null;
+    }
+}
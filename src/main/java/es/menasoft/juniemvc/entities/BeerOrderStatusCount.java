@@ -0,0 +1,44 @@
+package es.menasoft.juniemvc.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+
+/**
+ * Number of beer orders in a status, kept up to date by every write that creates, transitions or deletes
+ * orders so status histograms never have to scan the orders. The count of a status is the sum of its slots.
+ */
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@IdClass(BeerOrderStatusCount.Key.class)
+public class BeerOrderStatusCount {
+
+    // The code of the status, see BeerOrderStatus
+    @Id
+    private Short statusCode;
+
+    // One of the rows the count of the status is spread over, so concurrent writers rarely wait on the same row
+    @Id
+    private Short slot;
+
+    @Column(nullable = false)
+    private long orderCount;
+
+    /**
+     * Identifies the count of one slot of a status.
+     */
+    @EqualsAndHashCode
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+
+        private Short statusCode;
+
+        private Short slot;
+    }
+}
@@ -0,0 +1,45 @@
+package es.menasoft.juniemvc.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * A request made with an {@code Idempotency-Key} header, identified by its endpoint and key.
+ * The response fields are null while the request is being handled, by the holder of the claim until its lease ends.
+ */
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+public class IdempotentRequest {
+
+    @Id
+    @Column(length = 400)
+    private String id;
+
+    @Version
+    private Integer version;
+
+    @Column(length = 64, nullable = false)
+    private String requestHash;
+
+    private Integer responseStatus;
+
+    @Column(length = 2048)
+    private String responseLocation;
+
+    @Lob
+    private String responseBody;
+
+    // Until when the request handling the key holds it, another request may take an expired claim over
+    private LocalDateTime leaseUntil;
+
+    @CreationTimestamp
+    @Column(updatable = false)
+    private LocalDateTime createdDate;
+}
@@ -0,0 +1,40 @@
+package es.menasoft.juniemvc.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * An event waiting in the transactional outbox to be relayed, written in the transaction of the change it
+ * describes and deleted once delivered.
+ */
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+public class OutboxEvent {
+
+    // Generated on insert: events are inserted while the aggregate is locked, their IDs give the delivery order
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(length = 50, nullable = false)
+    private String aggregateType;
+
+    @Column(nullable = false)
+    private Integer aggregateId;
+
+    @Column(length = 100, nullable = false)
+    private String eventType;
+
+    @Lob
+    @Column(nullable = false)
+    private String payload;
+
+    @Column(nullable = false)
+    private LocalDateTime createdDate;
+}
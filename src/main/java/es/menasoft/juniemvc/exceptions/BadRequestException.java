@@ -0,0 +1,15 @@
+package es.menasoft.juniemvc.exceptions;
+
+/**
+ * Exception thrown when a request is syntactically valid but carries values the API cannot accept.
+ */
+public class BadRequestException extends RuntimeException {
+
+    public BadRequestException(String message) {
+        super(message);
+    }
+
+    public BadRequestException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -1,12 +1,15 @@
 package es.menasoft.juniemvc.exceptions;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ProblemDetail;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExceptionHandler;
 
 import java.net.URI;
+import java.time.Duration;
 import java.time.Instant;
 
 /**
@@ -33,4 +36,161 @@ class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
         
         return problemDetail;
     }
-}
\ No newline at end of file
+
+    /**
+     * Handles BadRequestException and returns a 400 Bad Request response.
+     *
+     * @param ex the BadRequestException
+     * @return a ProblemDetail with status 400 and error details
+     */
+    @ExceptionHandler(BadRequestException.class)
+    ProblemDetail handleBadRequestException(BadRequestException ex) {
+        ProblemDetail problemDetail = ProblemDetail.forStatusAndDetail(
+                HttpStatus.BAD_REQUEST, ex.getMessage());
+
+        problemDetail.setTitle("Bad Request");
+        problemDetail.setType(URI.create("https://api.juniemvc.com/errors/bad-request"));
+        problemDetail.setProperty("timestamp", Instant.now());
+
+        return problemDetail;
+    }
+
+    /**
+     * Handles InsufficientInventoryException and returns a 409 Conflict response.
+     *
+     * @param ex the InsufficientInventoryException
+     * @return a ProblemDetail with status 409, error details and the out of stock beer IDs
+     */
+    @ExceptionHandler(InsufficientInventoryException.class)
+    ProblemDetail handleInsufficientInventoryException(InsufficientInventoryException ex) {
+        ProblemDetail problemDetail = ProblemDetail.forStatusAndDetail(
+                HttpStatus.CONFLICT, ex.getMessage());
+
+        problemDetail.setTitle("Insufficient Inventory");
+        problemDetail.setType(URI.create("https://api.juniemvc.com/errors/insufficient-inventory"));
+        problemDetail.setProperty("beerIds", ex.getBeerIds());
+        problemDetail.setProperty("timestamp", Instant.now());
+
+        return problemDetail;
+    }
+
+    /**
+     * Handles PreconditionFailedException and returns a 412 Precondition Failed response.
+     *
+     * @param ex the PreconditionFailedException
+     * @return a ProblemDetail with status 412, error details and the current version of the entity
+     */
+    @ExceptionHandler(PreconditionFailedException.class)
+    ProblemDetail handlePreconditionFailedException(PreconditionFailedException ex) {
+        ProblemDetail problemDetail = ProblemDetail.forStatusAndDetail(
+                HttpStatus.PRECONDITION_FAILED, ex.getMessage());
+
+        problemDetail.setTitle("Precondition Failed");
+        problemDetail.setType(URI.create("https://api.juniemvc.com/errors/precondition-failed"));
+        problemDetail.setProperty("currentVersion", ex.getCurrentVersion());
+        problemDetail.setProperty("timestamp", Instant.now());
+
+        return problemDetail;
+    }
+
+    /**
+     * Handles InvalidStatusTransitionException and returns a 409 Conflict response.
+     *
+     * @param ex the InvalidStatusTransitionException
+     * @return a ProblemDetail with status 409, error details and both statuses of the transition
+     */
+    @ExceptionHandler(InvalidStatusTransitionException.class)
+    ProblemDetail handleInvalidStatusTransitionException(InvalidStatusTransitionException ex) {
+        ProblemDetail problemDetail = ProblemDetail.forStatusAndDetail(
+                HttpStatus.CONFLICT, ex.getMessage());
+
+        problemDetail.setTitle("Invalid Status Transition");
+        problemDetail.setType(URI.create("https://api.juniemvc.com/errors/invalid-status-transition"));
+        problemDetail.setProperty("from", ex.getFrom());
+        problemDetail.setProperty("to", ex.getTo());
+        problemDetail.setProperty("timestamp", Instant.now());
+
+        return problemDetail;
+    }
+
+    /**
+     * Handles IdempotencyKeyInUseException and returns a 409 Conflict response.
+     *
+     * @param ex the IdempotencyKeyInUseException
+     * @return a ProblemDetail with status 409 and error details
+     */
+    @ExceptionHandler(IdempotencyKeyInUseException.class)
+    ProblemDetail handleIdempotencyKeyInUseException(IdempotencyKeyInUseException ex) {
+        ProblemDetail problemDetail = ProblemDetail.forStatusAndDetail(
+                HttpStatus.CONFLICT, ex.getMessage());
+
+        problemDetail.setTitle("Idempotency Key In Use");
+        problemDetail.setType(URI.create("https://api.juniemvc.com/errors/idempotency-key-in-use"));
+        problemDetail.setProperty("timestamp", Instant.now());
+
+        return problemDetail;
+    }
+
+    /**
+     * Handles IdempotencyKeyMismatchException and returns a 422 Unprocessable Entity response.
+     *
+     * @param ex the IdempotencyKeyMismatchException
+     * @return a ProblemDetail with status 422 and error details
+     */
+    @ExceptionHandler(IdempotencyKeyMismatchException.class)
+    ProblemDetail handleIdempotencyKeyMismatchException(IdempotencyKeyMismatchException ex) {
+        ProblemDetail problemDetail = ProblemDetail.forStatusAndDetail(
+                HttpStatus.UNPROCESSABLE_ENTITY, ex.getMessage());
+
+        problemDetail.setTitle("Idempotency Key Mismatch");
+        problemDetail.setType(URI.create("https://api.juniemvc.com/errors/idempotency-key-mismatch"));
+        problemDetail.setProperty("timestamp", Instant.now());
+
+        return problemDetail;
+    }
+
+    /**
+     * Handles ServiceUnavailableException and returns a 503 Service Unavailable response.
+     *
+     * @param ex the ServiceUnavailableException
+     * @return a ProblemDetail with status 503 and error details, and a Retry-After header
+     */
+    @ExceptionHandler(ServiceUnavailableException.class)
+    ResponseEntity<ProblemDetail> handleServiceUnavailableException(ServiceUnavailableException ex) {
+        ProblemDetail problemDetail = ProblemDetail.forStatusAndDetail(
+                HttpStatus.SERVICE_UNAVAILABLE, ex.getMessage());
+
+        problemDetail.setTitle("Service Unavailable");
+        problemDetail.setType(URI.create("https://api.juniemvc.com/errors/service-unavailable"));
+        problemDetail.setProperty("timestamp", Instant.now());
+
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds(ex.getRetryAfter())))
+                .body(problemDetail);
+    }
+
+    /**
+     * Handles TooManyRequestsException and returns a 429 Too Many Requests response.
+     *
+     * @param ex the TooManyRequestsException
+     * @return a ProblemDetail with status 429 and error details, and a Retry-After header
+     */
+    @ExceptionHandler(TooManyRequestsException.class)
+    ResponseEntity<ProblemDetail> handleTooManyRequestsException(TooManyRequestsException ex) {
+        ProblemDetail problemDetail = ProblemDetail.forStatusAndDetail(
+                HttpStatus.TOO_MANY_REQUESTS, ex.getMessage());
+
+        problemDetail.setTitle("Too Many Requests");
+        problemDetail.setType(URI.create("https://api.juniemvc.com/errors/too-many-requests"));
+        problemDetail.setProperty("timestamp", Instant.now());
+
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds(ex.getRetryAfter())))
+                .body(problemDetail);
+    }
+
+    // Retry-After is a whole number of seconds, never tell clients to retry immediately
+    private static long retryAfterSeconds(Duration retryAfter) {
+        return Math.max(1, retryAfter.toSeconds() + (retryAfter.toNanosPart() > 0 ? 1 : 0));
+    }
+}
@@ -0,0 +1,12 @@
+package es.menasoft.juniemvc.exceptions;
+
+/**
+ * Exception thrown when a request with an {@code Idempotency-Key} is still being handled and its duplicate
+ * has waited for it too long.
+ */
+public class IdempotencyKeyInUseException extends RuntimeException {
+
+    public IdempotencyKeyInUseException(String idempotencyKey) {
+        super(String.format("A request with Idempotency-Key %s is still being processed", idempotencyKey));
+    }
+}
@@ -0,0 +1,11 @@
+package es.menasoft.juniemvc.exceptions;
+
+/**
+ * Exception thrown when an {@code Idempotency-Key} is reused with a different request body.
+ */
+public class IdempotencyKeyMismatchException extends RuntimeException {
+
+    public IdempotencyKeyMismatchException(String idempotencyKey) {
+        super(String.format("Idempotency-Key %s was already used with a different request", idempotencyKey));
+    }
+}
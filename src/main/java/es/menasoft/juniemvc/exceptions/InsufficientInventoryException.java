@@ -0,0 +1,23 @@
+package es.menasoft.juniemvc.exceptions;
+
+import java.util.List;
+
+/**
+ * Exception thrown when an order asks for more units of a beer than are on hand.
+ */
+public class InsufficientInventoryException extends RuntimeException {
+
+    private final List<Integer> beerIds;
+
+    public InsufficientInventoryException(List<Integer> beerIds) {
+        super(String.format("Insufficient inventory for beer ID(s): %s", beerIds));
+        this.beerIds = List.copyOf(beerIds);
+    }
+
+    /**
+     * @return the IDs of the beers that are out of stock
+     */
+    public List<Integer> getBeerIds() {
+        return beerIds;
+    }
+}
@@ -0,0 +1,32 @@
+package es.menasoft.juniemvc.exceptions;
+
+import es.menasoft.juniemvc.models.BeerOrderStatus;
+
+/**
+ * Exception thrown when a beer order is asked to move to a status its current status cannot lead to.
+ */
+public class InvalidStatusTransitionException extends RuntimeException {
+
+    private final BeerOrderStatus from;
+    private final BeerOrderStatus to;
+
+    public InvalidStatusTransitionException(BeerOrderStatus from, BeerOrderStatus to) {
+        super(String.format("A beer order cannot move from %s to %s", from, to));
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * @return the status the order is in
+     */
+    public BeerOrderStatus getFrom() {
+        return from;
+    }
+
+    /**
+     * @return the status the order was asked to move to
+     */
+    public BeerOrderStatus getTo() {
+        return to;
+    }
+}
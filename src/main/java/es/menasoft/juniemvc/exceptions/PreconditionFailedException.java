@@ -0,0 +1,21 @@
+package es.menasoft.juniemvc.exceptions;
+
+/**
+ * Exception thrown when a conditional write expected a version of an entity that is no longer current.
+ */
+public class PreconditionFailedException extends RuntimeException {
+
+    private final Integer currentVersion;
+
+    public PreconditionFailedException(String entityType, Object id, Integer currentVersion) {
+        super(String.format("%s with ID %s has been modified, current version is %s", entityType, id, currentVersion));
+        this.currentVersion = currentVersion;
+    }
+
+    /**
+     * @return the version the entity has now
+     */
+    public Integer getCurrentVersion() {
+        return currentVersion;
+    }
+}
@@ -0,0 +1,23 @@
+package es.menasoft.juniemvc.exceptions;
+
+import java.time.Duration;
+
+/**
+ * Exception thrown when a request is turned away because the application is at capacity.
+ */
+public class ServiceUnavailableException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    public ServiceUnavailableException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * @return how long the client should wait before retrying
+     */
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
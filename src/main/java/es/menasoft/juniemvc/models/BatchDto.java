@@ -0,0 +1,14 @@
+package es.menasoft.juniemvc.models;
+
+import java.util.List;
+
+/**
+ * Result of looking up several entities by ID in one request.
+ *
+ * @param content the entities found, in the order their IDs were requested
+ * @param missingIds the requested IDs that do not exist, in request order
+ */
+public record BatchDto<T>(
+        List<T> content,
+        List<Integer> missingIds
+) {}
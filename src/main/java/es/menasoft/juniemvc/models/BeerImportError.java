@@ -0,0 +1,14 @@
+package es.menasoft.juniemvc.models;
+
+import java.util.List;
+
+/**
+ * A row rejected by a bulk beer import.
+ *
+ * @param row the 1-based position of the row in the import
+ * @param messages why the row was rejected
+ */
+public record BeerImportError(
+        long row,
+        List<String> messages
+) {}
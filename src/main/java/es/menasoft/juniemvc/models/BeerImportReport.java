@@ -0,0 +1,16 @@
+package es.menasoft.juniemvc.models;
+
+import java.util.List;
+
+/**
+ * Outcome of a bulk beer import.
+ *
+ * @param imported the number of beers created
+ * @param rejected the number of rows that were not imported
+ * @param errors the first rejected rows, in import order, at most {@code juniemvc.beer-import.max-reported-errors}
+ */
+public record BeerImportReport(
+        int imported,
+        int rejected,
+        List<BeerImportError> errors
+) {}
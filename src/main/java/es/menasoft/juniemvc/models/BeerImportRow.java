@@ -0,0 +1,23 @@
+package es.menasoft.juniemvc.models;
+
+/**
+ * One row of a bulk beer import, as read from the request body.
+ *
+ * @param row the 1-based position of the row in the import
+ * @param beer the beer read from the row, null if the row could not be read
+ * @param error why the row could not be read, null if it was read
+ */
+public record BeerImportRow(
+        long row,
+        BeerDto beer,
+        String error
+) {
+
+    public static BeerImportRow read(long row, BeerDto beer) {
+        return new BeerImportRow(row, beer, null);
+    }
+
+    public static BeerImportRow unreadable(long row, String error) {
+        return new BeerImportRow(row, null, error);
+    }
+}
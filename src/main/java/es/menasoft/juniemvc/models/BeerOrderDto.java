@@ -11,8 +11,8 @@ public record BeerOrderDto(
         //Read-only
         Integer id,
         Integer version,
-        // Order status, values such as NEWS, PROCESSING, COMPLETED ..
-        String orderStatus,
+        // Order status, only changed along the transitions of BeerOrderStatus
+        BeerOrderStatus orderStatus,
 
         // Read-only create date
         LocalDateTime createdDate,
@@ -0,0 +1,51 @@
+package es.menasoft.juniemvc.models;
+
+import java.util.UUID;
+
+/**
+ * State of a beer order accepted for asynchronous creation.
+ *
+ * @param id the intake ID, returned when the order is accepted
+ * @param status whether the order is still queued, was created or was rejected
+ * @param orderId the ID of the created order, null until it is created
+ * @param errorCode why the order was rejected, null unless it failed
+ * @param error a description of the error for people, null unless it failed
+ */
+public record BeerOrderIntakeDto(
+        UUID id,
+        Status status,
+        Integer orderId,
+        ErrorCode errorCode,
+        String error
+) {
+
+    public enum Status {
+        // Queued, not written yet
+        PENDING,
+        // Written, orderId identifies the order
+        CREATED,
+        // Not written, errorCode tells why
+        FAILED
+    }
+
+    public enum ErrorCode {
+        // A customer or beer of the order does not exist
+        NOT_FOUND,
+        // Not enough of a beer of the order is in stock
+        INSUFFICIENT_INVENTORY,
+        // The order could not be written, retrying it may succeed
+        INTERNAL_ERROR
+    }
+
+    public static BeerOrderIntakeDto pending(UUID id) {
+        return new BeerOrderIntakeDto(id, Status.PENDING, null, null, null);
+    }
+
+    public static BeerOrderIntakeDto created(UUID id, Integer orderId) {
+        return new BeerOrderIntakeDto(id, Status.CREATED, orderId, null, null);
+    }
+
+    public static BeerOrderIntakeDto failed(UUID id, ErrorCode errorCode, String error) {
+        return new BeerOrderIntakeDto(id, Status.FAILED, null, errorCode, error);
+    }
+}
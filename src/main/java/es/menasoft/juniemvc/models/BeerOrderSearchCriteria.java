@@ -0,0 +1,18 @@
+package es.menasoft.juniemvc.models;
+
+import java.time.LocalDateTime;
+
+/**
+ * Filters of the beer order search; every null filter is ignored.
+ *
+ * @param orderStatus exact order status
+ * @param customerId the ID of the customer that placed the orders
+ * @param createdFrom inclusive lower bound of the creation date
+ * @param createdTo exclusive upper bound of the creation date
+ */
+public record BeerOrderSearchCriteria(
+        BeerOrderStatus orderStatus,
+        Integer customerId,
+        LocalDateTime createdFrom,
+        LocalDateTime createdTo
+) {}
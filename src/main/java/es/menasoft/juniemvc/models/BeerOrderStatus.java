@@ -0,0 +1,72 @@
+package es.menasoft.juniemvc.models;
+
+/**
+ * Lifecycle of a beer order.
+ * An order starts as {@link #NEW} and only moves along the transitions below; {@link #COMPLETED} and
+ * {@link #CANCELLED} are final.
+ * <pre>
+ * NEW -> PROCESSING -> SHIPPED -> COMPLETED
+ *   \         \
+ *    +---------+--> CANCELLED
+ * </pre>
+ * Each status is stored as its code, codes must never be changed or reused.
+ */
+public enum BeerOrderStatus {
+    NEW(0),
+    PROCESSING(1),
+    SHIPPED(2),
+    COMPLETED(3),
+    CANCELLED(4);
+
+    // Codes are numbered like the constants, a code indexes this array
+    private static final BeerOrderStatus[] BY_CODE = values();
+
+    private final short code;
+
+    BeerOrderStatus(int code) {
+        this.code = (short) code;
+    }
+
+    /**
+     * @return the code the status is stored as
+     */
+    public short getCode() {
+        return code;
+    }
+
+    /**
+     * Whether an order in this status may be moved to another one
+     * @param next the status to move to
+     * @return true if the transition is allowed, false otherwise or if both statuses are the same
+     */
+    public boolean canTransitionTo(BeerOrderStatus next) {
+        return switch (this) {
+            case NEW -> next == PROCESSING || next == CANCELLED;
+            case PROCESSING -> next == SHIPPED || next == CANCELLED;
+            case SHIPPED -> next == COMPLETED;
+            case COMPLETED, CANCELLED -> false;
+        };
+    }
+
+    /**
+     * Whether an order in this status still holds the stock reserved for it, to be put back if the order is
+     * cancelled or deleted; once shipped the stock is gone, once cancelled it is back on hand
+     * @return true for {@link #NEW} and {@link #PROCESSING} orders
+     */
+    public boolean holdsReservedInventory() {
+        return this == NEW || this == PROCESSING;
+    }
+
+    /**
+     * Get the status stored as a code
+     * @param code the stored code
+     * @return the status
+     * @throws IllegalArgumentException if no status has this code
+     */
+    public static BeerOrderStatus fromCode(short code) {
+        if (code < 0 || code >= BY_CODE.length || BY_CODE[code].code != code) {
+            throw new IllegalArgumentException("Unknown beer order status code: " + code);
+        }
+        return BY_CODE[code];
+    }
+}
@@ -0,0 +1,14 @@
+package es.menasoft.juniemvc.models;
+
+/**
+ * Payload of the event recording that a beer order moved to another status.
+ *
+ * @param beerOrderId the beer order ID
+ * @param fromStatus the status the order left
+ * @param toStatus the status the order entered
+ */
+public record BeerOrderStatusChangedEvent(
+        Integer beerOrderId,
+        BeerOrderStatus fromStatus,
+        BeerOrderStatus toStatus
+) {}
@@ -0,0 +1,31 @@
+package es.menasoft.juniemvc.models;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Moves many beer orders from one status to another.
+ * The orders are either listed by ID or selected by status and an optional creation date range.
+ *
+ * @param ids the IDs of the orders to transition, null to select them by the filters
+ * @param fromStatus the status the orders must have, orders in another status are skipped
+ * @param toStatus the new status, it must be reachable from the expected status
+ * @param createdFrom inclusive lower bound of the creation date, only without IDs
+ * @param createdTo exclusive upper bound of the creation date, only without IDs
+ */
+public record BeerOrderStatusTransitionCommand(
+        @Size(min = 1, max = 10000, message = "Between 1 and 10000 order IDs can be transitioned at once")
+        List<@NotNull Integer> ids,
+
+        @NotNull(message = "From status is required")
+        BeerOrderStatus fromStatus,
+
+        @NotNull(message = "To status is required")
+        BeerOrderStatus toStatus,
+
+        LocalDateTime createdFrom,
+        LocalDateTime createdTo
+) {}
@@ -0,0 +1,22 @@
+package es.menasoft.juniemvc.models;
+
+/**
+ * What a bulk status transition did to one beer order.
+ *
+ * @param id the beer order ID
+ * @param result whether the order was transitioned
+ */
+public record BeerOrderStatusTransitionOutcome(
+        Integer id,
+        Result result
+) {
+
+    public enum Result {
+        // Moved to the new status
+        UPDATED,
+        // Left untouched, it was not in the expected status
+        SKIPPED,
+        // No order with this ID
+        NOT_FOUND
+    }
+}
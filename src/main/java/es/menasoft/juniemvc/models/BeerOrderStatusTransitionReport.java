@@ -0,0 +1,19 @@
+package es.menasoft.juniemvc.models;
+
+import java.util.List;
+
+/**
+ * Outcome of a bulk beer order status transition.
+ *
+ * @param updated the number of orders moved to the new status
+ * @param skipped the number of orders left untouched because they were in another status
+ * @param notFound the number of requested IDs without an order
+ * @param outcomes the outcome of every listed ID in request order, or else of every matching order that was not
+ *                 updated in ID order
+ */
+public record BeerOrderStatusTransitionReport(
+        int updated,
+        int skipped,
+        int notFound,
+        List<BeerOrderStatusTransitionOutcome> outcomes
+) {}
@@ -0,0 +1,15 @@
+package es.menasoft.juniemvc.models;
+
+import java.time.LocalDateTime;
+
+/**
+ * Lightweight view of a beer order used by the order search, without order lines.
+ */
+public record BeerOrderSummaryDto(
+        Integer id,
+        Integer version,
+        BeerOrderStatus orderStatus,
+        Integer customerId,
+        LocalDateTime createdDate,
+        LocalDateTime updateDate
+) {}
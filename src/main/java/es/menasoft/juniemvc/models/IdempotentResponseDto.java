@@ -0,0 +1,16 @@
+package es.menasoft.juniemvc.models;
+
+/**
+ * Response recorded for a request made with an {@code Idempotency-Key} header, replayed to its retries.
+ *
+ * @param requestHash the hash of the request body, retries must send the same body
+ * @param status the HTTP status of the response
+ * @param location the Location header of the response, null if it had none
+ * @param body the JSON body of the response
+ */
+public record IdempotentResponseDto(
+        String requestHash,
+        int status,
+        String location,
+        String body
+) {}
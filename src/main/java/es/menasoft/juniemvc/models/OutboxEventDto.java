@@ -0,0 +1,25 @@
+package es.menasoft.juniemvc.models;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+
+import java.time.LocalDateTime;
+
+/**
+ * An event relayed from the transactional outbox.
+ *
+ * @param id the event ID, increasing with the changes of an aggregate
+ * @param aggregateType the type of the changed aggregate, such as {@code BeerOrder}
+ * @param aggregateId the ID of the changed aggregate
+ * @param eventType what happened, such as {@code BeerOrderCreated}
+ * @param payload the JSON body of the event, written as is
+ * @param createdDate when the change was made
+ */
+public record OutboxEventDto(
+        Long id,
+        String aggregateType,
+        Integer aggregateId,
+        String eventType,
+        @JsonRawValue
+        String payload,
+        LocalDateTime createdDate
+) {}
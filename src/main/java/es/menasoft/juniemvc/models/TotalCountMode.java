@@ -0,0 +1,13 @@
+package es.menasoft.juniemvc.models;
+
+/**
+ * How the total number of results is computed for a paginated listing.
+ */
+public enum TotalCountMode {
+    // Run a COUNT query for every page
+    EXACT,
+    // Skip the COUNT query, only tell whether a next page exists
+    NONE,
+    // Use a periodically refreshed count cached per filter
+    APPROXIMATE
+}
@@ -0,0 +1,18 @@
+package es.menasoft.juniemvc.models;
+
+import java.util.List;
+
+/**
+ * A window of results produced by keyset (cursor) pagination.
+ *
+ * @param content the results in this window
+ * @param size the number of results in this window
+ * @param hasNext whether more results follow this window
+ * @param continuationToken opaque token to request the next window, null when there is none
+ */
+public record WindowDto<T>(
+        List<T> content,
+        int size,
+        boolean hasNext,
+        String continuationToken
+) {}
@@ -0,0 +1,18 @@
+package es.menasoft.juniemvc.monitoring;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Registers the request-level monitoring filters. Declared here rather than as scanned components so
+ * web slice tests, which have no persistence layer or meter registry, do not pick them up.
+ */
+@Configuration(proxyBeanMethods = false)
+class MonitoringConfiguration {
+
+    @Bean
+    QueriesPerRequestFilter queriesPerRequestFilter(RequestQueryCounter requestQueryCounter, MeterRegistry meterRegistry) {
+        return new QueriesPerRequestFilter(requestQueryCounter, meterRegistry);
+    }
+}
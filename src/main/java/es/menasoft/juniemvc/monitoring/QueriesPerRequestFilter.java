@@ -0,0 +1,53 @@
+package es.menasoft.juniemvc.monitoring;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+/**
+ * Publishes the number of SQL statements each request issued as the {@code http.server.requests.queries}
+ * distribution, tagged like {@code http.server.requests} so N+1 regressions show up per endpoint.
+ * Statements run by asynchronous exports on other threads are not attributed to the request.
+ */
+@RequiredArgsConstructor
+class QueriesPerRequestFilter extends OncePerRequestFilter {
+
+    private static final String METRIC_NAME = "http.server.requests.queries";
+
+    private final RequestQueryCounter requestQueryCounter;
+    private final MeterRegistry meterRegistry;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        requestQueryCounter.start();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            int queries = requestQueryCounter.stop();
+            DistributionSummary.builder(METRIC_NAME)
+                    .description("The number of SQL statements prepared while handling a request")
+                    .baseUnit("queries")
+                    .tag("method", request.getMethod())
+                    .tag("uri", uri(request))
+                    .tag("status", String.valueOf(response.getStatus()))
+                    .publishPercentileHistogram()
+                    .register(meterRegistry)
+                    .record(queries);
+        }
+    }
+
+    // Templated path so path variables do not explode the tag cardinality
+    private static String uri(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return pattern != null ? pattern.toString() : "UNKNOWN";
+    }
+}
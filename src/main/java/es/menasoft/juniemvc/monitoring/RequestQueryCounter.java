@@ -0,0 +1,51 @@
+package es.menasoft.juniemvc.monitoring;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+import static org.hibernate.cfg.AvailableSettings.STATEMENT_INSPECTOR;
+
+/**
+ * Counts the SQL statements Hibernate prepares on the current thread between {@link #start()} and
+ * {@link #stop()}. Registers itself as the Hibernate {@link StatementInspector}; statements issued
+ * outside of a counting scope, or directly through JDBC, are not counted.
+ */
+@Component
+class RequestQueryCounter implements StatementInspector, HibernatePropertiesCustomizer {
+
+    private final ThreadLocal<int[]> count = new ThreadLocal<>();
+
+    @Override
+    public void customize(Map<String, Object> hibernateProperties) {
+        hibernateProperties.put(STATEMENT_INSPECTOR, this);
+    }
+
+    @Override
+    public String inspect(String sql) {
+        int[] current = count.get();
+        if (current != null) {
+            current[0]++;
+        }
+        return sql;
+    }
+
+    /**
+     * Start counting the statements of the current thread
+     */
+    void start() {
+        count.set(new int[1]);
+    }
+
+    /**
+     * Stop counting the statements of the current thread
+     * @return the number of statements prepared since {@link #start()}
+     */
+    int stop() {
+        int[] current = count.get();
+        count.remove();
+        return current != null ? current[0] : 0;
+    }
+}
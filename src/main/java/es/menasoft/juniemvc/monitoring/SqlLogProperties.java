@@ -0,0 +1,44 @@
+package es.menasoft.juniemvc.monitoring;
+
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+
+/**
+ * Configuration of the {@link SqlStatementLogger}.
+ *
+ * @param enabled whether JDBC statements are timed and logged
+ * @param slowThreshold statements taking at least this long are always logged
+ * @param sampleRate fraction of the remaining statements that are logged, between 0 and 1
+ * @param queueCapacity maximum number of log entries waiting to be written, further entries are dropped
+ * @param logParameters whether bind parameter values are logged; they hold personal data such as customer
+ *                      names and addresses, so they are redacted unless explicitly enabled for debugging
+ */
+@Validated
+@ConfigurationProperties("juniemvc.sql-log")
+record SqlLogProperties(
+        @DefaultValue("true")
+        boolean enabled,
+
+        @NotNull
+        @DefaultValue("200ms")
+        Duration slowThreshold,
+
+        @DecimalMin("0.0")
+        @DecimalMax("1.0")
+        @DefaultValue("0.0")
+        double sampleRate,
+
+        @Positive
+        @DefaultValue("1000")
+        int queueCapacity,
+
+        @DefaultValue("false")
+        boolean logParameters
+) {}
@@ -0,0 +1,38 @@
+package es.menasoft.juniemvc.monitoring;
+
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+
+/**
+ * Wraps the application data sources in a JDBC proxy reporting every executed statement to the
+ * {@link SqlStatementLogger}. The logger is looked up lazily so that declaring this post-processor does
+ * not force its dependencies to be created before the other post-processors are registered.
+ */
+@Component
+class SqlLoggingDataSourcePostProcessor implements BeanPostProcessor {
+
+    private final ObjectProvider<SqlStatementLogger> sqlStatementLogger;
+
+    SqlLoggingDataSourcePostProcessor(ObjectProvider<SqlStatementLogger> sqlStatementLogger) {
+        this.sqlStatementLogger = sqlStatementLogger;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!(bean instanceof DataSource dataSource) || bean instanceof ProxyDataSource) {
+            return bean;
+        }
+        SqlStatementLogger logger = sqlStatementLogger.getObject();
+        if (!logger.isEnabled()) {
+            return bean;
+        }
+        return ProxyDataSourceBuilder.create(beanName, dataSource)
+                .listener(logger)
+                .build();
+    }
+}
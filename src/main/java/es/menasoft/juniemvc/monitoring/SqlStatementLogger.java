@@ -0,0 +1,175 @@
+package es.menasoft.juniemvc.monitoring;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.proxy.ParameterSetOperation;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Logs the JDBC statements that are slower than the configured threshold, plus a random sample of the
+ * others, with the application method that issued them. Bind parameter values are written as {@code ?} unless
+ * {@code juniemvc.sql-log.log-parameters} is enabled, as they carry personal data that must not reach the logs.
+ * <p>
+ * Statements are timed on the calling thread but formatted and written by a single background thread
+ * fed through a bounded queue, so logging never blocks a request; entries arriving while the queue is
+ * full are dropped and counted in {@code jdbc.statements.log.dropped}.
+ */
+@Slf4j
+@Component
+@EnableConfigurationProperties(SqlLogProperties.class)
+class SqlStatementLogger implements QueryExecutionListener, MeterBinder {
+
+    // Only the first parameter sets of a JDBC batch are logged
+    private static final int MAX_LOGGED_BATCH_ENTRIES = 10;
+    private static final String APPLICATION_PACKAGE = "es.menasoft.juniemvc.";
+    private static final String MONITORING_PACKAGE = SqlStatementLogger.class.getPackageName() + ".";
+    private static final String REDACTED = "?";
+
+    private final SqlLogProperties properties;
+    private final long slowThresholdMillis;
+    private final ThreadPoolExecutor writer;
+    private final LongAdder dropped = new LongAdder();
+
+    SqlStatementLogger(SqlLogProperties properties) {
+        this.properties = properties;
+        this.slowThresholdMillis = properties.slowThreshold().toMillis();
+        this.writer = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(properties.queueCapacity()),
+                Thread.ofPlatform().name("sql-log").daemon().factory(),
+                (entry, executor) -> dropped.increment());
+    }
+
+    boolean isEnabled() {
+        return properties.enabled();
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        // Timing is measured by the proxy, nothing to do before the statement runs
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        long elapsedMillis = execInfo.getElapsedTime();
+        boolean slow = elapsedMillis >= slowThresholdMillis;
+        if (!slow && !sampled()) {
+            return;
+        }
+
+        // The caller and the bind parameters have to be captured now, everything else happens on the writer
+        LogEntry entry = new LogEntry(slow, elapsedMillis, execInfo.isSuccess(), origin(),
+                queryInfoList.stream().map(queryInfo -> statement(queryInfo, properties.logParameters())).toList());
+        writer.execute(() -> write(entry));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("jdbc.statements.log.dropped", dropped, LongAdder::sum)
+                .description("The number of statement log entries dropped because the log queue was full")
+                .register(registry);
+    }
+
+    /**
+     * Write the queued entries and stop the writer thread
+     */
+    @PreDestroy
+    void close() throws InterruptedException {
+        writer.shutdown();
+        writer.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    private boolean sampled() {
+        double sampleRate = properties.sampleRate();
+        return sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate;
+    }
+
+    // Innermost application frame below the monitoring package, skipping Spring generated proxies
+    private static String origin() {
+        return StackWalker.getInstance().walk(frames -> frames
+                .filter(frame -> frame.getClassName().startsWith(APPLICATION_PACKAGE)
+                        && !frame.getClassName().startsWith(MONITORING_PACKAGE)
+                        && !frame.getClassName().contains("$$"))
+                .findFirst()
+                .map(frame -> simpleName(frame.getClassName()) + "." + methodName(frame.getMethodName()))
+                .orElse("unknown"));
+    }
+
+    private static String simpleName(String className) {
+        return className.substring(className.lastIndexOf('.') + 1);
+    }
+
+    // Lambdas are compiled to lambda$enclosingMethod$n, report the enclosing method
+    private static String methodName(String methodName) {
+        return methodName.startsWith("lambda$") ? methodName.split("\\$")[1] : methodName;
+    }
+
+    private static Statement statement(QueryInfo queryInfo, boolean logParameters) {
+        List<List<ParameterSetOperation>> parametersList = queryInfo.getParametersList();
+        List<List<Object>> parameters = parametersList.stream()
+                .limit(MAX_LOGGED_BATCH_ENTRIES)
+                .map(operations -> parameterValues(operations, logParameters))
+                .toList();
+        return new Statement(queryInfo.getQuery(), parameters, parametersList.size());
+    }
+
+    // Redacted values keep their position, so the statement still shows how many parameters were bound
+    private static List<Object> parameterValues(List<ParameterSetOperation> operations, boolean logParameters) {
+        List<ParameterSetOperation> sorted = new ArrayList<>(operations);
+        sorted.sort(Comparator.comparing(operation -> operation.getArgs()[0] instanceof Integer index ? index : 0));
+        List<Object> values = new ArrayList<>(sorted.size());
+        for (ParameterSetOperation operation : sorted) {
+            if (!logParameters) {
+                values.add(REDACTED);
+            } else {
+                values.add(ParameterSetOperation.isSetNullParameterOperation(operation) || operation.getArgs().length < 2
+                        ? null : operation.getArgs()[1]);
+            }
+        }
+        return values;
+    }
+
+    private static void write(LogEntry entry) {
+        String statements = entry.statements().stream()
+                .map(Statement::format)
+                .collect(Collectors.joining("; "));
+        String outcome = entry.success() ? "" : " (failed)";
+        if (entry.slow()) {
+            log.warn("Slow SQL took {} ms{} in {}: {}", entry.elapsedMillis(), outcome, entry.origin(), statements);
+        } else {
+            log.info("Sampled SQL took {} ms{} in {}: {}", entry.elapsedMillis(), outcome, entry.origin(), statements);
+        }
+    }
+
+    private record LogEntry(boolean slow, long elapsedMillis, boolean success, String origin, List<Statement> statements) {}
+
+    private record Statement(String sql, List<List<Object>> parameters, int batchSize) {
+
+        String format() {
+            if (parameters.isEmpty() || (batchSize == 1 && parameters.get(0).isEmpty())) {
+                return sql;
+            }
+            if (batchSize == 1) {
+                return sql + " " + parameters.get(0);
+            }
+            int omitted = batchSize - parameters.size();
+            return sql + " batch of " + batchSize + " " + parameters + (omitted > 0 ? " (+" + omitted + " more)" : "");
+        }
+    }
+}
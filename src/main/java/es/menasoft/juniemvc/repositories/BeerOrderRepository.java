@@ -2,16 +2,69 @@ package es.menasoft.juniemvc.repositories;
 
 import es.menasoft.juniemvc.entities.BeerOrder;
 import es.menasoft.juniemvc.entities.Customer;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface BeerOrderRepository extends JpaRepository<BeerOrder, Integer> {
+public interface BeerOrderRepository extends JpaRepository<BeerOrder, Integer>, BeerOrderSearchRepository {
     // Find orders by customer
     List<BeerOrder> findAllByCustomer(Customer customer);
     
     // Find orders by customer ID
     List<BeerOrder> findAllByCustomerId(Integer customerId);
+
+    /**
+     * Find all orders with their customer, order lines and beers loaded in a single query
+     * @return all orders
+     */
+    @EntityGraph(BeerOrder.WITH_ORDER_LINES)
+    List<BeerOrder> findAllWithOrderLinesBy();
+
+    /**
+     * Find the orders of a customer with their order lines and beers loaded in a single query
+     * @param customerId the customer ID
+     * @return the orders of the customer
+     */
+    @EntityGraph(BeerOrder.WITH_ORDER_LINES)
+    List<BeerOrder> findAllWithOrderLinesByCustomerId(Integer customerId);
+
+    /**
+     * Find an order with its customer, order lines and beers loaded in a single query
+     * @param id the order ID
+     * @return an Optional containing the order if found, or empty if not found
+     */
+    @EntityGraph(BeerOrder.WITH_ORDER_LINES)
+    Optional<BeerOrder> findWithOrderLinesById(Integer id);
+
+    /**
+     * Find the orders with the given IDs with their order lines and beers loaded in a single query
+     * @param ids the order IDs
+     * @return the orders in ascending ID order
+     */
+    @EntityGraph(BeerOrder.WITH_ORDER_LINES)
+    List<BeerOrder> findAllWithOrderLinesByIdInOrderByIdAsc(Collection<Integer> ids);
+
+    /**
+     * Find the IDs of the orders following an ID, used to export orders in chunks
+     * @param afterId only return IDs greater than this one
+     * @param limit maximum number of IDs to return
+     * @return the order IDs in ascending order
+     */
+    @Query("select o.id from BeerOrder o where o.id > :afterId order by o.id")
+    List<Integer> findIdsAfter(Integer afterId, Limit limit);
+
+    /**
+     * Find the current version of an order without loading it, used to answer conditional requests
+     * @param id the order ID
+     * @return the version (0 if never versioned), or empty if the order does not exist
+     */
+    @Query("select coalesce(o.version, 0) from BeerOrder o where o.id = :id")
+    Optional<Integer> findVersionById(Integer id);
 }
\ No newline at end of file
@@ -0,0 +1,22 @@
+package es.menasoft.juniemvc.repositories;
+
+import es.menasoft.juniemvc.models.BeerOrderSearchCriteria;
+import es.menasoft.juniemvc.models.BeerOrderSummaryDto;
+
+import java.util.List;
+
+/**
+ * Custom fragment of {@link BeerOrderRepository} for the filtered order search.
+ */
+public interface BeerOrderSearchRepository {
+
+    /**
+     * Find order summaries matching the criteria, newest first, using keyset pagination on the order ID.
+     * Only the filters that are set become part of the query, so the database can pick the matching index.
+     * @param criteria the search filters
+     * @param beforeId only return orders with a lower ID, null for the first window
+     * @param limit maximum number of summaries to return
+     * @return the matching order summaries ordered by descending ID
+     */
+    List<BeerOrderSummaryDto> searchSummaries(BeerOrderSearchCriteria criteria, Integer beforeId, int limit);
+}
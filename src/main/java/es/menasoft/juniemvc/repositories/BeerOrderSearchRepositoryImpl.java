@@ -0,0 +1,61 @@
+package es.menasoft.juniemvc.repositories;
+
+import es.menasoft.juniemvc.entities.BeerOrder;
+import es.menasoft.juniemvc.models.BeerOrderSearchCriteria;
+import es.menasoft.juniemvc.models.BeerOrderSummaryDto;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+import java.util.ArrayList;
+import java.util.List;
+
+class BeerOrderSearchRepositoryImpl implements BeerOrderSearchRepository {
+
+    private final EntityManager entityManager;
+
+    BeerOrderSearchRepositoryImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public List<BeerOrderSummaryDto> searchSummaries(BeerOrderSearchCriteria criteria, Integer beforeId, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<BeerOrderSummaryDto> query = cb.createQuery(BeerOrderSummaryDto.class);
+        Root<BeerOrder> beerOrder = query.from(BeerOrder.class);
+
+        List<Predicate> predicates = new ArrayList<>();
+        if (criteria.orderStatus() != null) {
+            predicates.add(cb.equal(beerOrder.get("orderStatus"), criteria.orderStatus()));
+        }
+        if (criteria.customerId() != null) {
+            predicates.add(cb.equal(beerOrder.get("customer").get("id"), criteria.customerId()));
+        }
+        if (criteria.createdFrom() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(beerOrder.get("createdDate"), criteria.createdFrom()));
+        }
+        if (criteria.createdTo() != null) {
+            predicates.add(cb.lessThan(beerOrder.get("createdDate"), criteria.createdTo()));
+        }
+        if (beforeId != null) {
+            predicates.add(cb.lessThan(beerOrder.get("id"), beforeId));
+        }
+
+        // Project straight into the summary, the customer ID is read from the foreign key without a join
+        query.select(cb.construct(BeerOrderSummaryDto.class,
+                        beerOrder.get("id"),
+                        beerOrder.get("version"),
+                        beerOrder.get("orderStatus"),
+                        beerOrder.get("customer").get("id"),
+                        beerOrder.get("createdDate"),
+                        beerOrder.get("updateDate")))
+                .where(predicates.toArray(Predicate[]::new))
+                .orderBy(cb.desc(beerOrder.get("id")));
+
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+}
@@ -2,10 +2,16 @@ package es.menasoft.juniemvc.repositories;
 
 import es.menasoft.juniemvc.entities.BeerOrder;
 import es.menasoft.juniemvc.entities.BeerOrderShipment;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface BeerOrderShipmentRepository extends JpaRepository<BeerOrderShipment, Integer> {
@@ -14,4 +20,25 @@ public interface BeerOrderShipmentRepository extends JpaRepository<BeerOrderShip
     
     // Find shipments by beer order ID
     List<BeerOrderShipment> findAllByBeerOrderId(Integer beerOrderId);
+
+    /**
+     * Stream all shipments in ID order through a forward-only cursor, used by the export.
+     * The order and its customer are fetched in the same row, they are eager and would otherwise be
+     * loaded with one query each.
+     * @return a stream of all shipments, must be consumed within a transaction and closed
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select s from BeerOrderShipment s left join fetch s.beerOrder o left join fetch o.customer order by s.id")
+    Stream<BeerOrderShipment> streamAllWithBeerOrder();
+
+    /**
+     * Find the current version of a shipment without loading it, used to answer conditional requests
+     * @param id the shipment ID
+     * @return the version (0 if never versioned), or empty if the shipment does not exist
+     */
+    @Query("select coalesce(s.version, 0) from BeerOrderShipment s where s.id = :id")
+    Optional<Integer> findVersionById(Integer id);
 }
\ No newline at end of file
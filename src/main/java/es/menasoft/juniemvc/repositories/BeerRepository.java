@@ -1,11 +1,25 @@
 package es.menasoft.juniemvc.repositories;
 
 import es.menasoft.juniemvc.entities.Beer;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
 @Repository
 public interface BeerRepository extends JpaRepository<Beer, Integer> {
     // Spring Data JPA will automatically implement basic CRUD operations
@@ -43,4 +57,138 @@ public interface BeerRepository extends JpaRepository<Beer, Integer> {
      * @return a page of all beers
      */
     Page<Beer> findAll(Pageable pageable);
-}
\ No newline at end of file
+
+    /**
+     * Find beers by ID, used to resolve the matches of the in-memory search index
+     * @param ids the beer IDs
+     * @param pageable pagination and sort information, no total is counted
+     * @return the beers of the requested page
+     */
+    List<Beer> findByIdIn(Collection<Integer> ids, Pageable pageable);
+
+    /**
+     * Load the searchable columns of every beer, used to build the in-memory search index
+     * @return the id, name and style of all beers
+     */
+    @Query("select b.id as id, b.beerName as beerName, b.beerStyle as beerStyle from Beer b")
+    List<BeerSearchTerms> findAllSearchTerms();
+
+    // Slice queries fetch one extra row to tell whether a next page exists and never run a COUNT query
+
+    /**
+     * Find a slice of beers by name containing the given string (case-insensitive) without counting the total
+     * @param beerName the name to search for
+     * @param pageable pagination information
+     * @return a slice of beers matching the search criteria
+     */
+    Slice<Beer> findSliceByBeerNameContainingIgnoreCase(String beerName, Pageable pageable);
+
+    /**
+     * Find a slice of beers by style containing the given string (case-insensitive) without counting the total
+     * @param beerStyle the style to search for
+     * @param pageable pagination information
+     * @return a slice of beers matching the search criteria
+     */
+    Slice<Beer> findSliceByBeerStyleContainingIgnoreCase(String beerStyle, Pageable pageable);
+
+    /**
+     * Find a slice of beers by name and style containing the given strings (case-insensitive) without counting the total
+     * @param beerName the name to search for
+     * @param beerStyle the style to search for
+     * @param pageable pagination information
+     * @return a slice of beers matching the search criteria
+     */
+    Slice<Beer> findSliceByBeerNameContainingIgnoreCaseAndBeerStyleContainingIgnoreCase(
+            String beerName, String beerStyle, Pageable pageable);
+
+    /**
+     * Find a slice of all beers without counting the total
+     * @param pageable pagination information
+     * @return a slice of beers
+     */
+    Slice<Beer> findSliceBy(Pageable pageable);
+
+    /**
+     * Count beers by name containing the given string (case-insensitive)
+     * @param beerName the name to search for
+     * @return the number of beers matching the search criteria
+     */
+    long countByBeerNameContainingIgnoreCase(String beerName);
+
+    /**
+     * Count beers by style containing the given string (case-insensitive)
+     * @param beerStyle the style to search for
+     * @return the number of beers matching the search criteria
+     */
+    long countByBeerStyleContainingIgnoreCase(String beerStyle);
+
+    /**
+     * Count beers by name and style containing the given strings (case-insensitive)
+     * @param beerName the name to search for
+     * @param beerStyle the style to search for
+     * @return the number of beers matching the search criteria
+     */
+    long countByBeerNameContainingIgnoreCaseAndBeerStyleContainingIgnoreCase(String beerName, String beerStyle);
+
+    // Keyset (seek) queries: rows are located with a "(sortField, id) > (last sortField, last id)"
+    // predicate, so deep windows range-scan idx_beer_name / idx_beer_style instead of skipping an offset
+
+    /**
+     * Scroll through all beers using keyset pagination
+     * @param position the keyset position after which to continue (use {@link ScrollPosition#keyset()} for the first window)
+     * @param sort the sort order, the beer ID is appended as tie-breaker
+     * @param limit maximum number of beers in the window
+     * @return a window of beers after the given position
+     */
+    Window<Beer> findBy(ScrollPosition position, Sort sort, Limit limit);
+
+    /**
+     * Scroll through beers by name containing the given string (case-insensitive) using keyset pagination
+     * @param beerName the name to search for
+     * @param position the keyset position after which to continue
+     * @param sort the sort order, the beer ID is appended as tie-breaker
+     * @param limit maximum number of beers in the window
+     * @return a window of beers matching the search criteria
+     */
+    Window<Beer> findByBeerNameContainingIgnoreCase(String beerName, ScrollPosition position, Sort sort, Limit limit);
+
+    /**
+     * Scroll through beers by style containing the given string (case-insensitive) using keyset pagination
+     * @param beerStyle the style to search for
+     * @param position the keyset position after which to continue
+     * @param sort the sort order, the beer ID is appended as tie-breaker
+     * @param limit maximum number of beers in the window
+     * @return a window of beers matching the search criteria
+     */
+    Window<Beer> findByBeerStyleContainingIgnoreCase(String beerStyle, ScrollPosition position, Sort sort, Limit limit);
+
+    /**
+     * Scroll through beers by name and style containing the given strings (case-insensitive) using keyset pagination
+     * @param beerName the name to search for
+     * @param beerStyle the style to search for
+     * @param position the keyset position after which to continue
+     * @param sort the sort order, the beer ID is appended as tie-breaker
+     * @param limit maximum number of beers in the window
+     * @return a window of beers matching the search criteria
+     */
+    Window<Beer> findByBeerNameContainingIgnoreCaseAndBeerStyleContainingIgnoreCase(
+            String beerName, String beerStyle, ScrollPosition position, Sort sort, Limit limit);
+
+    /**
+     * Stream all beers in ID order through a forward-only cursor, used by the export
+     * @return a stream of all beers, must be consumed within a transaction and closed
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<Beer> streamAllByOrderByIdAsc();
+
+    /**
+     * Find the current version of a beer without loading it, used to answer conditional requests
+     * @param id the beer ID
+     * @return the version (0 if never versioned), or empty if the beer does not exist
+     */
+    @Query("select coalesce(b.version, 0) from Beer b where b.id = :id")
+    Optional<Integer> findVersionById(Integer id);
+}
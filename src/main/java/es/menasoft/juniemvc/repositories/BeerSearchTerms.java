@@ -0,0 +1,13 @@
+package es.menasoft.juniemvc.repositories;
+
+/**
+ * Projection of the beer columns that can be searched by substring.
+ */
+public interface BeerSearchTerms {
+
+    Integer getId();
+
+    String getBeerName();
+
+    String getBeerStyle();
+}
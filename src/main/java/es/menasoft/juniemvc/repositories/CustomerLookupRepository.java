@@ -0,0 +1,21 @@
+package es.menasoft.juniemvc.repositories;
+
+import es.menasoft.juniemvc.entities.Customer;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Custom fragment of {@link CustomerRepository} for looking up several customers at once.
+ */
+public interface CustomerLookupRepository {
+
+    /**
+     * Find the customers with the given IDs. Customers already in the persistence context or the second-level
+     * cache are taken from there, only the others are loaded, with a single IN query.
+     * Must be called within a transaction.
+     * @param ids the customer IDs
+     * @return the customers found, in no particular order; IDs that match no customer are left out
+     */
+    List<Customer> findAllCachedById(Collection<Integer> ids);
+}
@@ -0,0 +1,33 @@
+package es.menasoft.juniemvc.repositories;
+
+import es.menasoft.juniemvc.entities.Customer;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+
+class CustomerLookupRepositoryImpl implements CustomerLookupRepository {
+
+    private final EntityManager entityManager;
+
+    CustomerLookupRepositoryImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    // Unlike findAllById, a multi-load checks the caches before querying for the remaining IDs.
+    // Unordered, it still returns a null entry for each ID that matches no customer.
+    @Override
+    public List<Customer> findAllCachedById(Collection<Integer> ids) {
+        return entityManager.unwrap(Session.class)
+                .byMultipleIds(Customer.class)
+                .enableSessionCheck(true)
+                .enableOrderedReturn(false)
+                .withBatchSize(ids.size())
+                .multiLoad(List.copyOf(ids))
+                .stream()
+                .filter(Objects::nonNull)
+                .toList();
+    }
+}
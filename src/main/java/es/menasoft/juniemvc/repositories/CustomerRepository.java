@@ -1,10 +1,35 @@
 package es.menasoft.juniemvc.repositories;
 
 import es.menasoft.juniemvc.entities.Customer;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.util.Optional;
+import java.util.stream.Stream;
+
 @Repository
-public interface CustomerRepository extends JpaRepository<Customer, Integer> {
+public interface CustomerRepository extends JpaRepository<Customer, Integer>, CustomerLookupRepository {
     // Spring Data JPA will automatically implement basic CRUD operations
+
+    /**
+     * Stream all customers in ID order through a forward-only cursor, used by the export
+     * @return a stream of all customers, must be consumed within a transaction and closed
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<Customer> streamAllByOrderByIdAsc();
+
+    /**
+     * Find the current version of a customer without loading it, used to answer conditional requests
+     * @param id the customer ID
+     * @return the version (0 if never versioned), or empty if the customer does not exist
+     */
+    @Query("select coalesce(c.version, 0) from Customer c where c.id = :id")
+    Optional<Integer> findVersionById(Integer id);
 }
\ No newline at end of file
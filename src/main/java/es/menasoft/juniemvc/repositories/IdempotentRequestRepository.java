@@ -0,0 +1,65 @@
+package es.menasoft.juniemvc.repositories;
+
+import es.menasoft.juniemvc.entities.IdempotentRequest;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface IdempotentRequestRepository extends JpaRepository<IdempotentRequest, String> {
+
+    /**
+     * Delete the requests created before the given date with a single statement
+     * @param createdDate the creation date before which requests are deleted
+     * @return the number of requests deleted
+     */
+    @Transactional
+    @Modifying
+    @Query("delete from IdempotentRequest r where r.createdDate < :createdDate")
+    int deleteAllCreatedBefore(LocalDateTime createdDate);
+
+    /**
+     * Take over a claim whose lease has expired without a recorded response
+     * @param id the request ID
+     * @param version the version of the claim as last read
+     * @param requestHash the hash of the request taking the claim over
+     * @param leaseUntil the end of the new lease
+     * @param now the current time, the claim's lease must have ended before
+     * @return 1 if the claim was taken over, now at the next version; 0 if it was completed or taken meanwhile
+     */
+    @Transactional
+    @Modifying
+    @Query("""
+            update IdempotentRequest r set r.requestHash = :requestHash, r.leaseUntil = :leaseUntil, r.version = r.version + 1
+            where r.id = :id and r.version = :version and r.responseStatus is null and r.leaseUntil < :now""")
+    int takeOver(String id, Integer version, String requestHash, LocalDateTime leaseUntil, LocalDateTime now);
+
+    /**
+     * Record the response of a request if its claim is still held at the given version
+     * @param id the request ID
+     * @param version the version of the claim held
+     * @return 1 if the response was recorded, 0 if the claim was taken over
+     */
+    @Transactional
+    @Modifying
+    @Query("""
+            update IdempotentRequest r set r.responseStatus = :responseStatus, r.responseLocation = :responseLocation,
+                r.responseBody = :responseBody, r.version = r.version + 1
+            where r.id = :id and r.version = :version""")
+    int complete(String id, Integer version, Integer responseStatus, String responseLocation, String responseBody);
+
+    /**
+     * Give a claim up if it is still held at the given version
+     * @param id the request ID
+     * @param version the version of the claim held
+     * @return the number of claims deleted
+     */
+    @Transactional
+    @Modifying
+    @Query("delete from IdempotentRequest r where r.id = :id and r.version = :version")
+    int release(String id, Integer version);
+}
@@ -0,0 +1,27 @@
+package es.menasoft.juniemvc.services;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+
+/**
+ * Configuration of the in-process {@link BeerDtoCache}.
+ *
+ * @param maximumSize maximum number of beers kept in the cache
+ * @param ttl time after which a cached beer is reloaded from the database
+ */
+@Validated
+@ConfigurationProperties("juniemvc.beer-cache")
+record BeerCacheProperties(
+        @Positive
+        @DefaultValue("10000")
+        long maximumSize,
+
+        @NotNull
+        @DefaultValue("10m")
+        Duration ttl
+) {}
@@ -0,0 +1,60 @@
+package es.menasoft.juniemvc.services;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import es.menasoft.juniemvc.repositories.BeerRepository;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.util.Locale;
+
+/**
+ * Caches the number of beers matching a name/style filter for a short time.
+ * Counting a {@code LIKE '%term%'} filter is a full scan, so listings that only need an
+ * approximate total share one count per filter instead of running it on every page.
+ */
+@Component
+@EnableConfigurationProperties(BeerCountCacheProperties.class)
+class BeerCountCache {
+
+    private final BeerRepository beerRepository;
+    private final LoadingCache<Filter, Long> counts;
+
+    BeerCountCache(BeerRepository beerRepository, BeerCountCacheProperties properties) {
+        this.beerRepository = beerRepository;
+        this.counts = Caffeine.newBuilder()
+                .maximumSize(properties.maximumSize())
+                .expireAfterWrite(properties.ttl())
+                .build(this::count);
+    }
+
+    /**
+     * Get the number of beers matching the filter, computing it if it is not cached
+     * @param beerName optional name filter (can be null or empty)
+     * @param beerStyle optional style filter (can be null or empty)
+     * @return the number of beers matching the filter, possibly slightly out of date
+     */
+    long get(String beerName, String beerStyle) {
+        return counts.get(new Filter(normalize(beerName), normalize(beerStyle)));
+    }
+
+    private long count(Filter filter) {
+        if (filter.beerName() != null && filter.beerStyle() != null) {
+            return beerRepository.countByBeerNameContainingIgnoreCaseAndBeerStyleContainingIgnoreCase(
+                    filter.beerName(), filter.beerStyle());
+        } else if (filter.beerName() != null) {
+            return beerRepository.countByBeerNameContainingIgnoreCase(filter.beerName());
+        } else if (filter.beerStyle() != null) {
+            return beerRepository.countByBeerStyleContainingIgnoreCase(filter.beerStyle());
+        }
+        return beerRepository.count();
+    }
+
+    // The filters are case-insensitive, so "IPA" and "ipa" share one cached count
+    private static String normalize(String value) {
+        return StringUtils.hasText(value) ? value.toLowerCase(Locale.ROOT) : null;
+    }
+
+    private record Filter(String beerName, String beerStyle) {}
+}
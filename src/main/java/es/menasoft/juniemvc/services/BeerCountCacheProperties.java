@@ -0,0 +1,27 @@
+package es.menasoft.juniemvc.services;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+
+/**
+ * Configuration of the {@link BeerCountCache} used for approximate totals.
+ *
+ * @param maximumSize maximum number of distinct filters whose count is kept
+ * @param ttl time after which a cached count is recomputed
+ */
+@Validated
+@ConfigurationProperties("juniemvc.beer-count-cache")
+record BeerCountCacheProperties(
+        @Positive
+        @DefaultValue("1000")
+        long maximumSize,
+
+        @NotNull
+        @DefaultValue("1m")
+        Duration ttl
+) {}
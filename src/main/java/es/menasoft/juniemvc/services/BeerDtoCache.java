@@ -0,0 +1,183 @@
+package es.menasoft.juniemvc.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import es.menasoft.juniemvc.models.BeerDto;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import static es.menasoft.juniemvc.services.TransactionCallbacks.afterCommit;
+
+/**
+ * Bounded, node-local read-through cache of {@link BeerDto} keyed by beer id.
+ * Every entry is tagged with the entity {@code @Version}, so a reader that loaded a beer before a
+ * concurrent write committed can never replace the newer entry with its stale copy.
+ * Write paths only touch the cache once their transaction has committed.
+ */
+@Component
+@EnableConfigurationProperties(BeerCacheProperties.class)
+class BeerDtoCache implements MeterBinder {
+
+    private static final String CACHE_NAME = "beerDto";
+
+    // Version used to mark deleted beers; ids are never reused so nothing may be cached again
+    private static final int DELETED = Integer.MAX_VALUE;
+
+    private final Cache<Integer, Entry> cache;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    BeerDtoCache(BeerCacheProperties properties) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.maximumSize())
+                .expireAfterWrite(properties.ttl())
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Get a beer from the cache, loading and caching it on a miss
+     * @param id the beer ID
+     * @param loader loads the beer from the database
+     * @return an Optional containing the beer DTO if found, or empty if not found
+     */
+    Optional<BeerDto> get(Integer id, Function<Integer, Optional<BeerDto>> loader) {
+        Entry entry = cache.asMap().get(id);
+        if (entry != null && (entry.beer() != null || entry.version() == DELETED)) {
+            hits.increment();
+            return Optional.ofNullable(entry.beer());
+        }
+
+        misses.increment();
+        Optional<BeerDto> loaded = loader.apply(id);
+        loaded.ifPresent(this::put);
+        return loaded;
+    }
+
+    /**
+     * Get several beers from the cache, loading all the misses at once and caching them
+     * @param ids the beer IDs
+     * @param loader loads the beers with the given IDs from the database, skipping those that do not exist
+     * @return the beers found, keyed by ID
+     */
+    Map<Integer, BeerDto> getAll(Collection<Integer> ids, Function<Set<Integer>, List<BeerDto>> loader) {
+        Map<Integer, BeerDto> found = new HashMap<>();
+        Set<Integer> missing = new LinkedHashSet<>();
+        for (Integer id : ids) {
+            Entry entry = cache.asMap().get(id);
+            if (entry != null && (entry.beer() != null || entry.version() == DELETED)) {
+                hits.increment();
+                if (entry.beer() != null) {
+                    found.put(id, entry.beer());
+                }
+            } else if (missing.add(id)) {
+                misses.increment();
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            loader.apply(missing).forEach(beer -> {
+                put(beer);
+                found.put(beer.id(), beer);
+            });
+        }
+        return found;
+    }
+
+    /**
+     * Get a beer only if it is currently cached, without loading it
+     * @param id the beer ID
+     * @return an Optional containing the cached beer DTO, or empty if it is not cached
+     */
+    Optional<BeerDto> getIfPresent(Integer id) {
+        Entry entry = cache.asMap().get(id);
+        return entry == null ? Optional.empty() : Optional.ofNullable(entry.beer());
+    }
+
+    /**
+     * Cache a beer unless a newer version of it is already cached
+     * @param beer the beer DTO to cache
+     */
+    void put(BeerDto beer) {
+        if (beer.id() == null) {
+            return;
+        }
+        int version = versionOf(beer.version());
+        cache.asMap().compute(beer.id(), (id, current) ->
+                current != null && current.version() > version ? current : new Entry(version, beer));
+    }
+
+    /**
+     * Cache a written beer once the surrounding transaction commits
+     * @param beer the beer DTO as written by the transaction
+     */
+    void putAfterCommit(BeerDto beer) {
+        afterCommit(() -> put(beer));
+    }
+
+    /**
+     * Drop a beer changed outside of the entity lifecycle once the surrounding transaction commits.
+     * Loads of any version lower than {@code newVersion} are not cached afterwards.
+     * @param id the beer ID
+     * @param newVersion the version the beer has after the change
+     */
+    void evictAfterCommit(Integer id, Integer newVersion) {
+        int version = versionOf(newVersion);
+        afterCommit(() -> cache.asMap().compute(id, (key, current) ->
+                current != null && current.beer() != null && current.version() >= version
+                        ? current : new Entry(version, null)));
+    }
+
+    /**
+     * Mark a beer as deleted once the surrounding transaction commits
+     * @param id the beer ID
+     */
+    void markDeletedAfterCommit(Integer id) {
+        afterCommit(() -> cache.put(id, new Entry(DELETED, null)));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("cache.gets", hits, LongAdder::sum)
+                .tag("cache", CACHE_NAME)
+                .tag("result", "hit")
+                .description("The number of times the beer cache returned a cached value")
+                .register(registry);
+        FunctionCounter.builder("cache.gets", misses, LongAdder::sum)
+                .tag("cache", CACHE_NAME)
+                .tag("result", "miss")
+                .description("The number of times the beer cache had to load a value")
+                .register(registry);
+        FunctionCounter.builder("cache.evictions", cache, c -> c.stats().evictionCount())
+                .tag("cache", CACHE_NAME)
+                .description("The number of beers evicted because of size or TTL")
+                .register(registry);
+        Gauge.builder("cache.size", cache, Cache::estimatedSize)
+                .tag("cache", CACHE_NAME)
+                .description("The approximate number of entries in the beer cache")
+                .register(registry);
+    }
+
+    private static int versionOf(Integer version) {
+        return version == null ? 0 : version;
+    }
+
+    /**
+     * Cached value; a {@code null} beer marks an entry whose loads below {@code version} are stale.
+     */
+    private record Entry(int version, BeerDto beer) {}
+}
@@ -0,0 +1,30 @@
+package es.menasoft.juniemvc.services;
+
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.validation.annotation.Validated;
+
+/**
+ * Configuration of the bulk imports run by {@link BeerImporter}.
+ *
+ * @param chunkSize number of valid rows written per transaction
+ * @param batchSize number of inserts sent to the database per JDBC batch
+ * @param maxReportedErrors number of rejected rows listed in the report, further rejected rows are only counted
+ */
+@Validated
+@ConfigurationProperties("juniemvc.beer-import")
+record BeerImportProperties(
+        @Positive
+        @DefaultValue("1000")
+        int chunkSize,
+
+        @Positive
+        @DefaultValue("100")
+        int batchSize,
+
+        @PositiveOrZero
+        @DefaultValue("100")
+        int maxReportedErrors
+) {}
@@ -0,0 +1,108 @@
+package es.menasoft.juniemvc.services;
+
+import es.menasoft.juniemvc.entities.Beer;
+import es.menasoft.juniemvc.mappers.BeerMapper;
+import es.menasoft.juniemvc.models.BeerImportError;
+import es.menasoft.juniemvc.models.BeerImportReport;
+import es.menasoft.juniemvc.models.BeerImportRow;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.Validator;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Creates beers in bulk from a stream of rows.
+ * Rows are validated as they are read and the valid ones are written {@code chunkSize} at a time, each chunk
+ * in its own transaction with JDBC-batched inserts, so neither the rows nor the persisted entities are ever
+ * held in memory as a whole. Only the first {@code maxReportedErrors} rejected rows are listed in the report,
+ * the others are counted. Chunks already written stay committed if a later chunk fails.
+ * <p>
+ * Imported beers bypass the second-level cache, a bulk load would only evict the beers that are actually read.
+ */
+@Component
+@EnableConfigurationProperties(BeerImportProperties.class)
+class BeerImporter {
+
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final Validator validator;
+    private final BeerMapper beerMapper;
+    private final BeerSearchIndex beerSearchIndex;
+    private final BeerImportProperties properties;
+
+    BeerImporter(EntityManager entityManager, PlatformTransactionManager transactionManager, Validator validator,
+                 BeerMapper beerMapper, BeerSearchIndex beerSearchIndex, BeerImportProperties properties) {
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.validator = validator;
+        this.beerMapper = beerMapper;
+        this.beerSearchIndex = beerSearchIndex;
+        this.properties = properties;
+    }
+
+    /**
+     * Import the beers of the given rows
+     * @param rows the rows to import, consumed once
+     * @return the number of beers created and rejected, with the first rejected rows
+     */
+    BeerImportReport importBeers(Iterator<BeerImportRow> rows) {
+        List<BeerImportError> errors = new ArrayList<>();
+        List<Beer> chunk = new ArrayList<>(properties.chunkSize());
+        int imported = 0;
+        int rejected = 0;
+
+        while (rows.hasNext()) {
+            BeerImportRow row = rows.next();
+            List<String> violations = validate(row);
+            if (!violations.isEmpty()) {
+                if (rejected++ < properties.maxReportedErrors()) {
+                    errors.add(new BeerImportError(row.row(), violations));
+                }
+                continue;
+            }
+
+            Beer beer = beerMapper.beerDtoToBeer(row.beer());
+            beer.setVersion(null);
+            chunk.add(beer);
+            if (chunk.size() == properties.chunkSize()) {
+                imported += write(chunk);
+                chunk = new ArrayList<>(properties.chunkSize());
+            }
+        }
+        if (!chunk.isEmpty()) {
+            imported += write(chunk);
+        }
+        return new BeerImportReport(imported, rejected, errors);
+    }
+
+    private List<String> validate(BeerImportRow row) {
+        if (row.error() != null) {
+            return List.of(row.error());
+        }
+        return validator.validate(row.beer()).stream()
+                .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                .sorted()
+                .toList();
+    }
+
+    private int write(List<Beer> beers) {
+        transactionTemplate.executeWithoutResult(status -> {
+            Session session = entityManager.unwrap(Session.class);
+            session.setJdbcBatchSize(properties.batchSize());
+            session.setCacheMode(CacheMode.IGNORE);
+            beers.forEach(entityManager::persist);
+            entityManager.flush();
+            entityManager.clear();
+            beerSearchIndex.indexAllAfterCommit(beers);
+        });
+        return beers.size();
+    }
+}
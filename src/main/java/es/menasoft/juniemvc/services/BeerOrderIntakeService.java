@@ -0,0 +1,31 @@
+package es.menasoft.juniemvc.services;
+
+import es.menasoft.juniemvc.models.BeerOrderIntakeDto;
+import es.menasoft.juniemvc.models.CreateBeerOrderCommand;
+
+import java.util.Optional;
+import java.util.UUID;
+
+public interface BeerOrderIntakeService {
+
+    /**
+     * Whether new orders go through the asynchronous intake
+     * @return true if orders are queued, false if they are created synchronously
+     */
+    boolean isEnabled();
+
+    /**
+     * Queue a beer order for creation
+     * @param command the command containing the order details, already validated
+     * @return the intake of the order, pending
+     * @throws es.menasoft.juniemvc.exceptions.TooManyRequestsException if the queue is full
+     */
+    BeerOrderIntakeDto submit(CreateBeerOrderCommand command);
+
+    /**
+     * Get the state of a queued beer order
+     * @param id the intake ID
+     * @return an Optional containing the intake, or empty if it is unknown or expired
+     */
+    Optional<BeerOrderIntakeDto> getIntake(UUID id);
+}
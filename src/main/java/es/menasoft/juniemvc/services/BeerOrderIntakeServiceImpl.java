@@ -0,0 +1,180 @@
+package es.menasoft.juniemvc.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import es.menasoft.juniemvc.exceptions.EntityNotFoundException;
+import es.menasoft.juniemvc.exceptions.InsufficientInventoryException;
+import es.menasoft.juniemvc.exceptions.TooManyRequestsException;
+import es.menasoft.juniemvc.models.BeerOrderDto;
+import es.menasoft.juniemvc.models.BeerOrderIntakeDto;
+import es.menasoft.juniemvc.models.BeerOrderIntakeDto.ErrorCode;
+import es.menasoft.juniemvc.models.CreateBeerOrderCommand;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Asynchronous beer order intake for load peaks, when one transaction per order is what limits throughput.
+ * Accepted orders wait in a bounded in-memory queue that a single writer thread drains in batches: every batch
+ * is created in one transaction, with one lookup of its customers and one of its beers. Should any order of a
+ * batch fail, the batch is rolled back and its orders are created one by one, so only the failing ones are rejected.
+ * Rejected orders report an {@link ErrorCode}; only missing entities and insufficient inventory also report their
+ * message, any other failure is logged and reported as an internal error.
+ * <p>
+ * Queued orders and their intakes live in memory only, orders still queued when the application is killed are
+ * lost; a graceful shutdown writes them before stopping. An intake can only be looked up on the node that accepted
+ * the order, clients follow it there.
+ */
+@Slf4j
+@Service
+@EnableConfigurationProperties(OrderIntakeProperties.class)
+class BeerOrderIntakeServiceImpl implements BeerOrderIntakeService {
+
+    private static final long POLL_MILLIS = 100;
+    private static final String INTERNAL_ERROR_MESSAGE = "The order could not be created, submit it again";
+
+    private final BeerOrderService beerOrderService;
+    private final OrderIntakeProperties properties;
+    private final BlockingQueue<Pending> queue;
+    private final Cache<UUID, BeerOrderIntakeDto> intakes;
+    private final DistributionSummary batchSizes;
+    private final Counter rejected;
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    BeerOrderIntakeServiceImpl(BeerOrderService beerOrderService, OrderIntakeProperties properties,
+                               MeterRegistry meterRegistry) {
+        this.beerOrderService = beerOrderService;
+        this.properties = properties;
+        this.queue = new ArrayBlockingQueue<>(properties.queueCapacity());
+        this.intakes = Caffeine.newBuilder()
+                .expireAfterWrite(properties.statusTtl())
+                .maximumSize(properties.statusMaximumSize())
+                .build();
+        Gauge.builder("orders.intake.queue.depth", queue, BlockingQueue::size)
+                .description("The number of accepted orders waiting to be written")
+                .register(meterRegistry);
+        this.batchSizes = DistributionSummary.builder("orders.intake.batch.size")
+                .description("The number of orders written per intake transaction")
+                .baseUnit("orders")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.rejected = Counter.builder("orders.intake.rejected")
+                .description("The number of orders rejected because the intake queue was full")
+                .register(meterRegistry);
+        this.writer = properties.enabled()
+                ? Thread.ofPlatform().name("order-intake").daemon().start(this::drain)
+                : null;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return properties.enabled();
+    }
+
+    @Override
+    public BeerOrderIntakeDto submit(CreateBeerOrderCommand command) {
+        if (!properties.enabled() || !running) {
+            throw new IllegalStateException("The asynchronous order intake is not running");
+        }
+        BeerOrderIntakeDto intake = BeerOrderIntakeDto.pending(UUID.randomUUID());
+        intakes.put(intake.id(), intake);
+        if (!queue.offer(new Pending(intake.id(), command))) {
+            intakes.invalidate(intake.id());
+            rejected.increment();
+            throw new TooManyRequestsException("Too many orders waiting to be created, retry later",
+                    properties.retryAfter());
+        }
+        return intake;
+    }
+
+    @Override
+    public Optional<BeerOrderIntakeDto> getIntake(UUID id) {
+        return Optional.ofNullable(intakes.getIfPresent(id));
+    }
+
+    /**
+     * Stop accepting orders and write the ones still queued
+     */
+    @PreDestroy
+    void close() throws InterruptedException {
+        running = false;
+        if (writer != null) {
+            writer.join(TimeUnit.SECONDS.toMillis(30));
+        }
+    }
+
+    // Keeps writing until stopped and the queue is empty, so a graceful shutdown loses no accepted order
+    private void drain() {
+        List<Pending> batch = new ArrayList<>(properties.batchSize());
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, properties.batchSize() - 1);
+                write(batch);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException ex) {
+                log.error("Order intake batch of {} orders could not be written", batch.size(), ex);
+                batch.forEach(pending -> intakes.put(pending.id(),
+                        BeerOrderIntakeDto.failed(pending.id(), ErrorCode.INTERNAL_ERROR, INTERNAL_ERROR_MESSAGE)));
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<Pending> batch) {
+        batchSizes.record(batch.size());
+        List<BeerOrderDto> created;
+        try {
+            created = beerOrderService.createBeerOrders(batch.stream().map(Pending::command).toList());
+        } catch (RuntimeException ex) {
+            writeOneByOne(batch);
+            return;
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            UUID id = batch.get(i).id();
+            intakes.put(id, BeerOrderIntakeDto.created(id, created.get(i).id()));
+        }
+    }
+
+    private void writeOneByOne(Collection<Pending> batch) {
+        for (Pending pending : batch) {
+            try {
+                BeerOrderDto created = beerOrderService.createBeerOrder(pending.command());
+                intakes.put(pending.id(), BeerOrderIntakeDto.created(pending.id(), created.id()));
+            } catch (EntityNotFoundException ex) {
+                intakes.put(pending.id(), BeerOrderIntakeDto.failed(pending.id(), ErrorCode.NOT_FOUND, ex.getMessage()));
+            } catch (InsufficientInventoryException ex) {
+                intakes.put(pending.id(),
+                        BeerOrderIntakeDto.failed(pending.id(), ErrorCode.INSUFFICIENT_INVENTORY, ex.getMessage()));
+            } catch (RuntimeException ex) {
+                log.error("Queued order {} could not be created", pending.id(), ex);
+                intakes.put(pending.id(),
+                        BeerOrderIntakeDto.failed(pending.id(), ErrorCode.INTERNAL_ERROR, INTERNAL_ERROR_MESSAGE));
+            }
+        }
+    }
+
+    private record Pending(UUID id, CreateBeerOrderCommand command) {}
+}
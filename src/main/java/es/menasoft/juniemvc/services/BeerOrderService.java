@@ -1,10 +1,20 @@
 package es.menasoft.juniemvc.services;
 
 import es.menasoft.juniemvc.models.BeerOrderDto;
+import es.menasoft.juniemvc.models.BeerOrderSearchCriteria;
+import es.menasoft.juniemvc.models.BeerOrderStatus;
+import es.menasoft.juniemvc.models.BeerOrderStatusTransitionCommand;
+import es.menasoft.juniemvc.models.BeerOrderStatusTransitionReport;
+import es.menasoft.juniemvc.models.BeerOrderSummaryDto;
 import es.menasoft.juniemvc.models.CreateBeerOrderCommand;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface BeerOrderService {
 
@@ -15,6 +25,13 @@ public interface BeerOrderService {
      */
     BeerOrderDto createBeerOrder(CreateBeerOrderCommand command);
 
+    /**
+     * Create several beer orders in one transaction, all or nothing
+     * @param commands the commands containing the order details
+     * @return the created beer order DTOs, in command order
+     */
+    List<BeerOrderDto> createBeerOrders(List<CreateBeerOrderCommand> commands);
+
     /**
      * Get a beer order by its ID
      * @param id the beer order ID
@@ -22,12 +39,42 @@ public interface BeerOrderService {
      */
     Optional<BeerOrderDto> getBeerOrderById(Integer id);
 
+    /**
+     * Get several beer orders by ID, loading them with their order lines in one query
+     * @param ids the beer order IDs
+     * @return the beer orders found keyed by ID, IDs that do not exist are absent
+     */
+    Map<Integer, BeerOrderDto> getBeerOrdersByIds(Collection<Integer> ids);
+
+    /**
+     * Get the current version of a beer order without loading it
+     * @param id the beer order ID
+     * @return an Optional containing the version if found, or empty if not found
+     */
+    Optional<Integer> getBeerOrderVersion(Integer id);
+
     /**
      * Get all beer orders
      * @return a list of all beer order DTOs
      */
     List<BeerOrderDto> getAllBeerOrders();
 
+    /**
+     * Export all beer orders in ID order without holding them in memory
+     * @param consumer receives the beer order DTOs, called within the read transaction
+     */
+    void exportBeerOrders(Consumer<BeerOrderDto> consumer);
+
+    /**
+     * Search beer orders, newest first, using keyset pagination
+     * @param criteria the search filters
+     * @param position position after which to continue, {@code ScrollPosition.keyset()} for the first window
+     * @param limit maximum number of orders in the window
+     * @return a window of order summaries matching the criteria
+     * @throws es.menasoft.juniemvc.exceptions.BadRequestException if the position is not keyed by the order ID alone
+     */
+    Window<BeerOrderSummaryDto> searchBeerOrders(BeerOrderSearchCriteria criteria, ScrollPosition position, int limit);
+
     /**
      * Get all beer orders for a customer
      * @param customerId the customer ID
@@ -44,15 +91,31 @@ public interface BeerOrderService {
     Optional<BeerOrderDto> updateBeerOrder(Integer id, BeerOrderDto beerOrderDto);
 
     /**
-     * Update the status of a beer order
+     * Update the status of a beer order, along an allowed transition. Cancelling an order puts its stock back.
      * @param id the ID of the beer order to update
-     * @param status the new status
+     * @param status the new status, the current status leaves the order unchanged
      * @return an Optional containing the updated beer order DTO if found, or empty if not found
+     * @throws es.menasoft.juniemvc.exceptions.InvalidStatusTransitionException if the order cannot move to the status
+     */
+    Optional<BeerOrderDto> updateBeerOrderStatus(Integer id, BeerOrderStatus status);
+
+    /**
+     * Move many beer orders from one status to another with set-based updates, in chunks.
+     * Cancelling orders puts their stock back.
+     * @param command the orders to transition, by ID or by filter, and their expected and new status
+     * @return the counts per outcome, with the outcome of every listed order or of every filtered order not updated;
+     *         orders not in the expected status are skipped
+     */
+    BeerOrderStatusTransitionReport transitionBeerOrderStatus(BeerOrderStatusTransitionCommand command);
+
+    /**
+     * Get the number of beer orders in every status, read from the maintained counts without scanning the orders
+     * @return the count of every status, in status order
      */
-    Optional<BeerOrderDto> updateBeerOrderStatus(Integer id, String status);
+    Map<BeerOrderStatus, Long> getBeerOrderStatusCounts();
 
     /**
-     * Delete a beer order by its ID
+     * Delete a beer order by its ID, putting its stock back unless it was already shipped or cancelled
      * @param id the ID of the beer order to delete
      * @return true if the beer order was deleted, false if it was not found
      */
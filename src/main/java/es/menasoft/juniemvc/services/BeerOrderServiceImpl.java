@@ -4,25 +4,46 @@ import es.menasoft.juniemvc.entities.Beer;
 import es.menasoft.juniemvc.entities.BeerOrder;
 import es.menasoft.juniemvc.entities.Customer;
 import es.menasoft.juniemvc.entities.OrderLine;
+import es.menasoft.juniemvc.exceptions.BadRequestException;
 import es.menasoft.juniemvc.exceptions.EntityNotFoundException;
+import es.menasoft.juniemvc.exceptions.InvalidStatusTransitionException;
 import es.menasoft.juniemvc.mappers.BeerOrderMapper;
 import es.menasoft.juniemvc.mappers.OrderLineMapper;
 import es.menasoft.juniemvc.models.BeerOrderDto;
+import es.menasoft.juniemvc.models.BeerOrderSearchCriteria;
+import es.menasoft.juniemvc.models.BeerOrderStatus;
+import es.menasoft.juniemvc.models.BeerOrderStatusChangedEvent;
+import es.menasoft.juniemvc.models.BeerOrderStatusTransitionCommand;
+import es.menasoft.juniemvc.models.BeerOrderStatusTransitionReport;
+import es.menasoft.juniemvc.models.BeerOrderSummaryDto;
 import es.menasoft.juniemvc.models.CreateBeerOrderCommand;
 import es.menasoft.juniemvc.models.OrderLineDto;
 import es.menasoft.juniemvc.repositories.BeerOrderRepository;
 import es.menasoft.juniemvc.repositories.BeerRepository;
 import es.menasoft.juniemvc.repositories.CustomerRepository;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
+@Timed(value = "juniemvc.service", histogram = true)
 class BeerOrderServiceImpl implements BeerOrderService {
 
     private final BeerOrderRepository beerOrderRepository;
@@ -30,6 +51,12 @@ class BeerOrderServiceImpl implements BeerOrderService {
     private final BeerRepository beerRepository;
     private final BeerOrderMapper beerOrderMapper;
     private final OrderLineMapper orderLineMapper;
+    private final EntityExporter entityExporter;
+    private final InventoryReservations inventoryReservations;
+    private final SingleFlight singleFlight;
+    private final BeerOrderStatusTransitions beerOrderStatusTransitions;
+    private final BeerOrderStatusCounts beerOrderStatusCounts;
+    private final OutboxEvents outboxEvents;
 
     @Override
     @Transactional
@@ -39,38 +66,170 @@ class BeerOrderServiceImpl implements BeerOrderService {
 
         BeerOrder beerOrder = beerOrderMapper.createBeerOrderCommandToBeerOrder(command, customer);
 
-        // Add order lines
-        command.orderLines().forEach(orderLineDto -> {
-            Beer beer = beerRepository.findById(orderLineDto.beerId())
-                    .orElseThrow(() -> new EntityNotFoundException("Beer", orderLineDto.beerId()));
+        // Add order lines, resolving all of their beers with a single query
+        Collection<OrderLineDto> orderLines = mergeOrderLines(command.orderLines());
+        Map<Integer, Beer> beers = findBeers(orderLines);
+        inventoryReservations.reserve(quantities(orderLines));
+        addOrderLines(beerOrder, orderLines, beers);
 
-            OrderLine orderLine = orderLineMapper.orderLineDtoToOrderLine(orderLineDto, beer, beerOrder);
+        BeerOrder savedBeerOrder = beerOrderRepository.save(beerOrder);
+        beerOrderStatusCounts.add(savedBeerOrder.getOrderStatus(), 1);
+        BeerOrderDto beerOrderDto = beerOrderMapper.beerOrderToBeerOrderDto(savedBeerOrder);
+        outboxEvents.append(OutboxEvents.BEER_ORDER_CREATED, beerOrderDto.id(), beerOrderDto);
+        return beerOrderDto;
+    }
+
+    @Override
+    @Transactional
+    public List<BeerOrderDto> createBeerOrders(List<CreateBeerOrderCommand> commands) {
+        Set<Integer> customerIds = commands.stream()
+                .map(CreateBeerOrderCommand::customerId)
+                .collect(Collectors.toSet());
+        Map<Integer, Customer> customers = customerRepository.findAllCachedById(customerIds).stream()
+                .collect(Collectors.toMap(Customer::getId, Function.identity()));
+        List<Integer> missingCustomerIds = customerIds.stream()
+                .filter(customerId -> !customers.containsKey(customerId))
+                .toList();
+        if (!missingCustomerIds.isEmpty()) {
+            throw new EntityNotFoundException("Customer",
+                    missingCustomerIds.size() == 1 ? missingCustomerIds.get(0) : missingCustomerIds);
+        }
+
+        // The beers of every order are resolved with one query and reserved at once, taking each lock stripe once
+        List<Collection<OrderLineDto>> orderLines = commands.stream()
+                .map(command -> mergeOrderLines(command.orderLines()))
+                .toList();
+        List<OrderLineDto> allOrderLines = orderLines.stream().flatMap(Collection::stream).toList();
+        Map<Integer, Beer> beers = findBeers(allOrderLines);
+        inventoryReservations.reserve(quantities(allOrderLines));
+
+        List<BeerOrder> beerOrders = new ArrayList<>(commands.size());
+        for (int i = 0; i < commands.size(); i++) {
+            CreateBeerOrderCommand command = commands.get(i);
+            BeerOrder beerOrder = beerOrderMapper.createBeerOrderCommandToBeerOrder(
+                    command, customers.get(command.customerId()));
+            addOrderLines(beerOrder, orderLines.get(i), beers);
+            beerOrders.add(beerOrder);
+        }
+        List<BeerOrder> savedBeerOrders = beerOrderRepository.saveAll(beerOrders);
+        beerOrderStatusCounts.add(BeerOrderStatus.NEW, savedBeerOrders.size());
+        List<BeerOrderDto> beerOrderDtos = savedBeerOrders.stream()
+                .map(beerOrderMapper::beerOrderToBeerOrderDto)
+                .toList();
+        Map<Integer, BeerOrderDto> createdEvents = new LinkedHashMap<>();
+        beerOrderDtos.forEach(beerOrderDto -> createdEvents.put(beerOrderDto.id(), beerOrderDto));
+        outboxEvents.appendAll(OutboxEvents.BEER_ORDER_CREATED, createdEvents);
+        return beerOrderDtos;
+    }
+
+    private void addOrderLines(BeerOrder beerOrder, Collection<OrderLineDto> orderLines, Map<Integer, Beer> beers) {
+        orderLines.forEach(orderLineDto -> {
+            OrderLine orderLine = orderLineMapper.orderLineDtoToOrderLine(
+                    orderLineDto, beers.get(orderLineDto.beerId()), beerOrder);
             beerOrder.addOrderLine(orderLine);
         });
+    }
 
-        BeerOrder savedBeerOrder = beerOrderRepository.save(beerOrder);
-        return beerOrderMapper.beerOrderToBeerOrderDto(savedBeerOrder);
+    private static Map<Integer, Integer> quantities(Collection<OrderLineDto> orderLines) {
+        return orderLines.stream()
+                .collect(Collectors.toMap(OrderLineDto::beerId, OrderLineDto::orderQuantity, Integer::sum));
     }
 
+    /**
+     * Merge the lines ordering the same beer into one line with the summed quantity, keeping the order of
+     * first appearance
+     */
+    private static Collection<OrderLineDto> mergeOrderLines(List<OrderLineDto> orderLines) {
+        Map<Integer, OrderLineDto> merged = new LinkedHashMap<>();
+        orderLines.forEach(orderLineDto -> merged.merge(orderLineDto.beerId(), orderLineDto, (existing, duplicate) ->
+                new OrderLineDto(existing.id(), existing.orderQuantity() + duplicate.orderQuantity(),
+                        existing.beerId(), existing.beerName())));
+        return merged.values();
+    }
+
+    /**
+     * Load the beers of the given order lines by ID
+     * @throws EntityNotFoundException listing every beer ID that does not exist
+     */
+    private Map<Integer, Beer> findBeers(Collection<OrderLineDto> orderLines) {
+        Set<Integer> beerIds = orderLines.stream()
+                .map(OrderLineDto::beerId)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+
+        Map<Integer, Beer> beers = beerRepository.findAllById(beerIds).stream()
+                .collect(Collectors.toMap(Beer::getId, Function.identity()));
+
+        List<Integer> missingIds = beerIds.stream()
+                .filter(beerId -> !beers.containsKey(beerId))
+                .toList();
+        if (!missingIds.isEmpty()) {
+            throw new EntityNotFoundException("Beer", missingIds.size() == 1 ? missingIds.get(0) : missingIds);
+        }
+        return beers;
+    }
+
+    // Not transactional: the entity graph fetches everything the DTO needs, so concurrent requests for the
+    // same order can share one repository transaction
     @Override
-    @Transactional(readOnly = true)
     public Optional<BeerOrderDto> getBeerOrderById(Integer id) {
-        return beerOrderRepository.findById(id)
-                .map(beerOrderMapper::beerOrderToBeerOrderDto);
+        return singleFlight.execute("beerOrder", id, () -> beerOrderRepository.findWithOrderLinesById(id)
+                .map(beerOrderMapper::beerOrderToBeerOrderDto));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Map<Integer, BeerOrderDto> getBeerOrdersByIds(Collection<Integer> ids) {
+        return beerOrderRepository.findAllWithOrderLinesByIdInOrderByIdAsc(ids).stream()
+                .map(beerOrderMapper::beerOrderToBeerOrderDto)
+                .collect(Collectors.toMap(BeerOrderDto::id, Function.identity()));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<Integer> getBeerOrderVersion(Integer id) {
+        return beerOrderRepository.findVersionById(id);
     }
 
     @Override
     @Transactional(readOnly = true)
     public List<BeerOrderDto> getAllBeerOrders() {
-        return beerOrderRepository.findAll().stream()
+        return beerOrderRepository.findAllWithOrderLinesBy().stream()
                 .map(beerOrderMapper::beerOrderToBeerOrderDto)
                 .collect(Collectors.toList());
     }
 
+    // Orders are fetched with their lines, which a database cursor cannot limit, so they are exported by ID chunks
+    @Override
+    @Transactional(readOnly = true)
+    public void exportBeerOrders(Consumer<BeerOrderDto> consumer) {
+        entityExporter.exportInChunks(beerOrderRepository::findIdsAfter,
+                beerOrderRepository::findAllWithOrderLinesByIdInOrderByIdAsc,
+                beerOrderMapper::beerOrderToBeerOrderDto, consumer);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Window<BeerOrderSummaryDto> searchBeerOrders(BeerOrderSearchCriteria criteria, ScrollPosition position, int limit) {
+        Integer beforeId = null;
+        if (position instanceof KeysetScrollPosition keyset && !keyset.isInitial()) {
+            // Positions may come from a client token, so the ID key is checked rather than cast
+            if (!(keyset.getKeys().get("id") instanceof Number id) || keyset.getKeys().size() != 1) {
+                throw new BadRequestException("Invalid scroll position");
+            }
+            beforeId = id.intValue();
+        }
+
+        // Fetch one extra row to know whether another window follows
+        List<BeerOrderSummaryDto> summaries = beerOrderRepository.searchSummaries(criteria, beforeId, limit + 1);
+        boolean hasNext = summaries.size() > limit;
+        List<BeerOrderSummaryDto> content = hasNext ? summaries.subList(0, limit) : summaries;
+        return Window.from(content, index -> ScrollPosition.forward(Map.of("id", content.get(index).id())), hasNext);
+    }
+
     @Override
     @Transactional(readOnly = true)
     public List<BeerOrderDto> getBeerOrdersByCustomerId(Integer customerId) {
-        return beerOrderRepository.findAllByCustomerId(customerId).stream()
+        return beerOrderRepository.findAllWithOrderLinesByCustomerId(customerId).stream()
                 .map(beerOrderMapper::beerOrderToBeerOrderDto)
                 .collect(Collectors.toList());
     }
@@ -78,10 +237,12 @@ class BeerOrderServiceImpl implements BeerOrderService {
     @Override
     @Transactional
     public Optional<BeerOrderDto> updateBeerOrder(Integer id, BeerOrderDto beerOrderDto) {
-        return beerOrderRepository.findById(id)
+        return beerOrderRepository.findWithOrderLinesById(id)
                 .map(existingBeerOrder -> {
-                    // Update basic properties
-                    existingBeerOrder.setOrderStatus(beerOrderDto.orderStatus());
+                    // Update basic properties, the status only along an allowed transition
+                    if (beerOrderDto.orderStatus() != null) {
+                        transition(existingBeerOrder, beerOrderDto.orderStatus());
+                    }
 
                     // Save the updated order
                     BeerOrder savedBeerOrder = beerOrderRepository.save(existingBeerOrder);
@@ -91,21 +252,58 @@ class BeerOrderServiceImpl implements BeerOrderService {
 
     @Override
     @Transactional
-    public Optional<BeerOrderDto> updateBeerOrderStatus(Integer id, String status) {
-        return beerOrderRepository.findById(id)
+    public Optional<BeerOrderDto> updateBeerOrderStatus(Integer id, BeerOrderStatus status) {
+        return beerOrderRepository.findWithOrderLinesById(id)
                 .map(existingBeerOrder -> {
-                    existingBeerOrder.setOrderStatus(status);
+                    transition(existingBeerOrder, status);
                     BeerOrder savedBeerOrder = beerOrderRepository.save(existingBeerOrder);
                     return beerOrderMapper.beerOrderToBeerOrderDto(savedBeerOrder);
                 });
     }
 
+    /**
+     * Move an order to a status, counting it in its new status and recording the change in the outbox, and
+     * putting its stock back if it is cancelled; moving it to its current status changes nothing
+     * @throws InvalidStatusTransitionException if the current status cannot lead to the new one
+     */
+    private void transition(BeerOrder beerOrder, BeerOrderStatus status) {
+        BeerOrderStatus current = beerOrder.getOrderStatus();
+        if (current == status) {
+            return;
+        }
+        if (!current.canTransitionTo(status)) {
+            throw new InvalidStatusTransitionException(current, status);
+        }
+        if (status == BeerOrderStatus.CANCELLED && current.holdsReservedInventory()) {
+            inventoryReservations.release(List.of(beerOrder.getId()));
+        }
+        beerOrder.setOrderStatus(status);
+        beerOrderStatusCounts.move(current, status, 1);
+        outboxEvents.append(OutboxEvents.BEER_ORDER_STATUS_CHANGED, beerOrder.getId(),
+                new BeerOrderStatusChangedEvent(beerOrder.getId(), current, status));
+    }
+
+    @Override
+    public BeerOrderStatusTransitionReport transitionBeerOrderStatus(BeerOrderStatusTransitionCommand command) {
+        // Not transactional, every chunk commits on its own
+        return beerOrderStatusTransitions.transition(command);
+    }
+
+    @Override
+    public Map<BeerOrderStatus, Long> getBeerOrderStatusCounts() {
+        return beerOrderStatusCounts.getCounts();
+    }
+
     @Override
     @Transactional
     public boolean deleteBeerOrder(Integer id) {
         return beerOrderRepository.findById(id)
                 .map(beerOrder -> {
+                    if (beerOrder.getOrderStatus().holdsReservedInventory()) {
+                        inventoryReservations.release(List.of(id));
+                    }
                     beerOrderRepository.delete(beerOrder);
+                    beerOrderStatusCounts.add(beerOrder.getOrderStatus(), -1);
                     return true;
                 })
                 .orElse(false);
@@ -5,6 +5,7 @@ import es.menasoft.juniemvc.models.CreateBeerOrderShipmentCommand;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface BeerOrderShipmentService {
 
@@ -22,12 +23,25 @@ public interface BeerOrderShipmentService {
      */
     Optional<BeerOrderShipmentDto> getShipmentById(Integer id);
 
+    /**
+     * Get the current version of a beer order shipment without loading it
+     * @param id the beer order shipment ID
+     * @return an Optional containing the version if found, or empty if not found
+     */
+    Optional<Integer> getShipmentVersion(Integer id);
+
     /**
      * Get all beer order shipments
      * @return a list of all beer order shipment DTOs
      */
     List<BeerOrderShipmentDto> getAllShipments();
 
+    /**
+     * Export all beer order shipments in ID order without holding them in memory
+     * @param consumer receives the shipment DTOs, called within the read transaction
+     */
+    void exportShipments(Consumer<BeerOrderShipmentDto> consumer);
+
     /**
      * Get all beer order shipments for a beer order
      * @param beerOrderId the beer order ID
@@ -8,21 +8,26 @@ import es.menasoft.juniemvc.models.BeerOrderShipmentDto;
 import es.menasoft.juniemvc.models.CreateBeerOrderShipmentCommand;
 import es.menasoft.juniemvc.repositories.BeerOrderRepository;
 import es.menasoft.juniemvc.repositories.BeerOrderShipmentRepository;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
+@Timed(value = "juniemvc.service", histogram = true)
 class BeerOrderShipmentServiceImpl implements BeerOrderShipmentService {
 
     private final BeerOrderShipmentRepository beerOrderShipmentRepository;
     private final BeerOrderRepository beerOrderRepository;
     private final BeerOrderShipmentMapper beerOrderShipmentMapper;
+    private final EntityExporter entityExporter;
+    private final OutboxEvents outboxEvents;
 
     @Override
     @Transactional
@@ -34,7 +39,10 @@ class BeerOrderShipmentServiceImpl implements BeerOrderShipmentService {
         beerOrder.addShipment(beerOrderShipment);
 
         BeerOrderShipment savedBeerOrderShipment = beerOrderShipmentRepository.save(beerOrderShipment);
-        return beerOrderShipmentMapper.beerOrderShipmentToBeerOrderShipmentDto(savedBeerOrderShipment);
+        BeerOrderShipmentDto beerOrderShipmentDto = beerOrderShipmentMapper.beerOrderShipmentToBeerOrderShipmentDto(savedBeerOrderShipment);
+        // Shipments are events of their order, delivered in order with its other events
+        outboxEvents.append(OutboxEvents.BEER_ORDER_SHIPMENT_CREATED, beerOrder.getId(), beerOrderShipmentDto);
+        return beerOrderShipmentDto;
     }
 
     @Override
@@ -44,6 +52,12 @@ class BeerOrderShipmentServiceImpl implements BeerOrderShipmentService {
                 .map(beerOrderShipmentMapper::beerOrderShipmentToBeerOrderShipmentDto);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<Integer> getShipmentVersion(Integer id) {
+        return beerOrderShipmentRepository.findVersionById(id);
+    }
+
     @Override
     @Transactional(readOnly = true)
     public List<BeerOrderShipmentDto> getAllShipments() {
@@ -52,6 +66,13 @@ class BeerOrderShipmentServiceImpl implements BeerOrderShipmentService {
                 .collect(Collectors.toList());
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public void exportShipments(Consumer<BeerOrderShipmentDto> consumer) {
+        entityExporter.export(beerOrderShipmentRepository.streamAllWithBeerOrder(),
+                beerOrderShipmentMapper::beerOrderShipmentToBeerOrderShipmentDto, consumer);
+    }
+
     @Override
     @Transactional(readOnly = true)
     public List<BeerOrderShipmentDto> getShipmentsByBeerOrderId(Integer beerOrderId) {
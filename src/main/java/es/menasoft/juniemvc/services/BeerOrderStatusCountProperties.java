@@ -0,0 +1,21 @@
+package es.menasoft.juniemvc.services;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Positive;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.validation.annotation.Validated;
+
+/**
+ * Configuration of the {@link BeerOrderStatusCounts}.
+ *
+ * @param slots number of rows the count of each status is spread over, each writing transaction adjusts one of them
+ */
+@Validated
+@ConfigurationProperties("juniemvc.order-status-count")
+record BeerOrderStatusCountProperties(
+        @Positive
+        @Max(Short.MAX_VALUE)
+        @DefaultValue("16")
+        int slots
+) {}
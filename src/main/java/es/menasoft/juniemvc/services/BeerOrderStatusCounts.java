@@ -0,0 +1,172 @@
+package es.menasoft.juniemvc.services;
+
+import es.menasoft.juniemvc.models.BeerOrderStatus;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static es.menasoft.juniemvc.services.TransactionCallbacks.afterCompletion;
+
+/**
+ * Maintains the number of beer orders in each status in the {@code beer_order_status_count} table.
+ * Writers adjust the counts within the transaction that creates, transitions or deletes the orders, so the
+ * counts commit or roll back together with the orders and a status histogram is a read of a few rows per status.
+ * <p>
+ * A count row stays locked until the writing transaction completes. The count of each status is therefore spread
+ * over {@code slots} rows: every transaction picks one slot at random and adjusts only the rows of that slot, so
+ * concurrent writers of the same status rarely wait on each other, and a read sums the slots of each status.
+ * Writers adjust the counts once their orders are written and always update the rows in status code order.
+ */
+@Slf4j
+@Component
+@EnableConfigurationProperties(BeerOrderStatusCountProperties.class)
+class BeerOrderStatusCounts implements SmartInitializingSingleton {
+
+    private static final String ADJUST_SQL = """
+            UPDATE beer_order_status_count SET order_count = order_count + ? WHERE status_code = ? AND slot = ?""";
+
+    private static final String COUNTS_SQL = "SELECT status_code, SUM(order_count) FROM beer_order_status_count GROUP BY status_code";
+
+    private static final String SEEDED_SQL = "SELECT status_code, slot FROM beer_order_status_count";
+
+    private static final String SEED_SQL = """
+            INSERT INTO beer_order_status_count (status_code, slot, order_count)
+            SELECT ?, 0, COUNT(*) FROM beer_order WHERE status_code = ?""";
+
+    private static final String ADD_SLOT_SQL = "INSERT INTO beer_order_status_count (status_code, slot, order_count) VALUES (?, ?, 0)";
+
+    private static final String CUSTOMER_COUNTS_SQL = "SELECT status_code, COUNT(*) FROM beer_order WHERE customer_id = ? GROUP BY status_code";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int slots;
+
+    BeerOrderStatusCounts(JdbcTemplate jdbcTemplate, BeerOrderStatusCountProperties properties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.slots = properties.slots();
+    }
+
+    /**
+     * Count the orders written in a status
+     * @param status the status of the orders
+     * @param count the number of orders, negative for deleted orders
+     */
+    void add(BeerOrderStatus status, int count) {
+        adjust(Map.of(status, (long) count));
+    }
+
+    /**
+     * Move orders from one status to another
+     * @param from the status the orders left
+     * @param to the status the orders entered
+     * @param count the number of orders
+     */
+    void move(BeerOrderStatus from, BeerOrderStatus to, int count) {
+        adjust(Map.of(from, (long) -count, to, (long) count));
+    }
+
+    /**
+     * Uncount the orders of a customer about to be deleted along with the customer
+     * @param customerId the customer ID
+     */
+    void removeCustomerOrders(Integer customerId) {
+        Map<BeerOrderStatus, Long> deltas = new EnumMap<>(BeerOrderStatus.class);
+        jdbcTemplate.query(CUSTOMER_COUNTS_SQL, rs -> {
+            deltas.put(BeerOrderStatus.fromCode(rs.getShort(1)), -rs.getLong(2));
+        }, customerId);
+        adjust(deltas);
+    }
+
+    /**
+     * Get the number of orders in every status
+     * @return the count of every status, in status order
+     */
+    Map<BeerOrderStatus, Long> getCounts() {
+        Map<BeerOrderStatus, Long> counts = new EnumMap<>(BeerOrderStatus.class);
+        for (BeerOrderStatus status : BeerOrderStatus.values()) {
+            counts.put(status, 0L);
+        }
+        jdbcTemplate.query(COUNTS_SQL, rs -> {
+            counts.put(BeerOrderStatus.fromCode(rs.getShort(1)), rs.getLong(2));
+        });
+        return counts;
+    }
+
+    // Rows are updated in status code order, EnumMap iterates in that order
+    private void adjust(Map<BeerOrderStatus, Long> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        short slot = slot();
+        List<Object[]> batchArgs = new ArrayList<>(deltas.size());
+        new EnumMap<>(deltas).forEach((status, delta) -> {
+            if (delta != 0) {
+                batchArgs.add(new Object[]{delta, status.getCode(), slot});
+            }
+        });
+        if (!batchArgs.isEmpty()) {
+            jdbcTemplate.batchUpdate(ADJUST_SQL, batchArgs);
+        }
+    }
+
+    // Kept for the whole transaction, which then never holds the rows of two slots of the same status
+    private short slot() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return (short) ThreadLocalRandom.current().nextInt(slots);
+        }
+        Short slot = (Short) TransactionSynchronizationManager.getResource(this);
+        if (slot == null) {
+            slot = (short) ThreadLocalRandom.current().nextInt(slots);
+            TransactionSynchronizationManager.bindResource(this, slot);
+            afterCompletion(() -> TransactionSynchronizationManager.unbindResourceIfPossible(this));
+        }
+        return slot;
+    }
+
+    /**
+     * Create the missing count rows. The first slot of a status counts the orders already in it, the others start
+     * empty. Migrations create the first slot of the statuses known at the time, this covers the other slots,
+     * statuses added later and databases created from the entities. Slots above a lowered {@code slots} setting
+     * are no longer written but still counted.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        Map<Short, Set<Short>> existing = new HashMap<>();
+        jdbcTemplate.query(SEEDED_SQL, rs -> {
+            existing.computeIfAbsent(rs.getShort("status_code"), statusCode -> new HashSet<>()).add(rs.getShort("slot"));
+        });
+        for (BeerOrderStatus status : BeerOrderStatus.values()) {
+            Set<Short> seeded = existing.getOrDefault(status.getCode(), Set.of());
+            if (seeded.isEmpty() && seed(SEED_SQL, status.getCode(), status.getCode())) {
+                log.info("Created the order count of status {}", status);
+            }
+            for (short slot = 1; slot < slots; slot++) {
+                if (!seeded.contains(slot)) {
+                    seed(ADD_SLOT_SQL, status.getCode(), slot);
+                }
+            }
+        }
+    }
+
+    private boolean seed(String sql, Object... args) {
+        try {
+            jdbcTemplate.update(sql, args);
+            return true;
+        } catch (DuplicateKeyException ex) {
+            // Created by another node starting at the same time
+            return false;
+        }
+    }
+}
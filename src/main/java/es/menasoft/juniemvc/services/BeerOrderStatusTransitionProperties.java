@@ -0,0 +1,19 @@
+package es.menasoft.juniemvc.services;
+
+import jakarta.validation.constraints.Positive;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.validation.annotation.Validated;
+
+/**
+ * Configuration of the bulk status transitions run by {@link BeerOrderStatusTransitions}.
+ *
+ * @param chunkSize number of orders transitioned per statement and transaction
+ */
+@Validated
+@ConfigurationProperties("juniemvc.order-status-transition")
+record BeerOrderStatusTransitionProperties(
+        @Positive
+        @DefaultValue("500")
+        int chunkSize
+) {}
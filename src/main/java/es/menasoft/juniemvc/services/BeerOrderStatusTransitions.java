@@ -0,0 +1,204 @@
+package es.menasoft.juniemvc.services;
+
+import es.menasoft.juniemvc.entities.BeerOrder;
+import es.menasoft.juniemvc.exceptions.InvalidStatusTransitionException;
+import es.menasoft.juniemvc.models.BeerOrderStatus;
+import es.menasoft.juniemvc.models.BeerOrderStatusChangedEvent;
+import es.menasoft.juniemvc.models.BeerOrderStatusTransitionCommand;
+import es.menasoft.juniemvc.models.BeerOrderStatusTransitionOutcome;
+import es.menasoft.juniemvc.models.BeerOrderStatusTransitionOutcome.Result;
+import es.menasoft.juniemvc.models.BeerOrderStatusTransitionReport;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static es.menasoft.juniemvc.services.TransactionCallbacks.afterCommit;
+
+/**
+ * Moves beer orders from one status to another in bulk.
+ * Orders are transitioned {@code chunkSize} at a time, each chunk in its own transaction: the rows of the chunk
+ * are locked in ID order with one {@code SELECT ... FOR UPDATE}, then the orders still in the expected status
+ * are moved with a single conditional {@code UPDATE ... WHERE id IN (...) AND status_code = ?}, and the status
+ * counts and outbox events are written in the same transaction, as is the stock put back by cancelled orders. No entity
+ * is loaded, and chunks already transitioned stay committed if a later chunk fails.
+ * <p>
+ * The report lists the outcome of every listed ID. A filtered transition can match the whole table, so its report
+ * only lists the orders that were not updated, the updated ones are counted.
+ * <p>
+ * The updates bypass Hibernate, so the transitioned orders are evicted from the second-level cache right away
+ * and again once each chunk commits.
+ */
+@Component
+@EnableConfigurationProperties(BeerOrderStatusTransitionProperties.class)
+class BeerOrderStatusTransitions {
+
+    private static final String LOCK_SQL = "SELECT id, status_code FROM beer_order WHERE id IN (:ids) ORDER BY id FOR UPDATE";
+
+    private static final String UPDATE_SQL = """
+            UPDATE beer_order SET status_code = :toStatus, update_date = :updateDate, version = COALESCE(version, 0) + 1
+            WHERE id IN (:ids) AND status_code = :fromStatus""";
+
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+    private final BeerOrderStatusCounts beerOrderStatusCounts;
+    private final OutboxEvents outboxEvents;
+    private final InventoryReservations inventoryReservations;
+    private final BeerOrderStatusTransitionProperties properties;
+
+    BeerOrderStatusTransitions(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                               EntityManagerFactory entityManagerFactory, BeerOrderStatusCounts beerOrderStatusCounts,
+                               OutboxEvents outboxEvents, InventoryReservations inventoryReservations,
+                               BeerOrderStatusTransitionProperties properties) {
+        this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.entityManagerFactory = entityManagerFactory;
+        this.beerOrderStatusCounts = beerOrderStatusCounts;
+        this.outboxEvents = outboxEvents;
+        this.inventoryReservations = inventoryReservations;
+        this.properties = properties;
+    }
+
+    /**
+     * Transition the listed orders, or every order matching the filters of the command
+     * @param command the orders to transition and their expected and new status
+     * @return the number of orders per outcome with the outcome of every listed order, or of every matching
+     *         order that was not updated
+     * @throws InvalidStatusTransitionException if the expected status cannot lead to the new one
+     */
+    BeerOrderStatusTransitionReport transition(BeerOrderStatusTransitionCommand command) {
+        if (!command.fromStatus().canTransitionTo(command.toStatus())) {
+            throw new InvalidStatusTransitionException(command.fromStatus(), command.toStatus());
+        }
+
+        Tally tally = new Tally(command.ids() != null);
+        if (command.ids() != null) {
+            List<Integer> ids = List.copyOf(new LinkedHashSet<>(command.ids()));
+            for (int from = 0; from < ids.size(); from += properties.chunkSize()) {
+                List<Integer> chunk = ids.subList(from, Math.min(from + properties.chunkSize(), ids.size()));
+                tally.add(transitionChunk(chunk, command.fromStatus(), command.toStatus()));
+            }
+        } else {
+            // Keyset over the matching IDs, the transitioned orders no longer match but are not revisited either
+            List<Integer> chunk;
+            int afterId = 0;
+            do {
+                chunk = findIds(command, afterId);
+                if (!chunk.isEmpty()) {
+                    tally.add(transitionChunk(chunk, command.fromStatus(), command.toStatus()));
+                    afterId = chunk.getLast();
+                }
+            } while (chunk.size() == properties.chunkSize());
+        }
+        return tally.report();
+    }
+
+    private List<Integer> findIds(BeerOrderStatusTransitionCommand command, int afterId) {
+        StringBuilder sql = new StringBuilder("SELECT id FROM beer_order WHERE status_code = :fromStatus AND id > :afterId");
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("fromStatus", command.fromStatus().getCode())
+                .addValue("afterId", afterId)
+                .addValue("limit", properties.chunkSize());
+        if (command.createdFrom() != null) {
+            sql.append(" AND created_date >= :createdFrom");
+            params.addValue("createdFrom", command.createdFrom());
+        }
+        if (command.createdTo() != null) {
+            sql.append(" AND created_date < :createdTo");
+            params.addValue("createdTo", command.createdTo());
+        }
+        sql.append(" ORDER BY id LIMIT :limit");
+        return namedParameterJdbcTemplate.queryForList(sql.toString(), params, Integer.class);
+    }
+
+    private List<BeerOrderStatusTransitionOutcome> transitionChunk(List<Integer> ids, BeerOrderStatus fromStatus,
+                                                                   BeerOrderStatus toStatus) {
+        return transactionTemplate.execute(status -> {
+            Map<Integer, Short> statuses = new HashMap<>();
+            RowCallbackHandler collectStatus = rs -> statuses.put(rs.getInt("id"), rs.getShort("status_code"));
+            namedParameterJdbcTemplate.query(LOCK_SQL, new MapSqlParameterSource("ids", ids), collectStatus);
+
+            // The rows are locked until commit, the update moves exactly these orders
+            Set<Integer> matching = new HashSet<>();
+            statuses.forEach((id, statusCode) -> {
+                if (statusCode == fromStatus.getCode()) {
+                    matching.add(id);
+                }
+            });
+            if (!matching.isEmpty()) {
+                namedParameterJdbcTemplate.update(UPDATE_SQL, new MapSqlParameterSource()
+                        .addValue("toStatus", toStatus.getCode())
+                        .addValue("updateDate", LocalDateTime.now())
+                        .addValue("ids", matching)
+                        .addValue("fromStatus", fromStatus.getCode()));
+                if (toStatus == BeerOrderStatus.CANCELLED && fromStatus.holdsReservedInventory()) {
+                    inventoryReservations.release(matching);
+                }
+                beerOrderStatusCounts.move(fromStatus, toStatus, matching.size());
+                Map<Integer, BeerOrderStatusChangedEvent> events = new TreeMap<>();
+                matching.forEach(id -> events.put(id, new BeerOrderStatusChangedEvent(id, fromStatus, toStatus)));
+                outboxEvents.appendAll(OutboxEvents.BEER_ORDER_STATUS_CHANGED, events);
+                evict(matching);
+            }
+
+            return ids.stream()
+                    .map(id -> new BeerOrderStatusTransitionOutcome(id, !statuses.containsKey(id)
+                            ? Result.NOT_FOUND
+                            : matching.contains(id)
+                            ? Result.UPDATED
+                            : Result.SKIPPED))
+                    .toList();
+        });
+    }
+
+    private void evict(Set<Integer> ids) {
+        ids.forEach(id -> entityManagerFactory.getCache().evict(BeerOrder.class, id));
+        afterCommit(() -> ids.forEach(id -> entityManagerFactory.getCache().evict(BeerOrder.class, id)));
+    }
+
+    // Counts the outcomes chunk by chunk, keeping the updated ones only when the IDs were listed
+    private static final class Tally {
+
+        private final boolean keepUpdated;
+        private final Map<Result, Integer> counts = new EnumMap<>(Result.class);
+        private final List<BeerOrderStatusTransitionOutcome> outcomes = new ArrayList<>();
+
+        private Tally(boolean keepUpdated) {
+            this.keepUpdated = keepUpdated;
+        }
+
+        private void add(List<BeerOrderStatusTransitionOutcome> chunk) {
+            for (BeerOrderStatusTransitionOutcome outcome : chunk) {
+                counts.merge(outcome.result(), 1, Integer::sum);
+                if (keepUpdated || outcome.result() != Result.UPDATED) {
+                    outcomes.add(outcome);
+                }
+            }
+        }
+
+        private BeerOrderStatusTransitionReport report() {
+            return new BeerOrderStatusTransitionReport(
+                    counts.getOrDefault(Result.UPDATED, 0),
+                    counts.getOrDefault(Result.SKIPPED, 0),
+                    counts.getOrDefault(Result.NOT_FOUND, 0),
+                    outcomes);
+        }
+    }
+}
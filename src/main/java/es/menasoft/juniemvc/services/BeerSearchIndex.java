@@ -0,0 +1,335 @@
+package es.menasoft.juniemvc.services;
+
+import es.menasoft.juniemvc.entities.Beer;
+import es.menasoft.juniemvc.repositories.BeerRepository;
+import es.menasoft.juniemvc.repositories.BeerSearchTerms;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+import static es.menasoft.juniemvc.services.TransactionCallbacks.afterCommit;
+
+/**
+ * In-memory trigram index over beer names and styles.
+ * A {@code LIKE '%term%'} filter cannot use idx_beer_name or idx_beer_style and scans the whole table;
+ * the index resolves the matching beer IDs instead, so the database only has to load them by primary key.
+ * <p>
+ * Every trigram maps to a sorted {@code int[]} posting list of beer IDs. A query intersects the posting
+ * lists of the trigrams of its terms and then checks the candidates against the indexed values, so the
+ * result is exactly what the case-insensitive {@code LIKE} would return. Terms shorter than a trigram,
+ * searches matching more than {@code maxCandidates} beers and queries issued before the index is built
+ * are not answered, callers then fall back to the repository.
+ * <p>
+ * The index is built once the application is ready and kept up to date by the {@link BeerService}
+ * write paths after they commit. It is node-local: writes made by other nodes are only picked up by
+ * the next rebuild.
+ */
+@Slf4j
+@Component
+@EnableConfigurationProperties(BeerSearchIndexProperties.class)
+class BeerSearchIndex {
+
+    private static final int GRAM_LENGTH = 3;
+
+    private final BeerRepository beerRepository;
+    private final BeerSearchIndexProperties properties;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Null until the first build completes
+    private Index index;
+    // Writes committed while a rebuild is loading, replayed onto the rebuilt index
+    private List<Consumer<Index>> pendingWrites;
+
+    BeerSearchIndex(BeerRepository beerRepository, BeerSearchIndexProperties properties) {
+        this.beerRepository = beerRepository;
+        this.properties = properties;
+    }
+
+    /**
+     * Build the index from the database, replacing the current one
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    void rebuild() {
+        if (!properties.enabled()) {
+            return;
+        }
+
+        withWriteLock(() -> pendingWrites = new ArrayList<>());
+        Index rebuilt = new Index();
+        try {
+            for (BeerSearchTerms terms : beerRepository.findAllSearchTerms()) {
+                rebuilt.put(terms.getId(), terms.getBeerName(), terms.getBeerStyle());
+            }
+        } catch (RuntimeException ex) {
+            withWriteLock(() -> pendingWrites = null);
+            throw ex;
+        }
+
+        withWriteLock(() -> {
+            pendingWrites.forEach(write -> write.accept(rebuilt));
+            pendingWrites = null;
+            index = rebuilt;
+        });
+        log.info("Indexed {} beers for name and style search", rebuilt.size());
+    }
+
+    /**
+     * Find the beers whose name and style contain the given terms (case-insensitive)
+     * @param beerName optional name filter (can be null or empty)
+     * @param beerStyle optional style filter (can be null or empty)
+     * @return the IDs of the matching beers in ascending order, or empty if the index cannot answer the query
+     */
+    Optional<List<Integer>> search(String beerName, String beerStyle) {
+        String name = normalize(beerName);
+        String style = normalize(beerStyle);
+        if (!properties.enabled() || (name == null && style == null)
+                || !indexable(name) || !indexable(style)) {
+            return Optional.empty();
+        }
+
+        lock.readLock().lock();
+        try {
+            if (index == null) {
+                return Optional.empty();
+            }
+            int[] matches = index.search(name, style);
+            if (matches.length > properties.maxCandidates()) {
+                return Optional.empty();
+            }
+            return Optional.of(IntStream.of(matches).boxed().toList());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Index a written beer once the surrounding transaction commits
+     * @param id the beer ID
+     * @param beerName the beer name
+     * @param beerStyle the beer style
+     */
+    void indexAfterCommit(Integer id, String beerName, String beerStyle) {
+        if (id != null) {
+            afterCommit(() -> write(index -> index.put(id, beerName, beerStyle)));
+        }
+    }
+
+    /**
+     * Index written beers once the surrounding transaction commits, taking the write lock once for all of them
+     * @param beers the beers as written by the transaction
+     */
+    void indexAllAfterCommit(List<Beer> beers) {
+        afterCommit(() -> write(index ->
+                beers.forEach(beer -> index.put(beer.getId(), beer.getBeerName(), beer.getBeerStyle()))));
+    }
+
+    /**
+     * Remove a deleted beer from the index once the surrounding transaction commits
+     * @param id the beer ID
+     */
+    void removeAfterCommit(Integer id) {
+        afterCommit(() -> write(index -> index.remove(id)));
+    }
+
+    private void write(Consumer<Index> change) {
+        withWriteLock(() -> {
+            if (index != null) {
+                change.accept(index);
+            }
+            if (pendingWrites != null) {
+                pendingWrites.add(change);
+            }
+        });
+    }
+
+    private void withWriteLock(Runnable action) {
+        lock.writeLock().lock();
+        try {
+            action.run();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static boolean indexable(String term) {
+        return term == null || term.length() >= GRAM_LENGTH;
+    }
+
+    private static String normalize(String value) {
+        return StringUtils.hasText(value) ? value.toLowerCase(Locale.ROOT) : null;
+    }
+
+    // Packs the three characters of the trigram starting at the given offset into one key
+    private static long gram(String value, int offset) {
+        return ((long) value.charAt(offset) << 32) | ((long) value.charAt(offset + 1) << 16) | value.charAt(offset + 2);
+    }
+
+    private record Document(String beerName, String beerStyle) {}
+
+    /**
+     * Index data; not thread-safe, guarded by the lock of the enclosing {@link BeerSearchIndex}.
+     */
+    private static final class Index {
+
+        private final Map<Integer, Document> documents = new HashMap<>();
+        private final Map<Long, IntPostingList> namePostings = new HashMap<>();
+        private final Map<Long, IntPostingList> stylePostings = new HashMap<>();
+
+        int size() {
+            return documents.size();
+        }
+
+        void put(int id, String beerName, String beerStyle) {
+            remove(id);
+            Document document = new Document(normalize(beerName), normalize(beerStyle));
+            documents.put(id, document);
+            addGrams(namePostings, document.beerName(), id);
+            addGrams(stylePostings, document.beerStyle(), id);
+        }
+
+        void remove(int id) {
+            Document document = documents.remove(id);
+            if (document != null) {
+                removeGrams(namePostings, document.beerName(), id);
+                removeGrams(stylePostings, document.beerStyle(), id);
+            }
+        }
+
+        int[] search(String beerName, String beerStyle) {
+            List<IntPostingList> postings = new ArrayList<>();
+            if (!collectPostings(namePostings, beerName, postings) || !collectPostings(stylePostings, beerStyle, postings)) {
+                return new int[0];
+            }
+
+            // Intersect starting from the rarest trigram so the candidate set shrinks as fast as possible
+            postings.sort(Comparator.comparingInt(IntPostingList::size));
+            int[] candidates = postings.get(0).toArray();
+            int count = candidates.length;
+            for (int i = 1; i < postings.size() && count > 0; i++) {
+                IntPostingList posting = postings.get(i);
+                int kept = 0;
+                for (int j = 0; j < count; j++) {
+                    if (posting.contains(candidates[j])) {
+                        candidates[kept++] = candidates[j];
+                    }
+                }
+                count = kept;
+            }
+
+            // Trigrams may match out of order, confirm the candidates against the full terms
+            int matches = 0;
+            for (int j = 0; j < count; j++) {
+                Document document = documents.get(candidates[j]);
+                if (contains(document.beerName(), beerName) && contains(document.beerStyle(), beerStyle)) {
+                    candidates[matches++] = candidates[j];
+                }
+            }
+            return Arrays.copyOf(candidates, matches);
+        }
+
+        private static boolean collectPostings(Map<Long, IntPostingList> postings, String term, List<IntPostingList> result) {
+            if (term == null) {
+                return true;
+            }
+            for (int offset = 0; offset + GRAM_LENGTH <= term.length(); offset++) {
+                IntPostingList posting = postings.get(gram(term, offset));
+                if (posting == null) {
+                    return false;
+                }
+                if (!result.contains(posting)) {
+                    result.add(posting);
+                }
+            }
+            return true;
+        }
+
+        private static boolean contains(String value, String term) {
+            return term == null || (value != null && value.contains(term));
+        }
+
+        private static void addGrams(Map<Long, IntPostingList> postings, String value, int id) {
+            if (value == null) {
+                return;
+            }
+            for (int offset = 0; offset + GRAM_LENGTH <= value.length(); offset++) {
+                postings.computeIfAbsent(gram(value, offset), key -> new IntPostingList()).add(id);
+            }
+        }
+
+        private static void removeGrams(Map<Long, IntPostingList> postings, String value, int id) {
+            if (value == null) {
+                return;
+            }
+            for (int offset = 0; offset + GRAM_LENGTH <= value.length(); offset++) {
+                long key = gram(value, offset);
+                IntPostingList posting = postings.get(key);
+                if (posting != null && posting.remove(id)) {
+                    postings.remove(key);
+                }
+            }
+        }
+    }
+
+    /**
+     * Sorted set of beer IDs backed by a primitive array.
+     * IDs are mostly appended in ascending order, so inserts are amortized constant time.
+     */
+    private static final class IntPostingList {
+
+        private int[] ids = new int[4];
+        private int size;
+
+        int size() {
+            return size;
+        }
+
+        void add(int id) {
+            int position = Arrays.binarySearch(ids, 0, size, id);
+            if (position >= 0) {
+                return;
+            }
+            position = -position - 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(ids, position, ids, position + 1, size - position);
+            ids[position] = id;
+            size++;
+        }
+
+        /**
+         * @return true if the list is empty after the removal
+         */
+        boolean remove(int id) {
+            int position = Arrays.binarySearch(ids, 0, size, id);
+            if (position >= 0) {
+                System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+                size--;
+            }
+            return size == 0;
+        }
+
+        boolean contains(int id) {
+            return Arrays.binarySearch(ids, 0, size, id) >= 0;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(ids, size);
+        }
+    }
+}
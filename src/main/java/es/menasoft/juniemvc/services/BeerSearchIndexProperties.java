@@ -0,0 +1,23 @@
+package es.menasoft.juniemvc.services;
+
+import jakarta.validation.constraints.Positive;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.validation.annotation.Validated;
+
+/**
+ * Configuration of the in-memory {@link BeerSearchIndex}.
+ *
+ * @param enabled whether name/style filters are answered from the index
+ * @param maxCandidates maximum number of matches resolved by ID, broader searches fall back to the database
+ */
+@Validated
+@ConfigurationProperties("juniemvc.beer-search-index")
+record BeerSearchIndexProperties(
+        @DefaultValue("true")
+        boolean enabled,
+
+        @Positive
+        @DefaultValue("1000")
+        int maxCandidates
+) {}
@@ -1,12 +1,22 @@
 package es.menasoft.juniemvc.services;
 
 import es.menasoft.juniemvc.models.BeerDto;
+import es.menasoft.juniemvc.models.BeerImportReport;
+import es.menasoft.juniemvc.models.BeerImportRow;
 import es.menasoft.juniemvc.models.BeerPatchDto;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface BeerService {
 
@@ -24,11 +34,31 @@ public interface BeerService {
      */
     Optional<BeerDto> getBeerById(Integer id);
 
+    /**
+     * Get several beers by ID, taking cached beers from the cache and loading the others with one query
+     * @param ids the beer IDs
+     * @return the beers found keyed by ID, IDs that do not exist are absent
+     */
+    Map<Integer, BeerDto> getBeersByIds(Collection<Integer> ids);
+
+    /**
+     * Get the current version of a beer without loading it
+     * @param id the beer ID
+     * @return an Optional containing the version if found, or empty if not found
+     */
+    Optional<Integer> getBeerVersion(Integer id);
+
     /**
      * Get all beers
      * @return a list of all beer DTOs
      */
     List<BeerDto> getAllBeers();
+
+    /**
+     * Export all beers in ID order without holding them in memory
+     * @param consumer receives the beer DTOs, called within the read transaction
+     */
+    void exportBeers(Consumer<BeerDto> consumer);
     
     /**
      * Get beers with optional filtering by name, style and pagination
@@ -39,6 +69,38 @@ public interface BeerService {
      */
     Page<BeerDto> getBeers(String beerName, String beerStyle, Pageable pageable);
 
+    /**
+     * Get beers with optional filtering by name, style and pagination without counting the total.
+     * The slice only tells whether a next page exists, which saves the COUNT query of
+     * {@link #getBeers(String, String, Pageable)}.
+     * @param beerName optional name filter (can be null or empty)
+     * @param beerStyle optional style filter (can be null or empty)
+     * @param pageable pagination information
+     * @return a slice of beer DTOs matching the criteria
+     */
+    Slice<BeerDto> getBeerSlice(String beerName, String beerStyle, Pageable pageable);
+
+    /**
+     * Get the number of beers matching the filter from a short-lived per-filter cache
+     * @param beerName optional name filter (can be null or empty)
+     * @param beerStyle optional style filter (can be null or empty)
+     * @return the approximate number of beers matching the criteria
+     */
+    long getApproximateBeerCount(String beerName, String beerStyle);
+
+    /**
+     * Scroll through beers with optional filtering by name and style using keyset pagination.
+     * Unlike {@link #getBeers(String, String, Pageable)} no rows are skipped and no total is counted,
+     * so the cost of a window does not depend on how deep it is.
+     * @param beerName optional name filter (can be null or empty)
+     * @param beerStyle optional style filter (can be null or empty)
+     * @param position the keyset position after which to continue
+     * @param sort the sort order, the beer ID is appended as tie-breaker
+     * @param limit maximum number of beers in the window
+     * @return a window of beer DTOs matching the criteria
+     */
+    Window<BeerDto> scrollBeers(String beerName, String beerStyle, ScrollPosition position, Sort sort, int limit);
+
     /**
      * Update an existing beer
      * @param id the ID of the beer to update
@@ -46,6 +108,16 @@ public interface BeerService {
      * @return an Optional containing the updated beer DTO if found, or empty if not found
      */
     Optional<BeerDto> updateBeer(Integer id, BeerDto beerDto);
+
+    /**
+     * Update an existing beer only if it is still at the version the client last read, without loading it first
+     * @param id the ID of the beer to update
+     * @param beerDto the updated beer DTO data
+     * @param expectedVersion the version the beer must currently have
+     * @return an Optional containing the updated beer DTO if found, or empty if not found
+     * @throws es.menasoft.juniemvc.exceptions.PreconditionFailedException if the beer is at another version
+     */
+    Optional<BeerDto> updateBeer(Integer id, BeerDto beerDto, int expectedVersion);
     
     /**
      * Partially update an existing beer
@@ -55,6 +127,24 @@ public interface BeerService {
      */
     Optional<BeerDto> patchBeer(Integer id, BeerPatchDto patchDto);
 
+    /**
+     * Partially update an existing beer only if it is still at the version the client last read, without
+     * loading it first
+     * @param id the ID of the beer to update
+     * @param patchDto the partial update data (only non-null fields will be updated)
+     * @param expectedVersion the version the beer must currently have
+     * @return an Optional containing the updated beer DTO if found, or empty if not found
+     * @throws es.menasoft.juniemvc.exceptions.PreconditionFailedException if the beer is at another version
+     */
+    Optional<BeerDto> patchBeer(Integer id, BeerPatchDto patchDto, int expectedVersion);
+
+    /**
+     * Create beers in bulk, validating every row and writing the valid ones in chunks
+     * @param rows the rows to import, consumed once
+     * @return the number of beers created and rejected, with the first rejected rows
+     */
+    BeerImportReport importBeers(Iterator<BeerImportRow> rows);
+
     /**
      * Delete a beer by its ID
      * @param id the ID of the beer to delete
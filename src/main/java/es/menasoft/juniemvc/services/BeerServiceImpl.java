@@ -1,41 +1,86 @@
 package es.menasoft.juniemvc.services;
 
 import es.menasoft.juniemvc.entities.Beer;
+import es.menasoft.juniemvc.exceptions.PreconditionFailedException;
 import es.menasoft.juniemvc.mappers.BeerMapper;
 import es.menasoft.juniemvc.models.BeerDto;
+import es.menasoft.juniemvc.models.BeerImportReport;
+import es.menasoft.juniemvc.models.BeerImportRow;
 import es.menasoft.juniemvc.models.BeerPatchDto;
 import es.menasoft.juniemvc.repositories.BeerRepository;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
+@Timed(value = "juniemvc.service", histogram = true)
 public class BeerServiceImpl implements BeerService {
 
     private final BeerRepository beerRepository;
     private final BeerMapper beerMapper;
+    private final BeerDtoCache beerDtoCache;
+    private final BeerCountCache beerCountCache;
+    private final BeerSearchIndex beerSearchIndex;
+    private final EntityExporter entityExporter;
+    private final BeerVersionedUpdates beerVersionedUpdates;
+    private final BeerImporter beerImporter;
+    private final SingleFlight singleFlight;
 
     @Override
     @Transactional
     public BeerDto saveBeer(BeerDto beerDto) {
         Beer beer = beerMapper.beerDtoToBeer(beerDto);
         Beer savedBeer = beerRepository.save(beer);
-        return beerMapper.beerToBeerDto(savedBeer);
+        BeerDto savedBeerDto = beerMapper.beerToBeerDto(savedBeer);
+        cacheAfterCommit(savedBeerDto);
+        return savedBeerDto;
     }
 
+    // Not transactional: a cache hit must not borrow a connection, concurrent misses share one repository transaction
     @Override
-    @Transactional(readOnly = true)
     public Optional<BeerDto> getBeerById(Integer id) {
-        return beerRepository.findById(id)
-                .map(beerMapper::beerToBeerDto);
+        return beerDtoCache.get(id, beerId -> singleFlight.execute("beer", beerId, () -> beerRepository.findById(beerId)
+                .map(beerMapper::beerToBeerDto)));
+    }
+
+    // Not transactional either: the misses are loaded with a single IN query by the repository transaction
+    @Override
+    public Map<Integer, BeerDto> getBeersByIds(Collection<Integer> ids) {
+        return beerDtoCache.getAll(ids, missingIds -> beerRepository.findAllById(missingIds).stream()
+                .map(beerMapper::beerToBeerDto)
+                .toList());
+    }
+
+    // A cached beer already knows its version, only a miss has to ask the database
+    @Override
+    public Optional<Integer> getBeerVersion(Integer id) {
+        Optional<BeerDto> cached = beerDtoCache.getIfPresent(id);
+        if (cached.isPresent()) {
+            return cached.map(beer -> beer.version() != null ? beer.version() : 0);
+        }
+        return beerRepository.findVersionById(id);
     }
 
     @Override
@@ -45,10 +90,22 @@ public class BeerServiceImpl implements BeerService {
                 .map(beerMapper::beerToBeerDto)
                 .collect(Collectors.toList());
     }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void exportBeers(Consumer<BeerDto> consumer) {
+        entityExporter.export(beerRepository.streamAllByOrderByIdAsc(), beerMapper::beerToBeerDto, consumer);
+    }
     
     @Override
     @Transactional(readOnly = true)
     public Page<BeerDto> getBeers(String beerName, String beerStyle, Pageable pageable) {
+        Optional<List<Integer>> indexedIds = beerSearchIndex.search(beerName, beerStyle);
+        if (indexedIds.isPresent()) {
+            List<Integer> ids = indexedIds.get();
+            return new PageImpl<>(findIndexedBeers(ids, pageable), pageable, ids.size());
+        }
+
         Page<Beer> beerPage;
         
         boolean hasName = StringUtils.hasText(beerName);
@@ -72,6 +129,65 @@ public class BeerServiceImpl implements BeerService {
         return beerPage.map(beerMapper::beerToBeerDto);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public Slice<BeerDto> getBeerSlice(String beerName, String beerStyle, Pageable pageable) {
+        Optional<List<Integer>> indexedIds = beerSearchIndex.search(beerName, beerStyle);
+        if (indexedIds.isPresent()) {
+            List<Integer> ids = indexedIds.get();
+            List<BeerDto> content = findIndexedBeers(ids, pageable);
+            return new SliceImpl<>(content, pageable, pageable.getOffset() + content.size() < ids.size());
+        }
+
+        Slice<Beer> beerSlice;
+
+        boolean hasName = StringUtils.hasText(beerName);
+        boolean hasStyle = StringUtils.hasText(beerStyle);
+
+        if (hasName && hasStyle) {
+            beerSlice = beerRepository.findSliceByBeerNameContainingIgnoreCaseAndBeerStyleContainingIgnoreCase(
+                    beerName, beerStyle, pageable);
+        } else if (hasName) {
+            beerSlice = beerRepository.findSliceByBeerNameContainingIgnoreCase(beerName, pageable);
+        } else if (hasStyle) {
+            beerSlice = beerRepository.findSliceByBeerStyleContainingIgnoreCase(beerStyle, pageable);
+        } else {
+            beerSlice = beerRepository.findSliceBy(pageable);
+        }
+
+        return beerSlice.map(beerMapper::beerToBeerDto);
+    }
+
+    @Override
+    public long getApproximateBeerCount(String beerName, String beerStyle) {
+        return beerSearchIndex.search(beerName, beerStyle)
+                .map(ids -> (long) ids.size())
+                .orElseGet(() -> beerCountCache.get(beerName, beerStyle));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Window<BeerDto> scrollBeers(String beerName, String beerStyle, ScrollPosition position, Sort sort, int limit) {
+        Window<Beer> beerWindow;
+        Limit maxResults = Limit.of(limit);
+
+        boolean hasName = StringUtils.hasText(beerName);
+        boolean hasStyle = StringUtils.hasText(beerStyle);
+
+        if (hasName && hasStyle) {
+            beerWindow = beerRepository.findByBeerNameContainingIgnoreCaseAndBeerStyleContainingIgnoreCase(
+                    beerName, beerStyle, position, sort, maxResults);
+        } else if (hasName) {
+            beerWindow = beerRepository.findByBeerNameContainingIgnoreCase(beerName, position, sort, maxResults);
+        } else if (hasStyle) {
+            beerWindow = beerRepository.findByBeerStyleContainingIgnoreCase(beerStyle, position, sort, maxResults);
+        } else {
+            beerWindow = beerRepository.findBy(position, sort, maxResults);
+        }
+
+        return beerWindow.map(beerMapper::beerToBeerDto);
+    }
+
     @Override
     @Transactional
     public Optional<BeerDto> updateBeer(Integer id, BeerDto beerDto) {
@@ -84,17 +200,41 @@ public class BeerServiceImpl implements BeerService {
                     existingBeer.setUpc(beerToUpdate.getUpc());
                     existingBeer.setPrice(beerToUpdate.getPrice());
                     existingBeer.setQuantityOnHand(beerToUpdate.getQuantityOnHand());
-                    Beer savedBeer = beerRepository.save(existingBeer);
-                    return beerMapper.beerToBeerDto(savedBeer);
+                    return saveAndCache(existingBeer);
                 });
     }
 
+    @Override
+    @Transactional
+    public Optional<BeerDto> updateBeer(Integer id, BeerDto beerDto, int expectedVersion) {
+        Optional<BeerDto> held = cachedAtVersion(id, expectedVersion);
+        LocalDateTime updateDate = now();
+        if (!beerVersionedUpdates.update(id, expectedVersion, beerDto, updateDate)) {
+            return failPrecondition(id);
+        }
+        BeerDto updatedBeer = held
+                .map(beer -> new BeerDto(id, expectedVersion + 1, beerDto.beerName(), beerDto.beerStyle(),
+                        beerDto.description(), beerDto.upc(), beerDto.quantityOnHand(), beerDto.price(),
+                        beer.createdDate(), updateDate))
+                .orElseGet(() -> reload(id));
+        cacheAfterCommit(updatedBeer);
+        return Optional.of(updatedBeer);
+    }
+
+    // Not transactional: every chunk of the import commits in its own transaction
+    @Override
+    public BeerImportReport importBeers(Iterator<BeerImportRow> rows) {
+        return beerImporter.importBeers(rows);
+    }
+
     @Override
     @Transactional
     public boolean deleteBeer(Integer id) {
         return beerRepository.findById(id)
                 .map(beer -> {
                     beerRepository.delete(beer);
+                    beerDtoCache.markDeletedAfterCommit(id);
+                    beerSearchIndex.removeAfterCommit(id);
                     return true;
                 })
                 .orElse(false);
@@ -107,8 +247,80 @@ public class BeerServiceImpl implements BeerService {
                 .map(existingBeer -> {
                     // Apply patch using the mapper that ignores null values
                     beerMapper.updateBeerFromPatchDto(patchDto, existingBeer);
-                    Beer savedBeer = beerRepository.save(existingBeer);
-                    return beerMapper.beerToBeerDto(savedBeer);
+                    return saveAndCache(existingBeer);
                 });
     }
+
+    @Override
+    @Transactional
+    public Optional<BeerDto> patchBeer(Integer id, BeerPatchDto patchDto, int expectedVersion) {
+        Optional<BeerDto> held = cachedAtVersion(id, expectedVersion);
+        LocalDateTime updateDate = now();
+        if (!beerVersionedUpdates.patch(id, expectedVersion, patchDto, updateDate)) {
+            return failPrecondition(id);
+        }
+        BeerDto patchedBeer = held
+                .map(beer -> new BeerDto(id, expectedVersion + 1,
+                        patchDto.beerName() != null ? patchDto.beerName() : beer.beerName(),
+                        patchDto.beerStyle() != null ? patchDto.beerStyle() : beer.beerStyle(),
+                        patchDto.description() != null ? patchDto.description() : beer.description(),
+                        patchDto.upc() != null ? patchDto.upc() : beer.upc(),
+                        patchDto.quantityOnHand() != null ? patchDto.quantityOnHand() : beer.quantityOnHand(),
+                        patchDto.price() != null ? patchDto.price() : beer.price(),
+                        beer.createdDate(), updateDate))
+                .orElseGet(() -> reload(id));
+        cacheAfterCommit(patchedBeer);
+        return Optional.of(patchedBeer);
+    }
+
+    private BeerDto saveAndCache(Beer beer) {
+        Beer savedBeer = beerRepository.save(beer);
+        // Flush so the version is incremented before mapping, the cache relies on it to order writes
+        beerRepository.flush();
+        BeerDto savedBeerDto = beerMapper.beerToBeerDto(savedBeer);
+        cacheAfterCommit(savedBeerDto);
+        return savedBeerDto;
+    }
+
+    private void cacheAfterCommit(BeerDto beer) {
+        beerDtoCache.putAfterCommit(beer);
+        beerSearchIndex.indexAfterCommit(beer.id(), beer.beerName(), beer.beerStyle());
+    }
+
+    // A client holding the current version usually read it through the cache, which then still has the
+    // fields a conditional update does not write, so the updated beer is known without reading it back
+    private Optional<BeerDto> cachedAtVersion(Integer id, int version) {
+        return beerDtoCache.getIfPresent(id)
+                .filter(beer -> (beer.version() != null ? beer.version() : 0) == version);
+    }
+
+    private BeerDto reload(Integer id) {
+        return beerRepository.findById(id)
+                .map(beerMapper::beerToBeerDto)
+                .orElseThrow();
+    }
+
+    // Nothing was updated, either the beer is gone or another writer got there first
+    private Optional<BeerDto> failPrecondition(Integer id) {
+        Integer currentVersion = beerRepository.findVersionById(id).orElse(null);
+        if (currentVersion == null) {
+            return Optional.empty();
+        }
+        throw new PreconditionFailedException("Beer", id, currentVersion);
+    }
+
+    // Timestamp columns keep microseconds, the returned beer must match what a later read gets
+    private static LocalDateTime now() {
+        return LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+    }
+
+    // The index already applied the filters, the database only loads the requested page by primary key
+    private List<BeerDto> findIndexedBeers(List<Integer> ids, Pageable pageable) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return beerRepository.findByIdIn(ids, pageable).stream()
+                .map(beerMapper::beerToBeerDto)
+                .toList();
+    }
 }
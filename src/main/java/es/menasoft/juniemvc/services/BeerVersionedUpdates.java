@@ -0,0 +1,76 @@
+package es.menasoft.juniemvc.services;
+
+import es.menasoft.juniemvc.entities.Beer;
+import es.menasoft.juniemvc.models.BeerDto;
+import es.menasoft.juniemvc.models.BeerPatchDto;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+
+import static es.menasoft.juniemvc.services.TransactionCallbacks.afterCommit;
+
+/**
+ * Writes beers whose expected version is known up front.
+ * Each write is a single {@code UPDATE ... WHERE id = ? AND version = ?}: the row is neither read beforehand
+ * nor locked for longer than the statement, and a stale expected version simply updates nothing.
+ * <p>
+ * The updates bypass Hibernate, so the beer is evicted from the second-level cache right away, for the rest
+ * of the transaction to read what was written, and again once the transaction commits.
+ */
+@Component
+@RequiredArgsConstructor
+class BeerVersionedUpdates {
+
+    private static final String UPDATE_SQL = """
+            UPDATE beer SET beer_name = ?, beer_style = ?, description = ?, upc = ?, quantity_on_hand = ?, price = ?,
+                update_date = ?, version = COALESCE(version, 0) + 1
+            WHERE id = ? AND COALESCE(version, 0) = ?""";
+
+    private static final String PATCH_SQL = """
+            UPDATE beer SET beer_name = COALESCE(?, beer_name), beer_style = COALESCE(?, beer_style),
+                description = COALESCE(?, description), upc = COALESCE(?, upc),
+                quantity_on_hand = COALESCE(?, quantity_on_hand), price = COALESCE(?, price),
+                update_date = ?, version = COALESCE(version, 0) + 1
+            WHERE id = ? AND COALESCE(version, 0) = ?""";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+
+    /**
+     * Replace every writable field of a beer if it is still at the expected version
+     * @param id the beer ID
+     * @param expectedVersion the version the beer must have
+     * @param beer the new field values
+     * @param updateDate the update date to write
+     * @return true if the beer was updated, false if it does not exist or is at another version
+     */
+    boolean update(Integer id, int expectedVersion, BeerDto beer, LocalDateTime updateDate) {
+        return evictIfUpdated(id, jdbcTemplate.update(UPDATE_SQL, beer.beerName(), beer.beerStyle(), beer.description(),
+                beer.upc(), beer.quantityOnHand(), beer.price(), updateDate, id, expectedVersion));
+    }
+
+    /**
+     * Overwrite the non-null fields of a patch if the beer is still at the expected version
+     * @param id the beer ID
+     * @param expectedVersion the version the beer must have
+     * @param patch the fields to change, null fields are left untouched
+     * @param updateDate the update date to write
+     * @return true if the beer was updated, false if it does not exist or is at another version
+     */
+    boolean patch(Integer id, int expectedVersion, BeerPatchDto patch, LocalDateTime updateDate) {
+        return evictIfUpdated(id, jdbcTemplate.update(PATCH_SQL, patch.beerName(), patch.beerStyle(), patch.description(),
+                patch.upc(), patch.quantityOnHand(), patch.price(), updateDate, id, expectedVersion));
+    }
+
+    private boolean evictIfUpdated(Integer id, int updateCount) {
+        if (updateCount == 0) {
+            return false;
+        }
+        entityManagerFactory.getCache().evict(Beer.class, id);
+        afterCommit(() -> entityManagerFactory.getCache().evict(Beer.class, id));
+        return true;
+    }
+}
@@ -2,8 +2,11 @@ package es.menasoft.juniemvc.services;
 
 import es.menasoft.juniemvc.models.CustomerDto;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface CustomerService {
 
@@ -21,12 +24,33 @@ public interface CustomerService {
      */
     Optional<CustomerDto> getCustomerById(Integer id);
 
+    /**
+     * Get several customers by ID, taking cached customers from the second-level cache and loading the others
+     * with one query
+     * @param ids the customer IDs
+     * @return the customers found keyed by ID, IDs that do not exist are absent
+     */
+    Map<Integer, CustomerDto> getCustomersByIds(Collection<Integer> ids);
+
+    /**
+     * Get the current version of a customer without loading it
+     * @param id the customer ID
+     * @return an Optional containing the version if found, or empty if not found
+     */
+    Optional<Integer> getCustomerVersion(Integer id);
+
     /**
      * Get all customers
      * @return a list of all customer DTOs
      */
     List<CustomerDto> getAllCustomers();
 
+    /**
+     * Export all customers in ID order without holding them in memory
+     * @param consumer receives the customer DTOs, called within the read transaction
+     */
+    void exportCustomers(Consumer<CustomerDto> consumer);
+
     /**
      * Update an existing customer
      * @param id the ID of the customer to update
@@ -5,20 +5,28 @@ import es.menasoft.juniemvc.exceptions.EntityNotFoundException;
 import es.menasoft.juniemvc.mappers.CustomerMapper;
 import es.menasoft.juniemvc.models.CustomerDto;
 import es.menasoft.juniemvc.repositories.CustomerRepository;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
+@Timed(value = "juniemvc.service", histogram = true)
 class CustomerServiceImpl implements CustomerService {
 
     private final CustomerRepository customerRepository;
     private final CustomerMapper customerMapper;
+    private final EntityExporter entityExporter;
+    private final BeerOrderStatusCounts beerOrderStatusCounts;
 
     @Override
     @Transactional
@@ -35,6 +43,20 @@ class CustomerServiceImpl implements CustomerService {
                 .map(customerMapper::customerToCustomerDto);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public Map<Integer, CustomerDto> getCustomersByIds(Collection<Integer> ids) {
+        return customerRepository.findAllCachedById(ids).stream()
+                .map(customerMapper::customerToCustomerDto)
+                .collect(Collectors.toMap(CustomerDto::id, Function.identity()));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<Integer> getCustomerVersion(Integer id) {
+        return customerRepository.findVersionById(id);
+    }
+
     @Override
     @Transactional(readOnly = true)
     public List<CustomerDto> getAllCustomers() {
@@ -43,6 +65,12 @@ class CustomerServiceImpl implements CustomerService {
                 .collect(Collectors.toList());
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public void exportCustomers(Consumer<CustomerDto> consumer) {
+        entityExporter.export(customerRepository.streamAllByOrderByIdAsc(), customerMapper::customerToCustomerDto, consumer);
+    }
+
     @Override
     @Transactional
     public CustomerDto updateCustomer(Integer id, CustomerDto customerDto) {
@@ -60,6 +88,8 @@ class CustomerServiceImpl implements CustomerService {
     public boolean deleteCustomer(Integer id) {
         return customerRepository.findById(id)
                 .map(customer -> {
+                    // The orders of the customer are deleted with it
+                    beerOrderStatusCounts.removeCustomerOrders(id);
                     customerRepository.delete(customer);
                     return true;
                 })
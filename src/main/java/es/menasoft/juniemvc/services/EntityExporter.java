@@ -0,0 +1,72 @@
+package es.menasoft.juniemvc.services;
+
+import jakarta.persistence.EntityManager;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Streams entities to a consumer in constant memory.
+ * Every exported entity stays managed by the persistence context until it is cleared, so the context is
+ * cleared every {@code chunkSize} rows. Must be called within a read-only transaction, which keeps the
+ * database cursor open while the rows are consumed.
+ */
+@Component
+@EnableConfigurationProperties(ExportProperties.class)
+class EntityExporter {
+
+    private final EntityManager entityManager;
+    private final ExportProperties properties;
+
+    EntityExporter(EntityManager entityManager, ExportProperties properties) {
+        this.entityManager = entityManager;
+        this.properties = properties;
+    }
+
+    /**
+     * Export the entities of a forward-only stream
+     * @param entities the stream of entities, closed once exported
+     * @param mapper maps an entity to the exported DTO
+     * @param consumer receives the exported DTOs in stream order
+     */
+    <E, D> void export(Stream<E> entities, Function<E, D> mapper, Consumer<D> consumer) {
+        try (entities) {
+            Iterator<E> iterator = entities.iterator();
+            int exported = 0;
+            while (iterator.hasNext()) {
+                consumer.accept(mapper.apply(iterator.next()));
+                if (++exported % properties.chunkSize() == 0) {
+                    entityManager.clear();
+                }
+            }
+        }
+    }
+
+    /**
+     * Export entities in ascending ID order, one chunk at a time.
+     * Used for entities fetched together with a collection, which cannot be limited or streamed by the database.
+     * @param nextIds returns the IDs following the given ID in ascending order, up to the given limit
+     * @param loader loads the entities of a chunk of IDs in ascending ID order
+     * @param mapper maps an entity to the exported DTO
+     * @param consumer receives the exported DTOs in ID order
+     */
+    <E, D> void exportInChunks(BiFunction<Integer, Limit, List<Integer>> nextIds,
+                               Function<Collection<Integer>, List<E>> loader,
+                               Function<E, D> mapper, Consumer<D> consumer) {
+        Limit limit = Limit.of(properties.chunkSize());
+        List<Integer> ids = nextIds.apply(0, limit);
+        while (!ids.isEmpty()) {
+            loader.apply(ids).forEach(entity -> consumer.accept(mapper.apply(entity)));
+            entityManager.clear();
+            ids = ids.size() < properties.chunkSize() ? List.of() : nextIds.apply(ids.get(ids.size() - 1), limit);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package es.menasoft.juniemvc.services;
+
+import jakarta.validation.constraints.Positive;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.validation.annotation.Validated;
+
+/**
+ * Configuration of the streaming exports run by {@link EntityExporter}.
+ *
+ * @param chunkSize number of rows exported before the persistence context is cleared,
+ *                  also the number of orders loaded per query by the order export
+ */
+@Validated
+@ConfigurationProperties("juniemvc.export")
+record ExportProperties(
+        @Positive
+        @DefaultValue("500")
+        int chunkSize
+) {}
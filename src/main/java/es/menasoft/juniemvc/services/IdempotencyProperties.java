@@ -0,0 +1,43 @@
+package es.menasoft.juniemvc.services;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+
+/**
+ * Configuration of the {@code Idempotency-Key} handling.
+ *
+ * @param ttl how long a key is remembered, a retry after that is handled as a new request
+ * @param maximumSize maximum number of recorded responses kept in memory, the others are read from the database
+ * @param maxWait how long a duplicate waits for the request holding its key before it is rejected with 409
+ * @param lease how long a request holds its key; a claim left without a response past its lease, by a crashed
+ *              node for instance, is taken over by the next retry and the late holder can no longer commit
+ * @param purgeInterval how often expired keys are deleted from the database
+ */
+@Validated
+@ConfigurationProperties("juniemvc.idempotency")
+record IdempotencyProperties(
+        @NotNull
+        @DefaultValue("24h")
+        Duration ttl,
+
+        @Positive
+        @DefaultValue("10000")
+        long maximumSize,
+
+        @NotNull
+        @DefaultValue("30s")
+        Duration maxWait,
+
+        @NotNull
+        @DefaultValue("30s")
+        Duration lease,
+
+        @NotNull
+        @DefaultValue("1h")
+        Duration purgeInterval
+) {}
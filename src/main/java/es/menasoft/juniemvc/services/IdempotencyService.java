@@ -0,0 +1,27 @@
+package es.menasoft.juniemvc.services;
+
+import es.menasoft.juniemvc.models.IdempotentResponseDto;
+
+import java.util.function.Supplier;
+
+public interface IdempotencyService {
+
+    /**
+     * Handle a request made with an {@code Idempotency-Key} at most once.
+     * The first request with a key runs and its response is recorded; a retry gets the recorded response, and a
+     * duplicate arriving while the first request still runs waits for its response instead of running again.
+     * The request runs in the transaction recording its response, so its writes commit with the response or not at all.
+     * A request that fails is not recorded, it can be retried with the same key; a request that crashed is retried
+     * once its lease has expired.
+     * @param scope the endpoint the key belongs to
+     * @param idempotencyKey the key sent by the client
+     * @param requestHash the hash of the request body
+     * @param request handles the request and returns its response, run only if the key is new
+     * @return the response of the request, recorded or just produced
+     * @throws es.menasoft.juniemvc.exceptions.IdempotencyKeyMismatchException if the key was used with another body
+     * @throws es.menasoft.juniemvc.exceptions.IdempotencyKeyInUseException if the request holding the key takes too
+     *         long, or a retry took the key over while this request ran past its lease
+     */
+    IdempotentResponseDto execute(String scope, String idempotencyKey, String requestHash,
+                                  Supplier<IdempotentResponseDto> request);
+}
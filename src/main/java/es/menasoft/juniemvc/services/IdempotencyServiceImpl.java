@@ -0,0 +1,235 @@
+package es.menasoft.juniemvc.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import es.menasoft.juniemvc.entities.IdempotentRequest;
+import es.menasoft.juniemvc.exceptions.IdempotencyKeyInUseException;
+import es.menasoft.juniemvc.exceptions.IdempotencyKeyMismatchException;
+import es.menasoft.juniemvc.models.IdempotentResponseDto;
+import es.menasoft.juniemvc.repositories.IdempotentRequestRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Records the responses of requests made with an {@code Idempotency-Key} in the {@code idempotent_request}
+ * table, fronted by an in-memory LRU of the recently completed ones so retries rarely reach the database.
+ * <p>
+ * A key is claimed by inserting its row before the request runs; the response is recorded in the transaction of
+ * the request, so a request that committed always has its response. Duplicates on this node wait for the request
+ * holding the key without touching the database; a duplicate sent to another node finds the claimed row and polls
+ * it until the response is recorded. A claim is held for a lease only: once it has expired without a response,
+ * the next request with the key takes the claim over, and the version bump keeps the former holder from committing.
+ */
+@Slf4j
+@Service
+@EnableConfigurationProperties(IdempotencyProperties.class)
+class IdempotencyServiceImpl implements IdempotencyService {
+
+    private static final long POLL_MILLIS = 50;
+
+    private final IdempotentRequestRepository idempotentRequestRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final IdempotencyProperties properties;
+    private final Cache<String, IdempotentResponseDto> responses;
+    private final Map<String, CompletableFuture<IdempotentResponseDto>> inFlight = new ConcurrentHashMap<>();
+
+    IdempotencyServiceImpl(IdempotentRequestRepository idempotentRequestRepository,
+                           PlatformTransactionManager transactionManager, IdempotencyProperties properties) {
+        this.idempotentRequestRepository = idempotentRequestRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.properties = properties;
+        this.responses = Caffeine.newBuilder()
+                .maximumSize(properties.maximumSize())
+                .expireAfterWrite(properties.ttl())
+                .build();
+    }
+
+    @Override
+    public IdempotentResponseDto execute(String scope, String idempotencyKey, String requestHash,
+                                         Supplier<IdempotentResponseDto> request) {
+        String id = scope + " " + idempotencyKey;
+        IdempotentResponseDto recorded = responses.getIfPresent(id);
+        if (recorded != null) {
+            return replay(recorded, idempotencyKey, requestHash);
+        }
+
+        CompletableFuture<IdempotentResponseDto> started = new CompletableFuture<>();
+        CompletableFuture<IdempotentResponseDto> running = inFlight.putIfAbsent(id, started);
+        if (running != null) {
+            return replay(await(running, idempotencyKey), idempotencyKey, requestHash);
+        }
+        try {
+            IdempotentResponseDto response = claimAndRun(id, idempotencyKey, requestHash, request);
+            started.complete(response);
+            return replay(response, idempotencyKey, requestHash);
+        } catch (RuntimeException | Error ex) {
+            started.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            inFlight.remove(id, started);
+        }
+    }
+
+    private IdempotentResponseDto claimAndRun(String id, String idempotencyKey, String requestHash,
+                                              Supplier<IdempotentResponseDto> request) {
+        long deadline = System.nanoTime() + properties.maxWait().toNanos();
+        while (true) {
+            Optional<IdempotentRequest> existing = find(id);
+            Optional<IdempotentRequest> claim;
+            if (existing.isEmpty()) {
+                claim = claim(id, requestHash);
+            } else {
+                Optional<IdempotentResponseDto> response = completed(existing.get());
+                if (response.isPresent()) {
+                    return response.get();
+                }
+                claim = takeOverExpired(existing.get(), requestHash);
+            }
+            if (claim.isPresent()) {
+                return run(claim.get(), idempotencyKey, request);
+            }
+
+            // The key is held by a request on another node, wait until it records its response, gives the key
+            // up or lets its lease expire
+            if (System.nanoTime() >= deadline) {
+                throw new IdempotencyKeyInUseException(idempotencyKey);
+            }
+            try {
+                Thread.sleep(POLL_MILLIS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IdempotencyKeyInUseException(idempotencyKey);
+            }
+        }
+    }
+
+    private Optional<IdempotentRequest> claim(String id, String requestHash) {
+        try {
+            return Optional.of(idempotentRequestRepository.saveAndFlush(IdempotentRequest.builder()
+                    .id(id)
+                    .requestHash(requestHash)
+                    .leaseUntil(LocalDateTime.now().plus(properties.lease()))
+                    .build()));
+        } catch (DataIntegrityViolationException ex) {
+            // Claimed by another node in the meantime
+            return Optional.empty();
+        }
+    }
+
+    // A claim left without a response past its lease belongs to a request that crashed or is too slow
+    private Optional<IdempotentRequest> takeOverExpired(IdempotentRequest existing, String requestHash) {
+        LocalDateTime now = LocalDateTime.now();
+        if (existing.getLeaseUntil() != null && existing.getLeaseUntil().isAfter(now)) {
+            return Optional.empty();
+        }
+        LocalDateTime leaseUntil = now.plus(properties.lease());
+        if (idempotentRequestRepository.takeOver(existing.getId(), existing.getVersion(), requestHash, leaseUntil, now) == 0) {
+            return Optional.empty();
+        }
+        log.warn("Took over the idempotency claim {} after its lease expired", existing.getId());
+        existing.setVersion(existing.getVersion() + 1);
+        existing.setRequestHash(requestHash);
+        existing.setLeaseUntil(leaseUntil);
+        return Optional.of(existing);
+    }
+
+    /**
+     * Run the request and record its response in one transaction, which the request's own transaction joins:
+     * the order or shipment is created if and only if its response is recorded. Should the claim have been taken
+     * over in the meantime, recording fails and the request is rolled back.
+     */
+    private IdempotentResponseDto run(IdempotentRequest claim, String idempotencyKey,
+                                      Supplier<IdempotentResponseDto> request) {
+        IdempotentResponseDto response;
+        try {
+            response = transactionTemplate.execute(status -> {
+                IdempotentResponseDto produced = request.get();
+                if (idempotentRequestRepository.complete(claim.getId(), claim.getVersion(), produced.status(),
+                        produced.location(), produced.body()) == 0) {
+                    throw new IdempotencyKeyInUseException(idempotencyKey);
+                }
+                return produced;
+            });
+        } catch (RuntimeException | Error ex) {
+            // Failed requests are not recorded, a retry with the same key runs again
+            idempotentRequestRepository.release(claim.getId(), claim.getVersion());
+            throw ex;
+        }
+        responses.put(claim.getId(), response);
+        return response;
+    }
+
+    // An expired key is deleted and handled as a new one
+    private Optional<IdempotentRequest> find(String id) {
+        Optional<IdempotentRequest> existing = idempotentRequestRepository.findById(id);
+        if (existing.isPresent() && existing.get().getCreatedDate().isBefore(LocalDateTime.now().minus(properties.ttl()))) {
+            idempotentRequestRepository.delete(existing.get());
+            return Optional.empty();
+        }
+        return existing;
+    }
+
+    private Optional<IdempotentResponseDto> completed(IdempotentRequest idempotentRequest) {
+        if (idempotentRequest.getResponseStatus() == null) {
+            return Optional.empty();
+        }
+        IdempotentResponseDto response = new IdempotentResponseDto(idempotentRequest.getRequestHash(),
+                idempotentRequest.getResponseStatus(), idempotentRequest.getResponseLocation(),
+                idempotentRequest.getResponseBody());
+        responses.put(idempotentRequest.getId(), response);
+        return Optional.of(response);
+    }
+
+    private IdempotentResponseDto await(CompletableFuture<IdempotentResponseDto> running, String idempotencyKey) {
+        try {
+            return running.get(properties.maxWait().toNanos(), TimeUnit.NANOSECONDS);
+        } catch (ExecutionException ex) {
+            // The duplicate fails like the request it waited for
+            if (ex.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (ex.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(ex.getCause());
+        } catch (TimeoutException ex) {
+            throw new IdempotencyKeyInUseException(idempotencyKey);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IdempotencyKeyInUseException(idempotencyKey);
+        }
+    }
+
+    private static IdempotentResponseDto replay(IdempotentResponseDto response, String idempotencyKey,
+                                                String requestHash) {
+        if (!response.requestHash().equals(requestHash)) {
+            throw new IdempotencyKeyMismatchException(idempotencyKey);
+        }
+        return response;
+    }
+
+    /**
+     * Delete the keys that have expired
+     */
+    @Scheduled(initialDelayString = "${juniemvc.idempotency.purge-interval:PT1H}",
+            fixedDelayString = "${juniemvc.idempotency.purge-interval:PT1H}")
+    void purgeExpired() {
+        int purged = idempotentRequestRepository.deleteAllCreatedBefore(LocalDateTime.now().minus(properties.ttl()));
+        log.debug("Purged {} expired idempotency keys", purged);
+    }
+}
@@ -0,0 +1,19 @@
+package es.menasoft.juniemvc.services;
+
+import jakarta.validation.constraints.Positive;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.validation.annotation.Validated;
+
+/**
+ * Configuration of the {@link InventoryReservations}.
+ *
+ * @param lockStripes number of in-process locks the beer IDs are spread over
+ */
+@Validated
+@ConfigurationProperties("juniemvc.inventory")
+record InventoryProperties(
+        @Positive
+        @DefaultValue("64")
+        int lockStripes
+) {}
@@ -0,0 +1,178 @@
+package es.menasoft.juniemvc.services;
+
+import es.menasoft.juniemvc.entities.Beer;
+import es.menasoft.juniemvc.exceptions.InsufficientInventoryException;
+import es.menasoft.juniemvc.models.BeerDto;
+import es.menasoft.juniemvc.models.BeerOrderStatus;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static es.menasoft.juniemvc.services.TransactionCallbacks.afterCommit;
+import static es.menasoft.juniemvc.services.TransactionCallbacks.afterCompletion;
+
+/**
+ * Takes ordered quantities off the beer inventory, and puts them back for orders that will not ship.
+ * Stock is decremented with conditional {@code UPDATE} statements, so two orders can never oversell a beer
+ * and no entity is loaded or checked against its {@code @Version}. Writers of the same beer first queue on
+ * an in-process lock stripe, held until their transaction completes, so the database sees one update of a hot
+ * row at a time instead of a pile of lock waits that can time out.
+ * <p>
+ * The stripes are taken within the order's transaction, which may itself be part of a wider one such as an
+ * idempotent request: a queued writer already holds its pooled connection, and the pool has to be sized for
+ * the writers queued on hot beers.
+ * <p>
+ * Stock held by an order that will not ship, because it is cancelled or deleted, is put back with the same
+ * stripes and unconditional increments.
+ * <p>
+ * Every stock change bumps the beer {@code @Version}: quantity on hand is part of the beer representation, so
+ * its ETag changes and a conditional update of the beer read before the change fails instead of overwriting
+ * the reserved stock. The beer DTO cache entry is updated in place when it held the previous version, and
+ * dropped otherwise. The updates bypass Hibernate, so the beers are evicted from the second-level cache once
+ * the transaction commits.
+ */
+@Component
+@EnableConfigurationProperties(InventoryProperties.class)
+class InventoryReservations {
+
+    private static final String RESERVE_SQL = """
+            UPDATE beer SET quantity_on_hand = quantity_on_hand - ?, version = COALESCE(version, 0) + 1
+            WHERE id = ? AND quantity_on_hand >= ?""";
+
+    private static final String RELEASE_SQL = """
+            UPDATE beer SET quantity_on_hand = quantity_on_hand + ?, version = COALESCE(version, 0) + 1
+            WHERE id = ?""";
+
+    private static final String RESERVED_SQL = """
+            SELECT beer_id, SUM(order_quantity) AS quantity FROM order_line
+            WHERE beer_order_id IN (:beerOrderIds) GROUP BY beer_id""";
+
+    private static final String STOCK_SQL = "SELECT id, version, quantity_on_hand FROM beer WHERE id IN (:ids)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final BeerDtoCache beerDtoCache;
+    private final EntityManagerFactory entityManagerFactory;
+    private final ReentrantLock[] stripes;
+
+    InventoryReservations(JdbcTemplate jdbcTemplate, BeerDtoCache beerDtoCache, EntityManagerFactory entityManagerFactory,
+                          InventoryProperties properties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.beerDtoCache = beerDtoCache;
+        this.entityManagerFactory = entityManagerFactory;
+        this.stripes = new ReentrantLock[properties.lockStripes()];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Reserve the given quantities within the current transaction, all or nothing.
+     * The reservation is released by rolling the transaction back.
+     * @param quantities the quantity to reserve by beer ID
+     * @throws InsufficientInventoryException listing every beer without enough units on hand
+     */
+    void reserve(Map<Integer, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return;
+        }
+        // Beers are updated in ID order so concurrent reservations lock their rows in the same order
+        SortedMap<Integer, Integer> sorted = new TreeMap<>(quantities);
+        lockStripes(sorted.keySet());
+
+        List<Object[]> batchArgs = new ArrayList<>(sorted.size());
+        sorted.forEach((beerId, quantity) -> batchArgs.add(new Object[]{quantity, beerId, quantity}));
+        int[] updateCounts = jdbcTemplate.batchUpdate(RESERVE_SQL, batchArgs);
+
+        List<Integer> outOfStock = new ArrayList<>();
+        int i = 0;
+        for (Integer beerId : sorted.keySet()) {
+            if (updateCounts[i++] == 0) {
+                outOfStock.add(beerId);
+            }
+        }
+        if (!outOfStock.isEmpty()) {
+            throw new InsufficientInventoryException(outOfStock);
+        }
+
+        refreshAfterCommit(sorted.keySet());
+    }
+
+    /**
+     * Put the stock reserved for the given orders back on hand within the current transaction.
+     * Only orders that still hold their stock, see {@link BeerOrderStatus#holdsReservedInventory()}, may be
+     * released, and each only once.
+     * @param beerOrderIds the IDs of the orders being cancelled or deleted
+     */
+    void release(Collection<Integer> beerOrderIds) {
+        if (beerOrderIds.isEmpty()) {
+            return;
+        }
+        SortedMap<Integer, Integer> sorted = new TreeMap<>();
+        namedParameterJdbcTemplate.query(RESERVED_SQL, new MapSqlParameterSource("beerOrderIds", beerOrderIds),
+                (RowCallbackHandler) rs -> sorted.put(rs.getInt("beer_id"), rs.getInt("quantity")));
+        if (sorted.isEmpty()) {
+            return;
+        }
+        lockStripes(sorted.keySet());
+
+        List<Object[]> batchArgs = new ArrayList<>(sorted.size());
+        sorted.forEach((beerId, quantity) -> batchArgs.add(new Object[]{quantity, beerId}));
+        jdbcTemplate.batchUpdate(RELEASE_SQL, batchArgs);
+
+        refreshAfterCommit(sorted.keySet());
+    }
+
+    // Our rows stay locked until commit, so these are exactly the versions and stock written by this transaction
+    private void refreshAfterCommit(Set<Integer> beerIds) {
+        namedParameterJdbcTemplate.query(STOCK_SQL, new MapSqlParameterSource("ids", beerIds),
+                (RowCallbackHandler) rs -> {
+                    int id = rs.getInt("id");
+                    int version = rs.getInt("version");
+                    int quantityOnHand = rs.getInt("quantity_on_hand");
+                    // A hot beer stays cached: only its stock and version changed since the version before ours
+                    beerDtoCache.getIfPresent(id)
+                            .filter(beer -> beer.version() != null && beer.version() == version - 1)
+                            .ifPresentOrElse(
+                                    beer -> beerDtoCache.putAfterCommit(withStock(beer, quantityOnHand, version)),
+                                    () -> beerDtoCache.evictAfterCommit(id, version));
+                });
+        afterCommit(() -> beerIds.forEach(beerId -> entityManagerFactory.getCache().evict(Beer.class, beerId)));
+    }
+
+    private static BeerDto withStock(BeerDto beer, int quantityOnHand, int version) {
+        return new BeerDto(beer.id(), version, beer.beerName(), beer.beerStyle(), beer.description(), beer.upc(),
+                quantityOnHand, beer.price(), beer.createdDate(), beer.updateDate());
+    }
+
+    // Stripes are taken in index order to rule out deadlocks between reservations of overlapping beers
+    private void lockStripes(Iterable<Integer> beerIds) {
+        TreeSet<Integer> indexes = new TreeSet<>();
+        beerIds.forEach(beerId -> indexes.add(Math.floorMod(beerId.hashCode(), stripes.length)));
+
+        List<ReentrantLock> held = new ArrayList<>(indexes.size());
+        try {
+            for (Integer index : indexes) {
+                stripes[index].lock();
+                held.add(stripes[index]);
+            }
+        } finally {
+            afterCompletion(() -> held.forEach(ReentrantLock::unlock));
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package es.menasoft.juniemvc.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import es.menasoft.juniemvc.models.OutboxEventDto;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Default {@link OutboxSink}, a local stand-in for a message broker appending every event to an NDJSON file,
+ * one JSON object per line. A batch is forced to disk before the relay deletes its events.
+ */
+@Component
+@EnableConfigurationProperties(OutboxProperties.class)
+class NdjsonFileOutboxSink implements OutboxSink {
+
+    private final ObjectMapper objectMapper;
+    private final Path file;
+
+    NdjsonFileOutboxSink(ObjectMapper objectMapper, OutboxProperties properties) {
+        this.objectMapper = objectMapper;
+        this.file = Path.of(properties.file()).toAbsolutePath();
+    }
+
+    @Override
+    public synchronized void publish(List<OutboxEventDto> events) {
+        try {
+            StringBuilder lines = new StringBuilder();
+            for (OutboxEventDto event : events) {
+                lines.append(objectMapper.writeValueAsString(event)).append('\n');
+            }
+            Files.createDirectories(file.getParent());
+            try (FileChannel channel = FileChannel.open(file, CREATE, WRITE, APPEND)) {
+                ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(false);
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Outbox events could not be written to " + file, ex);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package es.menasoft.juniemvc.services;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+
+/**
+ * Configuration of the asynchronous beer order intake.
+ *
+ * @param enabled whether new orders are queued and answered with 202 (Accepted) instead of created synchronously
+ * @param queueCapacity maximum number of orders waiting to be written, further orders are rejected with 429
+ * @param batchSize maximum number of queued orders written in one transaction
+ * @param retryAfter how long clients are told to wait before retrying a rejected order
+ * @param statusTtl how long the outcome of a queued order can be looked up once it is known
+ * @param statusMaximumSize maximum number of intakes kept, the others can no longer be looked up before their
+ *                          time to live; keep it well above the queue capacity so pending intakes are not dropped
+ */
+@Validated
+@ConfigurationProperties("juniemvc.order-intake")
+record OrderIntakeProperties(
+        @DefaultValue("false")
+        boolean enabled,
+
+        @Positive
+        @DefaultValue("10000")
+        int queueCapacity,
+
+        @Positive
+        @DefaultValue("100")
+        int batchSize,
+
+        @NotNull
+        @DefaultValue("1s")
+        Duration retryAfter,
+
+        @NotNull
+        @DefaultValue("10m")
+        Duration statusTtl,
+
+        @Positive
+        @DefaultValue("100000")
+        long statusMaximumSize
+) {}
@@ -0,0 +1,95 @@
+package es.menasoft.juniemvc.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes events to the transactional outbox, the {@code outbox_event} table, within the transaction of the
+ * change they describe: an event is relayed if and only if its change committed.
+ * <p>
+ * Events are keyed by the beer order they belong to, shipments included. The orders are locked before the events
+ * are inserted and the table generates their IDs, so the events of one order are numbered in commit order and
+ * {@link OutboxRelay}, delivering by ID, keeps them in order.
+ */
+@Component
+class OutboxEvents {
+
+    static final String BEER_ORDER = "BeerOrder";
+
+    static final String BEER_ORDER_CREATED = "BeerOrderCreated";
+
+    static final String BEER_ORDER_STATUS_CHANGED = "BeerOrderStatusChanged";
+
+    static final String BEER_ORDER_SHIPMENT_CREATED = "BeerOrderShipmentCreated";
+
+    private static final String LOCK_SQL = "SELECT id FROM beer_order WHERE id IN (:ids) ORDER BY id FOR UPDATE";
+
+    private static final String INSERT_SQL = """
+            INSERT INTO outbox_event (aggregate_type, aggregate_id, event_type, payload, created_date)
+            VALUES (?, ?, ?, ?, ?)""";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    OutboxEvents(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Record an event of a beer order
+     * @param eventType what happened to the order
+     * @param beerOrderId the beer order ID
+     * @param payload the body of the event, written as JSON
+     * @throws IllegalStateException if no transaction is active
+     */
+    void append(String eventType, Integer beerOrderId, Object payload) {
+        appendAll(eventType, Map.of(beerOrderId, payload));
+    }
+
+    /**
+     * Record the same event for several beer orders with one batch of inserts
+     * @param eventType what happened to the orders
+     * @param payloads the body of the event of every order, by beer order ID, numbered in iteration order
+     * @throws IllegalStateException if no transaction is active
+     */
+    void appendAll(String eventType, Map<Integer, ?> payloads) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Outbox events must be written in the transaction of their change");
+        }
+        if (payloads.isEmpty()) {
+            return;
+        }
+
+        // Held until commit, writers of the same orders take their event IDs after this transaction commits.
+        // Orders created in this transaction are not flushed yet, nobody else can write them anyway.
+        namedParameterJdbcTemplate.queryForList(LOCK_SQL, new MapSqlParameterSource("ids", payloads.keySet()),
+                Integer.class);
+
+        LocalDateTime createdDate = LocalDateTime.now();
+        List<Object[]> batchArgs = new ArrayList<>(payloads.size());
+        payloads.forEach((beerOrderId, payload) -> batchArgs.add(
+                new Object[]{BEER_ORDER, beerOrderId, eventType, toJson(payload), createdDate}));
+        jdbcTemplate.batchUpdate(INSERT_SQL, batchArgs);
+    }
+
+    private String toJson(Object payload) {
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalArgumentException("Unserializable outbox event payload: " + ex.getOriginalMessage(), ex);
+        }
+    }
+}
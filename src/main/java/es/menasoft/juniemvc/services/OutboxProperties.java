@@ -0,0 +1,33 @@
+package es.menasoft.juniemvc.services;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+
+/**
+ * Configuration of the transactional outbox relay.
+ *
+ * @param batchSize maximum number of events read, delivered and deleted per relay transaction
+ * @param pollInterval delay between two relay runs, each run delivers every pending event
+ * @param file the NDJSON file the default sink appends the events to
+ */
+@Validated
+@ConfigurationProperties("juniemvc.outbox")
+record OutboxProperties(
+        @Positive
+        @DefaultValue("500")
+        int batchSize,
+
+        @NotNull
+        @DefaultValue("1s")
+        Duration pollInterval,
+
+        @NotBlank
+        @DefaultValue("outbox/events.ndjson")
+        String file
+) {}
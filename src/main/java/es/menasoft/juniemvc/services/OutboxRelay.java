@@ -0,0 +1,157 @@
+package es.menasoft.juniemvc.services;
+
+import es.menasoft.juniemvc.models.OutboxEventDto;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static es.menasoft.juniemvc.services.TransactionCallbacks.afterCommit;
+
+/**
+ * Relays the events of the transactional outbox to the {@link OutboxSink}, {@code batchSize} at a time.
+ * Every batch is read in ID order with {@code SELECT ... FOR UPDATE}, published, and deleted in one transaction,
+ * so relays running on several nodes take turns instead of delivering the same events.
+ * <p>
+ * The relay always starts from the lowest pending ID rather than from the last one delivered: an event whose
+ * transaction commits after events with higher IDs is still delivered, and as the events of one order are
+ * numbered in commit order (see {@link OutboxEvents}) each order's events are delivered in order.
+ * <p>
+ * Publishes {@code outbox.lag}, the age of the oldest event not delivered yet, which keeps growing while the
+ * sink fails; {@code outbox.events.delivered} for the throughput and {@code outbox.delivery.delay} for the time
+ * from change to delivery of every event.
+ */
+@Slf4j
+@Component
+@EnableConfigurationProperties(OutboxProperties.class)
+class OutboxRelay {
+
+    private static final String BATCH_SQL = """
+            SELECT id, aggregate_type, aggregate_id, event_type, payload, created_date
+            FROM outbox_event ORDER BY id LIMIT :limit FOR UPDATE""";
+
+    private static final String DELETE_SQL = "DELETE FROM outbox_event WHERE id IN (:ids)";
+
+    private static final RowMapper<OutboxEventDto> EVENT_MAPPER = (rs, rowNum) -> new OutboxEventDto(
+            rs.getLong("id"),
+            rs.getString("aggregate_type"),
+            rs.getInt("aggregate_id"),
+            rs.getString("event_type"),
+            rs.getString("payload"),
+            rs.getObject("created_date", LocalDateTime.class));
+
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final OutboxSink outboxSink;
+    private final OutboxProperties properties;
+    private final ReentrantLock running = new ReentrantLock();
+    // Creation date of the oldest event seen pending, null once the outbox was found drained
+    private final AtomicReference<LocalDateTime> oldestPending = new AtomicReference<>();
+    private final Counter delivered;
+    private final Counter failures;
+    private final Timer deliveryDelay;
+
+    OutboxRelay(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager, OutboxSink outboxSink,
+                OutboxProperties properties, MeterRegistry meterRegistry) {
+        this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.outboxSink = outboxSink;
+        this.properties = properties;
+        Gauge.builder("outbox.lag", oldestPending, OutboxRelay::lagSeconds)
+                .description("The age of the oldest outbox event not delivered yet")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        this.delivered = Counter.builder("outbox.events.delivered")
+                .description("The number of outbox events delivered to the sink")
+                .register(meterRegistry);
+        this.failures = Counter.builder("outbox.relay.failures")
+                .description("The number of relay runs stopped by a batch that could not be delivered")
+                .register(meterRegistry);
+        this.deliveryDelay = Timer.builder("outbox.delivery.delay")
+                .description("The time from a change to the delivery of its outbox event")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    /**
+     * Deliver the pending events, unless this node is already relaying them
+     */
+    @Scheduled(initialDelayString = "${juniemvc.outbox.poll-interval:PT1S}",
+            fixedDelayString = "${juniemvc.outbox.poll-interval:PT1S}")
+    void scheduledRelay() {
+        try {
+            int count = relay();
+            log.debug("Relayed {} outbox events", count);
+        } catch (RuntimeException ex) {
+            failures.increment();
+            log.warn("Outbox events could not be relayed, retrying on the next run", ex);
+        }
+    }
+
+    /**
+     * Deliver every pending event, batch after batch
+     * @return the number of events delivered, 0 if a relay is already running on this node
+     * @throws RuntimeException if a batch could not be delivered, the batches delivered before stay delivered
+     */
+    int relay() {
+        if (!running.tryLock()) {
+            return 0;
+        }
+        try {
+            int total = 0;
+            int count;
+            do {
+                count = transactionTemplate.execute(status -> relayBatch());
+                total += count;
+            } while (count == properties.batchSize());
+            return total;
+        } finally {
+            running.unlock();
+        }
+    }
+
+    private int relayBatch() {
+        List<OutboxEventDto> events = namedParameterJdbcTemplate.query(BATCH_SQL,
+                new MapSqlParameterSource("limit", properties.batchSize()), EVENT_MAPPER);
+        if (events.isEmpty()) {
+            oldestPending.set(null);
+            return 0;
+        }
+        oldestPending.set(events.getFirst().createdDate());
+
+        outboxSink.publish(events);
+        namedParameterJdbcTemplate.update(DELETE_SQL,
+                new MapSqlParameterSource("ids", events.stream().map(OutboxEventDto::id).toList()));
+
+        afterCommit(() -> {
+            LocalDateTime now = LocalDateTime.now();
+            events.forEach(event -> deliveryDelay.record(Duration.between(event.createdDate(), now)));
+            delivered.increment(events.size());
+            if (events.size() < properties.batchSize()) {
+                oldestPending.set(null);
+            }
+        });
+        return events.size();
+    }
+
+    private static double lagSeconds(AtomicReference<LocalDateTime> oldestPending) {
+        LocalDateTime oldest = oldestPending.get();
+        return oldest == null ? 0 : Duration.between(oldest, LocalDateTime.now()).toMillis() / 1000.0;
+    }
+}
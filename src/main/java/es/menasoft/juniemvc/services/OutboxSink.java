@@ -0,0 +1,23 @@
+package es.menasoft.juniemvc.services;
+
+import es.menasoft.juniemvc.models.OutboxEventDto;
+
+import java.util.List;
+
+/**
+ * Destination of the events relayed from the transactional outbox, such as a message broker.
+ * The events are written to an NDJSON file by default; declare a {@code @Primary} bean implementing this
+ * interface to deliver them elsewhere.
+ * <p>
+ * Delivery is at least once: a batch is delivered again when it fails or when the relay cannot record its
+ * delivery, consumers deduplicate by event ID.
+ */
+public interface OutboxSink {
+
+    /**
+     * Deliver a batch of events, all of them or none
+     * @param events the events, in ID order
+     * @throws RuntimeException if the batch could not be delivered, it is delivered again on the next run
+     */
+    void publish(List<OutboxEventDto> events);
+}
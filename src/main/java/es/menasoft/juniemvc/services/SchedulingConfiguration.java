@@ -0,0 +1,13 @@
+package es.menasoft.juniemvc.services;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Runs the {@code @Scheduled} background jobs of the services: the {@link OutboxRelay} and the purge of
+ * expired idempotency keys by {@link IdempotencyServiceImpl}.
+ */
+@Configuration(proxyBeanMethods = false)
+@EnableScheduling
+class SchedulingConfiguration {
+}
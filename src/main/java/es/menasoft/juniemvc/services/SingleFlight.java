@@ -0,0 +1,135 @@
+package es.menasoft.juniemvc.services;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent identical reads: while a load of a key is in flight, further requests for the same key
+ * wait for its result instead of opening their own transaction. Nothing is kept once a load completes, a request
+ * is only ever answered by a load that was already running when it arrived.
+ * <p>
+ * A request waits at most {@code maxWait} for the load in flight, then loads on its own.
+ */
+@Component
+@EnableConfigurationProperties(SingleFlightProperties.class)
+class SingleFlight implements MeterBinder {
+
+    private final Map<Flight, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, Counters> counters = new ConcurrentHashMap<>();
+    private final long maxWaitNanos;
+    private volatile MeterRegistry registry;
+
+    SingleFlight(SingleFlightProperties properties) {
+        this.maxWaitNanos = properties.maxWait().toNanos();
+    }
+
+    /**
+     * Load a value, sharing the result with the concurrent loads of the same key
+     * @param name the kind of value loaded, used to tag the metrics
+     * @param key the key of the value within its kind
+     * @param loader loads the value, called at most once for all the overlapping requests that do not time out
+     * @return the loaded value
+     */
+    @SuppressWarnings("unchecked")
+    <T> T execute(String name, Object key, Supplier<T> loader) {
+        Counters counters = counters(name);
+        Flight flight = new Flight(name, key);
+        CompletableFuture<Object> started = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(flight, started);
+        if (existing == null) {
+            counters.executed.increment();
+            try {
+                T value = loader.get();
+                started.complete(value);
+                return value;
+            } catch (RuntimeException | Error ex) {
+                started.completeExceptionally(ex);
+                throw ex;
+            } finally {
+                inFlight.remove(flight, started);
+            }
+        }
+
+        try {
+            T value = (T) existing.get(maxWaitNanos, TimeUnit.NANOSECONDS);
+            counters.collapsed.increment();
+            return value;
+        } catch (ExecutionException ex) {
+            counters.collapsed.increment();
+            throw rethrow(ex.getCause());
+        } catch (TimeoutException ex) {
+            counters.timedOut.increment();
+            return loader.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for " + name + " " + key, ex);
+        }
+    }
+
+    private static RuntimeException rethrow(Throwable cause) {
+        if (cause instanceof Error error) {
+            throw error;
+        }
+        return cause instanceof RuntimeException runtimeException ? runtimeException : new IllegalStateException(cause);
+    }
+
+    private Counters counters(String name) {
+        return counters.computeIfAbsent(name, n -> {
+            Counters created = new Counters();
+            MeterRegistry boundRegistry = registry;
+            if (boundRegistry != null) {
+                register(n, created, boundRegistry);
+            }
+            return created;
+        });
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        this.registry = registry;
+        counters.forEach((name, c) -> register(name, c, registry));
+        Gauge.builder("singleflight.in.flight", inFlight, Map::size)
+                .description("The number of loads currently shared by concurrent requests")
+                .register(registry);
+    }
+
+    // Tagged by kind of value only, tagging by key would create a meter per entity
+    private static void register(String name, Counters counters, MeterRegistry registry) {
+        FunctionCounter.builder("singleflight.requests", counters.executed, LongAdder::sum)
+                .tag("name", name)
+                .tag("result", "executed")
+                .description("The number of requests that ran the load themselves")
+                .register(registry);
+        FunctionCounter.builder("singleflight.requests", counters.collapsed, LongAdder::sum)
+                .tag("name", name)
+                .tag("result", "collapsed")
+                .description("The number of requests answered by an identical load already in flight")
+                .register(registry);
+        FunctionCounter.builder("singleflight.requests", counters.timedOut, LongAdder::sum)
+                .tag("name", name)
+                .tag("result", "timed-out")
+                .description("The number of requests that gave up waiting for the load in flight and loaded on their own")
+                .register(registry);
+    }
+
+    private record Flight(String name, Object key) {}
+
+    private static final class Counters {
+        private final LongAdder executed = new LongAdder();
+        private final LongAdder collapsed = new LongAdder();
+        private final LongAdder timedOut = new LongAdder();
+    }
+}
@@ -0,0 +1,21 @@
+package es.menasoft.juniemvc.services;
+
+import jakarta.validation.constraints.NotNull;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+
+/**
+ * Configuration of the {@link SingleFlight} read coalescing.
+ *
+ * @param maxWait how long a request waits for an identical load in flight before loading on its own
+ */
+@Validated
+@ConfigurationProperties("juniemvc.single-flight")
+record SingleFlightProperties(
+        @NotNull
+        @DefaultValue("2s")
+        Duration maxWait
+) {}
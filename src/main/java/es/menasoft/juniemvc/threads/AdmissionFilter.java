@@ -0,0 +1,82 @@
+package es.menasoft.juniemvc.threads;
+
+import es.menasoft.juniemvc.exceptions.ServiceUnavailableException;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounds the number of requests handled at once. With a virtual thread per request nothing else does: every
+ * request would start and then queue inside the connection pool, holding its memory and timing out there.
+ * Requests wait for a permit in arrival order and are rejected with 503 (Service Unavailable) once the
+ * admission timeout is exceeded.
+ * <p>
+ * The permit is released when the request thread returns, asynchronous exports keep streaming without one.
+ */
+class AdmissionFilter extends OncePerRequestFilter implements MeterBinder {
+
+    private final int maxConcurrentRequests;
+    private final Semaphore permits;
+    private final Duration admissionTimeout;
+    private final HandlerExceptionResolver handlerExceptionResolver;
+    private final LongAdder rejected = new LongAdder();
+
+    AdmissionFilter(int maxConcurrentRequests, Duration admissionTimeout, HandlerExceptionResolver handlerExceptionResolver) {
+        this.maxConcurrentRequests = maxConcurrentRequests;
+        this.permits = new Semaphore(maxConcurrentRequests, true);
+        this.admissionTimeout = admissionTimeout;
+        this.handlerExceptionResolver = handlerExceptionResolver;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        if (!admit()) {
+            rejected.increment();
+            // Resolved like a controller exception, so the rejection is the usual problem detail
+            handlerExceptionResolver.resolveException(request, response, null, new ServiceUnavailableException(
+                    "Too many concurrent requests, retry later", admissionTimeout));
+            return;
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private boolean admit() {
+        try {
+            return permits.tryAcquire(admissionTimeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("http.server.requests.admitted", permits, p -> maxConcurrentRequests - p.availablePermits())
+                .description("The number of requests currently holding an admission permit")
+                .register(registry);
+        Gauge.builder("http.server.requests.waiting", permits, Semaphore::getQueueLength)
+                .description("The approximate number of requests waiting for an admission permit")
+                .register(registry);
+        FunctionCounter.builder("http.server.requests.rejected", rejected, LongAdder::sum)
+                .description("The number of requests rejected because no admission permit was free in time")
+                .register(registry);
+    }
+}
@@ -0,0 +1,71 @@
+package es.menasoft.juniemvc.threads;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Reports virtual threads that block while pinned to their carrier thread, typically inside a
+ * {@code synchronized} block or a native frame, since every such thread takes a carrier away from all the
+ * others. Pinned events come from an in-process JFR stream: each one is timed in
+ * {@code jvm.threads.virtual.pinned}, and the stack of every distinct pinning site is logged once.
+ */
+@Slf4j
+class PinnedThreadMonitor {
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final int LOGGED_FRAMES = 12;
+
+    private final RecordingStream events;
+    private final Timer pinned;
+    private final Set<String> reportedSites = ConcurrentHashMap.newKeySet();
+
+    PinnedThreadMonitor(VirtualThreadProperties properties, MeterRegistry meterRegistry) {
+        this.pinned = Timer.builder("jvm.threads.virtual.pinned")
+                .description("The time virtual threads spent blocked while pinned to their carrier thread")
+                .register(meterRegistry);
+        this.events = new RecordingStream();
+        events.enable(PINNED_EVENT).withThreshold(properties.pinnedThreshold()).withStackTrace();
+        events.onEvent(PINNED_EVENT, this::report);
+        events.startAsync();
+    }
+
+    private void report(RecordedEvent event) {
+        pinned.record(event.getDuration());
+        String site = site(event.getStackTrace());
+        if (reportedSites.add(site)) {
+            log.warn("Virtual thread {} pinned to its carrier for {} ms at:\n{}", event.getThread().getJavaName(),
+                    event.getDuration().toMillis(), site);
+        }
+    }
+
+    private static String site(RecordedStackTrace stackTrace) {
+        if (stackTrace == null) {
+            return "\tunknown";
+        }
+        List<RecordedFrame> frames = stackTrace.getFrames();
+        return frames.stream()
+                .limit(LOGGED_FRAMES)
+                .map(frame -> "\tat " + frame.getMethod().getType().getName() + "." + frame.getMethod().getName()
+                        + "(line " + frame.getLineNumber() + ")")
+                .collect(Collectors.joining("\n"));
+    }
+
+    /**
+     * Stop listening for pinned threads
+     */
+    @PreDestroy
+    void close() {
+        events.close();
+    }
+}
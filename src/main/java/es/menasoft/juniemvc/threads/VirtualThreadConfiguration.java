@@ -0,0 +1,69 @@
+package es.menasoft.juniemvc.threads;
+
+import com.zaxxer.hikari.HikariConfigMXBean;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceUnwrapper;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+
+import javax.sql.DataSource;
+
+/**
+ * Guardrails of the virtual-thread execution mode. With {@code spring.threads.virtual.enabled=true} Spring Boot
+ * runs every request, and so every {@code @Transactional} service call, on its own virtual thread; the Tomcat
+ * worker pool no longer limits how many of them reach the connection pool at once, the {@link AdmissionFilter}
+ * does instead. Pinned virtual threads are reported by the {@link PinnedThreadMonitor}.
+ */
+@Slf4j
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnThreading(Threading.VIRTUAL)
+@EnableConfigurationProperties(VirtualThreadProperties.class)
+class VirtualThreadConfiguration {
+
+    @Bean
+    AdmissionFilter admissionFilter(VirtualThreadProperties properties, DataSource dataSource,
+                                    @Qualifier("handlerExceptionResolver") HandlerExceptionResolver handlerExceptionResolver) {
+        Integer poolSize = connectionPoolSize(dataSource);
+        if (properties.maxConcurrentRequests() == null && poolSize == null) {
+            throw new IllegalStateException(
+                    "The connection pool size is unknown, set juniemvc.virtual-threads.max-concurrent-requests");
+        }
+        int maxConcurrentRequests = properties.maxConcurrentRequests() != null
+                ? properties.maxConcurrentRequests()
+                : poolSize;
+        if (poolSize != null && maxConcurrentRequests > poolSize) {
+            log.warn("Admitting up to {} concurrent requests for a pool of {} connections, "
+                    + "the others queue for a connection until the pool times out", maxConcurrentRequests, poolSize);
+        } else {
+            log.info("Admitting up to {} concurrent requests on virtual threads", maxConcurrentRequests);
+        }
+        return new AdmissionFilter(maxConcurrentRequests, properties.admissionTimeout(), handlerExceptionResolver);
+    }
+
+    // Admission only applies to the API, health checks and metrics must answer when the application is saturated
+    @Bean
+    FilterRegistrationBean<AdmissionFilter> admissionFilterRegistration(AdmissionFilter admissionFilter) {
+        FilterRegistrationBean<AdmissionFilter> registration = new FilterRegistrationBean<>(admissionFilter);
+        registration.addUrlPatterns("/api/*");
+        return registration;
+    }
+
+    @Bean
+    PinnedThreadMonitor pinnedThreadMonitor(VirtualThreadProperties properties, MeterRegistry meterRegistry) {
+        return new PinnedThreadMonitor(properties, meterRegistry);
+    }
+
+    // The data source is wrapped by the SQL logging proxy, null if the pool is not Hikari
+    private static Integer connectionPoolSize(DataSource dataSource) {
+        HikariConfigMXBean hikari = DataSourceUnwrapper.unwrap(dataSource, HikariConfigMXBean.class, HikariDataSource.class);
+        return hikari != null ? hikari.getMaximumPoolSize() : null;
+    }
+}
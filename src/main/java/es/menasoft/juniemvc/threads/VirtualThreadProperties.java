@@ -0,0 +1,31 @@
+package es.menasoft.juniemvc.threads;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+
+/**
+ * Guardrails of the virtual-thread execution mode, enabled with {@code spring.threads.virtual.enabled}.
+ *
+ * @param maxConcurrentRequests maximum number of API requests handled at once, defaults to the connection pool size
+ * @param admissionTimeout how long a request waits to be admitted before it is rejected with 503 (Service Unavailable)
+ * @param pinnedThreshold virtual threads pinned to their carrier for at least this long are reported
+ */
+@Validated
+@ConfigurationProperties("juniemvc.virtual-threads")
+record VirtualThreadProperties(
+        @Positive
+        Integer maxConcurrentRequests,
+
+        @NotNull
+        @DefaultValue("1s")
+        Duration admissionTimeout,
+
+        @NotNull
+        @DefaultValue("20ms")
+        Duration pinnedThreshold
+) {}
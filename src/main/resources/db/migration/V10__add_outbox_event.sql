@@ -0,0 +1,15 @@
+-- Database Migration Script for the transactional outbox
+-- Events describing order and shipment changes are inserted in the transaction making the change, so an event
+-- exists if and only if its change committed. A relay delivers them in ID order and deletes them once delivered.
+-- IDs are taken one at a time while the order row is locked, so the events of an order commit in ID order.
+
+CREATE SEQUENCE outbox_event_seq START WITH 1 INCREMENT BY 1;
+
+CREATE TABLE outbox_event (
+    id BIGINT PRIMARY KEY,
+    aggregate_type VARCHAR(50) NOT NULL,
+    aggregate_id INT NOT NULL,
+    event_type VARCHAR(100) NOT NULL,
+    payload CLOB NOT NULL,
+    created_date TIMESTAMP NOT NULL
+);
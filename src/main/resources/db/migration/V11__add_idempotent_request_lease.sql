@@ -0,0 +1,7 @@
+-- Database Migration Script for leased idempotency claims
+-- A claimed key is held until lease_until only: should the request holding it crash before recording its
+-- response, a retry takes the claim over once the lease has expired instead of waiting for the key to expire.
+
+ALTER TABLE idempotent_request ADD COLUMN lease_until TIMESTAMP;
+
+UPDATE idempotent_request SET lease_until = created_date WHERE response_status IS NULL;
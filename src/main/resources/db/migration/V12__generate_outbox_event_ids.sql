@@ -0,0 +1,9 @@
+-- Database Migration Script for generated outbox event IDs
+-- The id column generates its own values, so events are inserted without naming a sequence and the insert
+-- statement is the same on every database. IDs are still assigned at insert time, while the order row is locked,
+-- so the events of an order keep committing in ID order. The column continues after the events still pending.
+
+ALTER TABLE outbox_event ALTER COLUMN id BIGINT GENERATED BY DEFAULT AS IDENTITY;
+ALTER TABLE outbox_event ALTER COLUMN id RESTART WITH (SELECT COALESCE(MAX(id), 0) + 1 FROM outbox_event);
+
+DROP SEQUENCE outbox_event_seq;
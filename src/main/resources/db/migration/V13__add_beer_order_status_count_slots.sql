@@ -0,0 +1,11 @@
+-- Database Migration Script for striped beer order status counts
+-- Every transaction writing orders adjusts the count of their status and holds that row until it commits, so with
+-- one row per status all order creations queued on the NEW row. The count of a status is now spread over slot rows:
+-- a transaction adjusts the rows of one slot and a read sums the slots of each status.
+-- The existing counts become slot 0, the other slots are created empty by the application.
+
+ALTER TABLE beer_order_status_count ADD COLUMN slot SMALLINT DEFAULT 0 NOT NULL;
+ALTER TABLE beer_order_status_count ALTER COLUMN slot DROP DEFAULT;
+
+ALTER TABLE beer_order_status_count DROP PRIMARY KEY;
+ALTER TABLE beer_order_status_count ADD PRIMARY KEY (status_code, slot);
@@ -0,0 +1,5 @@
+-- Database Migration Script for the beer order search
+-- Orders are searched by a creation date range, optionally combined with the status or customer filters
+-- that are already backed by idx_beer_order_status and idx_beer_order_customer
+
+CREATE INDEX idx_beer_order_created_date ON beer_order(created_date);
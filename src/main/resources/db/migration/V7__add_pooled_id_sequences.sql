@@ -0,0 +1,21 @@
+-- Database Migration Script for pooled ID generation
+-- Entities take their IDs from sequences instead of AUTO_INCREMENT columns, so Hibernate can assign IDs
+-- before inserting and send the INSERT statements of a transaction in JDBC batches.
+-- Hibernate reserves 50 IDs per sequence call (pooled optimizer): a sequence value is the highest ID of its block.
+-- Every sequence therefore restarts 50 above the current maximum ID, so the first block starts right after
+-- the existing rows and their IDs are preserved.
+
+CREATE SEQUENCE beer_seq START WITH 50 INCREMENT BY 50;
+ALTER SEQUENCE beer_seq RESTART WITH (SELECT COALESCE(MAX(id), 0) + 50 FROM beer);
+
+CREATE SEQUENCE customer_seq START WITH 50 INCREMENT BY 50;
+ALTER SEQUENCE customer_seq RESTART WITH (SELECT COALESCE(MAX(id), 0) + 50 FROM customer);
+
+CREATE SEQUENCE beer_order_seq START WITH 50 INCREMENT BY 50;
+ALTER SEQUENCE beer_order_seq RESTART WITH (SELECT COALESCE(MAX(id), 0) + 50 FROM beer_order);
+
+CREATE SEQUENCE order_line_seq START WITH 50 INCREMENT BY 50;
+ALTER SEQUENCE order_line_seq RESTART WITH (SELECT COALESCE(MAX(id), 0) + 50 FROM order_line);
+
+CREATE SEQUENCE beer_order_shipment_seq START WITH 50 INCREMENT BY 50;
+ALTER SEQUENCE beer_order_shipment_seq RESTART WITH (SELECT COALESCE(MAX(id), 0) + 50 FROM beer_order_shipment);
@@ -0,0 +1,17 @@
+-- Database Migration Script for idempotent order and shipment creation
+-- A client retrying a POST with the same Idempotency-Key header gets the response of the first request
+-- instead of creating the order or shipment again. The row is inserted before the request runs, its
+-- primary key is what makes concurrent duplicates wait, and completed with the response afterwards.
+
+CREATE TABLE idempotent_request (
+    id VARCHAR(400) PRIMARY KEY,
+    version INT,
+    request_hash VARCHAR(64) NOT NULL,
+    response_status INT,
+    response_location VARCHAR(2048),
+    response_body CLOB,
+    created_date TIMESTAMP
+);
+
+-- Expired keys are purged by creation date
+CREATE INDEX idx_idempotent_request_created_date ON idempotent_request(created_date);
@@ -0,0 +1,37 @@
+-- Database Migration Script for the typed beer order status
+-- The free-form order_status is replaced by the code of a BeerOrderStatus; statuses written with another case
+-- or surrounding spaces are recognised.
+-- Any other value, or no status at all, cannot be placed in the lifecycle: the check below then fails the
+-- migration before anything is changed. List those orders with
+--   SELECT id, order_status FROM beer_order WHERE order_status IS NULL
+--       OR UPPER(TRIM(order_status)) NOT IN ('NEW', 'PROCESSING', 'SHIPPED', 'COMPLETED', 'CANCELLED');
+-- and give each of them one of these statuses before migrating again.
+
+ALTER TABLE beer_order ADD CONSTRAINT ck_beer_order_status_known CHECK (order_status IS NOT NULL
+    AND UPPER(TRIM(order_status)) IN ('NEW', 'PROCESSING', 'SHIPPED', 'COMPLETED', 'CANCELLED'));
+
+ALTER TABLE beer_order ADD COLUMN status_code SMALLINT;
+
+UPDATE beer_order SET status_code = CASE UPPER(TRIM(order_status))
+    WHEN 'NEW' THEN 0
+    WHEN 'PROCESSING' THEN 1
+    WHEN 'SHIPPED' THEN 2
+    WHEN 'COMPLETED' THEN 3
+    WHEN 'CANCELLED' THEN 4
+END;
+
+ALTER TABLE beer_order ALTER COLUMN status_code SET NOT NULL;
+
+ALTER TABLE beer_order DROP CONSTRAINT ck_beer_order_status_known;
+DROP INDEX idx_beer_order_status;
+ALTER TABLE beer_order DROP COLUMN order_status;
+CREATE INDEX idx_beer_order_status_code ON beer_order(status_code);
+
+-- Number of orders per status, maintained in the transactions writing the orders
+CREATE TABLE beer_order_status_count (
+    status_code SMALLINT PRIMARY KEY,
+    order_count BIGINT NOT NULL
+);
+
+INSERT INTO beer_order_status_count (status_code, order_count)
+SELECT status_code, COUNT(*) FROM beer_order GROUP BY status_code;
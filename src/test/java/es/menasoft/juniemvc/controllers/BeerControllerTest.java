@@ -1,7 +1,11 @@
 package es.menasoft.juniemvc.controllers;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import es.menasoft.juniemvc.exceptions.PreconditionFailedException;
 import es.menasoft.juniemvc.models.BeerDto;
+import es.menasoft.juniemvc.models.BeerImportError;
+import es.menasoft.juniemvc.models.BeerImportReport;
+import es.menasoft.juniemvc.models.BeerImportRow;
 import es.menasoft.juniemvc.models.BeerPatchDto;
 import es.menasoft.juniemvc.services.BeerService;
 import org.junit.jupiter.api.BeforeEach;
@@ -15,18 +19,28 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Window;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Primary;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Base64;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -34,7 +48,9 @@ import static org.hamcrest.Matchers.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.verify;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -169,6 +185,30 @@ public class BeerControllerTest {
                 .andExpect(jsonPath("$.beerStyle", is("IPA")));
     }
 
+    @Test
+    public void testGetBeersByIds() throws Exception {
+        // Given
+        given(beerService.getBeersByIds(List.of(2, 999, 1))).willReturn(Map.of(1, testBeer, 2, testBeerList.get(1)));
+
+        // When/Then
+        mockMvc.perform(get("/api/v1/beers").param("ids", "2,999,1,2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content", hasSize(2)))
+                .andExpect(jsonPath("$.content[0].beerName", is("Another Beer")))
+                .andExpect(jsonPath("$.content[1].beerName", is("Test Beer")))
+                .andExpect(jsonPath("$.missingIds", contains(999)));
+    }
+
+    @Test
+    public void testGetBeersByIdsTooMany() throws Exception {
+        // Given
+        String ids = String.join(",", java.util.stream.IntStream.rangeClosed(1, 101).mapToObj(String::valueOf).toList());
+
+        // When/Then
+        mockMvc.perform(get("/api/v1/beers").param("ids", ids))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     public void testGetBeerByIdNotFound() throws Exception {
         // Given
@@ -179,6 +219,82 @@ public class BeerControllerTest {
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testExportBeers() throws Exception {
+        // Given
+        doAnswer(invocation -> {
+            Consumer<BeerDto> consumer = invocation.getArgument(0);
+            testBeerList.forEach(consumer);
+            return null;
+        }).when(beerService).exportBeers(any(Consumer.class));
+
+        // When
+        MvcResult result = mockMvc.perform(get("/api/v1/beers/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Then
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+        List<String> lines = body.lines().toList();
+        assertThat(lines).hasSize(2);
+        assertThat(objectMapper.readValue(lines.get(0), BeerDto.class).beerName()).isEqualTo("Test Beer");
+        assertThat(objectMapper.readValue(lines.get(1), BeerDto.class).beerName()).isEqualTo("Another Beer");
+        assertThat(body).endsWith("\n");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testImportBeersCsv() throws Exception {
+        // Given
+        List<BeerImportRow> rows = new ArrayList<>();
+        given(beerService.importBeers(any(Iterator.class))).willAnswer(invocation -> {
+            ((Iterator<BeerImportRow>) invocation.getArgument(0)).forEachRemaining(rows::add);
+            return new BeerImportReport(2, 1, List.of(new BeerImportError(2, List.of("invalid price"))));
+        });
+        String csv = """
+                beerName,beerStyle,upc,quantityOnHand,price
+                Imported Lager,Lager,111,24,3.49
+                Bad Price,Lager,222,24,cheap
+                Imported Stout, Stout ,333,,4.99
+                """;
+
+        // When/Then
+        mockMvc.perform(post("/api/v1/beers/import")
+                .contentType("text/csv")
+                .content(csv))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported", is(2)))
+                .andExpect(jsonPath("$.errors[0].row", is(2)));
+        assertThat(rows).extracting(BeerImportRow::row).containsExactly(1L, 2L, 3L);
+        assertThat(rows.get(0).beer().price()).isEqualByComparingTo("3.49");
+        assertThat(rows.get(1).error()).isNotNull();
+        assertThat(rows.get(2).beer().beerStyle()).isEqualTo("Stout");
+        assertThat(rows.get(2).beer().quantityOnHand()).isNull();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testImportBeersJsonArray() throws Exception {
+        // Given
+        List<BeerImportRow> rows = new ArrayList<>();
+        given(beerService.importBeers(any(Iterator.class))).willAnswer(invocation -> {
+            ((Iterator<BeerImportRow>) invocation.getArgument(0)).forEachRemaining(rows::add);
+            return new BeerImportReport(rows.size(), 0, List.of());
+        });
+
+        // When/Then
+        mockMvc.perform(post("/api/v1/beers/import")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(testBeerList)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported", is(2)));
+        assertThat(rows).extracting(row -> row.beer().beerName()).containsExactly("Test Beer", "Another Beer");
+    }
+
     @Test
     public void testGetAllBeers() throws Exception {
         // Given
@@ -423,6 +539,54 @@ public class BeerControllerTest {
         verify(beerService).patchBeer(eq(1), any(BeerPatchDto.class));
     }
     
+    @Test
+    public void testUpdateBeerIfMatch() throws Exception {
+        // Given
+        BeerDto beerToUpdate = new BeerDto(null, null, "Updated Beer", "Porter", null, "999888777", 75,
+                new BigDecimal("16.99"), null, null);
+        BeerDto updatedBeer = new BeerDto(1, 4, "Updated Beer", "Porter", null, "999888777", 75,
+                new BigDecimal("16.99"), LocalDateTime.now(), LocalDateTime.now());
+        given(beerService.updateBeer(eq(1), any(BeerDto.class), eq(3))).willReturn(Optional.of(updatedBeer));
+
+        // When/Then
+        mockMvc.perform(put("/api/v1/beers/1")
+                .header(HttpHeaders.IF_MATCH, "\"1-3\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(beerToUpdate)))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1-4\""))
+                .andExpect(jsonPath("$.version", is(4)));
+    }
+
+    @Test
+    public void testPatchBeerIfMatchStale() throws Exception {
+        // Given
+        BeerPatchDto beerPatch = new BeerPatchDto("Patched Beer", null, null, null, null, null);
+        given(beerService.patchBeer(eq(1), any(BeerPatchDto.class), eq(3)))
+                .willThrow(new PreconditionFailedException("Beer", 1, 4));
+
+        // When/Then
+        mockMvc.perform(patch("/api/v1/beers/1")
+                .header(HttpHeaders.IF_MATCH, "\"1-3\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(beerPatch)))
+                .andExpect(status().isPreconditionFailed())
+                .andExpect(jsonPath("$.currentVersion", is(4)));
+    }
+
+    @Test
+    public void testPatchBeerIfMatchForeignTag() throws Exception {
+        // Given
+        BeerPatchDto beerPatch = new BeerPatchDto("Patched Beer", null, null, null, null, null);
+
+        // When/Then
+        mockMvc.perform(patch("/api/v1/beers/1")
+                .header(HttpHeaders.IF_MATCH, "W/\"1-3\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(beerPatch)))
+                .andExpect(status().isPreconditionFailed());
+    }
+
     @Test
     public void testPatchBeerNotFound() throws Exception {
         // Given
@@ -443,4 +607,111 @@ public class BeerControllerTest {
                 .content(objectMapper.writeValueAsString(beerPatch)))
                 .andExpect(status().isNotFound());
     }
+
+    @Test
+    public void testGetBeersWithoutTotal() throws Exception {
+        // Given
+        Pageable pageable = PageRequest.of(0, 1);
+        given(beerService.getBeerSlice(eq(null), eq(null), any(Pageable.class)))
+                .willReturn(new SliceImpl<>(List.of(testBeer), pageable, true));
+
+        // When/Then
+        mockMvc.perform(get("/api/v1/beers")
+                .param("size", "1")
+                .param("totalCount", "NONE"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content", hasSize(1)))
+                .andExpect(jsonPath("$.last", is(false)))
+                .andExpect(jsonPath("$.totalElements").doesNotExist());
+    }
+
+    @Test
+    public void testGetBeersWithApproximateTotal() throws Exception {
+        // Given
+        Pageable pageable = PageRequest.of(0, 1);
+        given(beerService.getBeerSlice(eq("Beer"), eq(null), any(Pageable.class)))
+                .willReturn(new SliceImpl<>(List.of(testBeer), pageable, true));
+        given(beerService.getApproximateBeerCount("Beer", null)).willReturn(40L);
+
+        // When/Then
+        mockMvc.perform(get("/api/v1/beers")
+                .param("beerName", "Beer")
+                .param("size", "1")
+                .param("totalCount", "APPROXIMATE"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content", hasSize(1)))
+                .andExpect(jsonPath("$.totalElements", is(40)));
+    }
+
+    @Test
+    public void testScrollBeers() throws Exception {
+        // Given
+        Window<BeerDto> firstWindow = Window.from(List.of(testBeer),
+                index -> ScrollPosition.forward(Map.of("beerName", "Test Beer", "id", 1)), true);
+        given(beerService.scrollBeers(eq(null), eq(null), eq(ScrollPosition.keyset()),
+                eq(Sort.by(Sort.Direction.ASC, "beerName")), eq(1))).willReturn(firstWindow);
+
+        // When/Then
+        String response = mockMvc.perform(get("/api/v1/beers/scroll")
+                .param("size", "1")
+                .param("sortField", "beerName"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content", hasSize(1)))
+                .andExpect(jsonPath("$.content[0].beerName", is("Test Beer")))
+                .andExpect(jsonPath("$.hasNext", is(true)))
+                .andExpect(jsonPath("$.continuationToken", notNullValue()))
+                .andReturn().getResponse().getContentAsString();
+        String continuationToken = objectMapper.readTree(response).get("continuationToken").asText();
+
+        // Given
+        Window<BeerDto> lastWindow = Window.from(List.of(testBeerList.get(1)),
+                index -> ScrollPosition.forward(Map.of("beerName", "Another Beer", "id", 2)), false);
+        given(beerService.scrollBeers(eq(null), eq(null),
+                eq(ScrollPosition.forward(Map.of("beerName", "Test Beer", "id", 1))),
+                eq(Sort.by(Sort.Direction.ASC, "beerName")), eq(1))).willReturn(lastWindow);
+
+        // When/Then
+        mockMvc.perform(get("/api/v1/beers/scroll")
+                .param("size", "1")
+                .param("continuationToken", continuationToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].id", is(2)))
+                .andExpect(jsonPath("$.hasNext", is(false)))
+                .andExpect(jsonPath("$.continuationToken").doesNotExist());
+    }
+
+    @Test
+    public void testScrollBeersInvalidToken() throws Exception {
+        mockMvc.perform(get("/api/v1/beers/scroll")
+                .param("continuationToken", "not-a-token"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void testScrollBeersTamperedToken() throws Exception {
+        // Given tokens that decode but miss or mistype a field
+        List<String> tamperedTokens = List.of(
+                "{\"s\":\"beerName\",\"k\":{\"beerName\":\"Ale\",\"id\":1}}",
+                "{\"s\":42,\"d\":\"ASC\",\"k\":{\"id\":1}}",
+                "{\"s\":\"id\",\"d\":\"SIDEWAYS\",\"k\":{\"id\":1}}",
+                "{\"s\":\"beerName\",\"d\":\"ASC\",\"k\":[1]}",
+                "{\"s\":\"beerName\",\"d\":\"ASC\",\"k\":{\"beerName\":\"Ale\"}}",
+                "{\"s\":\"beerName\",\"d\":\"ASC\",\"k\":{\"beerName\":{\"x\":1},\"id\":1}}",
+                "null");
+
+        // When/Then
+        for (String tamperedToken : tamperedTokens) {
+            mockMvc.perform(get("/api/v1/beers/scroll")
+                    .param("continuationToken",
+                            Base64.getUrlEncoder().withoutPadding().encodeToString(tamperedToken.getBytes())))
+                    .andExpect(status().isBadRequest());
+        }
+    }
+
+    @Test
+    public void testScrollBeersUnsupportedSortField() throws Exception {
+        mockMvc.perform(get("/api/v1/beers/scroll")
+                .param("sortField", "price"))
+                .andExpect(status().isBadRequest());
+    }
 }
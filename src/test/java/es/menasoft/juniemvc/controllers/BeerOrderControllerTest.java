@@ -1,9 +1,20 @@
 package es.menasoft.juniemvc.controllers;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import es.menasoft.juniemvc.exceptions.InsufficientInventoryException;
+import es.menasoft.juniemvc.exceptions.InvalidStatusTransitionException;
+import es.menasoft.juniemvc.exceptions.TooManyRequestsException;
 import es.menasoft.juniemvc.models.BeerOrderDto;
+import es.menasoft.juniemvc.models.BeerOrderIntakeDto;
+import es.menasoft.juniemvc.models.BeerOrderSearchCriteria;
+import es.menasoft.juniemvc.models.BeerOrderStatus;
+import es.menasoft.juniemvc.models.BeerOrderStatusTransitionCommand;
+import es.menasoft.juniemvc.models.BeerOrderStatusTransitionOutcome;
+import es.menasoft.juniemvc.models.BeerOrderStatusTransitionReport;
+import es.menasoft.juniemvc.models.BeerOrderSummaryDto;
 import es.menasoft.juniemvc.models.CreateBeerOrderCommand;
 import es.menasoft.juniemvc.models.OrderLineDto;
+import es.menasoft.juniemvc.services.BeerOrderIntakeService;
 import es.menasoft.juniemvc.services.BeerOrderService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -15,21 +26,31 @@ import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Primary;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.UUID;
 
+import static org.hamcrest.Matchers.endsWith;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.startsWith;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -46,6 +67,12 @@ public class BeerOrderControllerTest {
         BeerOrderService beerOrderService() {
             return Mockito.mock(BeerOrderService.class);
         }
+
+        @Bean
+        @Primary
+        BeerOrderIntakeService beerOrderIntakeService() {
+            return Mockito.mock(BeerOrderIntakeService.class);
+        }
     }
 
     @Autowired
@@ -57,6 +84,9 @@ public class BeerOrderControllerTest {
     @Autowired
     private BeerOrderService beerOrderService;
 
+    @Autowired
+    private BeerOrderIntakeService beerOrderIntakeService;
+
     private BeerOrderDto testBeerOrder;
     private List<BeerOrderDto> testBeerOrderList;
     private OrderLineDto testOrderLine;
@@ -64,6 +94,9 @@ public class BeerOrderControllerTest {
 
     @BeforeEach
     void setUp() {
+        // Orders are created synchronously unless a test enables the intake, calls are verified per test
+        Mockito.reset(beerOrderService, beerOrderIntakeService);
+
         testOrderLine = new OrderLineDto(
                 1,
                 5,
@@ -74,7 +107,7 @@ public class BeerOrderControllerTest {
         testBeerOrder = new BeerOrderDto(
                 1,
                 null,
-                "NEW",
+                BeerOrderStatus.NEW,
                 LocalDateTime.now(),
                 LocalDateTime.now(),
                 1,
@@ -84,7 +117,7 @@ public class BeerOrderControllerTest {
         BeerOrderDto testBeerOrder2 = new BeerOrderDto(
                 2,
                 null,
-                "PROCESSING",
+                BeerOrderStatus.PROCESSING,
                 LocalDateTime.now(),
                 LocalDateTime.now(),
                 1,
@@ -115,6 +148,79 @@ public class BeerOrderControllerTest {
                 .andExpect(jsonPath("$.orderLines", hasSize(1)));
     }
 
+    @Test
+    public void testCreateBeerOrderAsynchronously() throws Exception {
+        // Given
+        UUID intakeId = UUID.randomUUID();
+        given(beerOrderIntakeService.isEnabled()).willReturn(true);
+        given(beerOrderIntakeService.submit(any(CreateBeerOrderCommand.class)))
+                .willReturn(BeerOrderIntakeDto.pending(intakeId));
+
+        // When/Then
+        mockMvc.perform(post("/api/v1/orders")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(testCreateCommand)))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string(HttpHeaders.LOCATION, endsWith("/api/v1/orders/intake/" + intakeId)))
+                .andExpect(jsonPath("$.status", is("PENDING")));
+        verify(beerOrderIntakeService).submit(any(CreateBeerOrderCommand.class));
+    }
+
+    @Test
+    public void testCreateBeerOrderAsynchronouslyQueueFull() throws Exception {
+        // Given
+        given(beerOrderIntakeService.isEnabled()).willReturn(true);
+        given(beerOrderIntakeService.submit(any(CreateBeerOrderCommand.class)))
+                .willThrow(new TooManyRequestsException("Too many orders waiting to be created, retry later",
+                        Duration.ofMillis(1500)));
+
+        // When/Then
+        mockMvc.perform(post("/api/v1/orders")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(testCreateCommand)))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "2"))
+                .andExpect(jsonPath("$.title", is("Too Many Requests")));
+    }
+
+    @Test
+    public void testGetBeerOrderIntake() throws Exception {
+        // Given
+        UUID intakeId = UUID.randomUUID();
+        given(beerOrderIntakeService.getIntake(intakeId)).willReturn(Optional.of(BeerOrderIntakeDto.created(intakeId, 7)));
+
+        // When/Then
+        mockMvc.perform(get("/api/v1/orders/intake/{intakeId}", intakeId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status", is("CREATED")))
+                .andExpect(jsonPath("$.orderId", is(7)));
+    }
+
+    @Test
+    public void testGetBeerOrderIntakeNotFound() throws Exception {
+        // Given
+        given(beerOrderIntakeService.getIntake(any(UUID.class))).willReturn(Optional.empty());
+
+        // When/Then
+        mockMvc.perform(get("/api/v1/orders/intake/{intakeId}", UUID.randomUUID()))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void testCreateBeerOrderOutOfStock() throws Exception {
+        // Given
+        given(beerOrderService.createBeerOrder(any(CreateBeerOrderCommand.class)))
+                .willThrow(new InsufficientInventoryException(List.of(1)));
+
+        // When/Then
+        mockMvc.perform(post("/api/v1/orders")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(testCreateCommand)))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.title", is("Insufficient Inventory")))
+                .andExpect(jsonPath("$.beerIds[0]", is(1)));
+    }
+
     @Test
     public void testCreateBeerOrderValidationFail() throws Exception {
         // Given
@@ -158,13 +264,78 @@ public class BeerOrderControllerTest {
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    public void testGetBeerOrderByIdReturnsETag() throws Exception {
+        // Given
+        given(beerOrderService.getBeerOrderById(1)).willReturn(Optional.of(testBeerOrder));
+
+        // When/Then
+        mockMvc.perform(get("/api/v1/orders/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1-0\""));
+    }
+
+    @Test
+    public void testGetBeerOrderByIdNotModified() throws Exception {
+        // Given
+        given(beerOrderService.getBeerOrderVersion(7)).willReturn(Optional.of(3));
+
+        // When/Then
+        mockMvc.perform(get("/api/v1/orders/7").header(HttpHeaders.IF_NONE_MATCH, "\"7-3\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"7-3\""))
+                .andExpect(content().string(""));
+        verify(beerOrderService, never()).getBeerOrderById(7);
+    }
+
+    @Test
+    public void testGetBeerOrderByIdStaleETag() throws Exception {
+        // Given
+        BeerOrderDto order = new BeerOrderDto(8, 4, BeerOrderStatus.PROCESSING, LocalDateTime.now(), LocalDateTime.now(), 1,
+                List.of(testOrderLine));
+        given(beerOrderService.getBeerOrderVersion(8)).willReturn(Optional.of(4));
+        given(beerOrderService.getBeerOrderById(8)).willReturn(Optional.of(order));
+
+        // When/Then
+        mockMvc.perform(get("/api/v1/orders/8").header(HttpHeaders.IF_NONE_MATCH, "\"8-3\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"8-4\""))
+                .andExpect(jsonPath("$.orderStatus", is("PROCESSING")));
+    }
+
+    @Test
+    public void testGetBeerOrderByIdNotModifiedNotFound() throws Exception {
+        // Given
+        given(beerOrderService.getBeerOrderVersion(998)).willReturn(Optional.empty());
+
+        // When/Then
+        mockMvc.perform(get("/api/v1/orders/998").header(HttpHeaders.IF_NONE_MATCH, "\"998-0\""))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void testGetBeerOrdersByCustomerIdWeakETag() throws Exception {
+        // Given
+        given(beerOrderService.getBeerOrdersByCustomerId(1)).willReturn(testBeerOrderList);
+
+        // When
+        String eTag = mockMvc.perform(get("/api/v1/orders/customer/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, startsWith("W/\"")))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        // Then
+        mockMvc.perform(get("/api/v1/orders/customer/1").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified());
+    }
+
     @Test
     public void testGetAllBeerOrders() throws Exception {
         // Given
         given(beerOrderService.getAllBeerOrders()).willReturn(testBeerOrderList);
 
         // When/Then
-        mockMvc.perform(get("/api/v1/orders"))
+        mockMvc.perform(get("/api/v1/orders/all"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$", hasSize(2)))
                 .andExpect(jsonPath("$[0].id", is(1)))
@@ -173,6 +344,54 @@ public class BeerOrderControllerTest {
                 .andExpect(jsonPath("$[1].orderStatus", is("PROCESSING")));
     }
 
+    @Test
+    public void testSearchBeerOrders() throws Exception {
+        // Given
+        BeerOrderSearchCriteria criteria = new BeerOrderSearchCriteria(BeerOrderStatus.NEW, 1,
+                LocalDateTime.of(2024, 1, 1, 0, 0), null);
+        BeerOrderSummaryDto summary = new BeerOrderSummaryDto(5, 0, BeerOrderStatus.NEW, 1, LocalDateTime.now(), LocalDateTime.now());
+        Window<BeerOrderSummaryDto> firstWindow = Window.from(List.of(summary),
+                index -> ScrollPosition.forward(Map.of("id", 5)), true);
+        given(beerOrderService.searchBeerOrders(criteria, ScrollPosition.keyset(), 1)).willReturn(firstWindow);
+
+        // When/Then
+        String response = mockMvc.perform(get("/api/v1/orders")
+                .param("orderStatus", "NEW")
+                .param("customerId", "1")
+                .param("createdFrom", "2024-01-01T00:00:00")
+                .param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content", hasSize(1)))
+                .andExpect(jsonPath("$.content[0].id", is(5)))
+                .andExpect(jsonPath("$.content[0].orderLines").doesNotExist())
+                .andExpect(jsonPath("$.hasNext", is(true)))
+                .andReturn().getResponse().getContentAsString();
+        String continuationToken = objectMapper.readTree(response).get("continuationToken").asText();
+
+        // Given
+        given(beerOrderService.searchBeerOrders(criteria, ScrollPosition.forward(Map.of("id", 5)), 1))
+                .willReturn(Window.from(List.of(), index -> ScrollPosition.keyset(), false));
+
+        // When/Then
+        mockMvc.perform(get("/api/v1/orders")
+                .param("orderStatus", "NEW")
+                .param("customerId", "1")
+                .param("createdFrom", "2024-01-01T00:00:00")
+                .param("size", "1")
+                .param("continuationToken", continuationToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content", hasSize(0)))
+                .andExpect(jsonPath("$.hasNext", is(false)));
+    }
+
+    @Test
+    public void testSearchBeerOrdersInvalidDateRange() throws Exception {
+        mockMvc.perform(get("/api/v1/orders")
+                .param("createdFrom", "2024-02-01T00:00:00")
+                .param("createdTo", "2024-01-01T00:00:00"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     public void testGetBeerOrdersByCustomerId() throws Exception {
         // Given
@@ -194,7 +413,7 @@ public class BeerOrderControllerTest {
         BeerOrderDto beerOrderToUpdate = new BeerOrderDto(
                 null,
                 null,
-                "COMPLETED",
+                BeerOrderStatus.COMPLETED,
                 null,
                 null,
                 1,
@@ -204,7 +423,7 @@ public class BeerOrderControllerTest {
         BeerOrderDto updatedBeerOrder = new BeerOrderDto(
                 1,
                 null,
-                "COMPLETED",
+                BeerOrderStatus.COMPLETED,
                 LocalDateTime.now(),
                 LocalDateTime.now(),
                 1,
@@ -228,7 +447,7 @@ public class BeerOrderControllerTest {
         BeerOrderDto beerOrderToUpdate = new BeerOrderDto(
                 null,
                 null,
-                "COMPLETED",
+                BeerOrderStatus.COMPLETED,
                 null,
                 null,
                 1,
@@ -250,14 +469,14 @@ public class BeerOrderControllerTest {
         BeerOrderDto updatedBeerOrder = new BeerOrderDto(
                 1,
                 null,
-                "COMPLETED",
+                BeerOrderStatus.COMPLETED,
                 LocalDateTime.now(),
                 LocalDateTime.now(),
                 1,
                 List.of(testOrderLine)
         );
 
-        given(beerOrderService.updateBeerOrderStatus(eq(1), eq("COMPLETED"))).willReturn(Optional.of(updatedBeerOrder));
+        given(beerOrderService.updateBeerOrderStatus(eq(1), eq(BeerOrderStatus.COMPLETED))).willReturn(Optional.of(updatedBeerOrder));
 
         // When/Then
         mockMvc.perform(patch("/api/v1/orders/1/status")
@@ -271,7 +490,7 @@ public class BeerOrderControllerTest {
     @Test
     public void testUpdateBeerOrderStatusNotFound() throws Exception {
         // Given
-        given(beerOrderService.updateBeerOrderStatus(eq(999), eq("COMPLETED"))).willReturn(Optional.empty());
+        given(beerOrderService.updateBeerOrderStatus(eq(999), eq(BeerOrderStatus.COMPLETED))).willReturn(Optional.empty());
 
         // When/Then
         mockMvc.perform(patch("/api/v1/orders/999/status")
@@ -280,6 +499,94 @@ public class BeerOrderControllerTest {
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    public void testUpdateBeerOrderStatusUnknownStatus() throws Exception {
+        // When/Then
+        mockMvc.perform(patch("/api/v1/orders/1/status")
+                .contentType(MediaType.TEXT_PLAIN)
+                .content("LOST"))
+                .andExpect(status().isBadRequest());
+        verify(beerOrderService, never()).updateBeerOrderStatus(any(), any());
+    }
+
+    @Test
+    public void testUpdateBeerOrderStatusInvalidTransition() throws Exception {
+        // Given
+        given(beerOrderService.updateBeerOrderStatus(eq(1), eq(BeerOrderStatus.NEW)))
+                .willThrow(new InvalidStatusTransitionException(BeerOrderStatus.SHIPPED, BeerOrderStatus.NEW));
+
+        // When/Then
+        mockMvc.perform(patch("/api/v1/orders/1/status")
+                .contentType(MediaType.TEXT_PLAIN)
+                .content("new"))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.from", is("SHIPPED")))
+                .andExpect(jsonPath("$.to", is("NEW")));
+    }
+
+    @Test
+    public void testGetBeerOrderStatusCounts() throws Exception {
+        // Given
+        Map<BeerOrderStatus, Long> counts = new EnumMap<>(BeerOrderStatus.class);
+        counts.put(BeerOrderStatus.NEW, 12L);
+        counts.put(BeerOrderStatus.SHIPPED, 3L);
+        given(beerOrderService.getBeerOrderStatusCounts()).willReturn(counts);
+
+        // When/Then
+        mockMvc.perform(get("/api/v1/orders/status-counts"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.NEW", is(12)))
+                .andExpect(jsonPath("$.SHIPPED", is(3)));
+    }
+
+    @Test
+    public void testTransitionBeerOrderStatus() throws Exception {
+        // Given
+        BeerOrderStatusTransitionCommand command = new BeerOrderStatusTransitionCommand(List.of(1, 2, 3),
+                BeerOrderStatus.PROCESSING, BeerOrderStatus.SHIPPED, null, null);
+        given(beerOrderService.transitionBeerOrderStatus(eq(command))).willReturn(new BeerOrderStatusTransitionReport(1, 1, 1,
+                List.of(new BeerOrderStatusTransitionOutcome(1, BeerOrderStatusTransitionOutcome.Result.UPDATED),
+                        new BeerOrderStatusTransitionOutcome(2, BeerOrderStatusTransitionOutcome.Result.SKIPPED),
+                        new BeerOrderStatusTransitionOutcome(3, BeerOrderStatusTransitionOutcome.Result.NOT_FOUND))));
+
+        // When/Then
+        mockMvc.perform(patch("/api/v1/orders/status")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(command)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.updated", is(1)))
+                .andExpect(jsonPath("$.outcomes", hasSize(3)))
+                .andExpect(jsonPath("$.outcomes[1].id", is(2)))
+                .andExpect(jsonPath("$.outcomes[1].result", is("SKIPPED")));
+    }
+
+    @Test
+    public void testTransitionBeerOrderStatusWithIdsAndDateRange() throws Exception {
+        // Given
+        BeerOrderStatusTransitionCommand command = new BeerOrderStatusTransitionCommand(List.of(1), BeerOrderStatus.PROCESSING,
+                BeerOrderStatus.SHIPPED, LocalDateTime.now().minusDays(1), LocalDateTime.now());
+
+        // When/Then
+        mockMvc.perform(patch("/api/v1/orders/status")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(command)))
+                .andExpect(status().isBadRequest());
+        verify(beerOrderService, never()).transitionBeerOrderStatus(any());
+    }
+
+    @Test
+    public void testTransitionBeerOrderStatusWithoutToStatus() throws Exception {
+        // Given
+        BeerOrderStatusTransitionCommand command =
+                new BeerOrderStatusTransitionCommand(null, BeerOrderStatus.PROCESSING, null, null, null);
+
+        // When/Then
+        mockMvc.perform(patch("/api/v1/orders/status")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(command)))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     public void testDeleteBeerOrder() throws Exception {
         // Given
@@ -2,14 +2,18 @@ package es.menasoft.juniemvc.controllers;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import es.menasoft.juniemvc.exceptions.EntityNotFoundException;
+import es.menasoft.juniemvc.exceptions.IdempotencyKeyMismatchException;
 import es.menasoft.juniemvc.models.BeerOrderShipmentDto;
 import es.menasoft.juniemvc.models.CreateBeerOrderShipmentCommand;
+import es.menasoft.juniemvc.models.IdempotentResponseDto;
 import es.menasoft.juniemvc.services.BeerOrderShipmentService;
+import es.menasoft.juniemvc.services.IdempotencyService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
@@ -18,16 +22,21 @@ import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(BeerOrderShipmentController.class)
+@Import({NdjsonExporter.class, IdempotentRequests.class})
 public class BeerOrderShipmentControllerTest {
 
     @Autowired
@@ -39,6 +48,9 @@ public class BeerOrderShipmentControllerTest {
     @MockBean
     BeerOrderShipmentService beerOrderShipmentService;
 
+    @MockBean
+    IdempotencyService idempotencyService;
+
     BeerOrderShipmentDto shipmentDto;
     CreateBeerOrderShipmentCommand createCommand;
 
@@ -79,6 +91,54 @@ public class BeerOrderShipmentControllerTest {
                 .andExpect(jsonPath("$.beerOrderId", is(1)));
     }
 
+    @Test
+    void testCreateShipmentWithIdempotencyKey() throws Exception {
+        // given
+        when(beerOrderShipmentService.createShipment(any())).thenReturn(shipmentDto);
+        when(idempotencyService.execute(eq("POST /api/v1/shipments"), eq("retry-1"), anyString(), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<IdempotentResponseDto>>getArgument(3).get());
+
+        // when/then
+        mockMvc.perform(post("/api/v1/shipments")
+                .header("Idempotency-Key", "retry-1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(createCommand)))
+                .andExpect(status().isCreated())
+                .andExpect(header().doesNotExist("Idempotent-Replayed"))
+                .andExpect(jsonPath("$.id", is(1)));
+    }
+
+    @Test
+    void testCreateShipmentReplaysRecordedResponse() throws Exception {
+        // given
+        when(idempotencyService.execute(eq("POST /api/v1/shipments"), eq("retry-2"), anyString(), any()))
+                .thenReturn(new IdempotentResponseDto("hash", 201, null, "{\"id\":7,\"carrier\":\"UPS\"}"));
+
+        // when/then
+        mockMvc.perform(post("/api/v1/shipments")
+                .header("Idempotency-Key", "retry-2")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(createCommand)))
+                .andExpect(status().isCreated())
+                .andExpect(header().string("Idempotent-Replayed", "true"))
+                .andExpect(jsonPath("$.id", is(7)));
+        verify(beerOrderShipmentService, never()).createShipment(any());
+    }
+
+    @Test
+    void testCreateShipmentIdempotencyKeyReusedWithAnotherShipment() throws Exception {
+        // given
+        when(idempotencyService.execute(eq("POST /api/v1/shipments"), eq("retry-3"), anyString(), any()))
+                .thenThrow(new IdempotencyKeyMismatchException("retry-3"));
+
+        // when/then
+        mockMvc.perform(post("/api/v1/shipments")
+                .header("Idempotency-Key", "retry-3")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(createCommand)))
+                .andExpect(status().isUnprocessableEntity());
+    }
+
     @Test
     void testCreateShipmentValidationError() throws Exception {
         // given
@@ -0,0 +1,70 @@
+package es.menasoft.juniemvc.monitoring;
+
+import es.menasoft.juniemvc.entities.Beer;
+import es.menasoft.juniemvc.repositories.BeerRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability(tracing = false)
+@ActiveProfiles("test")
+class PrometheusMetricsTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private BeerRepository beerRepository;
+
+    private Beer beer;
+
+    @AfterEach
+    void tearDown() {
+        if (beer != null) {
+            beerRepository.deleteById(beer.getId());
+        }
+    }
+
+    @Test
+    void scrapeExposesServiceTimersQueriesPerRequestAndHibernateStatistics() throws Exception {
+        // Given
+        beer = beerRepository.save(Beer.builder()
+                .beerName("Metrics Lager")
+                .beerStyle("LAGER")
+                .upc("123456789")
+                .quantityOnHand(10)
+                .price(new BigDecimal("9.99"))
+                .build());
+        mockMvc.perform(get("/api/v1/beers/{beerId}", beer.getId()))
+                .andExpect(status().isOk());
+
+        // When
+        String scrape = mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        // Then
+        assertThat(scrape)
+                .contains("juniemvc_service_seconds_bucket{")
+                .contains("method=\"getBeerById\"")
+                .contains("spring_data_repository_invocations_seconds_bucket{")
+                .contains("http_server_requests_queries_bucket{")
+                .contains("uri=\"/api/v1/beers/{beerId}\"")
+                .contains("hibernate_entities_loads_total")
+                .contains("hibernate_query_executions_total")
+                .contains("hibernate_second_level_cache_requests_total{");
+    }
+}
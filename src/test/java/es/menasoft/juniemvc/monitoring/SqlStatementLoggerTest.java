@@ -0,0 +1,94 @@
+package es.menasoft.juniemvc.monitoring;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.proxy.ParameterSetOperation;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
+
+import java.sql.PreparedStatement;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(OutputCaptureExtension.class)
+class SqlStatementLoggerTest {
+
+    private static final String SQL = "select * from beer where id = ?";
+
+    @Test
+    void afterQuery_LogsSlowStatementWithRedactedParametersAndOrigin(CapturedOutput output) throws Exception {
+        // Given
+        SqlStatementLogger logger = new SqlStatementLogger(new SqlLogProperties(true, Duration.ofMillis(100), 0.0, 10, false));
+
+        // When
+        logger.afterQuery(execution(150), List.of(query(SQL, "jane.doe@example.com")));
+        logger.close();
+
+        // Then
+        assertThat(output.getOut())
+                .contains("Slow SQL took 150 ms")
+                // Frames of the monitoring package itself are never reported as the origin
+                .contains("in unknown")
+                .contains(SQL + " [?]")
+                .doesNotContain("jane.doe@example.com");
+    }
+
+    @Test
+    void afterQuery_LogsParameterValuesWhenEnabled(CapturedOutput output) throws Exception {
+        // Given
+        SqlStatementLogger logger = new SqlStatementLogger(new SqlLogProperties(true, Duration.ofMillis(100), 0.0, 10, true));
+
+        // When
+        logger.afterQuery(execution(150), List.of(query(SQL, 42)));
+        logger.close();
+
+        // Then
+        assertThat(output.getOut()).contains(SQL + " [42]");
+    }
+
+    @Test
+    void afterQuery_SkipsFastStatementWhenNotSampled(CapturedOutput output) throws Exception {
+        // Given
+        SqlStatementLogger logger = new SqlStatementLogger(new SqlLogProperties(true, Duration.ofMillis(100), 0.0, 10, false));
+
+        // When
+        logger.afterQuery(execution(5), List.of(query(SQL, 42)));
+        logger.close();
+
+        // Then
+        assertThat(output.getOut()).doesNotContain(SQL);
+    }
+
+    @Test
+    void afterQuery_LogsSampledFastStatement(CapturedOutput output) throws Exception {
+        // Given
+        SqlStatementLogger logger = new SqlStatementLogger(new SqlLogProperties(true, Duration.ofMillis(100), 1.0, 10, false));
+
+        // When
+        logger.afterQuery(execution(5), List.of(query(SQL, 7)));
+        logger.close();
+
+        // Then
+        assertThat(output.getOut())
+                .contains("Sampled SQL took 5 ms")
+                .contains(SQL + " [?]");
+    }
+
+    private static ExecutionInfo execution(long elapsedMillis) {
+        ExecutionInfo executionInfo = new ExecutionInfo();
+        executionInfo.setElapsedTime(elapsedMillis);
+        executionInfo.setSuccess(true);
+        return executionInfo;
+    }
+
+    private static QueryInfo query(String sql, Object parameter) throws NoSuchMethodException {
+        QueryInfo queryInfo = new QueryInfo(sql);
+        queryInfo.getParametersList().add(List.of(new ParameterSetOperation(
+                PreparedStatement.class.getMethod("setObject", int.class, Object.class), new Object[]{1, parameter})));
+        return queryInfo;
+    }
+}
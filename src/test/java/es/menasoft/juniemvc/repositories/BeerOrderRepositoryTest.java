@@ -4,6 +4,12 @@ import es.menasoft.juniemvc.entities.Beer;
 import es.menasoft.juniemvc.entities.BeerOrder;
 import es.menasoft.juniemvc.entities.Customer;
 import es.menasoft.juniemvc.entities.OrderLine;
+import es.menasoft.juniemvc.models.BeerOrderSearchCriteria;
+import es.menasoft.juniemvc.models.BeerOrderStatus;
+import es.menasoft.juniemvc.models.BeerOrderSummaryDto;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -12,12 +18,13 @@ import org.springframework.test.annotation.Rollback;
 import org.springframework.test.context.ActiveProfiles;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
-@DataJpaTest
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
 @ActiveProfiles("test")
 public class BeerOrderRepositoryTest {
 
@@ -30,6 +37,9 @@ public class BeerOrderRepositoryTest {
     @Autowired
     BeerRepository beerRepository;
 
+    @Autowired
+    EntityManager entityManager;
+
     private Customer testCustomer;
     private Beer testBeer;
 
@@ -62,7 +72,7 @@ public class BeerOrderRepositoryTest {
     @Test
     public void testSaveBeerOrder() {
         BeerOrder beerOrder = BeerOrder.builder()
-                .orderStatus("NEW")
+                .orderStatus(BeerOrderStatus.NEW)
                 .customer(testCustomer)
                 .build();
 
@@ -83,7 +93,7 @@ public class BeerOrderRepositoryTest {
     @Test
     public void testGetBeerOrderById() {
         BeerOrder beerOrder = BeerOrder.builder()
-                .orderStatus("NEW")
+                .orderStatus(BeerOrderStatus.NEW)
                 .customer(testCustomer)
                 .build();
 
@@ -93,7 +103,7 @@ public class BeerOrderRepositoryTest {
 
         assertThat(fetchedBeerOrderOptional).isPresent();
         BeerOrder fetchedBeerOrder = fetchedBeerOrderOptional.get();
-        assertThat(fetchedBeerOrder.getOrderStatus()).isEqualTo("NEW");
+        assertThat(fetchedBeerOrder.getOrderStatus()).isEqualTo(BeerOrderStatus.NEW);
         assertThat(fetchedBeerOrder.getCustomer().getId()).isEqualTo(testCustomer.getId());
     }
 
@@ -101,13 +111,13 @@ public class BeerOrderRepositoryTest {
     public void testFindAllByCustomer() {
         // Create and save two beer orders for the test customer
         BeerOrder beerOrder1 = BeerOrder.builder()
-                .orderStatus("NEW")
+                .orderStatus(BeerOrderStatus.NEW)
                 .customer(testCustomer)
                 .build();
         beerOrderRepository.save(beerOrder1);
 
         BeerOrder beerOrder2 = BeerOrder.builder()
-                .orderStatus("PROCESSING")
+                .orderStatus(BeerOrderStatus.PROCESSING)
                 .customer(testCustomer)
                 .build();
         beerOrderRepository.save(beerOrder2);
@@ -126,7 +136,7 @@ public class BeerOrderRepositoryTest {
         anotherCustomer = customerRepository.save(anotherCustomer);
 
         BeerOrder beerOrder3 = BeerOrder.builder()
-                .orderStatus("NEW")
+                .orderStatus(BeerOrderStatus.NEW)
                 .customer(anotherCustomer)
                 .build();
         beerOrderRepository.save(beerOrder3);
@@ -144,13 +154,13 @@ public class BeerOrderRepositoryTest {
     public void testFindAllByCustomerId() {
         // Create and save two beer orders for the test customer
         BeerOrder beerOrder1 = BeerOrder.builder()
-                .orderStatus("NEW")
+                .orderStatus(BeerOrderStatus.NEW)
                 .customer(testCustomer)
                 .build();
         beerOrderRepository.save(beerOrder1);
 
         BeerOrder beerOrder2 = BeerOrder.builder()
-                .orderStatus("PROCESSING")
+                .orderStatus(BeerOrderStatus.PROCESSING)
                 .customer(testCustomer)
                 .build();
         beerOrderRepository.save(beerOrder2);
@@ -169,7 +179,7 @@ public class BeerOrderRepositoryTest {
         anotherCustomer = customerRepository.save(anotherCustomer);
 
         BeerOrder beerOrder3 = BeerOrder.builder()
-                .orderStatus("NEW")
+                .orderStatus(BeerOrderStatus.NEW)
                 .customer(anotherCustomer)
                 .build();
         beerOrderRepository.save(beerOrder3);
@@ -187,23 +197,23 @@ public class BeerOrderRepositoryTest {
     @Rollback
     public void testUpdateBeerOrder() {
         BeerOrder beerOrder = BeerOrder.builder()
-                .orderStatus("NEW")
+                .orderStatus(BeerOrderStatus.NEW)
                 .customer(testCustomer)
                 .build();
 
         BeerOrder savedBeerOrder = beerOrderRepository.save(beerOrder);
         
-        savedBeerOrder.setOrderStatus("PROCESSING");
+        savedBeerOrder.setOrderStatus(BeerOrderStatus.PROCESSING);
         BeerOrder updatedBeerOrder = beerOrderRepository.save(savedBeerOrder);
         
-        assertThat(updatedBeerOrder.getOrderStatus()).isEqualTo("PROCESSING");
+        assertThat(updatedBeerOrder.getOrderStatus()).isEqualTo(BeerOrderStatus.PROCESSING);
     }
 
     @Test
     @Rollback
     public void testDeleteBeerOrder() {
         BeerOrder beerOrder = BeerOrder.builder()
-                .orderStatus("NEW")
+                .orderStatus(BeerOrderStatus.NEW)
                 .customer(testCustomer)
                 .build();
 
@@ -215,4 +225,77 @@ public class BeerOrderRepositoryTest {
         
         assertThat(deletedBeerOrder).isEmpty();
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testFindAllWithOrderLinesLoadsOrdersInOneStatement() {
+        for (int i = 0; i < 3; i++) {
+            Beer beer = beerRepository.save(Beer.builder()
+                    .beerName("Beer " + i)
+                    .beerStyle("Lager")
+                    .upc("upc-" + i)
+                    .price(new BigDecimal("9.99"))
+                    .quantityOnHand(10)
+                    .build());
+            BeerOrder beerOrder = BeerOrder.builder()
+                    .orderStatus(BeerOrderStatus.NEW)
+                    .customer(testCustomer)
+                    .build();
+            beerOrder.addOrderLine(OrderLine.builder().orderQuantity(1).beer(beer).build());
+            beerOrder.addOrderLine(OrderLine.builder().orderQuantity(2).beer(testBeer).build());
+            beerOrderRepository.save(beerOrder);
+        }
+        entityManager.flush();
+        entityManager.clear();
+        Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<BeerOrder> beerOrders = beerOrderRepository.findAllWithOrderLinesByCustomerId(testCustomer.getId());
+
+        // Walk everything BeerOrderMapper touches
+        assertThat(beerOrders).hasSize(3);
+        beerOrders.forEach(beerOrder -> {
+            assertThat(beerOrder.getCustomer().getName()).isEqualTo("Test Customer");
+            assertThat(beerOrder.getOrderLines()).hasSize(2)
+                    .allSatisfy(orderLine -> assertThat(orderLine.getBeer().getBeerName()).isNotNull());
+        });
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testSearchSummariesFiltersAndScrollsNewestFirst() {
+        BeerOrder first = beerOrderRepository.save(BeerOrder.builder().orderStatus(BeerOrderStatus.NEW).customer(testCustomer).build());
+        beerOrderRepository.save(BeerOrder.builder().orderStatus(BeerOrderStatus.SHIPPED).customer(testCustomer).build());
+        BeerOrder third = beerOrderRepository.save(BeerOrder.builder().orderStatus(BeerOrderStatus.NEW).customer(testCustomer).build());
+        BeerOrderSearchCriteria criteria = new BeerOrderSearchCriteria(BeerOrderStatus.NEW, testCustomer.getId(), null, null);
+
+        List<BeerOrderSummaryDto> firstWindow = beerOrderRepository.searchSummaries(criteria, null, 1);
+        List<BeerOrderSummaryDto> secondWindow = beerOrderRepository.searchSummaries(criteria, third.getId(), 1);
+
+        assertThat(firstWindow).extracting(BeerOrderSummaryDto::id).containsExactly(third.getId());
+        assertThat(firstWindow.get(0).customerId()).isEqualTo(testCustomer.getId());
+        assertThat(secondWindow).extracting(BeerOrderSummaryDto::id).containsExactly(first.getId());
+        assertThat(beerOrderRepository.searchSummaries(
+                new BeerOrderSearchCriteria(null, null, null, LocalDateTime.now().minusDays(1)), null, 10)).isEmpty();
+    }
+
+    @Test
+    public void testSaveBeerOrderBatchesOrderLineInserts() {
+        BeerOrder beerOrder = BeerOrder.builder()
+                .orderStatus(BeerOrderStatus.NEW)
+                .customer(testCustomer)
+                .build();
+        for (int i = 0; i < 30; i++) {
+            beerOrder.addOrderLine(OrderLine.builder().orderQuantity(1).beer(testBeer).build());
+        }
+        entityManager.flush();
+        Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        beerOrderRepository.save(beerOrder);
+        entityManager.flush();
+
+        // Sequence calls plus one INSERT for the order and one batched INSERT for the 30 lines
+        assertThat(statistics.getEntityInsertCount()).isEqualTo(31);
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(4);
+    }
+}
@@ -3,6 +3,7 @@ package es.menasoft.juniemvc.repositories;
 import es.menasoft.juniemvc.entities.BeerOrder;
 import es.menasoft.juniemvc.entities.BeerOrderShipment;
 import es.menasoft.juniemvc.entities.Customer;
+import es.menasoft.juniemvc.models.BeerOrderStatus;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -12,6 +13,7 @@ import org.springframework.test.context.ActiveProfiles;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -49,7 +51,7 @@ public class BeerOrderShipmentRepositoryTest {
 
         // Create and save a beer order
         beerOrder = BeerOrder.builder()
-                .orderStatus("NEW")
+                .orderStatus(BeerOrderStatus.NEW)
                 .customer(customer)
                 .build();
         beerOrder = beerOrderRepository.save(beerOrder);
@@ -94,6 +96,20 @@ public class BeerOrderShipmentRepositoryTest {
         assertThat(foundShipment.getBeerOrder().getId()).isEqualTo(beerOrder.getId());
     }
 
+    @Test
+    void testStreamAllWithBeerOrder() {
+        // when
+        List<BeerOrderShipment> shipments;
+        try (Stream<BeerOrderShipment> stream = beerOrderShipmentRepository.streamAllWithBeerOrder()) {
+            shipments = stream.toList();
+        }
+
+        // then
+        assertThat(shipments).extracting(BeerOrderShipment::getId)
+                .containsExactly(shipment1.getId(), shipment2.getId());
+        assertThat(shipments.get(0).getBeerOrder().getCustomer().getName()).isEqualTo("Test Customer");
+    }
+
     @Test
     void testFindAllByBeerOrder() {
         // when
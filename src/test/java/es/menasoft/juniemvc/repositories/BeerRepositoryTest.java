@@ -4,10 +4,14 @@ import es.menasoft.juniemvc.entities.Beer;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.test.annotation.Rollback;
 import org.springframework.test.context.TestPropertySource;
 
@@ -319,4 +323,75 @@ class BeerRepositoryTest {
         assertThat(noMatches).isNotNull();
         assertThat(noMatches.getContent()).isEmpty();
     }
+
+    @Test
+    void testScrollByBeerNameWithKeyset() {
+        // Create beers sharing a name to exercise the id tie-breaker
+        for (String name : List.of("Keyset C", "Keyset A", "Keyset B", "Keyset A")) {
+            beerRepository.save(Beer.builder()
+                    .beerName(name)
+                    .beerStyle("IPA")
+                    .upc("123456")
+                    .price(new BigDecimal("12.99"))
+                    .quantityOnHand(100)
+                    .build());
+        }
+
+        Sort sort = Sort.by("beerName");
+        Window<Beer> first = beerRepository.findByBeerNameContainingIgnoreCase(
+                "keyset", ScrollPosition.keyset(), sort, Limit.of(3));
+
+        assertThat(first.getContent()).extracting(Beer::getBeerName)
+                .containsExactly("Keyset A", "Keyset A", "Keyset B");
+        assertThat(first.hasNext()).isTrue();
+
+        Window<Beer> second = beerRepository.findByBeerNameContainingIgnoreCase(
+                "keyset", first.positionAt(first.size() - 1), sort, Limit.of(3));
+
+        assertThat(second.getContent()).extracting(Beer::getBeerName).containsExactly("Keyset C");
+        assertThat(second.hasNext()).isFalse();
+    }
+
+    @Test
+    void testScrollAllBeersDescending() {
+        for (int i = 0; i < 3; i++) {
+            beerRepository.save(Beer.builder()
+                    .beerName("Scroll Beer " + i)
+                    .beerStyle("Lager")
+                    .upc("123456")
+                    .price(new BigDecimal("12.99"))
+                    .quantityOnHand(100)
+                    .build());
+        }
+
+        Sort sort = Sort.by(Sort.Direction.DESC, "id");
+        Window<Beer> first = beerRepository.findBy(ScrollPosition.keyset(), sort, Limit.of(2));
+        Window<Beer> second = beerRepository.findBy(first.positionAt(first.size() - 1), sort, Limit.of(2));
+
+        assertThat(first.getContent()).hasSize(2);
+        assertThat(second.getContent()).isNotEmpty();
+        assertThat(second.getContent().get(0).getId()).isLessThan(first.getContent().get(1).getId());
+    }
+
+    @Test
+    void testFindSliceByBeerStyleWithoutCount() {
+        for (int i = 0; i < 3; i++) {
+            beerRepository.save(Beer.builder()
+                    .beerName("Slice Beer " + i)
+                    .beerStyle("Slice Porter")
+                    .upc("123456")
+                    .price(new BigDecimal("12.99"))
+                    .quantityOnHand(100)
+                    .build());
+        }
+
+        Slice<Beer> first = beerRepository.findSliceByBeerStyleContainingIgnoreCase("slice porter", PageRequest.of(0, 2));
+        Slice<Beer> last = beerRepository.findSliceByBeerStyleContainingIgnoreCase("slice porter", PageRequest.of(1, 2));
+
+        assertThat(first.getContent()).hasSize(2);
+        assertThat(first.hasNext()).isTrue();
+        assertThat(last.getContent()).hasSize(1);
+        assertThat(last.hasNext()).isFalse();
+        assertThat(beerRepository.countByBeerStyleContainingIgnoreCase("SLICE PORTER")).isEqualTo(3);
+    }
 }
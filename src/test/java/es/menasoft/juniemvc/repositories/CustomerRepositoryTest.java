@@ -158,4 +158,29 @@ class CustomerRepositoryTest {
         
         assertThat(deletedCustomer).isEmpty();
     }
-}
\ No newline at end of file
+
+    @Test
+    void testFindAllCachedById() {
+        Customer first = customerRepository.save(Customer.builder()
+                .name("First Customer")
+                .email("first@example.com")
+                .addressLine1("1 Main St")
+                .city("Anytown")
+                .state("CA")
+                .postalCode("12345")
+                .build());
+        Customer second = customerRepository.save(Customer.builder()
+                .name("Second Customer")
+                .email("second@example.com")
+                .addressLine1("2 Main St")
+                .city("Anytown")
+                .state("CA")
+                .postalCode("12345")
+                .build());
+
+        List<Customer> found = customerRepository.findAllCachedById(List.of(second.getId(), -1, first.getId()));
+
+        assertThat(found).extracting(Customer::getName)
+                .containsExactlyInAnyOrder("First Customer", "Second Customer");
+    }
+}
@@ -4,6 +4,7 @@ import es.menasoft.juniemvc.entities.Beer;
 import es.menasoft.juniemvc.entities.BeerOrder;
 import es.menasoft.juniemvc.entities.Customer;
 import es.menasoft.juniemvc.entities.OrderLine;
+import es.menasoft.juniemvc.models.BeerOrderStatus;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -78,13 +79,13 @@ public class OrderLineRepositoryTest {
 
         // Create and save test beer orders
         testBeerOrder1 = BeerOrder.builder()
-                .orderStatus("NEW")
+                .orderStatus(BeerOrderStatus.NEW)
                 .customer(testCustomer)
                 .build();
         testBeerOrder1 = beerOrderRepository.save(testBeerOrder1);
 
         testBeerOrder2 = BeerOrder.builder()
-                .orderStatus("PROCESSING")
+                .orderStatus(BeerOrderStatus.PROCESSING)
                 .customer(testCustomer)
                 .build();
         testBeerOrder2 = beerOrderRepository.save(testBeerOrder2);
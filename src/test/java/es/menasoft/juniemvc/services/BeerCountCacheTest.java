@@ -0,0 +1,56 @@
+package es.menasoft.juniemvc.services;
+
+import es.menasoft.juniemvc.repositories.BeerRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class BeerCountCacheTest {
+
+    @Mock
+    private BeerRepository beerRepository;
+
+    private BeerCountCache beerCountCache;
+
+    @BeforeEach
+    void setUp() {
+        beerCountCache = new BeerCountCache(beerRepository, new BeerCountCacheProperties(100, Duration.ofMinutes(1)));
+    }
+
+    @Test
+    void countIsSharedByFiltersDifferingOnlyInCase() {
+        // Given
+        when(beerRepository.countByBeerNameContainingIgnoreCase("ipa")).thenReturn(7L);
+
+        // When
+        long first = beerCountCache.get("IPA", null);
+        long second = beerCountCache.get("ipa", "");
+
+        // Then
+        assertThat(first).isEqualTo(7L);
+        assertThat(second).isEqualTo(7L);
+        verify(beerRepository, times(1)).countByBeerNameContainingIgnoreCase("ipa");
+    }
+
+    @Test
+    void countWithoutFilterCountsAllBeers() {
+        // Given
+        when(beerRepository.count()).thenReturn(30L);
+
+        // When
+        long result = beerCountCache.get(null, null);
+
+        // Then
+        assertThat(result).isEqualTo(30L);
+    }
+}
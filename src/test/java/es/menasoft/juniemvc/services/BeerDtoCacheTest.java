@@ -0,0 +1,113 @@
+package es.menasoft.juniemvc.services;
+
+import es.menasoft.juniemvc.models.BeerDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BeerDtoCacheTest {
+
+    private BeerDtoCache beerDtoCache;
+
+    @BeforeEach
+    void setUp() {
+        beerDtoCache = new BeerDtoCache(new BeerCacheProperties(100, Duration.ofMinutes(5)));
+    }
+
+    @Test
+    void staleVersionDoesNotReplaceNewerEntry() {
+        // Given
+        beerDtoCache.put(beer(1, 2, "Newer"));
+
+        // When
+        beerDtoCache.put(beer(1, 1, "Older"));
+
+        // Then
+        assertThat(beerDtoCache.getIfPresent(1)).map(BeerDto::beerName).contains("Newer");
+    }
+
+    @Test
+    void evictedBeerOnlyAcceptsNewVersion() {
+        // Given
+        beerDtoCache.put(beer(1, 1, "Cached"));
+        beerDtoCache.evictAfterCommit(1, 2);
+
+        // When
+        Optional<BeerDto> staleLoad = beerDtoCache.get(1, id -> Optional.of(beer(1, 1, "Stale")));
+
+        // Then
+        assertThat(staleLoad).map(BeerDto::beerName).contains("Stale");
+        assertThat(beerDtoCache.getIfPresent(1)).isEmpty();
+
+        // When
+        beerDtoCache.get(1, id -> Optional.of(beer(1, 2, "Fresh")));
+
+        // Then
+        assertThat(beerDtoCache.getIfPresent(1)).map(BeerDto::beerName).contains("Fresh");
+    }
+
+    @Test
+    void getAllOnlyLoadsMisses() {
+        // Given
+        beerDtoCache.put(beer(1, 1, "Cached"));
+        beerDtoCache.markDeletedAfterCommit(2);
+        List<Set<Integer>> loads = new ArrayList<>();
+
+        // When
+        Map<Integer, BeerDto> found = beerDtoCache.getAll(List.of(1, 2, 3, 4, 3), ids -> {
+            loads.add(ids);
+            return List.of(beer(3, 1, "Loaded"));
+        });
+
+        // Then
+        assertThat(loads).containsExactly(Set.of(3, 4));
+        assertThat(found).containsOnlyKeys(1, 3);
+        assertThat(beerDtoCache.getIfPresent(3)).map(BeerDto::beerName).contains("Loaded");
+    }
+
+    @Test
+    void deletedBeerIsNeitherLoadedNorCachedAgain() {
+        // Given
+        beerDtoCache.markDeletedAfterCommit(1);
+        beerDtoCache.put(beer(1, 3, "Resurrected"));
+
+        // When
+        Optional<BeerDto> result = beerDtoCache.get(1, id -> {
+            throw new AssertionError("Deleted beers must not be loaded");
+        });
+
+        // Then
+        assertThat(result).isEmpty();
+    }
+
+    @Test
+    void countsHitsAndMisses() {
+        // Given
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        beerDtoCache.bindTo(registry);
+
+        // When
+        beerDtoCache.get(1, id -> Optional.of(beer(1, 0, "Beer")));
+        beerDtoCache.get(1, id -> Optional.of(beer(1, 0, "Beer")));
+        beerDtoCache.get(2, id -> Optional.empty());
+
+        // Then
+        assertThat(registry.get("cache.gets").tag("result", "hit").functionCounter().count()).isEqualTo(1);
+        assertThat(registry.get("cache.gets").tag("result", "miss").functionCounter().count()).isEqualTo(2);
+    }
+
+    private static BeerDto beer(Integer id, Integer version, String beerName) {
+        return new BeerDto(id, version, beerName, "IPA", null, "123456789", 10,
+                new BigDecimal("9.99"), null, null);
+    }
+}
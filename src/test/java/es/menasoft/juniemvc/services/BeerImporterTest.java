@@ -0,0 +1,114 @@
+package es.menasoft.juniemvc.services;
+
+import es.menasoft.juniemvc.entities.Beer;
+import es.menasoft.juniemvc.models.BeerDto;
+import es.menasoft.juniemvc.models.BeerImportError;
+import es.menasoft.juniemvc.models.BeerImportReport;
+import es.menasoft.juniemvc.models.BeerImportRow;
+import es.menasoft.juniemvc.repositories.BeerRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {"juniemvc.beer-import.chunk-size=2", "juniemvc.beer-import.max-reported-errors=2"})
+@ActiveProfiles("test")
+class BeerImporterTest {
+
+    // Every test imports its own UPCs, so rows a failed test leaves behind cannot clash with another test
+    private static final String UPC_PREFIX = "import-";
+
+    @Autowired
+    private BeerService beerService;
+
+    @Autowired
+    private BeerRepository beerRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Deleted with SQL rather than through loaded entities, which can be stale by the time the test ends
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM beer WHERE upc LIKE ?", UPC_PREFIX + "%");
+    }
+
+    @Test
+    void importBeers_WritesValidRowsInChunksAndReportsRejectedRows() {
+        // Given
+        String upcPrefix = UPC_PREFIX + "chunks-";
+        List<BeerImportRow> rows = List.of(
+                BeerImportRow.read(1, beer("Imported One", upcPrefix + 1)),
+                BeerImportRow.read(2, beer("", upcPrefix + 2)),
+                BeerImportRow.read(3, beer("Imported Three", upcPrefix + 3)),
+                BeerImportRow.unreadable(4, "Cannot deserialize value of type `java.math.BigDecimal`"),
+                BeerImportRow.read(5, beer("Imported Five", upcPrefix + 5)));
+
+        // When
+        BeerImportReport report = beerService.importBeers(rows.iterator());
+
+        // Then
+        assertThat(report.imported()).isEqualTo(3);
+        assertThat(report.rejected()).isEqualTo(2);
+        assertThat(report.errors()).extracting(BeerImportError::row).containsExactly(2L, 4L);
+        assertThat(report.errors().get(0).messages()).containsExactly("beerName: Beer name is required");
+        assertThat(importedBeers(upcPrefix)).extracting(Beer::getBeerName)
+                .containsExactlyInAnyOrder("Imported One", "Imported Three", "Imported Five");
+        assertThat(importedBeers(upcPrefix)).allSatisfy(beer -> assertThat(beer.getVersion()).isZero());
+    }
+
+    @Test
+    void importBeers_ListsOnlyTheFirstRejectedRows() {
+        // Given
+        String upcPrefix = UPC_PREFIX + "errors-";
+        List<BeerImportRow> rows = List.of(
+                BeerImportRow.unreadable(1, "Unexpected end of input"),
+                BeerImportRow.read(2, beer("", upcPrefix + 2)),
+                BeerImportRow.read(3, beer("Imported Three", upcPrefix + 3)),
+                BeerImportRow.read(4, beer("", upcPrefix + 4)));
+
+        // When
+        BeerImportReport report = beerService.importBeers(rows.iterator());
+
+        // Then
+        assertThat(report.imported()).isEqualTo(1);
+        assertThat(report.rejected()).isEqualTo(3);
+        assertThat(report.errors()).extracting(BeerImportError::row).containsExactly(1L, 2L);
+    }
+
+    @Test
+    void importBeers_BypassesSecondLevelCache() {
+        // Given
+        String upc = UPC_PREFIX + "uncached-1";
+        // The cache regions outlive test contexts, which recreate the schema and hand out the same IDs again
+        entityManagerFactory.getCache().evict(Beer.class);
+
+        // When
+        beerService.importBeers(List.of(BeerImportRow.read(1, beer("Uncached Import", upc))).iterator());
+
+        // Then
+        Integer id = jdbcTemplate.queryForObject("SELECT id FROM beer WHERE upc = ?", Integer.class, upc);
+        assertThat(entityManagerFactory.getCache().contains(Beer.class, id)).isFalse();
+    }
+
+    private List<Beer> importedBeers(String upcPrefix) {
+        return beerRepository.findAll().stream()
+                .filter(beer -> beer.getUpc().startsWith(upcPrefix))
+                .toList();
+    }
+
+    private static BeerDto beer(String beerName, String upc) {
+        return new BeerDto(null, 7, beerName, "Lager", null, upc, 24, new BigDecimal("3.49"), null, null);
+    }
+}
@@ -0,0 +1,165 @@
+package es.menasoft.juniemvc.services;
+
+import es.menasoft.juniemvc.exceptions.EntityNotFoundException;
+import es.menasoft.juniemvc.exceptions.TooManyRequestsException;
+import es.menasoft.juniemvc.models.BeerOrderDto;
+import es.menasoft.juniemvc.models.BeerOrderIntakeDto;
+import es.menasoft.juniemvc.models.BeerOrderStatus;
+import es.menasoft.juniemvc.models.CreateBeerOrderCommand;
+import es.menasoft.juniemvc.models.OrderLineDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class BeerOrderIntakeServiceImplTest {
+
+    @Mock
+    private BeerOrderService beerOrderService;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private BeerOrderIntakeServiceImpl intakeService;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (intakeService != null) {
+            intakeService.close();
+        }
+    }
+
+    @Test
+    void queuedOrderIsCreatedAndCanBeFollowed() {
+        // Given
+        CreateBeerOrderCommand command = command(1);
+        when(beerOrderService.createBeerOrders(List.of(command))).thenReturn(List.of(order(42)));
+        intakeService = intakeService(10);
+
+        // When
+        BeerOrderIntakeDto accepted = intakeService.submit(command);
+
+        // Then
+        assertThat(accepted.status()).isEqualTo(BeerOrderIntakeDto.Status.PENDING);
+        BeerOrderIntakeDto done = awaitOutcome(accepted.id());
+        assertThat(done.status()).isEqualTo(BeerOrderIntakeDto.Status.CREATED);
+        assertThat(done.orderId()).isEqualTo(42);
+        assertThat(registry.get("orders.intake.batch.size").summary().count()).isEqualTo(1);
+    }
+
+    @Test
+    void failedBatchIsRetriedOrderByOrder() throws InterruptedException {
+        // Given
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CreateBeerOrderCommand blocker = command(1);
+        CreateBeerOrderCommand good = command(2);
+        CreateBeerOrderCommand bad = command(999);
+        when(beerOrderService.createBeerOrders(List.of(blocker))).thenAnswer(invocation -> {
+            writing.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return List.of(order(1));
+        });
+        when(beerOrderService.createBeerOrders(List.of(good, bad)))
+                .thenThrow(new EntityNotFoundException("Customer", 999));
+        when(beerOrderService.createBeerOrder(good)).thenReturn(order(2));
+        when(beerOrderService.createBeerOrder(bad)).thenThrow(new EntityNotFoundException("Customer", 999));
+        intakeService = intakeService(10);
+        intakeService.submit(blocker);
+        assertThat(writing.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // When
+        UUID goodId = intakeService.submit(good).id();
+        UUID badId = intakeService.submit(bad).id();
+        release.countDown();
+
+        // Then
+        assertThat(awaitOutcome(goodId).orderId()).isEqualTo(2);
+        BeerOrderIntakeDto failed = awaitOutcome(badId);
+        assertThat(failed.status()).isEqualTo(BeerOrderIntakeDto.Status.FAILED);
+        assertThat(failed.errorCode()).isEqualTo(BeerOrderIntakeDto.ErrorCode.NOT_FOUND);
+        assertThat(failed.error()).contains("Customer not found with ID: 999");
+    }
+
+    @Test
+    void unexpectedFailureIsReportedWithoutItsMessage() {
+        // Given
+        CreateBeerOrderCommand command = command(1);
+        when(beerOrderService.createBeerOrders(List.of(command)))
+                .thenThrow(new IllegalStateException("Connection to jdbc:h2:mem:internal refused"));
+        when(beerOrderService.createBeerOrder(command))
+                .thenThrow(new IllegalStateException("Connection to jdbc:h2:mem:internal refused"));
+        intakeService = intakeService(10);
+
+        // When
+        UUID id = intakeService.submit(command).id();
+
+        // Then
+        BeerOrderIntakeDto failed = awaitOutcome(id);
+        assertThat(failed.status()).isEqualTo(BeerOrderIntakeDto.Status.FAILED);
+        assertThat(failed.errorCode()).isEqualTo(BeerOrderIntakeDto.ErrorCode.INTERNAL_ERROR);
+        assertThat(failed.error()).doesNotContain("jdbc");
+    }
+
+    @Test
+    void fullQueueRejectsOrders() throws InterruptedException {
+        // Given
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(beerOrderService.createBeerOrders(anyList())).thenAnswer(invocation -> {
+            writing.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return List.of(order(1));
+        });
+        intakeService = intakeService(1);
+        intakeService.submit(command(1));
+        assertThat(writing.await(5, TimeUnit.SECONDS)).isTrue();
+        intakeService.submit(command(2));
+
+        // When/Then
+        assertThatThrownBy(() -> intakeService.submit(command(3)))
+                .isInstanceOf(TooManyRequestsException.class);
+        assertThat(registry.get("orders.intake.rejected").counter().count()).isEqualTo(1);
+        assertThat(registry.get("orders.intake.queue.depth").gauge().value()).isEqualTo(1);
+        release.countDown();
+    }
+
+    private BeerOrderIntakeServiceImpl intakeService(int queueCapacity) {
+        return new BeerOrderIntakeServiceImpl(beerOrderService,
+                new OrderIntakeProperties(true, queueCapacity, 10, Duration.ofSeconds(1), Duration.ofMinutes(1),
+                        100),
+                registry);
+    }
+
+    private BeerOrderIntakeDto awaitOutcome(UUID id) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline) {
+            BeerOrderIntakeDto intake = intakeService.getIntake(id).orElseThrow();
+            if (intake.status() != BeerOrderIntakeDto.Status.PENDING) {
+                return intake;
+            }
+            Thread.onSpinWait();
+        }
+        throw new AssertionError("Order intake " + id + " is still pending");
+    }
+
+    private static CreateBeerOrderCommand command(int customerId) {
+        return new CreateBeerOrderCommand(customerId, List.of(new OrderLineDto(null, 1, 1, null)));
+    }
+
+    private static BeerOrderDto order(int id) {
+        return new BeerOrderDto(id, 0, BeerOrderStatus.NEW, null, null, 1, List.of());
+    }
+}
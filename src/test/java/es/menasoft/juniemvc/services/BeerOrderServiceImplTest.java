@@ -4,9 +4,15 @@ import es.menasoft.juniemvc.entities.Beer;
 import es.menasoft.juniemvc.entities.BeerOrder;
 import es.menasoft.juniemvc.entities.Customer;
 import es.menasoft.juniemvc.entities.OrderLine;
+import es.menasoft.juniemvc.exceptions.BadRequestException;
+import es.menasoft.juniemvc.exceptions.InvalidStatusTransitionException;
 import es.menasoft.juniemvc.mappers.BeerOrderMapper;
 import es.menasoft.juniemvc.mappers.OrderLineMapper;
 import es.menasoft.juniemvc.models.BeerOrderDto;
+import es.menasoft.juniemvc.models.BeerOrderSearchCriteria;
+import es.menasoft.juniemvc.models.BeerOrderStatus;
+import es.menasoft.juniemvc.models.BeerOrderStatusChangedEvent;
+import es.menasoft.juniemvc.models.BeerOrderSummaryDto;
 import es.menasoft.juniemvc.models.CreateBeerOrderCommand;
 import es.menasoft.juniemvc.models.OrderLineDto;
 import es.menasoft.juniemvc.repositories.BeerOrderRepository;
@@ -17,15 +23,20 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.*;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -46,6 +57,18 @@ class BeerOrderServiceImplTest {
     @Mock
     private OrderLineMapper orderLineMapper;
 
+    @Mock
+    private InventoryReservations inventoryReservations;
+
+    @Mock
+    private BeerOrderStatusCounts beerOrderStatusCounts;
+
+    @Mock
+    private OutboxEvents outboxEvents;
+
+    @Spy
+    private SingleFlight singleFlight = new SingleFlight(new SingleFlightProperties(Duration.ofSeconds(1)));
+
     @InjectMocks
     private BeerOrderServiceImpl beerOrderService;
 
@@ -88,7 +111,7 @@ class BeerOrderServiceImplTest {
         // Setup test BeerOrder
         testBeerOrder = BeerOrder.builder()
                 .id(1)
-                .orderStatus("NEW")
+                .orderStatus(BeerOrderStatus.NEW)
                 .customer(testCustomer)
                 .build();
         testBeerOrder.addOrderLine(testOrderLine);
@@ -96,7 +119,7 @@ class BeerOrderServiceImplTest {
         // Setup another test BeerOrder
         BeerOrder testBeerOrder2 = BeerOrder.builder()
                 .id(2)
-                .orderStatus("PROCESSING")
+                .orderStatus(BeerOrderStatus.PROCESSING)
                 .customer(testCustomer)
                 .build();
 
@@ -114,7 +137,7 @@ class BeerOrderServiceImplTest {
         testBeerOrderDto = new BeerOrderDto(
                 1,
                 null,
-                "NEW",
+                BeerOrderStatus.NEW,
                 null,
                 null,
                 1,
@@ -124,7 +147,7 @@ class BeerOrderServiceImplTest {
         BeerOrderDto testBeerOrderDto2 = new BeerOrderDto(
                 2,
                 null,
-                "PROCESSING",
+                BeerOrderStatus.PROCESSING,
                 null,
                 null,
                 1,
@@ -143,7 +166,7 @@ class BeerOrderServiceImplTest {
         );
 
         when(customerRepository.findById(1)).thenReturn(Optional.of(testCustomer));
-        when(beerRepository.findById(1)).thenReturn(Optional.of(testBeer));
+        when(beerRepository.findAllById(Set.of(1))).thenReturn(List.of(testBeer));
         when(beerOrderMapper.createBeerOrderCommandToBeerOrder(command, testCustomer)).thenReturn(testBeerOrder);
         when(orderLineMapper.orderLineDtoToOrderLine(any(OrderLineDto.class), eq(testBeer), eq(testBeerOrder))).thenReturn(testOrderLine);
         when(beerOrderRepository.save(any(BeerOrder.class))).thenReturn(testBeerOrder);
@@ -155,15 +178,18 @@ class BeerOrderServiceImplTest {
         // Then
         assertThat(result).isNotNull();
         assertThat(result.id()).isEqualTo(1);
-        assertThat(result.orderStatus()).isEqualTo("NEW");
+        assertThat(result.orderStatus()).isEqualTo(BeerOrderStatus.NEW);
         assertThat(result.customerId()).isEqualTo(1);
         assertThat(result.orderLines()).hasSize(1);
         verify(customerRepository).findById(1);
-        verify(beerRepository).findById(1);
+        verify(beerRepository).findAllById(Set.of(1));
+        verify(beerRepository, never()).findById(any());
         verify(beerOrderMapper).createBeerOrderCommandToBeerOrder(command, testCustomer);
         verify(orderLineMapper).orderLineDtoToOrderLine(any(OrderLineDto.class), eq(testBeer), eq(testBeerOrder));
         verify(beerOrderRepository).save(any(BeerOrder.class));
+        verify(beerOrderStatusCounts).add(BeerOrderStatus.NEW, 1);
         verify(beerOrderMapper).beerOrderToBeerOrderDto(testBeerOrder);
+        verify(outboxEvents).append(OutboxEvents.BEER_ORDER_CREATED, 1, testBeerOrderDto);
     }
 
     @Test
@@ -192,7 +218,7 @@ class BeerOrderServiceImplTest {
         );
 
         when(customerRepository.findById(1)).thenReturn(Optional.of(testCustomer));
-        when(beerRepository.findById(999)).thenReturn(Optional.empty());
+        when(beerRepository.findAllById(Set.of(999))).thenReturn(List.of());
         when(beerOrderMapper.createBeerOrderCommandToBeerOrder(command, testCustomer)).thenReturn(testBeerOrder);
 
         // When/Then
@@ -200,14 +226,108 @@ class BeerOrderServiceImplTest {
                 .isInstanceOf(RuntimeException.class)
                 .hasMessageContaining("Beer not found with ID: 999");
         verify(customerRepository).findById(1);
-        verify(beerRepository).findById(999);
+        verify(beerRepository).findAllById(Set.of(999));
         verify(beerOrderMapper).createBeerOrderCommandToBeerOrder(command, testCustomer);
     }
 
+    @Test
+    void createBeerOrderReportsAllMissingBeers() {
+        // Given
+        CreateBeerOrderCommand command = new CreateBeerOrderCommand(
+                1,
+                List.of(new OrderLineDto(null, 5, 1, null),
+                        new OrderLineDto(null, 2, 998, null),
+                        new OrderLineDto(null, 3, 999, null))
+        );
+
+        when(customerRepository.findById(1)).thenReturn(Optional.of(testCustomer));
+        when(beerRepository.findAllById(Set.of(1, 998, 999))).thenReturn(List.of(testBeer));
+        when(beerOrderMapper.createBeerOrderCommandToBeerOrder(command, testCustomer)).thenReturn(testBeerOrder);
+
+        // When/Then
+        assertThatThrownBy(() -> beerOrderService.createBeerOrder(command))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessageContaining("Beer not found with ID: [998, 999]");
+        verify(beerOrderRepository, never()).save(any(BeerOrder.class));
+        verify(inventoryReservations, never()).reserve(any());
+    }
+
+    @Test
+    void createBeerOrderMergesDuplicateBeerLines() {
+        // Given
+        CreateBeerOrderCommand command = new CreateBeerOrderCommand(
+                1,
+                List.of(new OrderLineDto(null, 5, 1, null),
+                        new OrderLineDto(null, 3, 1, null))
+        );
+
+        when(customerRepository.findById(1)).thenReturn(Optional.of(testCustomer));
+        when(beerRepository.findAllById(Set.of(1))).thenReturn(List.of(testBeer));
+        when(beerOrderMapper.createBeerOrderCommandToBeerOrder(command, testCustomer)).thenReturn(testBeerOrder);
+        when(orderLineMapper.orderLineDtoToOrderLine(any(OrderLineDto.class), eq(testBeer), eq(testBeerOrder))).thenReturn(testOrderLine);
+        when(beerOrderRepository.save(any(BeerOrder.class))).thenReturn(testBeerOrder);
+        when(beerOrderMapper.beerOrderToBeerOrderDto(testBeerOrder)).thenReturn(testBeerOrderDto);
+
+        // When
+        beerOrderService.createBeerOrder(command);
+
+        // Then
+        verify(orderLineMapper, times(1)).orderLineDtoToOrderLine(
+                new OrderLineDto(null, 8, 1, null), testBeer, testBeerOrder);
+        verify(inventoryReservations).reserve(Map.of(1, 8));
+    }
+
+    @Test
+    void createBeerOrdersReservesTheWholeBatchAtOnce() {
+        // Given
+        CreateBeerOrderCommand first = new CreateBeerOrderCommand(1, List.of(new OrderLineDto(null, 5, 1, null)));
+        CreateBeerOrderCommand second = new CreateBeerOrderCommand(1, List.of(new OrderLineDto(null, 3, 1, null)));
+        BeerOrder secondBeerOrder = testBeerOrderList.get(1);
+        BeerOrderDto secondBeerOrderDto = testBeerOrderDtoList.get(1);
+
+        when(customerRepository.findAllCachedById(Set.of(1))).thenReturn(List.of(testCustomer));
+        when(beerRepository.findAllById(Set.of(1))).thenReturn(List.of(testBeer));
+        when(beerOrderMapper.createBeerOrderCommandToBeerOrder(first, testCustomer)).thenReturn(testBeerOrder);
+        when(beerOrderMapper.createBeerOrderCommandToBeerOrder(second, testCustomer)).thenReturn(secondBeerOrder);
+        when(orderLineMapper.orderLineDtoToOrderLine(any(OrderLineDto.class), eq(testBeer), any(BeerOrder.class)))
+                .thenReturn(testOrderLine);
+        when(beerOrderRepository.saveAll(List.of(testBeerOrder, secondBeerOrder)))
+                .thenReturn(List.of(testBeerOrder, secondBeerOrder));
+        when(beerOrderMapper.beerOrderToBeerOrderDto(testBeerOrder)).thenReturn(testBeerOrderDto);
+        when(beerOrderMapper.beerOrderToBeerOrderDto(secondBeerOrder)).thenReturn(secondBeerOrderDto);
+
+        // When
+        List<BeerOrderDto> result = beerOrderService.createBeerOrders(List.of(first, second));
+
+        // Then
+        assertThat(result).containsExactly(testBeerOrderDto, secondBeerOrderDto);
+        verify(beerRepository, times(1)).findAllById(Set.of(1));
+        verify(inventoryReservations, times(1)).reserve(Map.of(1, 8));
+        verify(beerOrderStatusCounts).add(BeerOrderStatus.NEW, 2);
+        verify(outboxEvents).appendAll(OutboxEvents.BEER_ORDER_CREATED,
+                Map.of(1, testBeerOrderDto, 2, secondBeerOrderDto));
+    }
+
+    @Test
+    void createBeerOrdersFailsTheBatchForAMissingCustomer() {
+        // Given
+        CreateBeerOrderCommand known = new CreateBeerOrderCommand(1, List.of(new OrderLineDto(null, 5, 1, null)));
+        CreateBeerOrderCommand unknown = new CreateBeerOrderCommand(999, List.of(new OrderLineDto(null, 5, 1, null)));
+
+        when(customerRepository.findAllCachedById(Set.of(1, 999))).thenReturn(List.of(testCustomer));
+
+        // When/Then
+        assertThatThrownBy(() -> beerOrderService.createBeerOrders(List.of(known, unknown)))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessageContaining("Customer not found with ID: 999");
+        verify(inventoryReservations, never()).reserve(any());
+        verify(beerOrderRepository, never()).saveAll(any());
+    }
+
     @Test
     void getBeerOrderById() {
         // Given
-        when(beerOrderRepository.findById(1)).thenReturn(Optional.of(testBeerOrder));
+        when(beerOrderRepository.findWithOrderLinesById(1)).thenReturn(Optional.of(testBeerOrder));
         when(beerOrderMapper.beerOrderToBeerOrderDto(testBeerOrder)).thenReturn(testBeerOrderDto);
 
         // When
@@ -216,28 +336,28 @@ class BeerOrderServiceImplTest {
         // Then
         assertThat(result).isPresent();
         assertThat(result.get().id()).isEqualTo(1);
-        assertThat(result.get().orderStatus()).isEqualTo("NEW");
-        verify(beerOrderRepository).findById(1);
+        assertThat(result.get().orderStatus()).isEqualTo(BeerOrderStatus.NEW);
+        verify(beerOrderRepository).findWithOrderLinesById(1);
         verify(beerOrderMapper).beerOrderToBeerOrderDto(testBeerOrder);
     }
 
     @Test
     void getBeerOrderByIdNotFound() {
         // Given
-        when(beerOrderRepository.findById(999)).thenReturn(Optional.empty());
+        when(beerOrderRepository.findWithOrderLinesById(999)).thenReturn(Optional.empty());
 
         // When
         Optional<BeerOrderDto> result = beerOrderService.getBeerOrderById(999);
 
         // Then
         assertThat(result).isEmpty();
-        verify(beerOrderRepository).findById(999);
+        verify(beerOrderRepository).findWithOrderLinesById(999);
     }
 
     @Test
     void getAllBeerOrders() {
         // Given
-        when(beerOrderRepository.findAll()).thenReturn(testBeerOrderList);
+        when(beerOrderRepository.findAllWithOrderLinesBy()).thenReturn(testBeerOrderList);
         when(beerOrderMapper.beerOrderToBeerOrderDto(testBeerOrder)).thenReturn(testBeerOrderDto);
         when(beerOrderMapper.beerOrderToBeerOrderDto(testBeerOrderList.get(1))).thenReturn(testBeerOrderDtoList.get(1));
 
@@ -247,18 +367,51 @@ class BeerOrderServiceImplTest {
         // Then
         assertThat(result).hasSize(2);
         assertThat(result.get(0).id()).isEqualTo(1);
-        assertThat(result.get(0).orderStatus()).isEqualTo("NEW");
+        assertThat(result.get(0).orderStatus()).isEqualTo(BeerOrderStatus.NEW);
         assertThat(result.get(1).id()).isEqualTo(2);
-        assertThat(result.get(1).orderStatus()).isEqualTo("PROCESSING");
-        verify(beerOrderRepository).findAll();
+        assertThat(result.get(1).orderStatus()).isEqualTo(BeerOrderStatus.PROCESSING);
+        verify(beerOrderRepository).findAllWithOrderLinesBy();
         verify(beerOrderMapper).beerOrderToBeerOrderDto(testBeerOrder);
         verify(beerOrderMapper).beerOrderToBeerOrderDto(testBeerOrderList.get(1));
     }
 
+    @Test
+    void searchBeerOrdersContinuesBeforeLastId() {
+        // Given
+        BeerOrderSearchCriteria criteria = new BeerOrderSearchCriteria(BeerOrderStatus.NEW, null, null, null);
+        BeerOrderSummaryDto newer = new BeerOrderSummaryDto(8, 0, BeerOrderStatus.NEW, 1, null, null);
+        BeerOrderSummaryDto older = new BeerOrderSummaryDto(4, 0, BeerOrderStatus.NEW, 1, null, null);
+        when(beerOrderRepository.searchSummaries(criteria, 10, 2)).thenReturn(List.of(newer, older));
+
+        // When
+        Window<BeerOrderSummaryDto> result = beerOrderService.searchBeerOrders(
+                criteria, ScrollPosition.forward(Map.of("id", 10)), 1);
+
+        // Then
+        assertThat(result.getContent()).containsExactly(newer);
+        assertThat(result.hasNext()).isTrue();
+        assertThat(result.positionAt(0)).isEqualTo(ScrollPosition.forward(Map.of("id", 8)));
+    }
+
+    @Test
+    void searchBeerOrdersRejectsPositionWithoutId() {
+        // Given
+        BeerOrderSearchCriteria criteria = new BeerOrderSearchCriteria(null, null, null, null);
+
+        // When/Then
+        assertThatThrownBy(() -> beerOrderService.searchBeerOrders(
+                criteria, ScrollPosition.forward(Map.of("createdDate", "2024-01-01T00:00:00")), 1))
+                .isInstanceOf(BadRequestException.class);
+        assertThatThrownBy(() -> beerOrderService.searchBeerOrders(
+                criteria, ScrollPosition.forward(Map.of("id", "10")), 1))
+                .isInstanceOf(BadRequestException.class);
+        verify(beerOrderRepository, never()).searchSummaries(any(), any(), anyInt());
+    }
+
     @Test
     void getBeerOrdersByCustomerId() {
         // Given
-        when(beerOrderRepository.findAllByCustomerId(1)).thenReturn(testBeerOrderList);
+        when(beerOrderRepository.findAllWithOrderLinesByCustomerId(1)).thenReturn(testBeerOrderList);
         when(beerOrderMapper.beerOrderToBeerOrderDto(testBeerOrder)).thenReturn(testBeerOrderDto);
         when(beerOrderMapper.beerOrderToBeerOrderDto(testBeerOrderList.get(1))).thenReturn(testBeerOrderDtoList.get(1));
 
@@ -268,10 +421,10 @@ class BeerOrderServiceImplTest {
         // Then
         assertThat(result).hasSize(2);
         assertThat(result.get(0).id()).isEqualTo(1);
-        assertThat(result.get(0).orderStatus()).isEqualTo("NEW");
+        assertThat(result.get(0).orderStatus()).isEqualTo(BeerOrderStatus.NEW);
         assertThat(result.get(1).id()).isEqualTo(2);
-        assertThat(result.get(1).orderStatus()).isEqualTo("PROCESSING");
-        verify(beerOrderRepository).findAllByCustomerId(1);
+        assertThat(result.get(1).orderStatus()).isEqualTo(BeerOrderStatus.PROCESSING);
+        verify(beerOrderRepository).findAllWithOrderLinesByCustomerId(1);
         verify(beerOrderMapper).beerOrderToBeerOrderDto(testBeerOrder);
         verify(beerOrderMapper).beerOrderToBeerOrderDto(testBeerOrderList.get(1));
     }
@@ -282,14 +435,14 @@ class BeerOrderServiceImplTest {
         BeerOrderDto beerOrderDtoToUpdate = new BeerOrderDto(
                 null,
                 null,
-                "COMPLETED",
+                BeerOrderStatus.PROCESSING,
                 null,
                 null,
                 1,
                 List.of(testOrderLineDto)
         );
 
-        when(beerOrderRepository.findById(1)).thenReturn(Optional.of(testBeerOrder));
+        when(beerOrderRepository.findWithOrderLinesById(1)).thenReturn(Optional.of(testBeerOrder));
         when(beerOrderRepository.save(any(BeerOrder.class))).thenReturn(testBeerOrder);
         when(beerOrderMapper.beerOrderToBeerOrderDto(testBeerOrder)).thenReturn(testBeerOrderDto);
 
@@ -299,8 +452,10 @@ class BeerOrderServiceImplTest {
         // Then
         assertThat(result).isPresent();
         assertThat(result.get().id()).isEqualTo(1);
-        verify(beerOrderRepository).findById(1);
+        assertThat(testBeerOrder.getOrderStatus()).isEqualTo(BeerOrderStatus.PROCESSING);
+        verify(beerOrderRepository).findWithOrderLinesById(1);
         verify(beerOrderRepository).save(any(BeerOrder.class));
+        verify(beerOrderStatusCounts).move(BeerOrderStatus.NEW, BeerOrderStatus.PROCESSING, 1);
         verify(beerOrderMapper).beerOrderToBeerOrderDto(testBeerOrder);
     }
 
@@ -310,52 +465,69 @@ class BeerOrderServiceImplTest {
         BeerOrderDto beerOrderDtoToUpdate = new BeerOrderDto(
                 null,
                 null,
-                "COMPLETED",
+                BeerOrderStatus.PROCESSING,
                 null,
                 null,
                 1,
                 List.of(testOrderLineDto)
         );
 
-        when(beerOrderRepository.findById(999)).thenReturn(Optional.empty());
+        when(beerOrderRepository.findWithOrderLinesById(999)).thenReturn(Optional.empty());
 
         // When
         Optional<BeerOrderDto> result = beerOrderService.updateBeerOrder(999, beerOrderDtoToUpdate);
 
         // Then
         assertThat(result).isEmpty();
-        verify(beerOrderRepository).findById(999);
+        verify(beerOrderRepository).findWithOrderLinesById(999);
     }
 
     @Test
     void updateBeerOrderStatus() {
         // Given
-        when(beerOrderRepository.findById(1)).thenReturn(Optional.of(testBeerOrder));
+        when(beerOrderRepository.findWithOrderLinesById(1)).thenReturn(Optional.of(testBeerOrder));
         when(beerOrderRepository.save(any(BeerOrder.class))).thenReturn(testBeerOrder);
         when(beerOrderMapper.beerOrderToBeerOrderDto(testBeerOrder)).thenReturn(testBeerOrderDto);
 
         // When
-        Optional<BeerOrderDto> result = beerOrderService.updateBeerOrderStatus(1, "COMPLETED");
+        Optional<BeerOrderDto> result = beerOrderService.updateBeerOrderStatus(1, BeerOrderStatus.PROCESSING);
 
         // Then
         assertThat(result).isPresent();
         assertThat(result.get().id()).isEqualTo(1);
-        verify(beerOrderRepository).findById(1);
+        assertThat(testBeerOrder.getOrderStatus()).isEqualTo(BeerOrderStatus.PROCESSING);
+        verify(beerOrderRepository).findWithOrderLinesById(1);
         verify(beerOrderRepository).save(any(BeerOrder.class));
+        verify(beerOrderStatusCounts).move(BeerOrderStatus.NEW, BeerOrderStatus.PROCESSING, 1);
+        verify(outboxEvents).append(OutboxEvents.BEER_ORDER_STATUS_CHANGED, 1,
+                new BeerOrderStatusChangedEvent(1, BeerOrderStatus.NEW, BeerOrderStatus.PROCESSING));
         verify(beerOrderMapper).beerOrderToBeerOrderDto(testBeerOrder);
     }
 
+    @Test
+    void updateBeerOrderStatusRejectsAnInvalidTransition() {
+        // Given
+        when(beerOrderRepository.findWithOrderLinesById(1)).thenReturn(Optional.of(testBeerOrder));
+
+        // When / Then
+        assertThatThrownBy(() -> beerOrderService.updateBeerOrderStatus(1, BeerOrderStatus.COMPLETED))
+                .isInstanceOf(InvalidStatusTransitionException.class);
+        assertThat(testBeerOrder.getOrderStatus()).isEqualTo(BeerOrderStatus.NEW);
+        verify(beerOrderRepository, never()).save(any(BeerOrder.class));
+        verifyNoInteractions(beerOrderStatusCounts, outboxEvents);
+    }
+
     @Test
     void updateBeerOrderStatusNotFound() {
         // Given
-        when(beerOrderRepository.findById(999)).thenReturn(Optional.empty());
+        when(beerOrderRepository.findWithOrderLinesById(999)).thenReturn(Optional.empty());
 
         // When
-        Optional<BeerOrderDto> result = beerOrderService.updateBeerOrderStatus(999, "COMPLETED");
+        Optional<BeerOrderDto> result = beerOrderService.updateBeerOrderStatus(999, BeerOrderStatus.PROCESSING);
 
         // Then
         assertThat(result).isEmpty();
-        verify(beerOrderRepository).findById(999);
+        verify(beerOrderRepository).findWithOrderLinesById(999);
     }
 
     @Test
@@ -369,7 +541,9 @@ class BeerOrderServiceImplTest {
         // Then
         assertThat(result).isTrue();
         verify(beerOrderRepository).findById(1);
+        verify(inventoryReservations).release(List.of(1));
         verify(beerOrderRepository).delete(testBeerOrder);
+        verify(beerOrderStatusCounts).add(BeerOrderStatus.NEW, -1);
     }
 
     @Test
@@ -38,6 +38,9 @@ class BeerOrderShipmentServiceImplTest {
     @Mock
     BeerOrderShipmentMapper beerOrderShipmentMapper;
 
+    @Mock
+    OutboxEvents outboxEvents;
+
     @InjectMocks
     BeerOrderShipmentServiceImpl beerOrderShipmentService;
 
@@ -97,6 +100,7 @@ class BeerOrderShipmentServiceImplTest {
         verify(beerOrderShipmentMapper).createBeerOrderShipmentCommandToBeerOrderShipment(any(), any());
         verify(beerOrderShipmentRepository).save(any());
         verify(beerOrderShipmentMapper).beerOrderShipmentToBeerOrderShipmentDto(any());
+        verify(outboxEvents).append(OutboxEvents.BEER_ORDER_SHIPMENT_CREATED, 1, beerOrderShipmentDto);
     }
 
     @Test
@@ -0,0 +1,115 @@
+package es.menasoft.juniemvc.services;
+
+import es.menasoft.juniemvc.models.BeerOrderStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static es.menasoft.juniemvc.models.BeerOrderStatus.NEW;
+import static es.menasoft.juniemvc.models.BeerOrderStatus.PROCESSING;
+import static org.assertj.core.api.Assertions.assertThat;
+
+// The counts are adjusted without writing orders, every test takes its adjustments back
+@SpringBootTest(properties = "juniemvc.order-status-count.slots=4")
+@ActiveProfiles("test")
+class BeerOrderStatusCountsTest {
+
+    private static final int WRITES = 40;
+
+    @Autowired
+    private BeerOrderStatusCounts beerOrderStatusCounts;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final Map<BeerOrderStatus, Integer> adjusted = new HashMap<>();
+
+    @AfterEach
+    void tearDown() {
+        adjusted.forEach((status, count) -> beerOrderStatusCounts.add(status, -count));
+    }
+
+    // Contexts sharing the in-memory database may have created more slots, never fewer
+    @Test
+    void everyStatusIsCountedInEverySlot() {
+        // When
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                "SELECT status_code, COUNT(*) AS slots FROM beer_order_status_count WHERE slot < 4 GROUP BY status_code");
+
+        // Then
+        assertThat(rows).hasSize(BeerOrderStatus.values().length)
+                .allSatisfy(row -> assertThat(((Number) row.get("slots")).intValue()).isEqualTo(4));
+    }
+
+    @Test
+    void countsOfConcurrentWritersAreSpreadOverTheSlotsAndSummed() {
+        // Given
+        long before = beerOrderStatusCounts.getCounts().get(NEW);
+        Map<Short, Long> slotsBefore = slotCounts(NEW);
+
+        // When
+        for (int i = 0; i < WRITES; i++) {
+            transactionTemplate.executeWithoutResult(status -> add(NEW, 1));
+        }
+
+        // Then
+        assertThat(beerOrderStatusCounts.getCounts().get(NEW)).isEqualTo(before + WRITES);
+        Map<Short, Long> slotsAfter = slotCounts(NEW);
+        assertThat(slotsAfter.keySet()).filteredOn(slot -> !slotsAfter.get(slot).equals(slotsBefore.get(slot)))
+                .hasSizeGreaterThan(1);
+    }
+
+    @Test
+    void oneTransactionAdjustsTheRowsOfOneSlot() {
+        // Given
+        Map<Short, Long> newBefore = slotCounts(NEW);
+        Map<Short, Long> processingBefore = slotCounts(PROCESSING);
+
+        // When
+        transactionTemplate.executeWithoutResult(status -> {
+            add(NEW, 1);
+            add(PROCESSING, 1);
+        });
+
+        // Then
+        Set<Short> changed = new HashSet<>();
+        slotCounts(NEW).forEach((slot, count) -> {
+            if (!count.equals(newBefore.get(slot))) {
+                changed.add(slot);
+            }
+        });
+        slotCounts(PROCESSING).forEach((slot, count) -> {
+            if (!count.equals(processingBefore.get(slot))) {
+                changed.add(slot);
+            }
+        });
+        assertThat(changed).hasSize(1);
+    }
+
+    private void add(BeerOrderStatus status, int count) {
+        beerOrderStatusCounts.add(status, count);
+        adjusted.merge(status, count, Integer::sum);
+    }
+
+    private Map<Short, Long> slotCounts(BeerOrderStatus status) {
+        Map<Short, Long> counts = new HashMap<>();
+        jdbcTemplate.query("SELECT slot, order_count FROM beer_order_status_count WHERE status_code = ?",
+                rs -> {
+                    counts.put(rs.getShort("slot"), rs.getLong("order_count"));
+                }, status.getCode());
+        return counts;
+    }
+}
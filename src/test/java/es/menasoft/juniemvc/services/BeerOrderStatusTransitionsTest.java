@@ -0,0 +1,148 @@
+package es.menasoft.juniemvc.services;
+
+import es.menasoft.juniemvc.entities.BeerOrder;
+import es.menasoft.juniemvc.entities.Customer;
+import es.menasoft.juniemvc.exceptions.InvalidStatusTransitionException;
+import es.menasoft.juniemvc.models.BeerOrderStatus;
+import es.menasoft.juniemvc.models.BeerOrderStatusTransitionCommand;
+import es.menasoft.juniemvc.models.BeerOrderStatusTransitionOutcome;
+import es.menasoft.juniemvc.models.BeerOrderStatusTransitionOutcome.Result;
+import es.menasoft.juniemvc.models.BeerOrderStatusTransitionReport;
+import es.menasoft.juniemvc.repositories.BeerOrderRepository;
+import es.menasoft.juniemvc.repositories.CustomerRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static es.menasoft.juniemvc.models.BeerOrderStatus.NEW;
+import static es.menasoft.juniemvc.models.BeerOrderStatus.PROCESSING;
+import static es.menasoft.juniemvc.models.BeerOrderStatus.SHIPPED;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// A chunk size of 2 spreads the five orders over several statements and transactions
+@SpringBootTest(properties = "juniemvc.order-status-transition.chunk-size=2")
+@ActiveProfiles("test")
+class BeerOrderStatusTransitionsTest {
+
+    @Autowired
+    private BeerOrderService beerOrderService;
+
+    @Autowired
+    private BeerOrderRepository beerOrderRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    private Customer customer;
+    private List<BeerOrder> orders;
+    private LocalDateTime createdFrom;
+
+    @BeforeEach
+    void setUp() {
+        customer = customerRepository.save(Customer.builder()
+                .name("Warehouse Customer")
+                .email("warehouse@example.com")
+                .addressLine1("1 Dock St")
+                .city("Port City")
+                .state("Port State")
+                .postalCode("12345")
+                .build());
+        createdFrom = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+        orders = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            // The last order is still new and must be skipped
+            orders.add(beerOrderRepository.save(BeerOrder.builder()
+                    .customer(customer)
+                    .orderStatus(i < 4 ? PROCESSING : NEW)
+                    .build()));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        beerOrderRepository.deleteAll(beerOrderRepository.findAllByCustomerId(customer.getId()));
+        customerRepository.delete(customer);
+    }
+
+    @Test
+    void transitionListedOrdersReportsEveryId() {
+        // Given
+        List<Integer> ids = List.of(orders.get(3).getId(), orders.get(4).getId(), -1, orders.get(0).getId(),
+                orders.get(3).getId());
+        Map<BeerOrderStatus, Long> countsBefore = beerOrderService.getBeerOrderStatusCounts();
+
+        // When
+        BeerOrderStatusTransitionReport report = beerOrderService.transitionBeerOrderStatus(
+                new BeerOrderStatusTransitionCommand(ids, PROCESSING, SHIPPED, null, null));
+
+        // Then
+        assertThat(report.updated()).isEqualTo(2);
+        assertThat(report.skipped()).isEqualTo(1);
+        assertThat(report.notFound()).isEqualTo(1);
+        assertThat(report.outcomes()).containsExactly(
+                new BeerOrderStatusTransitionOutcome(orders.get(3).getId(), Result.UPDATED),
+                new BeerOrderStatusTransitionOutcome(orders.get(4).getId(), Result.SKIPPED),
+                new BeerOrderStatusTransitionOutcome(-1, Result.NOT_FOUND),
+                new BeerOrderStatusTransitionOutcome(orders.get(0).getId(), Result.UPDATED));
+
+        BeerOrder shipped = beerOrderRepository.findById(orders.get(3).getId()).orElseThrow();
+        assertThat(shipped.getOrderStatus()).isEqualTo(SHIPPED);
+        assertThat(shipped.getVersion()).isEqualTo(orders.get(3).getVersion() + 1);
+        assertThat(beerOrderRepository.findById(orders.get(1).getId()).orElseThrow().getOrderStatus())
+                .isEqualTo(PROCESSING);
+
+        Map<BeerOrderStatus, Long> countsAfter = beerOrderService.getBeerOrderStatusCounts();
+        assertThat(countsAfter.get(PROCESSING)).isEqualTo(countsBefore.get(PROCESSING) - 2);
+        assertThat(countsAfter.get(SHIPPED)).isEqualTo(countsBefore.get(SHIPPED) + 2);
+    }
+
+    @Test
+    void transitionFilteredOrdersOnlyMovesMatchingOrders() {
+        // Given
+        LocalDateTime createdTo = LocalDateTime.now().plusSeconds(1);
+
+        // When
+        BeerOrderStatusTransitionReport report = beerOrderService.transitionBeerOrderStatus(
+                new BeerOrderStatusTransitionCommand(null, PROCESSING, SHIPPED, createdFrom, createdTo));
+
+        // Then
+        assertThat(report.updated()).isEqualTo(4);
+        assertThat(report.skipped()).isZero();
+        // Updated orders of a filtered transition are only counted
+        assertThat(report.outcomes()).isEmpty();
+        assertThat(beerOrderRepository.findAllByCustomerId(customer.getId()))
+                .extracting(BeerOrder::getOrderStatus)
+                .containsExactlyInAnyOrder(SHIPPED, SHIPPED, SHIPPED, SHIPPED, NEW);
+    }
+
+    @Test
+    void transitionRejectsATransitionTheStatusesDoNotAllow() {
+        // When / Then
+        assertThatThrownBy(() -> beerOrderService.transitionBeerOrderStatus(
+                new BeerOrderStatusTransitionCommand(null, PROCESSING, NEW, null, null)))
+                .isInstanceOf(InvalidStatusTransitionException.class);
+        assertThat(beerOrderRepository.findById(orders.get(0).getId()).orElseThrow().getOrderStatus())
+                .isEqualTo(PROCESSING);
+    }
+
+    @Test
+    void transitionFilteredOrdersOutsideTheDateRangeMovesNothing() {
+        // When
+        BeerOrderStatusTransitionReport report = beerOrderService.transitionBeerOrderStatus(
+                new BeerOrderStatusTransitionCommand(null, PROCESSING, SHIPPED, null, LocalDateTime.now().minusDays(1)));
+
+        // Then
+        assertThat(report.updated()).isZero();
+        assertThat(report.outcomes()).isEmpty();
+    }
+}
@@ -0,0 +1,109 @@
+package es.menasoft.juniemvc.services;
+
+import es.menasoft.juniemvc.repositories.BeerRepository;
+import es.menasoft.juniemvc.repositories.BeerSearchTerms;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class BeerSearchIndexTest {
+
+    @Mock
+    private BeerRepository beerRepository;
+
+    private BeerSearchIndex beerSearchIndex;
+
+    @BeforeEach
+    void setUp() {
+        beerSearchIndex = new BeerSearchIndex(beerRepository, new BeerSearchIndexProperties(true, 2));
+    }
+
+    @Test
+    void searchBeforeRebuildFallsBack() {
+        // When / Then
+        assertThat(beerSearchIndex.search("Ale", null)).isEmpty();
+    }
+
+    @Test
+    void searchMatchesSubstringsIgnoringCase() {
+        // Given
+        when(beerRepository.findAllSearchTerms()).thenReturn(List.of(
+                terms(1, "Mango Bobs", "IPA"),
+                terms(2, "Galaxy Cat", "Pale Ale"),
+                terms(3, "Crank", "Lager")));
+
+        // When
+        beerSearchIndex.rebuild();
+
+        // Then
+        assertThat(beerSearchIndex.search("BOB", null)).contains(List.of(1));
+        assertThat(beerSearchIndex.search(null, "ale")).contains(List.of(2));
+        assertThat(beerSearchIndex.search("cat", "lager")).contains(List.of());
+        // "an" is shorter than a trigram, "ank" and "nan" would match out of order for "anka"
+        assertThat(beerSearchIndex.search("an", null)).isEmpty();
+        assertThat(beerSearchIndex.search("anka", null)).contains(List.of());
+    }
+
+    @Test
+    void searchMatchingTooManyBeersFallsBack() {
+        // Given
+        when(beerRepository.findAllSearchTerms()).thenReturn(List.of(
+                terms(1, "Beer One", null),
+                terms(2, "Beer Two", null),
+                terms(3, "Beer Three", null)));
+        beerSearchIndex.rebuild();
+
+        // When / Then
+        assertThat(beerSearchIndex.search("beer", null)).isEmpty();
+        assertThat(beerSearchIndex.search("beer t", null)).contains(List.of(2, 3));
+    }
+
+    @Test
+    void writesAreAppliedToTheIndex() {
+        // Given
+        when(beerRepository.findAllSearchTerms()).thenReturn(List.of(terms(1, "Mango Bobs", "IPA")));
+        beerSearchIndex.rebuild();
+
+        // When
+        beerSearchIndex.indexAfterCommit(1, "Crank", "IPA");
+        beerSearchIndex.indexAfterCommit(2, "Mango Tango", "Sour");
+        beerSearchIndex.removeAfterCommit(3);
+
+        // Then
+        assertThat(beerSearchIndex.search("mango", null)).contains(List.of(2));
+        assertThat(beerSearchIndex.search("crank", "ipa")).contains(List.of(1));
+
+        // When
+        beerSearchIndex.removeAfterCommit(2);
+
+        // Then
+        assertThat(beerSearchIndex.search("mango", null)).contains(List.of());
+    }
+
+    private static BeerSearchTerms terms(Integer id, String beerName, String beerStyle) {
+        return new BeerSearchTerms() {
+            @Override
+            public Integer getId() {
+                return id;
+            }
+
+            @Override
+            public String getBeerName() {
+                return beerName;
+            }
+
+            @Override
+            public String getBeerStyle() {
+                return beerStyle;
+            }
+        };
+    }
+}
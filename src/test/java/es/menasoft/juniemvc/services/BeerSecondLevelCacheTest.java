@@ -0,0 +1,165 @@
+package es.menasoft.juniemvc.services;
+
+import es.menasoft.juniemvc.entities.Beer;
+import es.menasoft.juniemvc.exceptions.PreconditionFailedException;
+import es.menasoft.juniemvc.models.BeerDto;
+import es.menasoft.juniemvc.models.BeerPatchDto;
+import es.menasoft.juniemvc.repositories.BeerRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class BeerSecondLevelCacheTest {
+
+    @Autowired
+    private BeerService beerService;
+
+    @Autowired
+    private InventoryReservations inventoryReservations;
+
+    @Autowired
+    private BeerRepository beerRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Statistics statistics;
+    private Beer beer;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        beer = beerRepository.save(Beer.builder()
+                .beerName("Cached Beer")
+                .beerStyle("IPA")
+                .upc("cached-1")
+                .price(new BigDecimal("5.99"))
+                .quantityOnHand(10)
+                .build());
+        entityManagerFactory.getCache().evictAll();
+    }
+
+    @AfterEach
+    void tearDown() {
+        beerRepository.deleteById(beer.getId());
+    }
+
+    @Test
+    void findById_LoadsBeerFromSecondLevelCacheOnceCached() {
+        // Given
+        loadBeer();
+        statistics.clear();
+
+        // When
+        Beer loaded = loadBeer();
+
+        // Then
+        assertThat(loaded.getBeerName()).isEqualTo("Cached Beer");
+        assertThat(beerRegion().getHitCount()).isEqualTo(1);
+        assertThat(beerRegion().getMissCount()).isZero();
+    }
+
+    @Test
+    void updateBeer_ReplacesStaleSecondLevelCacheEntry() {
+        // Given
+        loadBeer();
+        BeerDto update = new BeerDto(null, null, "Updated Beer", "IPA", null, "cached-1", 10,
+                new BigDecimal("5.99"), null, null);
+
+        // When
+        beerService.updateBeer(beer.getId(), update);
+
+        // Then
+        statistics.clear();
+        assertThat(loadBeer().getBeerName()).isEqualTo("Updated Beer");
+        assertThat(beerRegion().getHitCount()).isEqualTo(1);
+    }
+
+    @Test
+    void patchBeer_ReplacesStaleSecondLevelCacheEntry() {
+        // Given
+        loadBeer();
+
+        // When
+        beerService.patchBeer(beer.getId(), new BeerPatchDto("Patched Beer", null, null, null, null, null));
+
+        // Then
+        statistics.clear();
+        assertThat(loadBeer().getBeerName()).isEqualTo("Patched Beer");
+        assertThat(beerRegion().getHitCount()).isEqualTo(1);
+    }
+
+    @Test
+    void patchBeerAtExpectedVersion_EvictsSecondLevelCacheEntry() {
+        // Given
+        Integer version = loadBeer().getVersion();
+
+        // When
+        BeerDto patched = beerService.patchBeer(beer.getId(),
+                new BeerPatchDto("Patched Beer", null, null, null, 4, null), version).orElseThrow();
+
+        // Then
+        assertThat(patched.version()).isEqualTo(version + 1);
+        assertThat(patched.beerStyle()).isEqualTo("IPA");
+        assertThat(entityManagerFactory.getCache().contains(Beer.class, beer.getId())).isFalse();
+        Beer loaded = loadBeer();
+        assertThat(loaded.getBeerName()).isEqualTo("Patched Beer");
+        assertThat(loaded.getQuantityOnHand()).isEqualTo(4);
+        assertThat(loaded.getVersion()).isEqualTo(version + 1);
+    }
+
+    @Test
+    void updateBeerAtStaleVersion_LeavesBeerUnchanged() {
+        // Given
+        Integer staleVersion = loadBeer().getVersion();
+        beerService.patchBeer(beer.getId(), new BeerPatchDto("First Writer", null, null, null, null, null));
+        BeerDto update = new BeerDto(null, null, "Second Writer", "IPA", null, "cached-1", 10,
+                new BigDecimal("5.99"), null, null);
+
+        // When/Then
+        assertThatThrownBy(() -> beerService.updateBeer(beer.getId(), update, staleVersion))
+                .isInstanceOf(PreconditionFailedException.class);
+        assertThat(loadBeer().getBeerName()).isEqualTo("First Writer");
+    }
+
+    @Test
+    void reserve_EvictsBeerFromSecondLevelCache() {
+        // Given
+        loadBeer();
+        assertThat(entityManagerFactory.getCache().contains(Beer.class, beer.getId())).isTrue();
+
+        // When
+        transactionTemplate.executeWithoutResult(status -> inventoryReservations.reserve(Map.of(beer.getId(), 3)));
+
+        // Then
+        assertThat(entityManagerFactory.getCache().contains(Beer.class, beer.getId())).isFalse();
+        assertThat(loadBeer().getQuantityOnHand()).isEqualTo(7);
+    }
+
+    private Beer loadBeer() {
+        return transactionTemplate.execute(status -> beerRepository.findById(beer.getId()).orElseThrow());
+    }
+
+    private CacheRegionStatistics beerRegion() {
+        return statistics.getDomainDataRegionStatistics("beer");
+    }
+}
@@ -1,6 +1,7 @@
 package es.menasoft.juniemvc.services;
 
 import es.menasoft.juniemvc.entities.Beer;
+import es.menasoft.juniemvc.exceptions.PreconditionFailedException;
 import es.menasoft.juniemvc.mappers.BeerMapper;
 import es.menasoft.juniemvc.models.BeerDto;
 import es.menasoft.juniemvc.models.BeerPatchDto;
@@ -10,21 +11,33 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -37,6 +50,21 @@ class BeerServiceImplTest {
     @Mock
     private BeerMapper beerMapper;
 
+    @Spy
+    private BeerDtoCache beerDtoCache = new BeerDtoCache(new BeerCacheProperties(100, Duration.ofMinutes(5)));
+
+    @Mock
+    private BeerCountCache beerCountCache;
+
+    @Mock
+    private BeerSearchIndex beerSearchIndex;
+
+    @Mock
+    private BeerVersionedUpdates beerVersionedUpdates;
+
+    @Spy
+    private SingleFlight singleFlight = new SingleFlight(new SingleFlightProperties(Duration.ofSeconds(1)));
+
     @InjectMocks
     private BeerServiceImpl beerService;
 
@@ -177,6 +205,23 @@ class BeerServiceImplTest {
         verify(beerMapper).beerToBeerDto(testBeer);
     }
 
+    @Test
+    void getBeerByIdServedFromCache() {
+        // Given
+        when(beerRepository.findById(1)).thenReturn(Optional.of(testBeer));
+        when(beerMapper.beerToBeerDto(testBeer)).thenReturn(testBeerDto);
+
+        // When
+        Optional<BeerDto> first = beerService.getBeerById(1);
+        Optional<BeerDto> second = beerService.getBeerById(1);
+
+        // Then
+        assertThat(first).contains(testBeerDto);
+        assertThat(second).contains(testBeerDto);
+        verify(beerRepository, times(1)).findById(1);
+        verify(beerMapper, times(1)).beerToBeerDto(testBeer);
+    }
+
     @Test
     void getBeerByIdNotFound() {
         // Given
@@ -458,6 +503,113 @@ class BeerServiceImplTest {
                 eq("Test"), eq("IPA"), any(Pageable.class));
     }
     
+    @Test
+    void getBeerSliceWithNameFilter() {
+        // Given
+        Pageable pageable = PageRequest.of(0, 1);
+        Slice<Beer> beerSlice = new SliceImpl<>(List.of(testBeer), pageable, true);
+
+        when(beerRepository.findSliceByBeerNameContainingIgnoreCase(eq("Test"), any(Pageable.class)))
+                .thenReturn(beerSlice);
+        when(beerMapper.beerToBeerDto(testBeer)).thenReturn(testBeerDto);
+
+        // When
+        Slice<BeerDto> result = beerService.getBeerSlice("Test", null, pageable);
+
+        // Then
+        assertThat(result.getContent()).containsExactly(testBeerDto);
+        assertThat(result.hasNext()).isTrue();
+        verify(beerRepository).findSliceByBeerNameContainingIgnoreCase(eq("Test"), any(Pageable.class));
+        verify(beerRepository, never()).countByBeerNameContainingIgnoreCase(anyString());
+    }
+
+    @Test
+    void getBeersResolvedFromSearchIndex() {
+        // Given
+        Pageable pageable = PageRequest.of(0, 1);
+        when(beerSearchIndex.search("Beer", null)).thenReturn(Optional.of(List.of(1, 2)));
+        when(beerRepository.findByIdIn(List.of(1, 2), pageable)).thenReturn(List.of(testBeer));
+        when(beerMapper.beerToBeerDto(testBeer)).thenReturn(testBeerDto);
+
+        // When
+        Page<BeerDto> result = beerService.getBeers("Beer", null, pageable);
+
+        // Then
+        assertThat(result.getContent()).containsExactly(testBeerDto);
+        assertThat(result.getTotalElements()).isEqualTo(2);
+        verify(beerRepository, never()).findByBeerNameContainingIgnoreCase(anyString(), any(Pageable.class));
+    }
+
+    @Test
+    void getApproximateBeerCount() {
+        // Given
+        when(beerCountCache.get("Test", null)).thenReturn(42L);
+
+        // When
+        long result = beerService.getApproximateBeerCount("Test", null);
+
+        // Then
+        assertThat(result).isEqualTo(42L);
+    }
+
+    @Test
+    void scrollBeersWithStyleFilter() {
+        // Given
+        Sort sort = Sort.by("beerStyle");
+        Window<Beer> beerWindow = Window.from(List.of(testBeer), index -> ScrollPosition.keyset(), false);
+
+        when(beerRepository.findByBeerStyleContainingIgnoreCase(eq("IPA"), eq(ScrollPosition.keyset()),
+                eq(sort), eq(Limit.of(10)))).thenReturn(beerWindow);
+        when(beerMapper.beerToBeerDto(testBeer)).thenReturn(testBeerDto);
+
+        // When
+        Window<BeerDto> result = beerService.scrollBeers(null, "IPA", ScrollPosition.keyset(), sort, 10);
+
+        // Then
+        assertThat(result.getContent()).containsExactly(testBeerDto);
+        assertThat(result.hasNext()).isFalse();
+    }
+
+    @Test
+    void updateBeerRefreshesCachedBeer() {
+        // Given
+        BeerDto cachedBeerDto = new BeerDto(1, 0, "Test Beer", "IPA", null, "123456789", 100,
+                new BigDecimal("12.99"), null, null);
+        BeerDto updatedBeerDto = new BeerDto(1, 1, "Updated Beer", "IPA", null, "123456789", 100,
+                new BigDecimal("12.99"), null, null);
+        beerDtoCache.put(cachedBeerDto);
+
+        when(beerMapper.beerDtoToBeer(updatedBeerDto)).thenReturn(testBeer);
+        when(beerRepository.findById(1)).thenReturn(Optional.of(testBeer));
+        when(beerRepository.save(any(Beer.class))).thenReturn(testBeer);
+        when(beerMapper.beerToBeerDto(testBeer)).thenReturn(updatedBeerDto);
+
+        // When
+        beerService.updateBeer(1, updatedBeerDto);
+        Optional<BeerDto> result = beerService.getBeerById(1);
+
+        // Then
+        assertThat(result).contains(updatedBeerDto);
+        verify(beerRepository).flush();
+        verify(beerRepository, times(1)).findById(1);
+    }
+
+    @Test
+    void deleteBeerEvictsCachedBeer() {
+        // Given
+        beerDtoCache.put(testBeerDto);
+        when(beerRepository.findById(1)).thenReturn(Optional.of(testBeer));
+
+        // When
+        beerService.deleteBeer(1);
+        Optional<BeerDto> result = beerService.getBeerById(1);
+
+        // Then
+        assertThat(result).isEmpty();
+        verify(beerRepository, times(1)).findById(1);
+        verify(beerMapper, never()).beerToBeerDto(any(Beer.class));
+    }
+    
     @Test
     void patchBeerSuccess() {
         // Given
@@ -507,4 +659,71 @@ class BeerServiceImplTest {
         assertThat(result).isEmpty();
         verify(beerRepository).findById(beerId);
     }
+
+    @Test
+    void updateBeerAtExpectedVersionSkipsLoadingCachedBeer() {
+        // Given
+        LocalDateTime createdDate = LocalDateTime.of(2024, 1, 1, 12, 0);
+        beerDtoCache.put(new BeerDto(1, 2, "Test Beer", "IPA", null, "123456789", 100,
+                new BigDecimal("12.99"), createdDate, createdDate));
+        BeerDto update = new BeerDto(null, null, "Updated Beer", "Porter", null, "123456789", 80,
+                new BigDecimal("13.99"), null, null);
+        when(beerVersionedUpdates.update(eq(1), eq(2), eq(update), any(LocalDateTime.class))).thenReturn(true);
+
+        // When
+        Optional<BeerDto> result = beerService.updateBeer(1, update, 2);
+
+        // Then
+        assertThat(result).hasValueSatisfying(beer -> {
+            assertThat(beer.version()).isEqualTo(3);
+            assertThat(beer.beerName()).isEqualTo("Updated Beer");
+            assertThat(beer.createdDate()).isEqualTo(createdDate);
+        });
+        assertThat(beerService.getBeerById(1)).isEqualTo(result);
+        verify(beerRepository, never()).findById(any());
+    }
+
+    @Test
+    void patchBeerAtExpectedVersionReloadsUncachedBeer() {
+        // Given
+        BeerPatchDto patchDto = new BeerPatchDto("Patched", null, null, null, null, null);
+        BeerDto patchedBeerDto = new BeerDto(1, 1, "Patched", "IPA", null, "123456789", 100,
+                new BigDecimal("12.99"), null, null);
+        when(beerVersionedUpdates.patch(eq(1), eq(0), eq(patchDto), any(LocalDateTime.class))).thenReturn(true);
+        when(beerRepository.findById(1)).thenReturn(Optional.of(testBeer));
+        when(beerMapper.beerToBeerDto(testBeer)).thenReturn(patchedBeerDto);
+
+        // When
+        Optional<BeerDto> result = beerService.patchBeer(1, patchDto, 0);
+
+        // Then
+        assertThat(result).contains(patchedBeerDto);
+        verify(beerRepository, never()).save(any(Beer.class));
+    }
+
+    @Test
+    void updateBeerAtStaleVersionFailsPrecondition() {
+        // Given
+        when(beerVersionedUpdates.update(eq(1), eq(2), eq(testBeerDto), any(LocalDateTime.class))).thenReturn(false);
+        when(beerRepository.findVersionById(1)).thenReturn(Optional.of(3));
+
+        // When/Then
+        assertThatThrownBy(() -> beerService.updateBeer(1, testBeerDto, 2))
+                .isInstanceOf(PreconditionFailedException.class)
+                .extracting("currentVersion").isEqualTo(3);
+    }
+
+    @Test
+    void patchBeerAtExpectedVersionNotFound() {
+        // Given
+        BeerPatchDto patchDto = new BeerPatchDto("Patched", null, null, null, null, null);
+        when(beerVersionedUpdates.patch(eq(999), eq(0), eq(patchDto), any(LocalDateTime.class))).thenReturn(false);
+        when(beerRepository.findVersionById(999)).thenReturn(Optional.empty());
+
+        // When
+        Optional<BeerDto> result = beerService.patchBeer(999, patchDto, 0);
+
+        // Then
+        assertThat(result).isEmpty();
+    }
 }
@@ -0,0 +1,100 @@
+package es.menasoft.juniemvc.services;
+
+import es.menasoft.juniemvc.entities.Customer;
+import es.menasoft.juniemvc.exceptions.EntityNotFoundException;
+import es.menasoft.juniemvc.models.CreateBeerOrderCommand;
+import es.menasoft.juniemvc.models.CustomerDto;
+import es.menasoft.juniemvc.models.OrderLineDto;
+import es.menasoft.juniemvc.repositories.CustomerRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Customers are multi-loaded, which reports every unknown ID as a null entry the callers must not see
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class CustomerMultiLoadTest {
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private BeerOrderService beerOrderService;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    private Customer customer;
+
+    @BeforeEach
+    void setUp() {
+        customer = customerRepository.save(Customer.builder()
+                .name("Multi-load Customer")
+                .email("multi-load@example.com")
+                .addressLine1("1 Lookup St")
+                .city("Batch City")
+                .state("CA")
+                .postalCode("12345")
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        customerRepository.deleteById(customer.getId());
+    }
+
+    @Test
+    void getCustomersByIds_LeavesOutUnknownIds() {
+        // When
+        Map<Integer, CustomerDto> customers = customerService.getCustomersByIds(List.of(-1, customer.getId()));
+
+        // Then
+        assertThat(customers).containsOnlyKeys(customer.getId());
+        assertThat(customers.get(customer.getId()).name()).isEqualTo("Multi-load Customer");
+    }
+
+    @Test
+    void getCustomersByIds_ReportsUnknownIdsAsMissing() throws Exception {
+        // When/Then
+        mockMvc.perform(get("/api/v1/customers").param("ids", customer.getId() + ",-1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content", hasSize(1)))
+                .andExpect(jsonPath("$.content[0].id", is(customer.getId())))
+                .andExpect(jsonPath("$.missingIds", contains(-1)));
+    }
+
+    @Test
+    void createBeerOrders_FailsForAnUnknownCustomer() {
+        // Given
+        List<OrderLineDto> orderLines = List.of(new OrderLineDto(null, 1, 1, null));
+        List<CreateBeerOrderCommand> commands = List.of(
+                new CreateBeerOrderCommand(customer.getId(), orderLines),
+                new CreateBeerOrderCommand(-1, orderLines));
+
+        // When/Then
+        assertThatThrownBy(() -> beerOrderService.createBeerOrders(commands))
+                .isInstanceOf(EntityNotFoundException.class)
+                .hasMessageContaining("-1");
+    }
+}
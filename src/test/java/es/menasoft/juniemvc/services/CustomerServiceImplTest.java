@@ -33,6 +33,9 @@ class CustomerServiceImplTest {
     @Mock
     private CustomerMapper customerMapper;
 
+    @Mock
+    private BeerOrderStatusCounts beerOrderStatusCounts;
+
     @InjectMocks
     private CustomerServiceImpl customerService;
 
@@ -352,6 +355,7 @@ class CustomerServiceImplTest {
         // Then
         assertThat(result).isTrue();
         verify(customerRepository).findById(1);
+        verify(beerOrderStatusCounts).removeCustomerOrders(1);
         verify(customerRepository).delete(testCustomer);
     }
 
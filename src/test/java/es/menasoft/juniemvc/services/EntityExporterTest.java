@@ -0,0 +1,72 @@
+package es.menasoft.juniemvc.services;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class EntityExporterTest {
+
+    @Mock
+    private EntityManager entityManager;
+
+    private EntityExporter entityExporter;
+
+    @BeforeEach
+    void setUp() {
+        entityExporter = new EntityExporter(entityManager, new ExportProperties(2));
+    }
+
+    @Test
+    void exportClearsPersistenceContextEveryChunkAndClosesStream() {
+        // Given
+        AtomicBoolean closed = new AtomicBoolean();
+        Stream<Integer> entities = Stream.of(1, 2, 3, 4, 5).onClose(() -> closed.set(true));
+        List<String> exported = new ArrayList<>();
+
+        // When
+        entityExporter.export(entities, id -> "beer-" + id, exported::add);
+
+        // Then
+        assertThat(exported).containsExactly("beer-1", "beer-2", "beer-3", "beer-4", "beer-5");
+        assertThat(closed).isTrue();
+        verify(entityManager, times(2)).clear();
+    }
+
+    @Test
+    void exportInChunksContinuesAfterLastId() {
+        // Given
+        List<Integer> ids = List.of(3, 5, 8, 13, 21);
+        List<Integer> afterIds = new ArrayList<>();
+        List<Integer> exported = new ArrayList<>();
+
+        // When
+        entityExporter.exportInChunks(
+                (Integer afterId, Limit limit) -> {
+                    afterIds.add(afterId);
+                    return ids.stream().filter(id -> id > afterId).limit(limit.max()).toList();
+                },
+                (Collection<Integer> chunk) -> List.copyOf(chunk),
+                id -> id * 10, exported::add);
+
+        // Then
+        assertThat(exported).containsExactlyElementsOf(IntStream.of(30, 50, 80, 130, 210).boxed().toList());
+        assertThat(afterIds).containsExactly(0, 5, 13);
+        verify(entityManager, times(3)).clear();
+    }
+}
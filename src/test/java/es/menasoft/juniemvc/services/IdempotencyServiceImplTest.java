@@ -0,0 +1,170 @@
+package es.menasoft.juniemvc.services;
+
+import es.menasoft.juniemvc.entities.IdempotentRequest;
+import es.menasoft.juniemvc.exceptions.IdempotencyKeyInUseException;
+import es.menasoft.juniemvc.exceptions.IdempotencyKeyMismatchException;
+import es.menasoft.juniemvc.models.IdempotentResponseDto;
+import es.menasoft.juniemvc.repositories.IdempotentRequestRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class IdempotencyServiceImplTest {
+
+    private static final String SCOPE = "POST /test";
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private IdempotentRequestRepository idempotentRequestRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void tearDown() {
+        idempotentRequestRepository.deleteAll();
+    }
+
+    @Test
+    void executeRunsTheRequestOncePerKey() {
+        // Given
+        AtomicInteger runs = new AtomicInteger();
+
+        // When
+        IdempotentResponseDto first = idempotencyService.execute(SCOPE, "once", "hash", () -> response(runs));
+        IdempotentResponseDto retry = idempotencyService.execute(SCOPE, "once", "hash", () -> response(runs));
+
+        // Then
+        assertThat(runs).hasValue(1);
+        assertThat(retry).isEqualTo(first);
+        assertThat(idempotentRequestRepository.findById(SCOPE + " once"))
+                .hasValueSatisfying(recorded -> {
+                    assertThat(recorded.getResponseStatus()).isEqualTo(201);
+                    assertThat(recorded.getResponseBody()).isEqualTo("{\"id\":1}");
+                });
+    }
+
+    @Test
+    void executeRejectsAKeyReusedWithAnotherRequest() {
+        // Given
+        AtomicInteger runs = new AtomicInteger();
+        idempotencyService.execute(SCOPE, "reused", "hash", () -> response(runs));
+
+        // When / Then
+        assertThatThrownBy(() -> idempotencyService.execute(SCOPE, "reused", "other", () -> response(runs)))
+                .isInstanceOf(IdempotencyKeyMismatchException.class);
+        assertThat(runs).hasValue(1);
+    }
+
+    @Test
+    void executeRunsAFailedRequestAgain() {
+        // Given
+        AtomicInteger runs = new AtomicInteger();
+        assertThatThrownBy(() -> idempotencyService.execute(SCOPE, "failed", "hash", () -> {
+            runs.incrementAndGet();
+            throw new IllegalStateException("Boom");
+        })).isInstanceOf(IllegalStateException.class);
+
+        // When
+        IdempotentResponseDto retry = idempotencyService.execute(SCOPE, "failed", "hash", () -> response(runs));
+
+        // Then
+        assertThat(runs).hasValue(2);
+        assertThat(retry.status()).isEqualTo(201);
+    }
+
+    @Test
+    void executeMakesConcurrentDuplicatesWaitForTheFirstRequest() throws Exception {
+        // Given
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        try {
+            // When
+            Future<IdempotentResponseDto> first = executor.submit(() ->
+                    idempotencyService.execute(SCOPE, "concurrent", "hash", () -> {
+                        started.countDown();
+                        await(release);
+                        return response(runs);
+                    }));
+            assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+            Future<IdempotentResponseDto> duplicate = executor.submit(() ->
+                    idempotencyService.execute(SCOPE, "concurrent", "hash", () -> response(runs)));
+            release.countDown();
+
+            // Then
+            assertThat(duplicate.get(5, TimeUnit.SECONDS)).isEqualTo(first.get(5, TimeUnit.SECONDS));
+            assertThat(runs).hasValue(1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void executeTakesOverAClaimWhoseLeaseExpired() {
+        // Given a claim left without a response by a request that crashed
+        idempotentRequestRepository.saveAndFlush(IdempotentRequest.builder()
+                .id(SCOPE + " crashed")
+                .requestHash("hash")
+                .leaseUntil(LocalDateTime.now().minusSeconds(1))
+                .build());
+        AtomicInteger runs = new AtomicInteger();
+
+        // When
+        IdempotentResponseDto response = idempotencyService.execute(SCOPE, "crashed", "hash", () -> response(runs));
+
+        // Then
+        assertThat(runs).hasValue(1);
+        assertThat(response.status()).isEqualTo(201);
+        assertThat(idempotentRequestRepository.findById(SCOPE + " crashed"))
+                .hasValueSatisfying(recorded -> assertThat(recorded.getResponseStatus()).isEqualTo(201));
+    }
+
+    @Test
+    void executeRollsTheRequestBackWhenItsClaimWasTakenOver() {
+        // When the request writes, then finds its claim taken over before recording its response
+        assertThatThrownBy(() -> idempotencyService.execute(SCOPE, "taken", "hash", () -> {
+            idempotentRequestRepository.save(IdempotentRequest.builder()
+                    .id(SCOPE + " written-by-request")
+                    .requestHash("hash")
+                    .build());
+            jdbcTemplate.update("UPDATE idempotent_request SET version = version + 1 WHERE id = ?", SCOPE + " taken");
+            return response(new AtomicInteger());
+        })).isInstanceOf(IdempotencyKeyInUseException.class);
+
+        // Then the write of the request is rolled back with it
+        assertThat(idempotentRequestRepository.findById(SCOPE + " written-by-request")).isEmpty();
+    }
+
+    private static IdempotentResponseDto response(AtomicInteger runs) {
+        return new IdempotentResponseDto("hash", 201, "/test/" + runs.incrementAndGet(), "{\"id\":1}");
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package es.menasoft.juniemvc.services;
+
+import es.menasoft.juniemvc.entities.Beer;
+import es.menasoft.juniemvc.entities.Customer;
+import es.menasoft.juniemvc.exceptions.InsufficientInventoryException;
+import es.menasoft.juniemvc.models.CreateBeerOrderCommand;
+import es.menasoft.juniemvc.models.OrderLineDto;
+import es.menasoft.juniemvc.repositories.BeerOrderRepository;
+import es.menasoft.juniemvc.repositories.BeerRepository;
+import es.menasoft.juniemvc.repositories.CustomerRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class InventoryReservationConcurrencyTest {
+
+    private static final int WRITERS = 64;
+    private static final int STOCK = 40;
+
+    @Autowired
+    private BeerOrderService beerOrderService;
+
+    @Autowired
+    private BeerRepository beerRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private BeerOrderRepository beerOrderRepository;
+
+    private Beer hotBeer;
+    private Beer otherBeer;
+    private Customer customer;
+
+    @BeforeEach
+    void setUp() {
+        customer = customerRepository.save(Customer.builder()
+                .name("Promotion Customer")
+                .email("promo@example.com")
+                .addressLine1("1 Promo St")
+                .city("Promo City")
+                .state("Promo State")
+                .postalCode("12345")
+                .build());
+        hotBeer = beerRepository.save(Beer.builder()
+                .beerName("Promotion Beer")
+                .beerStyle("IPA")
+                .upc("promo-1")
+                .price(new BigDecimal("4.99"))
+                .quantityOnHand(STOCK)
+                .build());
+        otherBeer = beerRepository.save(Beer.builder()
+                .beerName("Side Beer")
+                .beerStyle("Lager")
+                .upc("promo-2")
+                .price(new BigDecimal("3.99"))
+                .quantityOnHand(WRITERS * 2)
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        beerOrderRepository.deleteAll(beerOrderRepository.findAllByCustomerId(customer.getId()));
+        beerRepository.deleteAllById(List.of(hotBeer.getId(), otherBeer.getId()));
+        customerRepository.delete(customer);
+    }
+
+    @Test
+    void concurrentOrdersNeverOversell() throws Exception {
+        // Given
+        ExecutorService executor = Executors.newFixedThreadPool(WRITERS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (int i = 0; i < WRITERS; i++) {
+            // Half of the writers list the beers in reverse order, locks must still be taken consistently
+            List<OrderLineDto> lines = i % 2 == 0
+                    ? List.of(new OrderLineDto(null, 1, hotBeer.getId(), null), new OrderLineDto(null, 1, otherBeer.getId(), null))
+                    : List.of(new OrderLineDto(null, 1, otherBeer.getId(), null), new OrderLineDto(null, 1, hotBeer.getId(), null));
+            CreateBeerOrderCommand command = new CreateBeerOrderCommand(customer.getId(), lines);
+            results.add(executor.submit(() -> {
+                start.await();
+                try {
+                    beerOrderService.createBeerOrder(command);
+                    return true;
+                } catch (InsufficientInventoryException ex) {
+                    return false;
+                }
+            }));
+        }
+
+        // When
+        start.countDown();
+        int placed = 0;
+        for (Future<Boolean> result : results) {
+            if (result.get(60, TimeUnit.SECONDS)) {
+                placed++;
+            }
+        }
+        executor.shutdown();
+
+        // Then
+        assertThat(placed).isEqualTo(STOCK);
+        assertThat(beerRepository.findById(hotBeer.getId()).orElseThrow().getQuantityOnHand()).isZero();
+        assertThat(beerRepository.findById(otherBeer.getId()).orElseThrow().getQuantityOnHand())
+                .isEqualTo(WRITERS * 2 - STOCK);
+        assertThat(beerOrderRepository.findAllByCustomerId(customer.getId())).hasSize(STOCK);
+    }
+}
@@ -0,0 +1,176 @@
+package es.menasoft.juniemvc.services;
+
+import es.menasoft.juniemvc.entities.Beer;
+import es.menasoft.juniemvc.entities.Customer;
+import es.menasoft.juniemvc.exceptions.PreconditionFailedException;
+import es.menasoft.juniemvc.models.BeerDto;
+import es.menasoft.juniemvc.models.BeerOrderDto;
+import es.menasoft.juniemvc.models.BeerOrderStatus;
+import es.menasoft.juniemvc.models.BeerOrderStatusTransitionCommand;
+import es.menasoft.juniemvc.models.CreateBeerOrderCommand;
+import es.menasoft.juniemvc.models.OrderLineDto;
+import es.menasoft.juniemvc.repositories.BeerOrderRepository;
+import es.menasoft.juniemvc.repositories.BeerRepository;
+import es.menasoft.juniemvc.repositories.CustomerRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class InventoryReservationsTest {
+
+    private static final int STOCK = 10;
+
+    @Autowired
+    private BeerOrderService beerOrderService;
+
+    @Autowired
+    private BeerService beerService;
+
+    @Autowired
+    private BeerDtoCache beerDtoCache;
+
+    @Autowired
+    private BeerRepository beerRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private BeerOrderRepository beerOrderRepository;
+
+    private Beer beer;
+    private Customer customer;
+
+    @BeforeEach
+    void setUp() {
+        customer = customerRepository.save(Customer.builder()
+                .name("Inventory Customer")
+                .email("inventory@example.com")
+                .addressLine1("1 Stock St")
+                .city("Stock City")
+                .state("CA")
+                .postalCode("12345")
+                .build());
+        beer = beerRepository.save(Beer.builder()
+                .beerName("Inventory Beer")
+                .beerStyle("Stout")
+                .upc("inventory-1")
+                .price(new BigDecimal("4.49"))
+                .quantityOnHand(STOCK)
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        beerOrderRepository.deleteAll(beerOrderRepository.findAllByCustomerId(customer.getId()));
+        beerRepository.deleteById(beer.getId());
+        customerRepository.deleteById(customer.getId());
+    }
+
+    @Test
+    void cancellingAnOrderPutsItsStockBack() {
+        // Given
+        BeerOrderDto beerOrder = order(3);
+        assertThat(quantityOnHand()).isEqualTo(STOCK - 3);
+
+        // When
+        beerOrderService.updateBeerOrderStatus(beerOrder.id(), BeerOrderStatus.PROCESSING);
+        beerOrderService.updateBeerOrderStatus(beerOrder.id(), BeerOrderStatus.CANCELLED);
+
+        // Then
+        assertThat(quantityOnHand()).isEqualTo(STOCK);
+    }
+
+    @Test
+    void cancellingOrdersInBulkPutsTheirStockBack() {
+        // Given
+        BeerOrderDto first = order(2);
+        BeerOrderDto second = order(5);
+        assertThat(quantityOnHand()).isEqualTo(STOCK - 7);
+
+        // When
+        beerOrderService.transitionBeerOrderStatus(new BeerOrderStatusTransitionCommand(
+                List.of(first.id(), second.id()), BeerOrderStatus.NEW, BeerOrderStatus.CANCELLED, null, null));
+
+        // Then
+        assertThat(quantityOnHand()).isEqualTo(STOCK);
+    }
+
+    @Test
+    void deletingAnOrderPutsItsStockBack() {
+        // Given
+        BeerOrderDto beerOrder = order(4);
+
+        // When
+        beerOrderService.deleteBeerOrder(beerOrder.id());
+
+        // Then
+        assertThat(quantityOnHand()).isEqualTo(STOCK);
+    }
+
+    @Test
+    void deletingACancelledOrderPutsNothingBackTwice() {
+        // Given
+        BeerOrderDto beerOrder = order(4);
+        beerOrderService.updateBeerOrderStatus(beerOrder.id(), BeerOrderStatus.CANCELLED);
+
+        // When
+        beerOrderService.deleteBeerOrder(beerOrder.id());
+
+        // Then
+        assertThat(quantityOnHand()).isEqualTo(STOCK);
+    }
+
+    @Test
+    void deletingAShippedOrderKeepsItsStockGone() {
+        // Given
+        BeerOrderDto beerOrder = order(4);
+        beerOrderService.updateBeerOrderStatus(beerOrder.id(), BeerOrderStatus.PROCESSING);
+        beerOrderService.updateBeerOrderStatus(beerOrder.id(), BeerOrderStatus.SHIPPED);
+
+        // When
+        beerOrderService.deleteBeerOrder(beerOrder.id());
+
+        // Then
+        assertThat(quantityOnHand()).isEqualTo(STOCK - 4);
+    }
+
+    // Stock is part of the beer representation, a reservation is a new version of the beer
+    @Test
+    void reservationVersionsTheBeerAndKeepsItCached() {
+        // Given
+        BeerDto before = beerService.getBeerById(beer.getId()).orElseThrow();
+
+        // When
+        order(3);
+
+        // Then
+        BeerDto cached = beerDtoCache.getIfPresent(beer.getId()).orElseThrow();
+        assertThat(cached.version()).isEqualTo(before.version() + 1);
+        assertThat(cached.quantityOnHand()).isEqualTo(STOCK - 3);
+        assertThat(beerService.getBeerVersion(beer.getId())).contains(before.version() + 1);
+        assertThatThrownBy(() -> beerService.updateBeer(beer.getId(), before, before.version()))
+                .isInstanceOf(PreconditionFailedException.class);
+        assertThat(quantityOnHand()).isEqualTo(STOCK - 3);
+    }
+
+    private BeerOrderDto order(int quantity) {
+        return beerOrderService.createBeerOrder(new CreateBeerOrderCommand(customer.getId(),
+                List.of(new OrderLineDto(null, quantity, beer.getId(), null))));
+    }
+
+    private int quantityOnHand() {
+        return beerRepository.findById(beer.getId()).orElseThrow().getQuantityOnHand();
+    }
+}
@@ -0,0 +1,221 @@
+package es.menasoft.juniemvc.services;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import es.menasoft.juniemvc.entities.Beer;
+import es.menasoft.juniemvc.entities.Customer;
+import es.menasoft.juniemvc.exceptions.InvalidStatusTransitionException;
+import es.menasoft.juniemvc.models.BeerOrderDto;
+import es.menasoft.juniemvc.models.BeerOrderStatus;
+import es.menasoft.juniemvc.models.CreateBeerOrderCommand;
+import es.menasoft.juniemvc.models.CreateBeerOrderShipmentCommand;
+import es.menasoft.juniemvc.models.OrderLineDto;
+import es.menasoft.juniemvc.models.OutboxEventDto;
+import es.menasoft.juniemvc.repositories.BeerOrderRepository;
+import es.menasoft.juniemvc.repositories.BeerRepository;
+import es.menasoft.juniemvc.repositories.CustomerRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// A batch size of 2 makes the relay deliver the events of these tests over several transactions
+@SpringBootTest(properties = "juniemvc.outbox.batch-size=2")
+@ActiveProfiles("test")
+class OutboxRelayTest {
+
+    @TestConfiguration
+    static class TestConfig {
+        @Bean
+        @Primary
+        RecordingSink recordingSink() {
+            return new RecordingSink();
+        }
+    }
+
+    // Keeps the delivered events in memory, failing every batch while told to
+    static class RecordingSink implements OutboxSink {
+
+        final List<OutboxEventDto> events = Collections.synchronizedList(new ArrayList<>());
+        volatile boolean failing;
+
+        @Override
+        public void publish(List<OutboxEventDto> batch) {
+            if (failing) {
+                throw new IllegalStateException("Sink unavailable");
+            }
+            events.addAll(batch);
+        }
+    }
+
+    @Autowired
+    private OutboxRelay outboxRelay;
+
+    @Autowired
+    private RecordingSink recordingSink;
+
+    @Autowired
+    private BeerOrderService beerOrderService;
+
+    @Autowired
+    private BeerOrderShipmentService beerOrderShipmentService;
+
+    @Autowired
+    private BeerOrderRepository beerOrderRepository;
+
+    @Autowired
+    private BeerRepository beerRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Customer customer;
+    private Beer beer;
+
+    @BeforeEach
+    void setUp() {
+        // Start from an empty outbox, events of other tests are not under test here
+        outboxRelay.relay();
+        recordingSink.events.clear();
+        recordingSink.failing = false;
+
+        customer = customerRepository.save(Customer.builder()
+                .name("Outbox Customer")
+                .email("outbox@example.com")
+                .addressLine1("1 Relay St")
+                .city("Event City")
+                .state("Event State")
+                .postalCode("12345")
+                .build());
+        beer = beerRepository.save(Beer.builder()
+                .beerName("Outbox Ale")
+                .beerStyle("Ale")
+                .upc("outbox-upc")
+                .price(new BigDecimal("4.99"))
+                .quantityOnHand(100)
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        recordingSink.failing = false;
+        outboxRelay.relay();
+        beerOrderRepository.deleteAll(beerOrderRepository.findAllByCustomerId(customer.getId()));
+        customerRepository.deleteById(customer.getId());
+        // By ID, the reservations of the orders bumped the version of the beer saved in setUp
+        beerRepository.deleteById(beer.getId());
+    }
+
+    @Test
+    void relayDeliversTheEventsOfAnOrderInOrder() throws Exception {
+        // Given
+        BeerOrderDto beerOrder = createBeerOrder();
+        beerOrderService.updateBeerOrderStatus(beerOrder.id(), BeerOrderStatus.PROCESSING);
+        beerOrderShipmentService.createShipment(
+                new CreateBeerOrderShipmentCommand(beerOrder.id(), LocalDate.now(), "UPS", "1Z999"));
+        beerOrderService.updateBeerOrderStatus(beerOrder.id(), BeerOrderStatus.SHIPPED);
+
+        // When
+        int delivered = outboxRelay.relay();
+
+        // Then
+        assertThat(delivered).isEqualTo(4);
+        assertThat(recordingSink.events)
+                .allSatisfy(event -> {
+                    assertThat(event.aggregateType()).isEqualTo(OutboxEvents.BEER_ORDER);
+                    assertThat(event.aggregateId()).isEqualTo(beerOrder.id());
+                })
+                .extracting(OutboxEventDto::eventType)
+                .containsExactly(OutboxEvents.BEER_ORDER_CREATED, OutboxEvents.BEER_ORDER_STATUS_CHANGED,
+                        OutboxEvents.BEER_ORDER_SHIPMENT_CREATED, OutboxEvents.BEER_ORDER_STATUS_CHANGED);
+        assertThat(recordingSink.events).extracting(OutboxEventDto::id).isSorted();
+
+        JsonNode shipped = objectMapper.readTree(recordingSink.events.get(3).payload());
+        assertThat(shipped.get("fromStatus").asText()).isEqualTo("PROCESSING");
+        assertThat(shipped.get("toStatus").asText()).isEqualTo("SHIPPED");
+        assertThat(pendingEvents()).isZero();
+        assertThat(meterRegistry.get("outbox.lag").gauge().value()).isZero();
+    }
+
+    @Test
+    void rolledBackChangesWriteNoEvent() {
+        // Given
+        BeerOrderDto beerOrder = createBeerOrder();
+        outboxRelay.relay();
+        recordingSink.events.clear();
+
+        // When
+        assertThatThrownBy(() -> beerOrderService.updateBeerOrderStatus(beerOrder.id(), BeerOrderStatus.COMPLETED))
+                .isInstanceOf(InvalidStatusTransitionException.class);
+
+        // Then
+        assertThat(pendingEvents()).isZero();
+        assertThat(outboxRelay.relay()).isZero();
+        assertThat(recordingSink.events).isEmpty();
+    }
+
+    @Test
+    void relayKeepsTheEventsOfAFailedBatch() {
+        // Given
+        BeerOrderDto beerOrder = createBeerOrder();
+        recordingSink.failing = true;
+        double failures = meterRegistry.get("outbox.relay.failures").counter().count();
+
+        // When
+        outboxRelay.scheduledRelay();
+
+        // Then
+        assertThat(pendingEvents()).isEqualTo(1);
+        assertThat(meterRegistry.get("outbox.relay.failures").counter().count()).isEqualTo(failures + 1);
+
+        // When the sink is back
+        recordingSink.failing = false;
+        outboxRelay.relay();
+
+        // Then
+        assertThat(recordingSink.events).extracting(OutboxEventDto::aggregateId).containsExactly(beerOrder.id());
+        assertThat(pendingEvents()).isZero();
+    }
+
+    @Test
+    void appendRequiresATransaction() {
+        // When / Then
+        OutboxEvents outboxEvents = new OutboxEvents(jdbcTemplate, objectMapper);
+        assertThatThrownBy(() -> outboxEvents.append(OutboxEvents.BEER_ORDER_CREATED, 1, "{}"))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    private BeerOrderDto createBeerOrder() {
+        return beerOrderService.createBeerOrder(new CreateBeerOrderCommand(customer.getId(),
+                List.of(new OrderLineDto(null, 1, beer.getId(), null))));
+    }
+
+    private int pendingEvents() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM outbox_event", Integer.class);
+    }
+}
@@ -0,0 +1,153 @@
+package es.menasoft.juniemvc.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SingleFlightTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final ExecutorService executor = Executors.newFixedThreadPool(8);
+    private SingleFlight singleFlight;
+
+    @BeforeEach
+    void setUp() {
+        singleFlight = new SingleFlight(new SingleFlightProperties(Duration.ofSeconds(5)));
+        singleFlight.bindTo(registry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void concurrentRequestsForTheSameKeyShareOneLoad() throws Exception {
+        // Given
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        Future<String> leader = executor.submit(() -> singleFlight.execute("beer", 1, () -> {
+            loads.incrementAndGet();
+            loading.countDown();
+            await(release);
+            return "Beer 1";
+        }));
+        assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // When
+        List<Future<String>> followers = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            followers.add(executor.submit(() -> singleFlight.execute("beer", 1, () -> {
+                loads.incrementAndGet();
+                return "Beer 1 again";
+            })));
+        }
+        awaitInFlightWaiters();
+        release.countDown();
+
+        // Then
+        assertThat(leader.get(5, TimeUnit.SECONDS)).isEqualTo("Beer 1");
+        for (Future<String> follower : followers) {
+            assertThat(follower.get(5, TimeUnit.SECONDS)).isEqualTo("Beer 1");
+        }
+        assertThat(loads).hasValue(1);
+        assertThat(count("executed")).isEqualTo(1);
+        assertThat(count("collapsed")).isEqualTo(4);
+    }
+
+    @Test
+    void completedLoadsAreNotReused() {
+        // Given
+        AtomicInteger loads = new AtomicInteger();
+
+        // When
+        singleFlight.execute("beer", 1, loads::incrementAndGet);
+        singleFlight.execute("beer", 1, loads::incrementAndGet);
+        singleFlight.execute("beerOrder", 1, loads::incrementAndGet);
+
+        // Then
+        assertThat(loads).hasValue(3);
+        assertThat(registry.get("singleflight.in.flight").gauge().value()).isZero();
+    }
+
+    @Test
+    void failureIsSharedAndNotRemembered() throws Exception {
+        // Given
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<Object> leader = executor.submit(() -> singleFlight.execute("beer", 2, () -> {
+            loading.countDown();
+            await(release);
+            throw new IllegalArgumentException("boom");
+        }));
+        assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+        Future<Object> follower = executor.submit(() -> singleFlight.execute("beer", 2, () -> "unused"));
+        awaitInFlightWaiters();
+
+        // When
+        release.countDown();
+
+        // Then
+        assertThatThrownBy(() -> leader.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> follower.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(IllegalArgumentException.class);
+        assertThat(singleFlight.execute("beer", 2, () -> "recovered")).isEqualTo("recovered");
+    }
+
+    @Test
+    void requestLoadsOnItsOwnOnceTheWaitIsExceeded() throws Exception {
+        // Given
+        singleFlight = new SingleFlight(new SingleFlightProperties(Duration.ofMillis(50)));
+        singleFlight.bindTo(registry);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> leader = executor.submit(() -> singleFlight.execute("beerOrder", 3, () -> {
+            loading.countDown();
+            await(release);
+            return "slow";
+        }));
+        assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // When
+        String result = singleFlight.execute("beerOrder", 3, () -> "own");
+        release.countDown();
+
+        // Then
+        assertThat(result).isEqualTo("own");
+        assertThat(leader.get(5, TimeUnit.SECONDS)).isEqualTo("slow");
+        assertThat(registry.get("singleflight.requests").tag("name", "beerOrder").tag("result", "timed-out")
+                .functionCounter().count()).isEqualTo(1);
+    }
+
+    private double count(String result) {
+        return registry.get("singleflight.requests").tag("name", "beer").tag("result", result)
+                .functionCounter().count();
+    }
+
+    // The followers cannot be observed waiting, give them time to reach the load in flight
+    private static void awaitInFlightWaiters() throws InterruptedException {
+        Thread.sleep(200);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package es.menasoft.juniemvc.threads;
+
+import es.menasoft.juniemvc.exceptions.ServiceUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.ModelAndView;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdmissionFilterTest {
+
+    private final List<Exception> resolved = new ArrayList<>();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private AdmissionFilter admissionFilter;
+
+    @BeforeEach
+    void setUp() {
+        admissionFilter = new AdmissionFilter(1, Duration.ofMillis(50), (request, response, handler, ex) -> {
+            resolved.add(ex);
+            response.setStatus(503);
+            return new ModelAndView();
+        });
+        admissionFilter.bindTo(registry);
+    }
+
+    @Test
+    void requestBeyondTheLimitIsRejected() throws Exception {
+        // Given
+        MockHttpServletResponse nestedResponse = new MockHttpServletResponse();
+
+        // When
+        admissionFilter.doFilter(new MockHttpServletRequest("GET", "/api/v1/beers/1"), new MockHttpServletResponse(),
+                (request, response) -> {
+                    assertThat(registry.get("http.server.requests.admitted").gauge().value()).isEqualTo(1);
+                    admissionFilter.doFilter(new MockHttpServletRequest("GET", "/api/v1/beers/2"), nestedResponse,
+                            (nestedRequest, ignored) -> {
+                                throw new AssertionError("Requests beyond the limit must not be handled");
+                            });
+                });
+
+        // Then
+        assertThat(nestedResponse.getStatus()).isEqualTo(503);
+        assertThat(resolved).singleElement().isInstanceOf(ServiceUnavailableException.class);
+        assertThat(registry.get("http.server.requests.rejected").functionCounter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void permitIsReleasedWhenTheRequestCompletes() throws Exception {
+        // Given
+        List<String> handled = new ArrayList<>();
+
+        // When
+        admissionFilter.doFilter(new MockHttpServletRequest("GET", "/api/v1/beers/1"), new MockHttpServletResponse(),
+                (request, response) -> handled.add("first"));
+        admissionFilter.doFilter(new MockHttpServletRequest("GET", "/api/v1/beers/2"), new MockHttpServletResponse(),
+                (request, response) -> handled.add("second"));
+
+        // Then
+        assertThat(handled).containsExactly("first", "second");
+        assertThat(resolved).isEmpty();
+        assertThat(registry.get("http.server.requests.admitted").gauge().value()).isZero();
+    }
+}
@@ -0,0 +1,50 @@
+package es.menasoft.juniemvc.threads;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "spring.threads.virtual.enabled=true")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class VirtualThreadConfigurationTest {
+
+    @Autowired
+    ApplicationContext applicationContext;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Test
+    void virtualThreadsEnableAdmissionControl() {
+        // When
+        FilterRegistrationBean<?> registration = applicationContext.getBean("admissionFilterRegistration",
+                FilterRegistrationBean.class);
+
+        // Then
+        assertThat(registration.getFilter()).isInstanceOf(AdmissionFilter.class);
+        assertThat(registration.getUrlPatterns()).containsExactly("/api/*");
+        assertThat(applicationContext.getBeansOfType(PinnedThreadMonitor.class)).hasSize(1);
+        assertThat(meterRegistry.find("http.server.requests.admitted").gauge()).isNotNull();
+    }
+
+    @Test
+    void admittedRequestIsHandled() throws Exception {
+        // When/Then
+        mockMvc.perform(get("/api/v1/beers"))
+                .andExpect(status().isOk());
+    }
+}